@@ -0,0 +1,50 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE_INTERESTING;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * makePhoneCall for a second buddy racing the IDLE callback that ends the first call.
+ * Result: sequence of the ended call (0 = none), its duration in ms (-1 = none).
+ */
+@JCStressTest
+@Outcome(id = "1, 10000", expect = ACCEPTABLE, desc = "First call ended with its own start, then the second began")
+@Outcome(id = "0, -1", expect = ACCEPTABLE_INTERESTING, desc = "Second call began first; the late IDLE is not taken as its end")
+@Outcome(expect = FORBIDDEN, desc = "Ended call mixes the two calls, or the second call ended before connecting")
+@State
+public class CallBeginIdleStress {
+    private final CallTracker tracker = new CallTracker();
+
+    public CallBeginIdleStress() {
+        tracker.begin("1111111111");
+        tracker.onOffhook(10_000);
+    }
+
+    @Actor
+    public void makePhoneCall() {
+        tracker.begin("2222222222");
+    }
+
+    @Actor
+    public void idle(JJ_Result r) {
+        CallTracker.Call ended = tracker.onIdle(20_000);
+        if (ended == null) {
+            r.r1 = 0;
+            r.r2 = -1;
+        } else if (!"1111111111".equals(ended.number)) {
+            // Number from one call, sequence/start from another
+            r.r1 = -ended.sequence;
+            r.r2 = ended.endedAt - ended.startedAt;
+        } else {
+            r.r1 = ended.sequence;
+            r.r2 = ended.endedAt - ended.startedAt;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Listener hand-off: makePhoneCall (registers a listener if begin() says so) racing the
+ * IDLE of the previous call (unregisters if releaseListener() says so).
+ * Result: registered by makePhoneCall, unregistered by the callback, listeners left.
+ */
+@JCStressTest
+@Outcome(id = "0, 0, 1", expect = ACCEPTABLE, desc = "Existing listener kept for the new call")
+@Outcome(id = "1, 1, 1", expect = ACCEPTABLE, desc = "Old listener removed, new one registered")
+@Outcome(id = "0, 1, 0", expect = FORBIDDEN, desc = "New call left without a listener")
+@Outcome(id = "1, 0, 2", expect = FORBIDDEN, desc = "Two listeners registered")
+@Outcome(expect = FORBIDDEN, desc = "Listener count does not match the tracker")
+@State
+public class CallListenerStress {
+    private final CallTracker tracker = new CallTracker();
+
+    public CallListenerStress() {
+        tracker.begin("1111111111");
+        tracker.onOffhook(10_000);
+    }
+
+    @Actor
+    public void makePhoneCall(III_Result r) {
+        r.r1 = tracker.begin("2222222222") ? 1 : 0;
+    }
+
+    @Actor
+    public void idle(III_Result r) {
+        tracker.onIdle(20_000);
+        r.r2 = tracker.releaseListener() ? 1 : 0;
+    }
+
+    @Arbiter
+    public void arbiter(III_Result r) {
+        int listeners = 1 + r.r1 - r.r2;
+        r.r3 = listeners == (tracker.isListening() ? 1 : 0) ? listeners : -1;
+    }
+}
@@ -0,0 +1,40 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Just after makePhoneCall: the IDLE that TelephonyManager reports on registration racing
+ * the OFFHOOK of the call being placed. Result: start time reported by OFFHOOK (0 = none),
+ * duration in ms reported by IDLE (-1 = none).
+ */
+@JCStressTest
+@Outcome(id = "30000, -1", expect = ACCEPTABLE, desc = "Initial IDLE ignored, call connected")
+@Outcome(id = "30000, 10000", expect = ACCEPTABLE, desc = "Call connected, then ended")
+@Outcome(expect = FORBIDDEN, desc = "Call ended before it connected, or never connected")
+@State
+public class CallOffhookIdleStress {
+    private final CallTracker tracker = new CallTracker();
+
+    public CallOffhookIdleStress() {
+        tracker.begin("1111111111");
+    }
+
+    @Actor
+    public void offhook(JJ_Result r) {
+        CallTracker.Call started = tracker.onOffhook(30_000);
+        r.r1 = started != null ? started.startedAt : 0;
+    }
+
+    @Actor
+    public void idle(JJ_Result r) {
+        CallTracker.Call ended = tracker.onIdle(40_000);
+        r.r2 = ended != null ? ended.endedAt - ended.startedAt : -1;
+    }
+}
@@ -0,0 +1,48 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * BootReceiver restoring a persisted alarm while JS cancels it.
+ * Result: armed fire time, persisted fire time (0 = none).
+ */
+@JCStressTest
+@Outcome(id = "0, 0", expect = ACCEPTABLE, desc = "Cancelled: neither armed nor persisted")
+@Outcome(id = "100, 0", expect = FORBIDDEN, desc = "Ghost alarm: restore armed a cancelled alarm")
+@Outcome(expect = FORBIDDEN, desc = "Armed alarm and persisted record disagree")
+@State
+public class CancelRestoreStress {
+    private static final int REQUEST_CODE = 7;
+    private static final long NOW = 50;
+
+    private final MemoryBackend backend = new MemoryBackend();
+    private final AlarmLedger ledger = new AlarmLedger(backend);
+
+    public CancelRestoreStress() {
+        backend.persistOnly(new AlarmRecord(REQUEST_CODE, 100, "buddy@example.com", "a1"));
+    }
+
+    @Actor
+    public void cancel() {
+        ledger.cancel(REQUEST_CODE);
+    }
+
+    @Actor
+    public void restore() {
+        ledger.restore(NOW);
+    }
+
+    @Arbiter
+    public void arbiter(JJ_Result r) {
+        r.r1 = backend.armedWhen(REQUEST_CODE);
+        r.r2 = backend.persistedWhen(REQUEST_CODE);
+    }
+}
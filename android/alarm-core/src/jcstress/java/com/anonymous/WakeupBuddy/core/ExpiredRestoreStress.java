@@ -0,0 +1,48 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * BootReceiver deleting an expired entry while JS schedules a new alarm under the
+ * same requestCode. Result: armed fire time, persisted fire time (0 = none).
+ */
+@JCStressTest
+@Outcome(id = "200, 200", expect = ACCEPTABLE, desc = "The new alarm is armed and persisted")
+@Outcome(id = "200, 0", expect = FORBIDDEN, desc = "Restore deleted the new alarm's record; it would not survive the next reboot")
+@Outcome(expect = FORBIDDEN, desc = "Armed alarm and persisted record disagree")
+@State
+public class ExpiredRestoreStress {
+    private static final int REQUEST_CODE = 7;
+    private static final long NOW = 50;
+
+    private final MemoryBackend backend = new MemoryBackend();
+    private final AlarmLedger ledger = new AlarmLedger(backend);
+
+    public ExpiredRestoreStress() {
+        backend.persistOnly(new AlarmRecord(REQUEST_CODE, 10, "buddy@example.com", "a1"));
+    }
+
+    @Actor
+    public void schedule() {
+        ledger.schedule(new AlarmRecord(REQUEST_CODE, 200, "buddy@example.com", "a2"));
+    }
+
+    @Actor
+    public void restore() {
+        ledger.restore(NOW);
+    }
+
+    @Arbiter
+    public void arbiter(JJ_Result r) {
+        r.r1 = backend.armedWhen(REQUEST_CODE);
+        r.r2 = backend.persistedWhen(REQUEST_CODE);
+    }
+}
@@ -0,0 +1,64 @@
+package com.anonymous.WakeupBuddy.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory AlarmManager + SharedPreferences for the stress tests. Each call is atomic
+ * on its own, like the real services; only the pairing across calls is up to AlarmLedger.
+ */
+final class MemoryBackend implements AlarmLedger.Backend {
+    private final Map<Integer, Long> armed = new HashMap<>();
+    private final Map<String, Object> stored = new HashMap<>();
+
+    @Override
+    public synchronized void arm(AlarmRecord record) {
+        armed.put(record.requestCode, record.when);
+    }
+
+    @Override
+    public synchronized boolean disarm(int requestCode) {
+        return armed.remove(requestCode) != null;
+    }
+
+    @Override
+    public synchronized Object read(String key) {
+        return stored.get(key);
+    }
+
+    @Override
+    public synchronized Map<String, ?> snapshot() {
+        return new HashMap<>(stored);
+    }
+
+    @Override
+    public synchronized void write(Map<String, String> entries) {
+        stored.putAll(entries);
+    }
+
+    @Override
+    public synchronized void remove(List<String> keys) {
+        for (String key : keys) {
+            stored.remove(key);
+        }
+    }
+
+    /** Persist without arming, as after a reboot */
+    synchronized void persistOnly(AlarmRecord record) {
+        stored.put(record.key(), record.encode());
+    }
+
+    /** Fire time of the armed alarm, 0 if none */
+    synchronized long armedWhen(int requestCode) {
+        Long when = armed.get(requestCode);
+        return when != null ? when : 0;
+    }
+
+    /** Fire time of the persisted record, 0 if none or unreadable */
+    synchronized long persistedWhen(int requestCode) {
+        Object value = stored.get(AlarmRecord.keyFor(requestCode));
+        AlarmRecord record = value instanceof String ? AlarmRecord.decode(requestCode, (String) value) : null;
+        return record != null ? record.when : 0;
+    }
+}
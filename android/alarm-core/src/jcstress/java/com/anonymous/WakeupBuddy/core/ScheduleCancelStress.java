@@ -0,0 +1,47 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * scheduleExactAlarm (re-scheduling an armed alarm) racing cancelAlarm for the same requestCode.
+ * Result: armed fire time, persisted fire time (0 = none).
+ */
+@JCStressTest
+@Outcome(id = "200, 200", expect = ACCEPTABLE, desc = "Cancel, then schedule: armed and persisted")
+@Outcome(id = "0, 0", expect = ACCEPTABLE, desc = "Schedule, then cancel: gone from both")
+@Outcome(expect = FORBIDDEN, desc = "Armed alarm and persisted record disagree")
+@State
+public class ScheduleCancelStress {
+    private static final int REQUEST_CODE = 7;
+
+    private final MemoryBackend backend = new MemoryBackend();
+    private final AlarmLedger ledger = new AlarmLedger(backend);
+
+    public ScheduleCancelStress() {
+        ledger.schedule(new AlarmRecord(REQUEST_CODE, 100, "buddy@example.com", "a1"));
+    }
+
+    @Actor
+    public void schedule() {
+        ledger.schedule(new AlarmRecord(REQUEST_CODE, 200, "buddy@example.com", "a1"));
+    }
+
+    @Actor
+    public void cancel() {
+        ledger.cancel(REQUEST_CODE);
+    }
+
+    @Arbiter
+    public void arbiter(JJ_Result r) {
+        r.r1 = backend.armedWhen(REQUEST_CODE);
+        r.r2 = backend.persistedWhen(REQUEST_CODE);
+    }
+}
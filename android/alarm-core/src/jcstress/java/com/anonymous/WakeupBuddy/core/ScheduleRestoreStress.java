@@ -0,0 +1,49 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * BootReceiver restoring a persisted alarm while JS re-schedules the same requestCode
+ * for a new time. Result: armed fire time, persisted fire time (0 = none).
+ */
+@JCStressTest
+@Outcome(id = "200, 200", expect = ACCEPTABLE, desc = "The new time is armed and persisted")
+@Outcome(id = "100, 200", expect = FORBIDDEN, desc = "Restore re-armed the stale time over the new one")
+@Outcome(expect = FORBIDDEN, desc = "Armed alarm and persisted record disagree")
+@State
+public class ScheduleRestoreStress {
+    private static final int REQUEST_CODE = 7;
+    private static final long NOW = 50;
+
+    private final MemoryBackend backend = new MemoryBackend();
+    private final AlarmLedger ledger = new AlarmLedger(backend);
+
+    public ScheduleRestoreStress() {
+        // Persisted before the reboot, nothing armed yet
+        backend.persistOnly(new AlarmRecord(REQUEST_CODE, 100, "buddy@example.com", "a1"));
+    }
+
+    @Actor
+    public void schedule() {
+        ledger.schedule(new AlarmRecord(REQUEST_CODE, 200, "buddy@example.com", "a1"));
+    }
+
+    @Actor
+    public void restore() {
+        ledger.restore(NOW);
+    }
+
+    @Arbiter
+    public void arbiter(JJ_Result r) {
+        r.r1 = backend.armedWhen(REQUEST_CODE);
+        r.r2 = backend.persistedWhen(REQUEST_CODE);
+    }
+}
@@ -0,0 +1,52 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encode/decode of the persisted alarm value, the work done per alarm on every
+ * schedule call and on every boot.
+ */
+@State(Scope.Benchmark)
+public class AlarmRecordBenchmark {
+    private AlarmRecord plain;
+    private AlarmRecord escaped;
+    private String plainValue;
+    private String escapedValue;
+
+    @Setup
+    public void setup() {
+        plain = new AlarmRecord(12345, 1_760_000_000_000L, "Aarya", "k57f3x9a2b1c0d8e7f6g5h4j3");
+        escaped = new AlarmRecord(12346, 1_760_000_000_000L, "Sam | Night\\Owl", "k57f3x9a2b1c0d8e7f6g5h4j3");
+        plainValue = plain.encode();
+        escapedValue = escaped.encode();
+    }
+
+    @Benchmark
+    public String encode() {
+        return plain.encode();
+    }
+
+    @Benchmark
+    public String encodeEscaped() {
+        return escaped.encode();
+    }
+
+    @Benchmark
+    public AlarmRecord decode() {
+        return AlarmRecord.decode(12345, plainValue);
+    }
+
+    @Benchmark
+    public AlarmRecord decodeEscaped() {
+        return AlarmRecord.decode(12346, escapedValue);
+    }
+
+    @Benchmark
+    public void keyRoundTrip(Blackhole bh) {
+        bh.consume(AlarmRecord.requestCodeFromKey(AlarmRecord.keyFor(12345)));
+    }
+}
@@ -0,0 +1,38 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.TimeZone;
+
+/**
+ * Building the dismissal deep link and the time strings that go into it,
+ * the work done on the "I'm Awake" tap.
+ */
+@State(Scope.Benchmark)
+public class DeepLinksBenchmark {
+    private final TimeZone zone = TimeZone.getTimeZone("Asia/Kolkata");
+    private final long alarmTime = 1_760_000_000_000L;
+
+    @Benchmark
+    public String alarmDismissed() {
+        return DeepLinks.alarmDismissed("buddy.name+alarms@example.com", "k57f3x9a2b1c0d8e7f6g5h4j3",
+            "k57f3x9a2b1c0d8e7f6g5h4j3", "5:43", "PM");
+    }
+
+    @Benchmark
+    public String alarmDismissedUnicode() {
+        return DeepLinks.alarmDismissed("अर्य@example.com", "t1760000000000", null, "12:05", "AM");
+    }
+
+    @Benchmark
+    public String clockTime() {
+        return AlarmTimes.clockTime(alarmTime, zone);
+    }
+
+    @Benchmark
+    public String displayTime() {
+        return AlarmTimes.displayTime(alarmTime, zone);
+    }
+}
@@ -0,0 +1,73 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning a call-log fixture for the buddy's number, as checkPendingCall and
+ * getLastCallDuration do per row. The target sits at the end so every row is
+ * compared. regexBaseline is the previous replaceAll-based matcher, kept for
+ * comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PhoneNumbersBenchmark {
+    private static final String[] FORMATS = {"+91 %s-%s", "0%s%s", "(%s) %s", "%s %s", "+1-%s-%s"};
+
+    @Param({"500", "20000"})
+    public int rows;
+
+    private String[] callLog;
+    private String target;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        callLog = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            String a = String.valueOf(10000 + random.nextInt(90000));
+            String b = String.valueOf(10000 + random.nextInt(90000));
+            callLog[i] = String.format(FORMATS[i % FORMATS.length], a, b);
+        }
+        target = "+91 98765 43210";
+        callLog[rows - 1] = "098765-43210";
+    }
+
+    @Benchmark
+    public int sameNumber() {
+        for (int i = 0; i < callLog.length; i++) {
+            if (PhoneNumbers.sameNumber(target, callLog[i])) return i;
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int suffixMatch() {
+        for (int i = 0; i < callLog.length; i++) {
+            if (PhoneNumbers.suffixMatch(target, callLog[i])) return i;
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int regexBaseline() {
+        String normalized = target.replaceAll("[^0-9]", "");
+        String last10 = normalized.length() > 10 ? normalized.substring(normalized.length() - 10) : normalized;
+        for (int i = 0; i < callLog.length; i++) {
+            String n = callLog[i].replaceAll("[^0-9]", "");
+            String logLast10 = n.length() > 10 ? n.substring(n.length() - 10) : n;
+            if (logLast10.equals(last10)) return i;
+        }
+        return -1;
+    }
+}
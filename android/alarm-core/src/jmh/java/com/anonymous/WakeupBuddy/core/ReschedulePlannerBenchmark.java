@@ -0,0 +1,50 @@
+package com.anonymous.WakeupBuddy.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boot-time planning over a large alarm store: a quarter of the alarms already
+ * expired, a few corrupt entries and some unrelated keys mixed in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReschedulePlannerBenchmark {
+    private static final long NOW = 1_760_000_000_000L;
+
+    @Param({"1000", "100000"})
+    public int alarms;
+
+    private Map<String, Object> stored;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        stored = new HashMap<>(alarms * 2);
+        for (int i = 0; i < alarms; i++) {
+            long when = NOW + (random.nextInt(4) == 0 ? -1 : 1) * (60_000L + random.nextInt(7 * 24 * 3600) * 1000L);
+            String buddy = i % 10 == 0 ? "Buddy|" + i : (i % 3 == 0 ? "" : "Buddy " + i);
+            String value = new AlarmRecord(i, when, buddy, "alarm" + i).encode();
+            stored.put(AlarmRecord.keyFor(i), i % 997 == 0 ? "garbage" : value);
+        }
+        stored.put("lastSync", 123L);
+        stored.put("theme", "dark");
+    }
+
+    @Benchmark
+    public ReschedulePlanner.Plan plan() {
+        return ReschedulePlanner.plan(stored, NOW);
+    }
+}
@@ -0,0 +1,207 @@
+package com.anonymous.WakeupBuddy.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the armed system alarm and its persisted record in step for each requestCode.
+ *
+ * scheduleExactAlarm, cancelAlarm and the boot reschedule each touch two things
+ * (AlarmManager and the "WakeupBuddyAlarms" preferences) from different threads.
+ * Every arm+persist / disarm+remove pair runs under one lock, and a reboot restore
+ * only re-arms or deletes an entry if it is still exactly what the restore read at
+ * the start, so a schedule or cancel that lands mid-restore is never undone.
+ *
+ * The rule checked by the jcstress suite: once the callers are done, a requestCode
+ * is armed if and only if it is persisted, and with the persisted time.
+ *
+ * The ledger also remembers what it armed in this process, so diagnostics can list
+ * it without reading the store or asking the alarm service.
+ */
+public final class AlarmLedger {
+
+    /**
+     * The platform side: the alarm service and the key/value store behind it
+     */
+    public interface Backend {
+        /** Arm (or re-arm) the system alarm for this record */
+        void arm(AlarmRecord record);
+
+        /** Cancel the system alarm; returns whether one was armed */
+        boolean disarm(int requestCode);
+
+        /** Current stored value for a key, or null */
+        Object read(String key);
+
+        /** All stored entries, for the reboot restore */
+        Map<String, ?> snapshot();
+
+        /** Write several entries in one write */
+        void write(Map<String, String> entries);
+
+        /** Remove several keys in one write */
+        void remove(List<String> keys);
+    }
+
+    public static final class Restore {
+        /** Alarms re-armed */
+        public final int armed;
+        /** Expired or unreadable entries deleted */
+        public final int removed;
+        /** Entries left alone because a schedule or cancel changed them during the restore */
+        public final int skipped;
+        /** Alarms whose arm() threw; the rest are still restored */
+        public final int failed;
+
+        Restore(int armed, int removed, int skipped, int failed) {
+            this.armed = armed;
+            this.removed = removed;
+            this.skipped = skipped;
+            this.failed = failed;
+        }
+    }
+
+    private final Backend backend;
+    private final Object lock = new Object();
+    // Armed by this ledger since the process started, by requestCode; guarded by lock
+    private final Map<Integer, AlarmRecord> armedByCode = new HashMap<>();
+
+    public AlarmLedger(Backend backend) {
+        this.backend = backend;
+    }
+
+    public void schedule(AlarmRecord record) {
+        synchronized (lock) {
+            backend.arm(record);
+            armedByCode.put(record.requestCode, record);
+            Map<String, String> entry = new LinkedHashMap<>(2);
+            entry.put(record.key(), record.encode());
+            backend.write(entry);
+        }
+    }
+
+    /**
+     * Arm every record, then persist them in one write. If arming one throws, the records
+     * armed before it are still persisted and the exception is rethrown.
+     */
+    public void schedule(List<AlarmRecord> records) {
+        synchronized (lock) {
+            Map<String, String> entries = new LinkedHashMap<>(records.size() * 2);
+            try {
+                for (AlarmRecord record : records) {
+                    backend.arm(record);
+                    armedByCode.put(record.requestCode, record);
+                    entries.put(record.key(), record.encode());
+                }
+            } finally {
+                if (!entries.isEmpty()) {
+                    backend.write(entries);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether a system alarm was armed for requestCode. The record is removed either way.
+     */
+    public boolean cancel(int requestCode) {
+        synchronized (lock) {
+            boolean wasArmed = backend.disarm(requestCode);
+            armedByCode.remove(requestCode);
+            List<String> key = new ArrayList<>(1);
+            key.add(AlarmRecord.keyFor(requestCode));
+            backend.remove(key);
+            return wasArmed;
+        }
+    }
+
+    /**
+     * Cancel several alarms and remove their records in one write. Returns how many were armed.
+     */
+    public int cancel(int[] requestCodes) {
+        synchronized (lock) {
+            int wasArmed = 0;
+            List<String> keys = new ArrayList<>(requestCodes.length);
+            for (int requestCode : requestCodes) {
+                if (backend.disarm(requestCode)) wasArmed++;
+                armedByCode.remove(requestCode);
+                keys.add(AlarmRecord.keyFor(requestCode));
+            }
+            if (!keys.isEmpty()) {
+                backend.remove(keys);
+            }
+            return wasArmed;
+        }
+    }
+
+    /**
+     * Re-arm future alarms and delete expired or unreadable entries after a reboot.
+     * The snapshot is planned without holding the lock; each entry is then re-checked
+     * against the store under the lock before it is acted on.
+     */
+    public Restore restore(long now) {
+        Map<String, ?> snapshot = backend.snapshot();
+        ReschedulePlanner.Plan plan = ReschedulePlanner.plan(snapshot, now);
+
+        int armed = 0;
+        int skipped = 0;
+        int failed = 0;
+        for (AlarmRecord record : plan.toSchedule) {
+            synchronized (lock) {
+                if (!unchanged(snapshot, record.key())) {
+                    skipped++;
+                    continue;
+                }
+                try {
+                    backend.arm(record);
+                    armedByCode.put(record.requestCode, record);
+                    armed++;
+                } catch (RuntimeException e) {
+                    failed++;
+                }
+            }
+        }
+
+        int removed = 0;
+        if (plan.hasRemovals()) {
+            synchronized (lock) {
+                List<String> keys = new ArrayList<>(plan.expiredKeys.size() + plan.invalidKeys.size());
+                for (String key : plan.expiredKeys) {
+                    if (unchanged(snapshot, key)) keys.add(key); else skipped++;
+                }
+                for (String key : plan.invalidKeys) {
+                    if (unchanged(snapshot, key)) keys.add(key); else skipped++;
+                }
+                if (!keys.isEmpty()) {
+                    backend.remove(keys);
+                }
+                for (String key : keys) {
+                    armedByCode.remove(AlarmRecord.requestCodeFromKey(key));
+                }
+                removed = keys.size();
+            }
+        }
+        return new Restore(armed, removed, skipped, failed);
+    }
+
+    /**
+     * Records armed through this ledger in this process and not cancelled since, soonest
+     * first. Alarms armed by an earlier process are not included.
+     */
+    public List<AlarmRecord> armedRecords() {
+        synchronized (lock) {
+            List<AlarmRecord> records = new ArrayList<>(armedByCode.values());
+            records.sort((a, b) -> Long.compare(a.when, b.when));
+            return records;
+        }
+    }
+
+    // Caller holds the lock
+    private boolean unchanged(Map<String, ?> snapshot, String key) {
+        return Objects.equals(backend.read(key), snapshot.get(key));
+    }
+}
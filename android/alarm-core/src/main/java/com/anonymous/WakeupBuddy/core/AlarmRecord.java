@@ -0,0 +1,161 @@
+package com.anonymous.WakeupBuddy.core;
+
+/**
+ * A scheduled alarm as persisted in the "WakeupBuddyAlarms" preferences.
+ *
+ * Stored under "alarm_<requestCode>" as "when|buddyName|alarmId", followed by
+ * "|scheduledFor" for a snooze. A '|' or '\' inside a field is escaped with a
+ * backslash; values written before escaping existed contain no backslashes and
+ * decode unchanged.
+ */
+public final class AlarmRecord {
+    public static final String KEY_PREFIX = "alarm_";
+
+    public final int requestCode;
+    public final long when;
+    public final String buddyName;
+    public final String alarmId;
+    /** The time the alarm was set for; later than that only while snoozed */
+    public final long scheduledFor;
+
+    public AlarmRecord(int requestCode, long when, String buddyName, String alarmId) {
+        this(requestCode, when, buddyName, alarmId, when);
+    }
+
+    public AlarmRecord(int requestCode, long when, String buddyName, String alarmId, long scheduledFor) {
+        this.requestCode = requestCode;
+        this.when = when;
+        this.buddyName = emptyToNull(buddyName);
+        this.alarmId = emptyToNull(alarmId);
+        this.scheduledFor = scheduledFor > 0 ? scheduledFor : when;
+    }
+
+    public static String keyFor(int requestCode) {
+        return KEY_PREFIX + requestCode;
+    }
+
+    /**
+     * The request code JS derives from an alarmId (generateRequestCode in AlarmNative.js):
+     * a 32-bit string hash made positive, or 1001 when there is no alarmId.
+     */
+    public static int requestCodeFor(String alarmId) {
+        if (alarmId == null || alarmId.isEmpty()) return 1001;
+        int hash = 0;
+        for (int i = 0; i < alarmId.length(); i++) {
+            hash = (hash << 5) - hash + alarmId.charAt(i);
+        }
+        int code = (int) (Math.abs((long) hash) % Integer.MAX_VALUE);
+        return code != 0 ? code : 1;
+    }
+
+    /**
+     * Request code encoded in a preferences key, or -1 if the key is not an alarm key
+     */
+    public static int requestCodeFromKey(String key) {
+        if (key == null || !key.startsWith(KEY_PREFIX) || key.length() == KEY_PREFIX.length()) return -1;
+        int value = 0;
+        for (int i = KEY_PREFIX.length(); i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9' || value > (Integer.MAX_VALUE - (c - '0')) / 10) return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    public String key() {
+        return keyFor(requestCode);
+    }
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder(32);
+        sb.append(when).append('|');
+        appendEscaped(sb, buddyName);
+        sb.append('|');
+        appendEscaped(sb, alarmId);
+        if (scheduledFor != when) sb.append('|').append(scheduledFor);
+        return sb.toString();
+    }
+
+    /**
+     * Parse a stored value. Returns null when the value is not a valid record; an
+     * unreadable scheduledFor falls back to when.
+     */
+    public static AlarmRecord decode(int requestCode, String value) {
+        if (value == null || value.isEmpty()) return null;
+
+        String[] fields = new String[4];
+        int field = 0;
+        StringBuilder current = null;
+        int start = 0;
+        boolean escaped = false;
+        for (int i = 0; i < value.length() && field < 4; i++) {
+            char c = value.charAt(i);
+            if (escaped) {
+                current.append(c);
+                escaped = false;
+            } else if (c == '\\') {
+                if (current == null) current = new StringBuilder().append(value, start, i);
+                escaped = true;
+            } else if (c == '|') {
+                fields[field++] = current != null ? current.toString() : value.substring(start, i);
+                current = null;
+                start = i + 1;
+            } else if (current != null) {
+                current.append(c);
+            }
+        }
+        if (field < 4) {
+            fields[field] = current != null ? current.toString() : value.substring(start);
+        }
+
+        long when = parseLong(fields[0]);
+        if (when <= 0) return null;
+        return new AlarmRecord(requestCode, when, fields[1], fields[2], parseLong(fields[3]));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AlarmRecord)) return false;
+        AlarmRecord other = (AlarmRecord) o;
+        return requestCode == other.requestCode && when == other.when
+            && scheduledFor == other.scheduledFor
+            && java.util.Objects.equals(buddyName, other.buddyName)
+            && java.util.Objects.equals(alarmId, other.alarmId);
+    }
+
+    @Override
+    public int hashCode() {
+        return java.util.Objects.hash(requestCode, when, buddyName, alarmId, scheduledFor);
+    }
+
+    @Override
+    public String toString() {
+        return key() + "=" + encode();
+    }
+
+    private static void appendEscaped(StringBuilder sb, String field) {
+        if (field == null) return;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '|' || c == '\\') sb.append('\\');
+            sb.append(c);
+        }
+    }
+
+    // Long.parseLong without the exception cost for junk input
+    private static long parseLong(String s) {
+        if (s == null || s.isEmpty() || s.length() > 18) return -1;
+        long value = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static String emptyToNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+}
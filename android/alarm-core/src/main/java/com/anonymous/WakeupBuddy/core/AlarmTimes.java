@@ -0,0 +1,65 @@
+package com.anonymous.WakeupBuddy.core;
+
+import java.util.TimeZone;
+
+/**
+ * Formats alarm times the way the alarms table stores them ("5:43" + "PM") and
+ * the way the alarm screen shows them ("05:43 AM"), without SimpleDateFormat.
+ */
+public final class AlarmTimes {
+    private static final long MINUTE_MS = 60_000L;
+    private static final long DAY_MINUTES = 24 * 60;
+
+    private AlarmTimes() {}
+
+    /**
+     * Minutes since local midnight for the given instant
+     */
+    public static int minuteOfDay(long epochMs, TimeZone zone) {
+        long local = epochMs + zone.getOffset(epochMs);
+        return (int) Math.floorMod(Math.floorDiv(local, MINUTE_MS), DAY_MINUTES);
+    }
+
+    /**
+     * "h:mm" on a 12-hour clock, e.g. "5:43" or "12:05"
+     */
+    public static String clockTime(long epochMs, TimeZone zone) {
+        int minuteOfDay = minuteOfDay(epochMs, zone);
+        int hour = hour12(minuteOfDay / 60);
+        int minute = minuteOfDay % 60;
+        char[] out = new char[hour >= 10 ? 5 : 4];
+        int p = 0;
+        if (hour >= 10) out[p++] = '1';
+        out[p++] = (char) ('0' + hour % 10);
+        out[p++] = ':';
+        out[p++] = (char) ('0' + minute / 10);
+        out[p] = (char) ('0' + minute % 10);
+        return new String(out);
+    }
+
+    /**
+     * "AM" or "PM"
+     */
+    public static String amPm(long epochMs, TimeZone zone) {
+        return minuteOfDay(epochMs, zone) < 12 * 60 ? "AM" : "PM";
+    }
+
+    /**
+     * "hh:mm AM" with a zero-padded hour, as shown on the alarm screen
+     */
+    public static String displayTime(long epochMs, TimeZone zone) {
+        int minuteOfDay = minuteOfDay(epochMs, zone);
+        int hour = hour12(minuteOfDay / 60);
+        int minute = minuteOfDay % 60;
+        return new String(new char[] {
+            (char) ('0' + hour / 10), (char) ('0' + hour % 10), ':',
+            (char) ('0' + minute / 10), (char) ('0' + minute % 10), ' ',
+            minuteOfDay < 12 * 60 ? 'A' : 'P', 'M'
+        });
+    }
+
+    private static int hour12(int hour24) {
+        int h = hour24 % 12;
+        return h == 0 ? 12 : h;
+    }
+}
@@ -0,0 +1,186 @@
+package com.anonymous.WakeupBuddy.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded buddy profiles for the alarm screen, keyed by buddy email and by alarmId.
+ *
+ * JS fills it whenever alarms are scheduled or reconciled; at fire time the alarm
+ * only carries the buddy's email (the "buddyName" extra), and this turns it into a
+ * name, phone number and avatar seed without the network. Both maps are LRU in
+ * access order. Emails are matched case-insensitively.
+ *
+ * Encoded form, all big-endian via DataOutputStream:
+ *
+ *   int magic, byte version,
+ *   short profileCount, profileCount x (UTF email, UTF name, UTF phone, UTF profileCode, long updatedAt),
+ *   short alarmCount,   alarmCount x (UTF alarmId, UTF email)
+ *
+ * Missing strings are written as "". Entries are written least recently used first,
+ * so decoding restores the LRU order.
+ */
+public final class BuddyDirectory {
+    private static final int MAGIC = 0x57424244; // "WBBD"
+    private static final byte VERSION = 1;
+
+    public static final class Profile {
+        public final String email;
+        /** null when unknown, like phone and profileCode */
+        public final String name;
+        public final String phone;
+        public final String profileCode;
+        public final long updatedAt;
+
+        public Profile(String email, String name, String phone, String profileCode, long updatedAt) {
+            this.email = normalizeEmail(email);
+            this.name = emptyToNull(name);
+            this.phone = emptyToNull(phone);
+            this.profileCode = emptyToNull(profileCode);
+            this.updatedAt = updatedAt;
+        }
+
+        boolean sameContent(Profile other) {
+            return other != null
+                && email.equals(other.email)
+                && equal(name, other.name)
+                && equal(phone, other.phone)
+                && equal(profileCode, other.profileCode);
+        }
+    }
+
+    private final LinkedHashMap<String, Profile> profiles;
+    private final LinkedHashMap<String, String> alarms;
+
+    public BuddyDirectory(final int maxProfiles, final int maxAlarms) {
+        profiles = new LinkedHashMap<String, Profile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Profile> eldest) {
+                return size() > maxProfiles;
+            }
+        };
+        alarms = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxAlarms;
+            }
+        };
+    }
+
+    /**
+     * Store a profile, and link alarmId to it when not null. Returns true if anything
+     * changed, i.e. the directory needs writing out.
+     */
+    public synchronized boolean put(String alarmId, Profile profile) {
+        if (profile.email.isEmpty()) return false;
+        boolean changed = false;
+        Profile previous = profiles.get(profile.email);
+        if (!profile.sameContent(previous)) {
+            profiles.put(profile.email, profile);
+            changed = true;
+        }
+        if (alarmId != null && !alarmId.isEmpty()) {
+            changed |= !profile.email.equals(alarms.put(alarmId, profile.email));
+        }
+        return changed;
+    }
+
+    /**
+     * Profile for a ringing alarm: by alarmId first, then by the email it was armed
+     * with. Null when neither is known.
+     */
+    public synchronized Profile lookup(String alarmId, String email) {
+        if (alarmId != null) {
+            String linked = alarms.get(alarmId);
+            if (linked != null) {
+                Profile profile = profiles.get(linked);
+                if (profile != null) return profile;
+            }
+        }
+        return email != null ? profiles.get(normalizeEmail(email)) : null;
+    }
+
+    public synchronized int profileCount() {
+        return profiles.size();
+    }
+
+    public synchronized int alarmCount() {
+        return alarms.size();
+    }
+
+    public synchronized byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + profiles.size() * 96);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeShort(profiles.size());
+            for (Profile profile : profiles.values()) {
+                out.writeUTF(profile.email);
+                out.writeUTF(nullToEmpty(profile.name));
+                out.writeUTF(nullToEmpty(profile.phone));
+                out.writeUTF(nullToEmpty(profile.profileCode));
+                out.writeLong(profile.updatedAt);
+            }
+            out.writeShort(alarms.size());
+            for (Map.Entry<String, String> alarm : alarms.entrySet()) {
+                out.writeUTF(alarm.getKey());
+                out.writeUTF(alarm.getValue());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Replace the contents with an encoded directory. Throws IOException, leaving the
+     * directory unchanged, when data is truncated or not in this format.
+     */
+    public synchronized void decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a buddy directory");
+        }
+        LinkedHashMap<String, Profile> decodedProfiles = new LinkedHashMap<>();
+        int profileCount = in.readUnsignedShort();
+        for (int i = 0; i < profileCount; i++) {
+            Profile profile = new Profile(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readLong());
+            decodedProfiles.put(profile.email, profile);
+        }
+        LinkedHashMap<String, String> decodedAlarms = new LinkedHashMap<>();
+        int alarmCount = in.readUnsignedShort();
+        for (int i = 0; i < alarmCount; i++) {
+            decodedAlarms.put(in.readUTF(), in.readUTF());
+        }
+
+        profiles.clear();
+        profiles.putAll(decodedProfiles);
+        alarms.clear();
+        alarms.putAll(decodedAlarms);
+    }
+
+    public static String normalizeEmail(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value != null && !value.isEmpty() ? value : null;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
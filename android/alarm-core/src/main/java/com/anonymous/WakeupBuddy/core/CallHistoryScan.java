@@ -0,0 +1,75 @@
+package com.anonymous.WakeupBuddy.core;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Keyset paging over the outgoing call log for a fixed set of buddy numbers.
+ *
+ * Rows are read newest first, ordered by (DATE, _ID) descending. A page stops after
+ * pageSize matches or a scan limit, and its cursor is the {@link Key} of the last row
+ * read, matched or not, so the next page continues strictly below it. Unlike OFFSET
+ * paging nothing is skipped or repeated when rows are added or deleted in between.
+ *
+ * Numbers match as in PhoneNumbers.sameNumber (equal last 10 digits), through one map
+ * lookup per row instead of a comparison per buddy.
+ */
+public final class CallHistoryScan {
+
+    /** Position in the (DATE, _ID) descending order */
+    public static final class Key {
+        public final long date;
+        public final long id;
+
+        public Key(long date, long id) {
+            this.date = date;
+            this.id = id;
+        }
+
+        /** "date:id", the opaque cursor handed to JS */
+        public String encode() {
+            return date + ":" + id;
+        }
+
+        /**
+         * Parse a cursor from {@link #encode}; null for a null or empty cursor (the
+         * first page). Throws IllegalArgumentException for anything else.
+         */
+        public static Key decode(String cursor) {
+            if (cursor == null || cursor.isEmpty()) return null;
+            int colon = cursor.indexOf(':');
+            if (colon <= 0 || colon == cursor.length() - 1) {
+                throw new IllegalArgumentException("Bad call history cursor: " + cursor);
+            }
+            try {
+                return new Key(Long.parseLong(cursor.substring(0, colon)), Long.parseLong(cursor.substring(colon + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad call history cursor: " + cursor);
+            }
+        }
+    }
+
+    // Last-10-digit form -> index in the caller's list (first one wins)
+    private final HashMap<String, Integer> byDigits;
+
+    public CallHistoryScan(List<String> numbers) {
+        byDigits = new HashMap<>(numbers.size() * 2);
+        for (int i = 0; i < numbers.size(); i++) {
+            String digits = PhoneNumbers.last10Digits(numbers.get(i));
+            if (!digits.isEmpty() && !byDigits.containsKey(digits)) {
+                byDigits.put(digits, i);
+            }
+        }
+    }
+
+    /** Index of the buddy number this call-log number belongs to, or -1 */
+    public int match(CharSequence number) {
+        if (byDigits.isEmpty()) return -1;
+        Integer index = byDigits.get(PhoneNumbers.last10Digits(number));
+        return index != null ? index : -1;
+    }
+
+    public boolean isEmpty() {
+        return byDigits.isEmpty();
+    }
+}
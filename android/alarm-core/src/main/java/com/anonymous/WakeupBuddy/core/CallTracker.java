@@ -0,0 +1,123 @@
+package com.anonymous.WakeupBuddy.core;
+
+/**
+ * State of the buddy call placed by makePhoneCall, fed by call-state callbacks.
+ *
+ * makePhoneCall runs on the native-modules thread and the PhoneStateListener on the
+ * main looper, so every transition happens under this object's monitor:
+ *
+ *   IDLE --begin--> DIALING --offhook--> ACTIVE --idle--> IDLE
+ *
+ * - An IDLE callback while DIALING is ignored. TelephonyManager reports the current
+ *   state as soon as a listener is registered, and that initial IDLE used to end the
+ *   call at once with a duration of zero.
+ * - The duration runs from OFFHOOK. Each call gets a new sequence number, and an
+ *   ended Call carries the number, start and end of that same call only.
+ * - The tracker also owns the "listener registered" bit, so a begin() racing the
+ *   IDLE of the previous call never leaves the new call without a listener, or
+ *   with two.
+ */
+public final class CallTracker {
+    public static final int IDLE = 0;
+    public static final int DIALING = 1;
+    public static final int ACTIVE = 2;
+
+    /**
+     * Snapshot of one tracked call
+     */
+    public static final class Call {
+        public final long sequence;
+        public final String number;
+        public final long startedAt;
+        /** 0 until the call has ended */
+        public final long endedAt;
+
+        Call(long sequence, String number, long startedAt, long endedAt) {
+            this.sequence = sequence;
+            this.number = number;
+            this.startedAt = startedAt;
+            this.endedAt = endedAt;
+        }
+
+        public long durationSeconds() {
+            return endedAt > startedAt ? (endedAt - startedAt) / 1000 : 0;
+        }
+    }
+
+    private int state = IDLE;
+    private long sequence = 0;
+    private String number;
+    private long startedAt;
+    private boolean listening = false;
+
+    /**
+     * A call to number is being placed. Returns true if the caller must register the
+     * call-state listener (none is registered yet); the listener is then counted as
+     * registered until {@link #releaseListener()} or {@link #listenerDetached()}.
+     */
+    public synchronized boolean begin(String number) {
+        sequence++;
+        state = DIALING;
+        this.number = number;
+        startedAt = 0;
+        if (listening) return false;
+        listening = true;
+        return true;
+    }
+
+    /**
+     * OFFHOOK callback. Returns the call that just started, or null for a repeated
+     * OFFHOOK (hold/unhold) or one that is not ours.
+     */
+    public synchronized Call onOffhook(long now) {
+        if (state != DIALING) return null;
+        state = ACTIVE;
+        startedAt = now;
+        return new Call(sequence, number, startedAt, 0);
+    }
+
+    /**
+     * IDLE callback. Returns the call that just ended, or null if no call was connected.
+     */
+    public synchronized Call onIdle(long now) {
+        if (state != ACTIVE) return null;
+        state = IDLE;
+        return new Call(sequence, number, startedAt, Math.max(now, startedAt));
+    }
+
+    /**
+     * After an IDLE: true if the listener should now be unregistered, i.e. no new call
+     * began in the meantime. The listener counts as gone from here on.
+     */
+    public synchronized boolean releaseListener() {
+        if (state != IDLE || !listening) return false;
+        listening = false;
+        return true;
+    }
+
+    /**
+     * Registration after {@link #begin} failed or was not possible (no permission)
+     */
+    public synchronized void listenerDetached() {
+        listening = false;
+    }
+
+    public synchronized int state() {
+        return state;
+    }
+
+    public synchronized boolean isListening() {
+        return listening;
+    }
+
+    public synchronized long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Number of the call being tracked (or last tracked), digits only
+     */
+    public synchronized String number() {
+        return number;
+    }
+}
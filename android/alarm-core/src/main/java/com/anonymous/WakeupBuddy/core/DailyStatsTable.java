@@ -0,0 +1,163 @@
+package com.anonymous.WakeupBuddy.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Per-day wake-up statistics in fixed-size primitive arrays, one slot per local day.
+ *
+ * Slots form a ring indexed by epochDay % DAYS; each remembers the day it holds, so
+ * a slot left over from DAYS days ago reads as empty and is reset on the next write.
+ * Recording is O(1) and {@link #sum} is O(days in the window), whatever the length
+ * of the history. Days are local epoch days (see AlarmTimes) supplied by the caller.
+ *
+ * Encoded form: int magic, byte version, then DAYS entries of
+ * day(long) wakeups(int) reactions(int) reactionMs(long) calls(int) callSeconds(int).
+ */
+public final class DailyStatsTable {
+    /** Just over a year, so the 12-month window is always covered */
+    public static final int DAYS = 400;
+
+    private static final int MAGIC = 0x57424453; // "WBDS"
+    private static final byte VERSION = 1;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long[] day = new long[DAYS];
+    private final int[] wakeups = new int[DAYS];
+    private final int[] reactions = new int[DAYS];
+    private final long[] reactionMs = new long[DAYS];
+    private final int[] calls = new int[DAYS];
+    private final int[] callSeconds = new int[DAYS];
+
+    /** Totals over a window of days */
+    public static final class Window {
+        public int days;
+        public int activeDays;
+        public int wakeups;
+        /** Wake-ups with a known reaction time, the ones summed in reactionMs */
+        public int reactions;
+        public long reactionMs;
+        public int calls;
+        public int callSeconds;
+
+        /** Mean time from fire to dismissal, or -1 when none is known */
+        public long avgReactionMs() {
+            return reactions > 0 ? reactionMs / reactions : -1;
+        }
+    }
+
+    public DailyStatsTable() {
+        Arrays.fill(day, EMPTY);
+    }
+
+    /** A dismissal on epochDay, reactionMs after the alarm fired (negative if unknown) */
+    public synchronized void recordWakeup(long epochDay, long reactionMs) {
+        int slot = slotFor(epochDay);
+        wakeups[slot]++;
+        if (reactionMs >= 0) {
+            reactions[slot]++;
+            this.reactionMs[slot] += reactionMs;
+        }
+    }
+
+    public synchronized void recordCall(long epochDay, int seconds) {
+        int slot = slotFor(epochDay);
+        calls[slot]++;
+        callSeconds[slot] += Math.max(0, seconds);
+    }
+
+    /**
+     * Totals for fromDay..toDay inclusive. Days older than DAYS before toDay are not
+     * kept and count as empty.
+     */
+    public synchronized Window sum(long fromDay, long toDay) {
+        Window window = new Window();
+        for (long d = Math.max(fromDay, toDay - DAYS + 1); d <= toDay; d++) {
+            int slot = index(d);
+            if (day[slot] != d) continue;
+            window.wakeups += wakeups[slot];
+            window.reactions += reactions[slot];
+            window.reactionMs += reactionMs[slot];
+            window.calls += calls[slot];
+            window.callSeconds += callSeconds[slot];
+            if (wakeups[slot] > 0) window.activeDays++;
+        }
+        window.days = (int) Math.max(0, toDay - fromDay + 1);
+        return window;
+    }
+
+    public synchronized byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + DAYS * 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            for (int i = 0; i < DAYS; i++) {
+                out.writeLong(day[i]);
+                out.writeInt(wakeups[i]);
+                out.writeInt(reactions[i]);
+                out.writeLong(reactionMs[i]);
+                out.writeInt(calls[i]);
+                out.writeInt(callSeconds[i]);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Replace the contents with an encoded table. Throws IOException, leaving the table
+     * unchanged, when data is truncated or not in this format.
+     */
+    public synchronized void decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a daily stats table");
+        }
+        long[] newDay = new long[DAYS];
+        int[] newWakeups = new int[DAYS];
+        int[] newReactions = new int[DAYS];
+        long[] newReaction = new long[DAYS];
+        int[] newCalls = new int[DAYS];
+        int[] newCallSeconds = new int[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            newDay[i] = in.readLong();
+            newWakeups[i] = in.readInt();
+            newReactions[i] = in.readInt();
+            newReaction[i] = in.readLong();
+            newCalls[i] = in.readInt();
+            newCallSeconds[i] = in.readInt();
+        }
+        System.arraycopy(newDay, 0, day, 0, DAYS);
+        System.arraycopy(newWakeups, 0, wakeups, 0, DAYS);
+        System.arraycopy(newReactions, 0, reactions, 0, DAYS);
+        System.arraycopy(newReaction, 0, reactionMs, 0, DAYS);
+        System.arraycopy(newCalls, 0, calls, 0, DAYS);
+        System.arraycopy(newCallSeconds, 0, callSeconds, 0, DAYS);
+    }
+
+    // Slot for epochDay, cleared first if it still holds an older day
+    private int slotFor(long epochDay) {
+        int slot = index(epochDay);
+        if (day[slot] != epochDay) {
+            day[slot] = epochDay;
+            wakeups[slot] = 0;
+            reactions[slot] = 0;
+            reactionMs[slot] = 0;
+            calls[slot] = 0;
+            callSeconds[slot] = 0;
+        }
+        return slot;
+    }
+
+    private static int index(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) DAYS);
+    }
+}
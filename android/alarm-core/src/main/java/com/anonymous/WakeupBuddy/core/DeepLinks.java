@@ -0,0 +1,82 @@
+package com.anonymous.WakeupBuddy.core;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds the wakeupbuddy:// links the native alarm screen opens the app with.
+ * Query values are percent-encoded exactly like android.net.Uri.encode.
+ */
+public final class DeepLinks {
+    public static final String HOME_DISMISSED = "wakeupbuddy://(tabs)/home?alarm=dismissed";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private DeepLinks() {}
+
+    /**
+     * Link for a dismissed buddy alarm. alarmId, time and ampm are optional.
+     */
+    public static String alarmDismissed(String buddyEmail, String dismissalKey, String alarmId,
+                                        String time, String ampm) {
+        return alarmDismissed(buddyEmail, dismissalKey, alarmId, time, ampm, false);
+    }
+
+    /**
+     * As above; reportedNatively adds reported=native, telling JS the wake-up was
+     * already queued for Convex by the native reporter and must not be sent again.
+     */
+    public static String alarmDismissed(String buddyEmail, String dismissalKey, String alarmId,
+                                        String time, String ampm, boolean reportedNatively) {
+        StringBuilder sb = new StringBuilder(HOME_DISMISSED.length() + 96);
+        sb.append(HOME_DISMISSED);
+        appendParam(sb, "buddy", buddyEmail);
+        appendParam(sb, "dismissal", dismissalKey);
+        if (alarmId != null && !alarmId.isEmpty()) {
+            appendParam(sb, "alarmId", alarmId);
+        }
+        if (time != null && ampm != null) {
+            appendParam(sb, "time", time);
+            appendParam(sb, "ampm", ampm);
+        }
+        if (reportedNatively) {
+            appendParam(sb, "reported", "native");
+        }
+        return sb.toString();
+    }
+
+    public static void appendParam(StringBuilder sb, String name, String value) {
+        sb.append('&').append(name).append('=');
+        encode(sb, value);
+    }
+
+    /**
+     * Percent-encode everything except letters, digits and _-!.~'()*
+     */
+    public static void encode(StringBuilder sb, String value) {
+        if (value == null) return;
+        int len = value.length();
+        int i = 0;
+        while (i < len) {
+            char c = value.charAt(i);
+            if (isAllowed(c)) {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            // Encode the run of disallowed characters as UTF-8
+            int end = i + 1;
+            while (end < len && !isAllowed(value.charAt(end))) end++;
+            byte[] bytes = value.substring(i, end).getBytes(StandardCharsets.UTF_8);
+            for (byte b : bytes) {
+                sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+            i = end;
+        }
+    }
+
+    private static boolean isAllowed(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || c == '_' || c == '-' || c == '!' || c == '.' || c == '~'
+            || c == '\'' || c == '(' || c == ')' || c == '*';
+    }
+}
@@ -0,0 +1,81 @@
+package com.anonymous.WakeupBuddy.core;
+
+/**
+ * Phone number matching for call-log lookups.
+ *
+ * Numbers are compared on their last 10 digits, ignoring every non-digit
+ * character, so "+91 98765-43210" and "09876543210" match. The comparisons
+ * walk the strings from the end and never allocate, since they run once per
+ * call-log row.
+ */
+public final class PhoneNumbers {
+    public static final int MATCH_DIGITS = 10;
+
+    private PhoneNumbers() {}
+
+    /**
+     * All digits of the number, in order
+     */
+    public static String digitsOnly(CharSequence number) {
+        if (number == null) return "";
+        StringBuilder sb = new StringBuilder(number.length());
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The last 10 digits of the number (fewer if it has fewer digits)
+     */
+    public static String last10Digits(CharSequence number) {
+        if (number == null) return "";
+        char[] out = new char[MATCH_DIGITS];
+        int n = 0;
+        for (int i = number.length() - 1; i >= 0 && n < MATCH_DIGITS; i--) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') out[MATCH_DIGITS - 1 - n++] = c;
+        }
+        return new String(out, MATCH_DIGITS - n, n);
+    }
+
+    /**
+     * True when the last 10 digits of both numbers are identical
+     */
+    public static boolean sameNumber(CharSequence a, CharSequence b) {
+        return compareTail(a, b, true);
+    }
+
+    /**
+     * True when the last-10-digit forms are equal or one is a suffix of the other,
+     * which tolerates numbers stored without part of the area code
+     */
+    public static boolean suffixMatch(CharSequence a, CharSequence b) {
+        return compareTail(a, b, false);
+    }
+
+    private static boolean compareTail(CharSequence a, CharSequence b, boolean exact) {
+        if (a == null || b == null) return false;
+        int i = a.length() - 1;
+        int j = b.length() - 1;
+        int matched = 0;
+        while (matched < MATCH_DIGITS) {
+            while (i >= 0 && !isDigit(a.charAt(i))) i--;
+            while (j >= 0 && !isDigit(b.charAt(j))) j--;
+            if (i < 0 || j < 0) {
+                // One side ran out of digits: a suffix match, exact only if both ran out
+                return !exact || (i < 0 && j < 0);
+            }
+            if (a.charAt(i) != b.charAt(j)) return false;
+            i--;
+            j--;
+            matched++;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
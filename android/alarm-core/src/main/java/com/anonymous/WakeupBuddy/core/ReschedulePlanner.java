@@ -0,0 +1,84 @@
+package com.anonymous.WakeupBuddy.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides what to do with the persisted alarms after a reboot or app update:
+ * future alarms are re-armed (soonest first), past ones and unreadable entries
+ * are removed from storage. Keys that are not alarm keys are left alone.
+ */
+public final class ReschedulePlanner {
+
+    private static final Comparator<AlarmRecord> BY_TIME = (a, b) -> {
+        int cmp = Long.compare(a.when, b.when);
+        return cmp != 0 ? cmp : Integer.compare(a.requestCode, b.requestCode);
+    };
+
+    public static final class Plan {
+        /** Alarms to re-arm, ordered by fire time */
+        public final List<AlarmRecord> toSchedule;
+        /** Keys of alarms whose time has passed */
+        public final List<String> expiredKeys;
+        /** Keys whose value could not be decoded */
+        public final List<String> invalidKeys;
+
+        Plan(List<AlarmRecord> toSchedule, List<String> expiredKeys, List<String> invalidKeys) {
+            this.toSchedule = toSchedule;
+            this.expiredKeys = expiredKeys;
+            this.invalidKeys = invalidKeys;
+        }
+
+        public boolean hasRemovals() {
+            return !expiredKeys.isEmpty() || !invalidKeys.isEmpty();
+        }
+    }
+
+    private ReschedulePlanner() {}
+
+    public static Plan plan(Map<String, ?> stored, long now) {
+        AlarmRecord[] future = new AlarmRecord[stored.size()];
+        int futureCount = 0;
+        List<String> expired = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+
+        for (Map.Entry<String, ?> entry : stored.entrySet()) {
+            String key = entry.getKey();
+            int requestCode = AlarmRecord.requestCodeFromKey(key);
+            if (requestCode < 0) continue;
+
+            Object value = entry.getValue();
+            AlarmRecord record = value instanceof String ? AlarmRecord.decode(requestCode, (String) value) : null;
+            if (record == null) {
+                invalid.add(key);
+            } else if (record.when <= now) {
+                expired.add(key);
+            } else {
+                future[futureCount++] = record;
+            }
+        }
+
+        Arrays.sort(future, 0, futureCount, BY_TIME);
+        return new Plan(Arrays.asList(future).subList(0, futureCount), expired, invalid);
+    }
+
+    /**
+     * The stored alarm that fires next after now, or null if none is in the future.
+     * One pass over the entries; unreadable ones are skipped.
+     */
+    public static AlarmRecord next(Map<String, ?> stored, long now) {
+        AlarmRecord next = null;
+        for (Map.Entry<String, ?> entry : stored.entrySet()) {
+            int requestCode = AlarmRecord.requestCodeFromKey(entry.getKey());
+            if (requestCode < 0 || !(entry.getValue() instanceof String)) continue;
+            AlarmRecord record = AlarmRecord.decode(requestCode, (String) entry.getValue());
+            if (record != null && record.when > now && (next == null || BY_TIME.compare(record, next) < 0)) {
+                next = record;
+            }
+        }
+        return next;
+    }
+}
@@ -0,0 +1,73 @@
+package com.anonymous.WakeupBuddy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ledger's in-memory view of what this process armed, which diagnostics print
+ * without touching the store.
+ *
+ *   ./gradlew :alarm-core:test --tests '*AlarmLedgerTest'
+ */
+public class AlarmLedgerTest {
+    private static final long NOW = 1_000_000;
+
+    private final Map<String, Object> stored = new HashMap<>();
+    private final AlarmLedger ledger = new AlarmLedger(new AlarmLedger.Backend() {
+        @Override public void arm(AlarmRecord record) {}
+        @Override public boolean disarm(int requestCode) { return true; }
+        @Override public Object read(String key) { return stored.get(key); }
+        @Override public Map<String, ?> snapshot() { return new HashMap<>(stored); }
+        @Override public void write(Map<String, String> entries) { stored.putAll(entries); }
+        @Override public void remove(List<String> keys) { stored.keySet().removeAll(keys); }
+    });
+
+    @Test
+    public void listsScheduledAlarmsSoonestFirst() {
+        ledger.schedule(new AlarmRecord(1, NOW + 300, null, "a"));
+        ledger.schedule(Arrays.asList(
+            new AlarmRecord(2, NOW + 100, null, "b"),
+            new AlarmRecord(3, NOW + 200, null, "c")));
+
+        List<AlarmRecord> armed = ledger.armedRecords();
+        assertEquals(3, armed.size());
+        assertEquals(2, armed.get(0).requestCode);
+        assertEquals(3, armed.get(1).requestCode);
+        assertEquals(1, armed.get(2).requestCode);
+    }
+
+    @Test
+    public void rescheduleReplacesAndCancelRemoves() {
+        ledger.schedule(new AlarmRecord(1, NOW + 100, null, "a"));
+        ledger.schedule(new AlarmRecord(1, NOW + 500, null, "a"));
+        ledger.schedule(new AlarmRecord(2, NOW + 200, null, "b"));
+        ledger.schedule(new AlarmRecord(3, NOW + 300, null, "c"));
+
+        ledger.cancel(2);
+        ledger.cancel(new int[] { 3 });
+
+        List<AlarmRecord> armed = ledger.armedRecords();
+        assertEquals(1, armed.size());
+        assertEquals(NOW + 500, armed.get(0).when);
+    }
+
+    @Test
+    public void restoreAddsReArmedAlarmsAndDropsExpiredOnes() {
+        stored.put("alarm_1", (NOW + 100) + "|a|id1");
+        stored.put("alarm_2", (NOW - 1) + "|b|id2");
+        assertTrue(ledger.armedRecords().isEmpty());
+
+        ledger.restore(NOW);
+
+        List<AlarmRecord> armed = ledger.armedRecords();
+        assertEquals(1, armed.size());
+        assertEquals(1, armed.get(0).requestCode);
+    }
+}
@@ -0,0 +1,139 @@
+package com.anonymous.WakeupBuddy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * The "when|buddy|alarmId[|scheduledFor]" codec, including escaping and values
+ * written before either existed, and request codes matching generateRequestCode in AlarmNative.js.
+ *
+ *   ./gradlew :alarm-core:test --tests '*AlarmRecordTest'
+ */
+public class AlarmRecordTest {
+
+    @Test
+    public void roundTripsPlainFields() {
+        AlarmRecord record = new AlarmRecord(42, 1_760_000_000_000L, "buddy@example.com", "jd7f3k2m9xq8r4t6");
+        assertEquals("1760000000000|buddy@example.com|jd7f3k2m9xq8r4t6", record.encode());
+        assertEquals(record, AlarmRecord.decode(42, record.encode()));
+    }
+
+    @Test
+    public void roundTripsSeparatorsAndBackslashes() {
+        String[] names = { "a|b", "a\\b", "|", "\\", "\\|", "|\\", "trailing\\", "||\\\\||", "ü|☀️\\" };
+        for (String name : names) {
+            AlarmRecord record = new AlarmRecord(7, 1000, name, "id|" + name);
+            AlarmRecord decoded = AlarmRecord.decode(7, record.encode());
+            assertEquals(name, decoded.buddyName);
+            assertEquals("id|" + name, decoded.alarmId);
+        }
+    }
+
+    @Test
+    public void escapesOnlySeparatorsAndBackslashes() {
+        assertEquals("5|a\\|b|c\\\\d", new AlarmRecord(1, 5, "a|b", "c\\d").encode());
+    }
+
+    @Test
+    public void missingFieldsDecodeAsNull() {
+        AlarmRecord record = new AlarmRecord(3, 99, null, null);
+        assertEquals("99||", record.encode());
+        assertEquals(record, AlarmRecord.decode(3, "99||"));
+
+        AlarmRecord timeOnly = AlarmRecord.decode(3, "99");
+        assertEquals(99, timeOnly.when);
+        assertNull(timeOnly.buddyName);
+        assertNull(timeOnly.alarmId);
+
+        AlarmRecord noAlarmId = AlarmRecord.decode(3, "99|buddy");
+        assertEquals("buddy", noAlarmId.buddyName);
+        assertNull(noAlarmId.alarmId);
+    }
+
+    @Test
+    public void emptyFieldsAreNull() {
+        AlarmRecord record = new AlarmRecord(3, 99, "", "");
+        assertNull(record.buddyName);
+        assertNull(record.alarmId);
+    }
+
+    @Test
+    public void decodesUnescapedLegacyValues() {
+        AlarmRecord record = AlarmRecord.decode(11, "1700000000000|someone@example.com|k57a1b2c3d4e5f6g");
+        assertEquals(new AlarmRecord(11, 1_700_000_000_000L, "someone@example.com", "k57a1b2c3d4e5f6g"), record);
+    }
+
+    @Test
+    public void roundTripsSnoozedRecord() {
+        AlarmRecord snoozed = new AlarmRecord(42, 1_760_000_300_000L, "a|b", "id1", 1_760_000_000_000L);
+        assertEquals("1760000300000|a\\|b|id1|1760000000000", snoozed.encode());
+        AlarmRecord decoded = AlarmRecord.decode(42, snoozed.encode());
+        assertEquals(snoozed, decoded);
+        assertEquals(1_760_000_000_000L, decoded.scheduledFor);
+    }
+
+    @Test
+    public void scheduledForDefaultsToWhen() {
+        AlarmRecord record = new AlarmRecord(1, 500, "a", "b");
+        assertEquals(500, record.scheduledFor);
+        assertEquals("500|a|b", record.encode());
+        assertEquals(500, new AlarmRecord(1, 500, "a", "b", 0).scheduledFor);
+        assertEquals(500, AlarmRecord.decode(1, "500|a|b").scheduledFor);
+    }
+
+    @Test
+    public void ignoresUnreadableScheduledForAndLaterFields() {
+        AlarmRecord record = AlarmRecord.decode(1, "10|a|b|c");
+        assertEquals("a", record.buddyName);
+        assertEquals("b", record.alarmId);
+        assertEquals(10, record.scheduledFor);
+
+        assertEquals(5, AlarmRecord.decode(1, "10|a|b|5|x").scheduledFor);
+    }
+
+    @Test
+    public void rejectsUnreadableValues() {
+        assertNull(AlarmRecord.decode(1, null));
+        assertNull(AlarmRecord.decode(1, ""));
+        assertNull(AlarmRecord.decode(1, "|a|b"));
+        assertNull(AlarmRecord.decode(1, "0|a|b"));
+        assertNull(AlarmRecord.decode(1, "-5|a|b"));
+        assertNull(AlarmRecord.decode(1, "12x|a|b"));
+        assertNull(AlarmRecord.decode(1, "1234567890123456789|a|b"));
+    }
+
+    @Test
+    public void requestCodeMatchesJavaScriptHash() {
+        // Expected values computed with generateRequestCode from AlarmNative.js
+        assertEquals(1001, AlarmRecord.requestCodeFor(null));
+        assertEquals(1001, AlarmRecord.requestCodeFor(""));
+        assertEquals(97, AlarmRecord.requestCodeFor("a"));
+        assertEquals(1_500_628_858, AlarmRecord.requestCodeFor("alarm-42"));
+        assertEquals(1_536_718_502, AlarmRecord.requestCodeFor("jd7f3k2m9xq8r4t6"));
+        assertEquals(138_188_730, AlarmRecord.requestCodeFor("k57a1b2c3d4e5f6g"));
+        assertEquals(608_779, AlarmRecord.requestCodeFor("ü☀️"));
+        assertEquals(359_357_440, AlarmRecord.requestCodeFor(repeat('x', 200)));
+    }
+
+    @Test
+    public void requestCodeFromKeyParsesOnlyAlarmKeys() {
+        assertEquals(12, AlarmRecord.requestCodeFromKey("alarm_12"));
+        assertEquals(0, AlarmRecord.requestCodeFromKey("alarm_0"));
+        assertEquals(Integer.MAX_VALUE, AlarmRecord.requestCodeFromKey("alarm_2147483647"));
+        assertEquals(-1, AlarmRecord.requestCodeFromKey("alarm_2147483648"));
+        assertEquals(-1, AlarmRecord.requestCodeFromKey("alarm_"));
+        assertEquals(-1, AlarmRecord.requestCodeFromKey("alarm_-3"));
+        assertEquals(-1, AlarmRecord.requestCodeFromKey("alarm_1a"));
+        assertEquals(-1, AlarmRecord.requestCodeFromKey("pendingCallId"));
+        assertEquals(-1, AlarmRecord.requestCodeFromKey(null));
+        assertEquals(12, AlarmRecord.requestCodeFromKey(AlarmRecord.keyFor(12)));
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) sb.append(c);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package com.anonymous.WakeupBuddy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Buddy profile lookups, LRU eviction and the binary encoding.
+ *
+ *   ./gradlew :alarm-core:test --tests '*BuddyDirectoryTest'
+ */
+public class BuddyDirectoryTest {
+
+    private static BuddyDirectory.Profile profile(String email, String name) {
+        return new BuddyDirectory.Profile(email, name, "+91 98765 43210", "code-" + name, 1000);
+    }
+
+    @Test
+    public void looksUpByAlarmIdThenEmail() {
+        BuddyDirectory directory = new BuddyDirectory(8, 8);
+        directory.put("alarm1", profile("Sam@Example.com", "Sam"));
+        directory.put(null, profile("kai@example.com", "Kai"));
+
+        assertEquals("Sam", directory.lookup("alarm1", null).name);
+        assertEquals("Sam", directory.lookup("alarm1", "kai@example.com").name);
+        assertEquals("Kai", directory.lookup("unknown", " KAI@example.com ").name);
+        assertNull(directory.lookup("unknown", "nobody@example.com"));
+        assertNull(directory.lookup(null, null));
+    }
+
+    @Test
+    public void putReportsOnlyRealChanges() {
+        BuddyDirectory directory = new BuddyDirectory(8, 8);
+        assertTrue(directory.put("alarm1", profile("sam@example.com", "Sam")));
+        // updatedAt alone does not count as a change
+        assertFalse(directory.put("alarm1", new BuddyDirectory.Profile("sam@example.com", "Sam", "+91 98765 43210", "code-Sam", 2000)));
+        assertTrue(directory.put("alarm2", profile("sam@example.com", "Sam")));
+        assertTrue(directory.put("alarm2", profile("sam@example.com", "Samuel")));
+        assertFalse(directory.put("alarm3", profile("  ", "Nobody")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        BuddyDirectory directory = new BuddyDirectory(2, 2);
+        directory.put("a1", profile("a@example.com", "A"));
+        directory.put("b1", profile("b@example.com", "B"));
+        directory.lookup(null, "a@example.com");
+        directory.put("c1", profile("c@example.com", "C"));
+
+        assertEquals(2, directory.profileCount());
+        assertNull(directory.lookup(null, "b@example.com"));
+        assertEquals("A", directory.lookup(null, "a@example.com").name);
+        assertEquals(2, directory.alarmCount());
+        assertNull(directory.lookup("a1", null));
+    }
+
+    @Test
+    public void roundTripsProfilesAndOrder() throws IOException {
+        BuddyDirectory directory = new BuddyDirectory(2, 8);
+        directory.put("a1", new BuddyDirectory.Profile("a@example.com", "Ana | \\ ü☀️", null, null, 5));
+        directory.put("b1", profile("b@example.com", "B"));
+        directory.lookup(null, "a@example.com");
+
+        byte[] encoded = directory.encode();
+
+        BuddyDirectory decoded = new BuddyDirectory(2, 8);
+        decoded.decode(encoded);
+        BuddyDirectory.Profile ana = decoded.lookup("a1", null);
+        assertEquals("Ana | \\ ü☀️", ana.name);
+        assertNull(ana.phone);
+        assertNull(ana.profileCode);
+        assertEquals(5, ana.updatedAt);
+        assertEquals("+91 98765 43210", decoded.lookup("b1", null).phone);
+
+        // B was least recently used before encoding, so it is the one evicted
+        BuddyDirectory reloaded = new BuddyDirectory(2, 8);
+        reloaded.decode(encoded);
+        reloaded.put(null, profile("c@example.com", "C"));
+        assertNull(reloaded.lookup(null, "b@example.com"));
+        assertEquals("Ana | \\ ü☀️", reloaded.lookup(null, "a@example.com").name);
+    }
+
+    @Test
+    public void roundTripsEmptyDirectory() throws IOException {
+        BuddyDirectory decoded = new BuddyDirectory(4, 4);
+        decoded.decode(new BuddyDirectory(4, 4).encode());
+        assertEquals(0, decoded.profileCount());
+        assertEquals(0, decoded.alarmCount());
+    }
+
+    @Test
+    public void rejectsTruncatedOrForeignDataUnchanged() {
+        BuddyDirectory source = new BuddyDirectory(4, 4);
+        source.put("a1", profile("a@example.com", "A"));
+        byte[] encoded = source.encode();
+
+        BuddyDirectory target = new BuddyDirectory(4, 4);
+        target.put("z1", profile("z@example.com", "Z"));
+        BuddyDirectory.Profile before = target.lookup("z1", null);
+
+        for (byte[] bad : new byte[][] {
+            Arrays.copyOf(encoded, encoded.length - 3),
+            Arrays.copyOf(encoded, 3),
+            new byte[0],
+            withByte(encoded, 0, (byte) 0),
+            withByte(encoded, 4, (byte) 99),
+        }) {
+            try {
+                target.decode(bad);
+                fail("decoded " + bad.length + " bad bytes");
+            } catch (IOException expected) {
+                // Left as it was
+            }
+            assertSame(before, target.lookup("z1", null));
+            assertNull(target.lookup("a1", null));
+        }
+    }
+
+    private static byte[] withByte(byte[] data, int index, byte value) {
+        byte[] copy = data.clone();
+        copy[index] = value;
+        return copy;
+    }
+}
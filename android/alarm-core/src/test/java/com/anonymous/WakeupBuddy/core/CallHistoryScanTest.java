@@ -0,0 +1,71 @@
+package com.anonymous.WakeupBuddy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Call history cursors and buddy number matching.
+ *
+ *   ./gradlew :alarm-core:test --tests '*CallHistoryScanTest'
+ */
+public class CallHistoryScanTest {
+
+    @Test
+    public void cursorRoundTrips() {
+        CallHistoryScan.Key key = new CallHistoryScan.Key(1_760_000_000_000L, 4321);
+        assertEquals("1760000000000:4321", key.encode());
+
+        CallHistoryScan.Key decoded = CallHistoryScan.Key.decode(key.encode());
+        assertEquals(key.date, decoded.date);
+        assertEquals(key.id, decoded.id);
+    }
+
+    @Test
+    public void emptyCursorIsFirstPage() {
+        assertNull(CallHistoryScan.Key.decode(null));
+        assertNull(CallHistoryScan.Key.decode(""));
+    }
+
+    @Test
+    public void rejectsMalformedCursors() {
+        for (String cursor : new String[] { "123", ":5", "5:", ":", "a:1", "1:b", "1:2:3", "1.5:2", "99999999999999999999:1" }) {
+            try {
+                CallHistoryScan.Key.decode(cursor);
+                fail("accepted " + cursor);
+            } catch (IllegalArgumentException expected) {
+                // Rejected
+            }
+        }
+    }
+
+    @Test
+    public void matchesBuddyByLastTenDigits() {
+        CallHistoryScan scan = new CallHistoryScan(Arrays.asList("+91 98765 43210", "555-0100", "", "09876543210"));
+
+        assertFalse(scan.isEmpty());
+        // A duplicate number keeps the first buddy's index
+        assertEquals(0, scan.match("9876543210"));
+        assertEquals(0, scan.match("+919876543210"));
+        assertEquals(1, scan.match("5550100"));
+        assertEquals(-1, scan.match("1234567"));
+        assertEquals(-1, scan.match(""));
+        assertEquals(-1, scan.match(null));
+    }
+
+    @Test
+    public void emptyWithoutUsableNumbers() {
+        assertTrue(new CallHistoryScan(Collections.<String>emptyList()).isEmpty());
+
+        CallHistoryScan scan = new CallHistoryScan(Arrays.asList("", "---"));
+        assertTrue(scan.isEmpty());
+        assertEquals(-1, scan.match("5550100"));
+    }
+}
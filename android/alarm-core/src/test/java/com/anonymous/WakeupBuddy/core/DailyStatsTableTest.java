@@ -0,0 +1,134 @@
+package com.anonymous.WakeupBuddy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The per-day ring: window sums, slots left over from an earlier lap, and the encoding.
+ *
+ *   ./gradlew :alarm-core:test --tests '*DailyStatsTableTest'
+ */
+public class DailyStatsTableTest {
+    private static final long DAY = 20_000;
+
+    @Test
+    public void sumsWindow() {
+        DailyStatsTable table = new DailyStatsTable();
+        table.recordWakeup(DAY, 1_000);
+        table.recordWakeup(DAY, 3_000);
+        table.recordWakeup(DAY + 2, -1);
+        table.recordCall(DAY + 2, 75);
+        table.recordCall(DAY + 5, -10);
+
+        DailyStatsTable.Window window = table.sum(DAY, DAY + 6);
+        assertEquals(7, window.days);
+        assertEquals(2, window.activeDays);
+        assertEquals(3, window.wakeups);
+        assertEquals(2, window.reactions);
+        assertEquals(2_000, window.avgReactionMs());
+        assertEquals(2, window.calls);
+        assertEquals(75, window.callSeconds);
+
+        DailyStatsTable.Window single = table.sum(DAY + 2, DAY + 2);
+        assertEquals(1, single.wakeups);
+        assertEquals(0, single.reactions);
+        assertEquals(-1, single.avgReactionMs());
+    }
+
+    @Test
+    public void staleSlotReadsAsEmpty() {
+        DailyStatsTable table = new DailyStatsTable();
+        table.recordWakeup(DAY, 500);
+
+        // Same slot one lap later has not been written yet
+        assertEquals(0, table.sum(DAY + DailyStatsTable.DAYS, DAY + DailyStatsTable.DAYS).wakeups);
+        assertEquals(1, table.sum(DAY, DAY).wakeups);
+    }
+
+    @Test
+    public void writeResetsStaleSlot() {
+        DailyStatsTable table = new DailyStatsTable();
+        table.recordWakeup(DAY, 500);
+        table.recordCall(DAY, 60);
+
+        long lapLater = DAY + DailyStatsTable.DAYS;
+        table.recordWakeup(lapLater, 100);
+
+        DailyStatsTable.Window now = table.sum(lapLater, lapLater);
+        assertEquals(1, now.wakeups);
+        assertEquals(100, now.reactionMs);
+        assertEquals(0, now.calls);
+        assertEquals(0, table.sum(DAY, DAY).wakeups);
+    }
+
+    @Test
+    public void windowOnlyReachesBackDaysDays() {
+        DailyStatsTable table = new DailyStatsTable();
+        long toDay = DAY + DailyStatsTable.DAYS;
+        table.recordWakeup(toDay - DailyStatsTable.DAYS + 1, 10);
+        table.recordWakeup(toDay, 10);
+
+        DailyStatsTable.Window window = table.sum(DAY - 100, toDay);
+        assertEquals(DailyStatsTable.DAYS + 101, window.days);
+        assertEquals(2, window.wakeups);
+    }
+
+    @Test
+    public void handlesDaysBeforeEpochAndEmptyWindows() {
+        DailyStatsTable table = new DailyStatsTable();
+        table.recordWakeup(-1, 10);
+        assertEquals(1, table.sum(-1, -1).wakeups);
+        assertEquals(0, table.sum(DailyStatsTable.DAYS - 1, DailyStatsTable.DAYS - 1).wakeups);
+
+        DailyStatsTable.Window backwards = table.sum(5, 4);
+        assertEquals(0, backwards.days);
+        assertEquals(0, backwards.wakeups);
+    }
+
+    @Test
+    public void roundTripsThroughEncoding() throws IOException {
+        DailyStatsTable table = new DailyStatsTable();
+        table.recordWakeup(DAY, 1_500);
+        table.recordWakeup(DAY + 399, -1);
+        table.recordCall(DAY + 1, 90);
+
+        DailyStatsTable decoded = new DailyStatsTable();
+        decoded.decode(table.encode());
+
+        DailyStatsTable.Window window = decoded.sum(DAY, DAY + 399);
+        assertEquals(2, window.wakeups);
+        assertEquals(1, window.reactions);
+        assertEquals(1_500, window.reactionMs);
+        assertEquals(1, window.calls);
+        assertEquals(90, window.callSeconds);
+        assertEquals(0, decoded.sum(DAY + DailyStatsTable.DAYS, DAY + DailyStatsTable.DAYS).wakeups);
+    }
+
+    @Test
+    public void rejectsTruncatedOrForeignDataUnchanged() {
+        DailyStatsTable source = new DailyStatsTable();
+        source.recordWakeup(DAY + 7, 10);
+        byte[] encoded = source.encode();
+
+        DailyStatsTable target = new DailyStatsTable();
+        target.recordWakeup(DAY, 10);
+
+        byte[] foreign = encoded.clone();
+        foreign[4] = 99;
+        for (byte[] bad : new byte[][] { Arrays.copyOf(encoded, encoded.length - 1), new byte[3], foreign }) {
+            try {
+                target.decode(bad);
+                fail("decoded " + bad.length + " bad bytes");
+            } catch (IOException expected) {
+                // Left as it was
+            }
+            assertEquals(1, target.sum(DAY, DAY).wakeups);
+            assertEquals(0, target.sum(DAY + 7, DAY + 7).wakeups);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.anonymous.WakeupBuddy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Last-10-digit matching between the numbers JS stores and call-log rows.
+ *
+ *   ./gradlew :alarm-core:test --tests '*PhoneNumbersTest'
+ */
+public class PhoneNumbersTest {
+
+    @Test
+    public void extractsDigits() {
+        assertEquals("919876543210", PhoneNumbers.digitsOnly("+91 98765-43210"));
+        assertEquals("", PhoneNumbers.digitsOnly("()-+ "));
+        assertEquals("", PhoneNumbers.digitsOnly(null));
+    }
+
+    @Test
+    public void keepsLastTenDigits() {
+        assertEquals("9876543210", PhoneNumbers.last10Digits("+91 98765-43210"));
+        assertEquals("9876543210", PhoneNumbers.last10Digits("09876543210"));
+        assertEquals("5550100", PhoneNumbers.last10Digits("555-0100"));
+        assertEquals("", PhoneNumbers.last10Digits(""));
+        assertEquals("", PhoneNumbers.last10Digits(null));
+    }
+
+    @Test
+    public void sameNumberIgnoresFormattingAndPrefixes() {
+        assertTrue(PhoneNumbers.sameNumber("+91 98765-43210", "09876543210"));
+        assertTrue(PhoneNumbers.sameNumber("(987) 654-3210", "9876543210"));
+        assertTrue(PhoneNumbers.sameNumber("5550100", "555 0100"));
+        assertFalse(PhoneNumbers.sameNumber("+91 98765-43210", "+91 98765-43211"));
+        assertFalse(PhoneNumbers.sameNumber("12345", "912345"));
+        assertFalse(PhoneNumbers.sameNumber(null, "9876543210"));
+        assertFalse(PhoneNumbers.sameNumber("9876543210", null));
+    }
+
+    @Test
+    public void suffixMatchToleratesMissingAreaCode() {
+        assertTrue(PhoneNumbers.suffixMatch("12345", "912345"));
+        assertTrue(PhoneNumbers.suffixMatch("912345", "12345"));
+        assertTrue(PhoneNumbers.suffixMatch("+91 98765-43210", "09876543210"));
+        assertFalse(PhoneNumbers.suffixMatch("12345", "912346"));
+        assertFalse(PhoneNumbers.suffixMatch(null, null));
+    }
+
+    @Test
+    public void matchingAgreesWithLastTenDigits() {
+        String[] numbers = { "+91 98765-43210", "09876543210", "555-0100", "1 (800) 555-0100", "98765" };
+        for (String a : numbers) {
+            for (String b : numbers) {
+                boolean expected = PhoneNumbers.last10Digits(a).equals(PhoneNumbers.last10Digits(b));
+                assertEquals(a + " vs " + b, expected, PhoneNumbers.sameNumber(a, b));
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.anonymous.WakeupBuddy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Boot reschedule planning over the stored alarms: what is re-armed, in which order,
+ * and what is deleted.
+ *
+ *   ./gradlew :alarm-core:test --tests '*ReschedulePlannerTest'
+ */
+public class ReschedulePlannerTest {
+    private static final long NOW = 1_000_000;
+
+    @Test
+    public void splitsFutureExpiredAndInvalid() {
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("alarm_1", (NOW + 300) + "|a|id1");
+        stored.put("alarm_2", (NOW - 1) + "|b|id2");
+        stored.put("alarm_3", NOW + "|c|id3");
+        stored.put("alarm_4", "garbage");
+        stored.put("alarm_5", 12345L);
+        stored.put("alarm_6", (NOW + 100) + "|d|id6");
+
+        ReschedulePlanner.Plan plan = ReschedulePlanner.plan(stored, NOW);
+
+        assertEquals(2, plan.toSchedule.size());
+        assertEquals(6, plan.toSchedule.get(0).requestCode);
+        assertEquals(1, plan.toSchedule.get(1).requestCode);
+        Collections.sort(plan.expiredKeys);
+        assertEquals(Arrays.asList("alarm_2", "alarm_3"), plan.expiredKeys);
+        Collections.sort(plan.invalidKeys);
+        assertEquals(Arrays.asList("alarm_4", "alarm_5"), plan.invalidKeys);
+        assertTrue(plan.hasRemovals());
+    }
+
+    @Test
+    public void ordersEqualTimesByRequestCode() {
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("alarm_30", (NOW + 10) + "||");
+        stored.put("alarm_10", (NOW + 10) + "||");
+        stored.put("alarm_20", (NOW + 10) + "||");
+
+        ReschedulePlanner.Plan plan = ReschedulePlanner.plan(stored, NOW);
+
+        assertEquals(10, plan.toSchedule.get(0).requestCode);
+        assertEquals(20, plan.toSchedule.get(1).requestCode);
+        assertEquals(30, plan.toSchedule.get(2).requestCode);
+        assertFalse(plan.hasRemovals());
+    }
+
+    @Test
+    public void leavesOtherKeysAlone() {
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("pendingCallId", "abc");
+        stored.put("alarm_", "junk");
+        stored.put("alarm_x", "junk");
+
+        ReschedulePlanner.Plan plan = ReschedulePlanner.plan(stored, NOW);
+
+        assertTrue(plan.toSchedule.isEmpty());
+        assertFalse(plan.hasRemovals());
+    }
+
+    @Test
+    public void nextPicksSoonestFutureAlarm() {
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("alarm_1", (NOW + 300) + "|a|id1");
+        stored.put("alarm_2", (NOW - 50) + "|b|id2");
+        stored.put("alarm_3", "junk");
+        stored.put("alarm_4", (NOW + 20) + "|a\\|b|id4");
+
+        AlarmRecord next = ReschedulePlanner.next(stored, NOW);
+
+        assertEquals(4, next.requestCode);
+        assertEquals("a|b", next.buddyName);
+    }
+
+    @Test
+    public void nextIsNullWithoutFutureAlarms() {
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("alarm_1", NOW + "|a|id1");
+        assertNull(ReschedulePlanner.next(stored, NOW));
+        assertNull(ReschedulePlanner.next(Collections.<String, Object>emptyMap(), NOW));
+    }
+}
@@ -12,3 +12,13 @@
 -keep class com.facebook.react.turbomodule.** { *; }
 
 # Add any project specific keep options here:
+
+# Strip verbose/debug alarm logging (and the argument boxing feeding it) from minified builds
+-assumenosideeffects class com.anonymous.WakeupBuddy.AlarmLog {
+    public static void v(...);
+    public static void d(...);
+}
+# Make isDebugEnabled() a constant false so the blocks it guards are removed too
+-assumevalues class com.anonymous.WakeupBuddy.AlarmLog {
+    public static boolean isDebugEnabled() return false;
+}
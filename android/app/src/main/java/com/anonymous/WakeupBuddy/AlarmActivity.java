@@ -5,24 +5,53 @@ import android.os.Bundle;
 import android.content.Intent;
 import android.net.Uri;
 import android.view.WindowManager;
+import com.anonymous.WakeupBuddy.core.BuddyDirectory;
+import com.anonymous.WakeupBuddy.core.DeepLinks;
 import android.view.View;
-import android.widget.Button;
 import android.media.MediaPlayer;
-import android.util.Log;
 import androidx.annotation.Nullable;
 import android.net.Uri;
 import android.os.PowerManager;
 import android.content.Context;
+import android.content.BroadcastReceiver;
+import android.content.IntentFilter;
+import androidx.core.content.ContextCompat;
 
 public class AlarmActivity extends Activity {
     private static final String TAG = "AlarmActivity";
     private PowerManager.WakeLock wakeLock;
+    private FrameMetricsRecorder frameMetricsRecorder;
+    private AlarmScreenView alarmScreen;
+    // Pooled by AvatarPipeline; handed back when replaced or on destroy
+    private android.graphics.Bitmap avatar;
+    // Closes this screen when the alarm is snoozed from the notification
+    private final BroadcastReceiver snoozedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            finish();
+        }
+    };
+    // Created once per activity instead of on every updateUI
+    private final java.text.SimpleDateFormat displayTimeFormat =
+        new java.text.SimpleDateFormat("hh:mm a", java.util.Locale.getDefault());
+    private final java.util.Date displayDate = new java.util.Date();
+    // A second tap on "I'm Awake" must not count the wake-up twice in LocalStats
+    private boolean wakeupCounted = false;
+    private final Runnable closeSelfTest = this::finish;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         
-        Log.i(TAG, "=== AlarmActivity onCreate ===");
+        AlarmLog.i(TAG, "AlarmActivity onCreate");
+
+        // Start capturing frame metrics before anything is inflated so the first frame is included.
+        // Self-test launches are left out of the time-to-first-frame ring.
+        if (!AlarmSelfTest.isTest(getIntent())) {
+            frameMetricsRecorder = new FrameMetricsRecorder(
+                this, getIntent().getLongExtra(FrameMetricsRecorder.EXTRA_FIRED_AT_NANOS, 0));
+            frameMetricsRecorder.start();
+        }
         
         // Acquire wake lock to keep screen on
         PowerManager pm = (PowerManager) getSystemService(Context.POWER_SERVICE);
@@ -33,6 +62,7 @@ public class AlarmActivity extends Activity {
             "WakeupBuddy:AlarmActivityLock"
         );
         wakeLock.acquire(5 * 60 * 1000L); // 5 minutes max
+        AlarmDiagnostics.wakeLockAcquired("WakeupBuddy:AlarmActivityLock", 5 * 60 * 1000L);
         
         // Modern way to show over lock screen (API 27+)
         if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O_MR1) {
@@ -58,95 +88,252 @@ public class AlarmActivity extends Activity {
             }
         }
 
-        // Set the native layout
-        setContentView(R.layout.alarm_screen);
+        // Canvas-drawn alarm screen (no XML inflation on the wake-up path)
+        alarmScreen = new AlarmScreenView(this);
+        setContentView(alarmScreen);
 
         updateUI(getIntent());
 
         // Set up the "I'm Awake" button
-        Button awakeButton = findViewById(R.id.awake_button);
-        awakeButton.setOnClickListener(new View.OnClickListener() {
+        alarmScreen.setOnAwakeClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
                 stopAlarmAndClose();
             }
         });
+        alarmScreen.setSnoozeText("Snooze " + AlarmService.SNOOZE_MINUTES + " min");
+        alarmScreen.setOnSnoozeClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                snoozeAndClose();
+            }
+        });
+        alarmScreen.setOnCallClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                callBuddyAndClose();
+            }
+        });
+        ContextCompat.registerReceiver(this, snoozedReceiver,
+            new IntentFilter(AlarmService.ACTION_SNOOZED), ContextCompat.RECEIVER_NOT_EXPORTED);
+
+        // "Call buddy" on the ringing notification opens this activity with that action
+        if (isCallBuddyLaunch(getIntent())) {
+            callBuddyAndClose();
+        }
+
+        if (AlarmSelfTest.isTest(getIntent())) {
+            showSelfTest();
+        }
+    }
+
+    // Records which launch got here first, then closes itself; nothing is dismissed
+    private void showSelfTest() {
+        AlarmSelfTest.stage(this, getIntent(), AlarmSelfTest.STAGE_ACTIVITY);
+        alarmScreen.setTimeText("Alarm self-test");
+        alarmScreen.setSnoozeText(null);
+        alarmScreen.setCallText(null);
+        alarmScreen.setOnAwakeClickListener(v -> finish());
+        alarmScreen.postDelayed(closeSelfTest, AlarmSelfTest.SCREEN_MS);
     }
 
     @Override
     protected void onNewIntent(Intent intent) {
         super.onNewIntent(intent);
+        // Later launches of a self-test (retries, the full-screen intent) lost the race
+        if (AlarmSelfTest.isTest(intent)) return;
+        if (AlarmSelfTest.isTest(getIntent())) {
+            // A real alarm took over the self-test screen
+            alarmScreen.removeCallbacks(closeSelfTest);
+            alarmScreen.setOnAwakeClickListener(v -> stopAlarmAndClose());
+            alarmScreen.setSnoozeText("Snooze " + AlarmService.SNOOZE_MINUTES + " min");
+        }
         setIntent(intent);
         updateUI(intent);
+        if (isCallBuddyLaunch(intent)) {
+            callBuddyAndClose();
+        }
+    }
+
+    // Only the notification's PendingIntent can reach the non-exported alias; the action
+    // alone arriving at this exported activity could come from any app
+    private static boolean isCallBuddyLaunch(Intent intent) {
+        return AlarmService.ACTION_CALL_BUDDY.equals(intent.getAction())
+            && intent.getComponent() != null
+            && AlarmService.CALL_BUDDY_ALIAS.equals(intent.getComponent().getClassName());
     }
 
     private void updateUI(Intent intent) {
         if (intent != null) {
             long alarmTime = intent.getLongExtra("alarmTime", 0);
             String buddyName = intent.getStringExtra("buddyName");
-            
-            android.widget.TextView timeText = findViewById(R.id.alarm_time_text);
-            android.widget.TextView buddyText = findViewById(R.id.buddy_info_text);
+            String alarmId = intent.getStringExtra("alarmId");
 
             if (alarmTime > 0) {
-                java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("hh:mm a", java.util.Locale.getDefault());
-                String formattedTime = sdf.format(new java.util.Date(alarmTime));
-                timeText.setText("Alarm: " + formattedTime);
+                displayDate.setTime(alarmTime);
+                alarmScreen.setTimeText("Alarm: " + displayTimeFormat.format(displayDate));
             } else {
-                timeText.setText("Alarm: --:--");
+                alarmScreen.setTimeText("Alarm: --:--");
             }
             
             if (buddyName != null && !buddyName.isEmpty()) {
-                buddyText.setText("With: " + buddyName);
-                buddyText.setVisibility(android.view.View.VISIBLE);
+                // The extra is the buddy's email; the cached profile has the name and number
+                BuddyDirectory.Profile buddy = BuddyCache.get(this).lookup(alarmId, buddyName);
+                showAvatar(buddy != null ? buddy.profileCode : null);
+                if (buddy != null && buddy.name != null) {
+                    alarmScreen.setBuddyText("With: " + buddy.name);
+                    alarmScreen.setBuddyDetailText(buddy.phone != null ? buddy.phone : buddy.email);
+                } else {
+                    alarmScreen.setBuddyText("With: " + buddyName);
+                    alarmScreen.setBuddyDetailText(buddy != null ? buddy.phone : null);
+                }
+                // The number cached when the alarm was scheduled; no button without one
+                alarmScreen.setCallText(buddy != null && buddy.phone != null
+                    ? "Call " + (buddy.name != null ? buddy.name : "buddy")
+                    : null);
             } else {
-                buddyText.setVisibility(android.view.View.GONE);
+                showAvatar(null);
+                alarmScreen.setBuddyText(null);
+                alarmScreen.setBuddyDetailText(null);
+                alarmScreen.setCallText(null);
             }
         }
     }
 
 
 
+    // Pre-rendered when the alarm was scheduled; a mapped pixel copy, no decoding here
+    private void showAvatar(@Nullable String seed) {
+        AvatarPipeline avatars = AvatarPipeline.get(this);
+        android.graphics.Bitmap previous = avatar;
+        avatar = avatars.load(seed, avatars.screenSize());
+        alarmScreen.setAvatar(avatar);
+        avatars.release(previous);
+    }
+
+    private void snoozeAndClose() {
+        // Re-arms natively and persists through the ledger; JS is not involved
+        if (AlarmService.snooze(this, getIntent()) == null) {
+            android.widget.Toast.makeText(this, "Couldn't snooze this alarm", android.widget.Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // Sound, vibration and the service wake locks go with the service
+        stopService(new Intent(this, AlarmService.class));
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        AlarmDiagnostics.wakeLockReleased("WakeupBuddy:AlarmActivityLock");
+
+        android.widget.Toast.makeText(this, "Snoozed for " + AlarmService.SNOOZE_MINUTES + " minutes", android.widget.Toast.LENGTH_SHORT).show();
+        finish();
+    }
+
+    // How long the alarm rang: from the receiver's fire stamp, else from its scheduled time
+    private long reactionMs(long alarmTimeMs) {
+        long firedAtNanos = getIntent().getLongExtra(FrameMetricsRecorder.EXTRA_FIRED_AT_NANOS, 0);
+        if (firedAtNanos > 0) {
+            return (android.os.SystemClock.elapsedRealtimeNanos() - firedAtNanos) / 1_000_000;
+        }
+        long sinceScheduled = System.currentTimeMillis() - alarmTimeMs;
+        return alarmTimeMs > 0 && sinceScheduled >= 0 ? sinceScheduled : -1;
+    }
+
+    /**
+     * Call the buddy straight from the alarm screen: the ring stops, CallMonitor places
+     * and tracks the call, and the wake-up is recorded as for "I'm Awake". React Native
+     * is not started; the call result reaches Convex through ConvexReporter, or JS
+     * settles it with checkPendingCall the next time the app opens.
+     */
+    private void callBuddyAndClose() {
+        String buddyEmail = getIntent().getStringExtra("buddyName");
+        String alarmId = getIntent().getStringExtra("alarmId");
+        BuddyDirectory.Profile buddy = buddyEmail != null && !buddyEmail.isEmpty()
+            ? BuddyCache.get(this).lookup(alarmId, buddyEmail)
+            : null;
+        if (buddy == null || buddy.phone == null) {
+            // Not cached yet: the app's call flow looks the number up in Convex
+            stopAlarmAndClose();
+            return;
+        }
+
+        // Silence the ring before the dialer comes up
+        stopService(new Intent(this, AlarmService.class));
+        if (!CallMonitor.get(this).callBuddy(buddy.phone, alarmId, buddyEmail)) {
+            stopAlarmAndClose();
+            return;
+        }
+
+        recordWakeup(alarmId, buddyEmail);
+        finish();
+    }
+
+    // Returns whether ConvexReporter took the wake-up
+    private boolean recordWakeup(String alarmId, String buddyEmail) {
+        // When this ring was due (the snooze's end after a snooze), and the time the alarm
+        // was set for, which is what Convex knows it by
+        long alarmTimeMs = getIntent().getLongExtra("alarmTime", 0);
+        long scheduledFor = AlarmScheduler.scheduledFor(getIntent());
+
+        // Record the wake-up natively first; JS picks it up with drainDismissals()
+        // whenever React Native next runs, so opening the app is no longer required
+        DismissalStore.record(this, alarmId, buddyEmail, scheduledFor);
+        AlarmJournal.get(this).append(AlarmJournal.DISMISSED, alarmId);
+        if (!wakeupCounted) {
+            wakeupCounted = true;
+            LocalStats.get(this).recordWakeup(System.currentTimeMillis(), reactionMs(alarmTimeMs));
+        }
+
+        // Once JS has configured the reporter, the wake-up goes to Convex from here
+        // within seconds instead of waiting for React Native to boot
+        DismissalStore.Dismissal dismissal = DismissalStore.get(this, DismissalStore.keyFor(alarmId, scheduledFor));
+        boolean reported = dismissal != null && ConvexReporter.get(this).reportWakeup(dismissal);
+
+        Bundle dismissedEvent = new Bundle();
+        dismissedEvent.putString("alarmId", alarmId);
+        dismissedEvent.putDouble("alarmTime", scheduledFor);
+        dismissedEvent.putString("buddyEmail", buddyEmail);
+        dismissedEvent.putString("dismissalKey", DismissalStore.keyFor(alarmId, scheduledFor));
+        dismissedEvent.putBoolean("reported", reported);
+        NativeEventBus.get().post(NativeEventBus.ALARM_DISMISSED, alarmId, dismissedEvent);
+        return reported;
+    }
+
     private void stopAlarmAndClose() {
         // Stop the Foreground Service (stops sound & vibration)
         Intent stopIntent = new Intent(this, AlarmService.class);
         stopIntent.setAction("STOP");
         startService(stopIntent);
 
-        // Launch the main app home screen with alarm dismissed parameter
+        // Get buddy email, alarm time, and alarm ID from the intent
+        String buddyEmail = getIntent().getStringExtra("buddyName");
+        long scheduledFor = AlarmScheduler.scheduledFor(getIntent());
+        String alarmId = getIntent().getStringExtra("alarmId");
+        boolean hasBuddy = buddyEmail != null && !buddyEmail.isEmpty();
+
+        boolean reported = recordWakeup(alarmId, buddyEmail);
+        DismissalStore.Dismissal dismissal = DismissalStore.get(this, DismissalStore.keyFor(alarmId, scheduledFor));
+
+        if (!hasBuddy) {
+            android.widget.Toast.makeText(this, "Wake-up recorded", android.widget.Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+
+        // Otherwise buddy alarms open the app, where the buddy call is placed
         try {
-            // Get buddy email, alarm time, and alarm ID from the intent
-            String buddyEmail = getIntent().getStringExtra("buddyName");
-            long alarmTimeMs = getIntent().getLongExtra("alarmTime", 0);
-            String alarmId = getIntent().getStringExtra("alarmId");
-            
-            // Build deep link URL with parameters
-            String deepLinkUrl = "wakeupbuddy://(tabs)/home?alarm=dismissed";
-            
-            if (buddyEmail != null && !buddyEmail.isEmpty()) {
-                String encodedEmail = Uri.encode(buddyEmail);
-                deepLinkUrl += "&buddy=" + encodedEmail;
-            }
-            
-            if (alarmId != null && !alarmId.isEmpty()) {
-                String encodedAlarmId = Uri.encode(alarmId);
-                deepLinkUrl += "&alarmId=" + encodedAlarmId;
-            }
-            
-            if (alarmTimeMs > 0) {
-                // Format time to match DB format (e.g., "5:43" and "PM")
-                java.text.SimpleDateFormat timeFormat = new java.text.SimpleDateFormat("h:mm", java.util.Locale.US);
-                java.text.SimpleDateFormat ampmFormat = new java.text.SimpleDateFormat("a", java.util.Locale.US);
-                java.util.Date date = new java.util.Date(alarmTimeMs);
-                
-                String timeStr = timeFormat.format(date);
-                String ampmStr = ampmFormat.format(date);
-                
-                deepLinkUrl += "&time=" + Uri.encode(timeStr) + "&ampm=" + Uri.encode(ampmStr);
-            }
+            // Build deep link URL with parameters; time is formatted to match the DB (e.g., "5:43" and "PM")
+            String deepLinkUrl = DeepLinks.alarmDismissed(
+                buddyEmail,
+                DismissalStore.keyFor(alarmId, scheduledFor),
+                alarmId,
+                dismissal != null ? dismissal.time : null,
+                dismissal != null ? dismissal.ampm : null,
+                reported
+            );
             
             // Show toast to inform user
-            android.widget.Toast.makeText(this, "Opening WakeupBuddy...", android.widget.Toast.LENGTH_SHORT).show();
+            android.widget.Toast.makeText(this, "Wake-up recorded. Opening WakeupBuddy...", android.widget.Toast.LENGTH_SHORT).show();
 
             // Request Keyguard dismissal for Android O+
             if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
@@ -154,12 +341,12 @@ public class AlarmActivity extends Activity {
                 keyguardManager.requestDismissKeyguard(this, null);
             }
 
-            Log.d(TAG, "Launching app with deep link: " + deepLinkUrl);
+            AlarmLog.d(TAG, "Launching app with deep link: {}", deepLinkUrl);
             Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(deepLinkUrl));
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
             startActivity(intent);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to launch app", e);
+            AlarmLog.e(TAG, "Failed to launch app", e);
         }
 
         // Close the activity
@@ -169,15 +356,23 @@ public class AlarmActivity extends Activity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        unregisterReceiver(snoozedReceiver);
+        alarmScreen.setAvatar(null);
+        AvatarPipeline.get(this).release(avatar);
+        avatar = null;
+
+        if (frameMetricsRecorder != null) {
+            frameMetricsRecorder.finish();
+        }
         
         // Release wake lock
         if (wakeLock != null && wakeLock.isHeld()) {
             wakeLock.release();
         }
+        AlarmDiagnostics.wakeLockReleased("WakeupBuddy:AlarmActivityLock");
         
-        // Ensure service is stopped if activity is destroyed
-        Intent stopIntent = new Intent(this, AlarmService.class);
-        stopIntent.setAction("STOP");
-        startService(stopIntent);
+        // Ensure service is stopped if activity is destroyed. stopService rather than a
+        // STOP start command, which would recreate an already-stopped service just to stop it
+        stopService(new Intent(this, AlarmService.class));
     }
 }
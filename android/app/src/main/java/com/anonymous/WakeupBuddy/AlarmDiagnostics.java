@@ -0,0 +1,233 @@
+package com.anonymous.WakeupBuddy;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+
+import com.anonymous.WakeupBuddy.core.AlarmLedger;
+import com.anonymous.WakeupBuddy.core.AlarmRecord;
+import com.anonymous.WakeupBuddy.core.CallTracker;
+
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory state for "my alarm didn't ring" reports, printed by dumpsys:
+ *
+ *   adb shell dumpsys activity service com.anonymous.WakeupBuddy/.AlarmService       while ringing
+ *   adb shell dumpsys activity service com.anonymous.WakeupBuddy/.DiagnosticsService any time
+ *
+ * Wake locks, phone-state listeners, recent fires, the alarms armed through the
+ * AlarmLedger and the CallTracker are registered here by their owners as they happen,
+ * so the default {@link #dump} only walks small bounded in-memory state. It reads
+ * nothing from disk and makes no binder calls; in a process that has just started,
+ * most of it is empty.
+ *
+ * Add --full for the persisted alarms with a FLAG_NO_CREATE lookup each, the pending
+ * call, the frame metrics summary and the standby bucket. These read preferences from
+ * disk and call system services.
+ */
+public final class AlarmDiagnostics {
+    private static final int MAX_FIRES = 8;
+    static final String ARG_FULL = "--full";
+
+    // tag -> {acquired at (elapsedRealtime), timeout ms or 0}
+    private static final ConcurrentHashMap<String, long[]> wakeLocks = new ConcurrentHashMap<>();
+    // owner -> registered at (elapsedRealtime)
+    private static final ConcurrentHashMap<String, Long> phoneListeners = new ConcurrentHashMap<>();
+    private static final ArrayDeque<Fire> fires = new ArrayDeque<>();
+    private static volatile CallTracker callTracker;
+    private static volatile AlarmLedger ledger;
+
+    private static final class Fire {
+        final String alarmId;
+        final long scheduledAt;
+        final long firedAt;
+
+        Fire(String alarmId, long scheduledAt, long firedAt) {
+            this.alarmId = alarmId;
+            this.scheduledAt = scheduledAt;
+            this.firedAt = firedAt;
+        }
+    }
+
+    private AlarmDiagnostics() {}
+
+    public static void wakeLockAcquired(String tag, long timeoutMs) {
+        wakeLocks.put(tag, new long[] { SystemClock.elapsedRealtime(), timeoutMs });
+    }
+
+    public static void wakeLockReleased(String tag) {
+        wakeLocks.remove(tag);
+    }
+
+    public static void phoneListenerRegistered(String owner) {
+        phoneListeners.put(owner, SystemClock.elapsedRealtime());
+    }
+
+    public static void phoneListenerRemoved(String owner) {
+        phoneListeners.remove(owner);
+    }
+
+    public static void trackCalls(CallTracker tracker) {
+        callTracker = tracker;
+    }
+
+    public static void trackLedger(AlarmLedger alarmLedger) {
+        ledger = alarmLedger;
+    }
+
+    public static void alarmFired(String alarmId, long scheduledAt, long firedAt) {
+        synchronized (fires) {
+            if (fires.size() == MAX_FIRES) fires.pollLast();
+            fires.addFirst(new Fire(alarmId, scheduledAt, firedAt));
+        }
+    }
+
+    public static void dump(Context context, PrintWriter pw, String[] args) {
+        boolean full = args != null && Arrays.asList(args).contains(ARG_FULL);
+        long now = System.currentTimeMillis();
+        long elapsed = SystemClock.elapsedRealtime();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+
+        pw.println("WakeupBuddy alarm diagnostics at " + format.format(new Date(now)));
+
+        dumpLedger(pw, format, now);
+        if (full) {
+            dumpPersistedAlarms(context, pw, format, now);
+        }
+
+        pw.println();
+        CallTracker tracker = callTracker;
+        pw.println("Call tracker: " + (tracker == null ? "not started in this process"
+            : callStateName(tracker.state()) + " seq=" + tracker.sequence() + " listening=" + tracker.isListening()));
+        if (full) {
+            SharedPreferences calls = context.getSharedPreferences(CallMonitor.PREFS_NAME, Context.MODE_PRIVATE);
+            String callId = calls.getString(CallMonitor.KEY_CALL_ID, null);
+            pw.println("  pending call: " + (callId == null ? "none"
+                : callId + " to " + calls.getString(CallMonitor.KEY_PHONE, "?")
+                    + " initiated " + format.format(new Date(calls.getLong(CallMonitor.KEY_INITIATED, 0)))));
+        }
+
+        pw.println();
+        pw.println("Wake locks (" + wakeLocks.size() + "):");
+        for (Map.Entry<String, long[]> lock : wakeLocks.entrySet()) {
+            long held = elapsed - lock.getValue()[0];
+            long timeout = lock.getValue()[1];
+            pw.println("  " + lock.getKey() + " held " + seconds(held)
+                + (timeout > 0 ? " (timeout " + seconds(timeout) + (held >= timeout ? ", expired" : "") + ")" : ""));
+        }
+
+        pw.println();
+        pw.println("Phone-state listeners (" + phoneListeners.size() + "):");
+        for (Map.Entry<String, Long> listener : phoneListeners.entrySet()) {
+            pw.println("  " + listener.getKey() + " for " + seconds(elapsed - listener.getValue()));
+        }
+
+        pw.println();
+        pw.println("Recent fires (newest first, this process):");
+        synchronized (fires) {
+            if (fires.isEmpty()) pw.println("  none");
+            for (Fire fire : fires) {
+                pw.println("  " + fire.alarmId + " due " + format.format(new Date(fire.scheduledAt))
+                    + " fired " + (fire.firedAt - fire.scheduledAt) + "ms late");
+            }
+        }
+
+        pw.println();
+        if (!full) {
+            pw.println("Persisted alarms, pending call, frame metrics and standby bucket: add " + ARG_FULL);
+            return;
+        }
+        FrameMetricsRecorder.Summary frames = FrameMetricsRecorder.readSummary(context);
+        pw.println("Alarm screen: " + frames.sessions + " sessions, first frame latest "
+            + frames.latestTtffMs + "ms, avg " + frames.ttffAvgMs + "ms, max " + frames.ttffMaxMs
+            + "ms, janky frames " + frames.jankyFrames + "/" + frames.frames);
+        pw.println("Standby bucket: " + standbyBucket(context));
+    }
+
+    private static void dumpLedger(PrintWriter pw, SimpleDateFormat format, long now) {
+        AlarmLedger alarms = ledger;
+        List<AlarmRecord> records = alarms != null ? alarms.armedRecords() : Collections.emptyList();
+
+        pw.println();
+        pw.println("Alarms armed by this process (" + records.size() + "):");
+        if (records.isEmpty()) pw.println("  none");
+        for (AlarmRecord record : records) {
+            pw.println("  " + record.key() + " at " + format.format(new Date(record.when))
+                + (record.when < now ? " (past)" : "")
+                + " alarmId=" + record.alarmId
+                + " buddy=" + (record.buddyName != null ? record.buddyName : "-"));
+        }
+    }
+
+    private static void dumpPersistedAlarms(Context context, PrintWriter pw, SimpleDateFormat format, long now) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        AlarmManager.AlarmClockInfo next = alarmManager != null ? alarmManager.getNextAlarmClock() : null;
+        Map<String, ?> persisted = context.getSharedPreferences(AlarmScheduler.PREFS_NAME, Context.MODE_PRIVATE).getAll();
+
+        pw.println();
+        pw.println("Persisted alarms (" + persisted.size() + ", next alarm clock: "
+            + (next != null ? format.format(new Date(next.getTriggerTime())) : "none") + "):");
+        for (Map.Entry<String, ?> entry : persisted.entrySet()) {
+            int requestCode = AlarmRecord.requestCodeFromKey(entry.getKey());
+            if (requestCode < 0) continue;
+            AlarmRecord record = entry.getValue() instanceof String
+                ? AlarmRecord.decode(requestCode, (String) entry.getValue())
+                : null;
+            if (record == null) {
+                pw.println("  " + entry.getKey() + " unreadable: " + entry.getValue());
+                continue;
+            }
+            // The same PendingIntent AlarmScheduler.arm creates; extras are not part of the match
+            PendingIntent armed = PendingIntent.getBroadcast(context, requestCode,
+                new Intent(context, AlarmReceiver.class), PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+            pw.println("  " + record.key() + " at " + format.format(new Date(record.when))
+                + (record.when < now ? " (past)" : "")
+                + " alarmId=" + record.alarmId
+                + " buddy=" + (record.buddyName != null ? record.buddyName : "-")
+                + (armed != null ? " armed" : " NOT ARMED"));
+        }
+    }
+
+    private static String callStateName(int state) {
+        switch (state) {
+            case CallTracker.IDLE: return "IDLE";
+            case CallTracker.DIALING: return "DIALING";
+            case CallTracker.ACTIVE: return "ACTIVE";
+            default: return String.valueOf(state);
+        }
+    }
+
+    private static String standbyBucket(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) return "n/a (API " + Build.VERSION.SDK_INT + ")";
+        UsageStatsManager usage = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        if (usage == null) return "unknown";
+        int bucket = usage.getAppStandbyBucket();
+        switch (bucket) {
+            case UsageStatsManager.STANDBY_BUCKET_ACTIVE: return "ACTIVE";
+            case UsageStatsManager.STANDBY_BUCKET_WORKING_SET: return "WORKING_SET";
+            case UsageStatsManager.STANDBY_BUCKET_FREQUENT: return "FREQUENT";
+            case UsageStatsManager.STANDBY_BUCKET_RARE: return "RARE";
+            case 45: return "RESTRICTED";
+            default: return String.valueOf(bucket);
+        }
+    }
+
+    private static String seconds(long ms) {
+        return (ms / 1000) + "s";
+    }
+}
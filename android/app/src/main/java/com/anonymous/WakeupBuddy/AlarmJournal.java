@@ -0,0 +1,330 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Append-only on-disk journal of alarm lifecycle events.
+ *
+ * Callers append from any thread; the event is timestamped immediately and handed
+ * to a single writer thread that batches pending events into one write + fsync.
+ * The file is capped at MAX_FILE_BYTES and compacted down to the newest half when
+ * it grows past that. JS pulls history in large pages via AlarmModule.drainJournal.
+ *
+ * Record layout: seq(long) type(byte) elapsedRealtime(long) wallTime(long) refId(UTF) value(int)
+ * where refId is the alarmId for alarm events and the pending callId for call events.
+ */
+public class AlarmJournal {
+    private static final String TAG = "AlarmJournal";
+    private static final String FILE_NAME = "alarm_journal.bin";
+    private static final long FLUSH_DELAY_MS = 250;
+    private static final long MAX_FILE_BYTES = 256 * 1024;
+    // After a failed write: when to retry, and how many entries to hold meanwhile
+    private static final long RETRY_DELAY_MS = 5_000;
+    private static final int MAX_PENDING = 1_000;
+
+    public static final byte FIRED = 1;
+    public static final byte RANG = 2;
+    public static final byte DISMISSED = 3;
+    public static final byte CALL_STARTED = 4;
+    public static final byte CALL_ENDED = 5;
+    public static final byte LAUNCH_ATTEMPT = 6;
+    public static final byte SNOOZED = 7;
+    public static final byte SKIPPED = 8;
+    public static final byte CANCELLED = 9;
+    public static final byte CALL_PLACED = 10;
+
+    private static AlarmJournal instance;
+
+    private final File file;
+    private final Handler writer;
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private final Runnable flushRunnable = this::flush;
+
+    // Only touched on the writer thread
+    private long nextSeq = -1;
+    private long fileBytes = 0;
+
+    public static class Entry {
+        public long seq;
+        public byte type;
+        public long elapsedRealtime;
+        public long wallTime;
+        public String refId;
+        public int value;
+    }
+
+    public static synchronized AlarmJournal get(Context context) {
+        if (instance == null) {
+            instance = new AlarmJournal(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AlarmJournal(Context context) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+        HandlerThread thread = new HandlerThread("AlarmJournal");
+        thread.start();
+        writer = new Handler(thread.getLooper());
+    }
+
+    public static String typeName(byte type) {
+        switch (type) {
+            case FIRED: return "fired";
+            case RANG: return "rang";
+            case DISMISSED: return "dismissed";
+            case CALL_STARTED: return "call_started";
+            case CALL_ENDED: return "call_ended";
+            case LAUNCH_ATTEMPT: return "launch_attempt";
+            case SNOOZED: return "snoozed";
+            case SKIPPED: return "skipped";
+            case CANCELLED: return "cancelled";
+            case CALL_PLACED: return "call_placed";
+            default: return "unknown";
+        }
+    }
+
+    public void append(byte type, String refId) {
+        append(type, refId, 0);
+    }
+
+    /**
+     * Queue an event. Timestamps are taken here, on the caller's thread; the write
+     * happens on the journal thread within FLUSH_DELAY_MS.
+     */
+    public void append(byte type, String refId, int value) {
+        Entry entry = new Entry();
+        entry.type = type;
+        entry.elapsedRealtime = SystemClock.elapsedRealtime();
+        entry.wallTime = System.currentTimeMillis();
+        entry.refId = refId != null ? refId : "";
+        entry.value = value;
+
+        synchronized (pending) {
+            pending.add(entry);
+            if (pending.size() == 1) {
+                writer.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Read up to max events with seq > sinceSeq, oldest first. Pending events are
+     * flushed first so the result includes everything appended before this call.
+     * Must not be called on the main thread.
+     */
+    public List<Entry> read(long sinceSeq, int max) {
+        // Filled on the writer thread and only handed over once complete
+        final AtomicReference<List<Entry>> result = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        writer.post(() -> {
+            try {
+                flush();
+                List<Entry> entries = new ArrayList<>();
+                readLocked(sinceSeq, max, entries);
+                result.set(entries);
+            } finally {
+                done.countDown();
+            }
+        });
+        try {
+            if (!done.await(5, TimeUnit.SECONDS)) {
+                AlarmLog.w(TAG, "Timed out reading the journal");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Entry> entries = result.get();
+        return entries != null ? entries : new ArrayList<>();
+    }
+
+    // Writer thread: write every pending entry and fsync once
+    private void flush() {
+        writer.removeCallbacks(flushRunnable);
+        List<Entry> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        ensureOpened();
+        long goodBytes = file.length();
+        long firstSeq = nextSeq;
+        try (FileOutputStream fos = new FileOutputStream(file, true)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            for (Entry entry : batch) {
+                entry.seq = nextSeq++;
+                writeEntry(out, entry);
+            }
+            out.flush();
+            fos.getFD().sync();
+            fileBytes = file.length();
+        } catch (IOException e) {
+            AlarmLog.e(TAG, "Failed to write {} journal entries", batch.size(), e);
+            rollBack(batch, goodBytes, firstSeq);
+            return;
+        }
+
+        if (fileBytes > MAX_FILE_BYTES) {
+            compact();
+        }
+    }
+
+    /**
+     * Writer thread: undo a failed flush. Cuts the file back to its last good length so
+     * no torn or half-synced record is left mid-file, and puts the batch back at the head
+     * of the queue for a later retry, dropping the oldest entries past MAX_PENDING.
+     */
+    private void rollBack(List<Entry> batch, long goodBytes, long firstSeq) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(goodBytes);
+            nextSeq = firstSeq;
+            fileBytes = goodBytes;
+        } catch (IOException e) {
+            AlarmLog.e(TAG, "Failed to roll back journal", e);
+            // Rescan before the next write; ensureOpened cuts off a torn tail
+            nextSeq = -1;
+        }
+
+        synchronized (pending) {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                pending.addFirst(batch.get(i));
+            }
+            int dropped = 0;
+            while (pending.size() > MAX_PENDING) {
+                pending.removeFirst();
+                dropped++;
+            }
+            if (dropped > 0) {
+                AlarmLog.w(TAG, "Dropped {} unwritten journal entries", dropped);
+            }
+        }
+        writer.postDelayed(flushRunnable, RETRY_DELAY_MS);
+    }
+
+    // Writer thread: find the last sequence number on first use and cut off a torn tail
+    private void ensureOpened() {
+        if (nextSeq >= 0) return;
+        nextSeq = 1;
+        if (!file.exists()) return;
+
+        long lastSeq = 0;
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                Entry entry = readEntry(in);
+                lastSeq = entry.seq;
+                validBytes += encodedSize(entry);
+            }
+        } catch (EOFException e) {
+            // End of journal
+        } catch (IOException e) {
+            AlarmLog.e(TAG, "Failed to scan journal", e);
+        }
+
+        if (validBytes < file.length()) {
+            // Process died mid-write; drop the partial record so later appends stay readable
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validBytes);
+            } catch (IOException e) {
+                AlarmLog.e(TAG, "Failed to truncate torn journal tail", e);
+            }
+        }
+        nextSeq = lastSeq + 1;
+        fileBytes = file.length();
+    }
+
+    private void readLocked(long sinceSeq, int max, List<Entry> result) {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (result.size() < max) {
+                Entry entry = readEntry(in);
+                if (entry.seq > sinceSeq) {
+                    result.add(entry);
+                }
+            }
+        } catch (EOFException e) {
+            // Reached the end
+        } catch (IOException e) {
+            AlarmLog.e(TAG, "Failed to read journal", e);
+        }
+    }
+
+    // Writer thread: keep the newest half of the journal, written atomically via rename
+    private void compact() {
+        List<Entry> all = new ArrayList<>();
+        readLocked(0, Integer.MAX_VALUE, all);
+        int keepFrom = all.size() / 2;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp, false)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            for (int i = keepFrom; i < all.size(); i++) {
+                writeEntry(out, all.get(i));
+            }
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            AlarmLog.e(TAG, "Failed to compact journal", e);
+            tmp.delete();
+            return;
+        }
+
+        if (tmp.renameTo(file)) {
+            fileBytes = file.length();
+            AlarmLog.i(TAG, "Compacted journal to {} entries", all.size() - keepFrom);
+        } else {
+            tmp.delete();
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeLong(entry.seq);
+        out.writeByte(entry.type);
+        out.writeLong(entry.elapsedRealtime);
+        out.writeLong(entry.wallTime);
+        out.writeUTF(entry.refId);
+        out.writeInt(entry.value);
+    }
+
+    private static long encodedSize(Entry entry) {
+        // 8 seq + 1 type + 8 elapsed + 8 wall + 2 UTF length prefix + 4 value, plus modified UTF-8 bytes
+        long size = 31;
+        for (int i = 0; i < entry.refId.length(); i++) {
+            char c = entry.refId.charAt(i);
+            size += (c >= 0x0001 && c <= 0x007F) ? 1 : (c <= 0x07FF ? 2 : 3);
+        }
+        return size;
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        Entry entry = new Entry();
+        entry.seq = in.readLong();
+        entry.type = in.readByte();
+        entry.elapsedRealtime = in.readLong();
+        entry.wallTime = in.readLong();
+        entry.refId = in.readUTF();
+        entry.value = in.readInt();
+        return entry;
+    }
+}
@@ -0,0 +1,224 @@
+package com.anonymous.WakeupBuddy;
+
+import android.util.Log;
+
+/**
+ * Leveled logging facade for the native alarm code.
+ *
+ * - The level is checked before anything is formatted, and messages use "{}"
+ *   placeholders with fixed-arity overloads, so a suppressed call costs one
+ *   comparison and no varargs array or string building.
+ * - v() and d() return immediately in release builds (BuildConfig.DEBUG is a
+ *   compile-time false there) and proguard-rules.pro lets R8 strip them entirely,
+ *   along with any block guarded by isDebugEnabled().
+ * - Every emitted line is also kept in a small in-memory ring buffer that can be
+ *   dumped on demand (AlarmModule.dumpLog, dumpsys).
+ */
+public final class AlarmLog {
+    private static final int RING_SIZE = 256;
+    private static final String[] ring = new String[RING_SIZE];
+    private static int ringHead = 0;
+    private static int ringCount = 0;
+
+    private static volatile int minLevel = BuildConfig.DEBUG ? Log.DEBUG : Log.INFO;
+
+    private AlarmLog() {}
+
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    /**
+     * For guarding per-row logging in loops; constant false in release builds
+     */
+    public static boolean isDebugEnabled() {
+        return BuildConfig.DEBUG && isLoggable(Log.DEBUG);
+    }
+
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    // ---- VERBOSE / DEBUG: compiled out of release builds ----
+
+    public static void v(String tag, String msg) {
+        if (!BuildConfig.DEBUG || !isLoggable(Log.VERBOSE)) return;
+        emit(Log.VERBOSE, tag, msg, null);
+    }
+
+    public static void d(String tag, String msg) {
+        if (!BuildConfig.DEBUG || !isLoggable(Log.DEBUG)) return;
+        emit(Log.DEBUG, tag, msg, null);
+    }
+
+    public static void d(String tag, String fmt, Object a1) {
+        if (!BuildConfig.DEBUG || !isLoggable(Log.DEBUG)) return;
+        emit(Log.DEBUG, tag, format(fmt, a1, null, null, null, 1), null);
+    }
+
+    public static void d(String tag, String fmt, long a1) {
+        if (!BuildConfig.DEBUG || !isLoggable(Log.DEBUG)) return;
+        emit(Log.DEBUG, tag, format(fmt, a1), null);
+    }
+
+    public static void d(String tag, String fmt, Object a1, Object a2) {
+        if (!BuildConfig.DEBUG || !isLoggable(Log.DEBUG)) return;
+        emit(Log.DEBUG, tag, format(fmt, a1, a2, null, null, 2), null);
+    }
+
+    public static void d(String tag, String fmt, Object a1, Object a2, Object a3) {
+        if (!BuildConfig.DEBUG || !isLoggable(Log.DEBUG)) return;
+        emit(Log.DEBUG, tag, format(fmt, a1, a2, a3, null, 3), null);
+    }
+
+    public static void d(String tag, String fmt, Object a1, Object a2, Object a3, Object a4) {
+        if (!BuildConfig.DEBUG || !isLoggable(Log.DEBUG)) return;
+        emit(Log.DEBUG, tag, format(fmt, a1, a2, a3, a4, 4), null);
+    }
+
+    // ---- INFO ----
+
+    public static void i(String tag, String msg) {
+        if (!isLoggable(Log.INFO)) return;
+        emit(Log.INFO, tag, msg, null);
+    }
+
+    public static void i(String tag, String fmt, Object a1) {
+        if (!isLoggable(Log.INFO)) return;
+        emit(Log.INFO, tag, format(fmt, a1, null, null, null, 1), null);
+    }
+
+    public static void i(String tag, String fmt, long a1) {
+        if (!isLoggable(Log.INFO)) return;
+        emit(Log.INFO, tag, format(fmt, a1), null);
+    }
+
+    public static void i(String tag, String fmt, Object a1, Object a2) {
+        if (!isLoggable(Log.INFO)) return;
+        emit(Log.INFO, tag, format(fmt, a1, a2, null, null, 2), null);
+    }
+
+    public static void i(String tag, String fmt, Object a1, Object a2, Object a3) {
+        if (!isLoggable(Log.INFO)) return;
+        emit(Log.INFO, tag, format(fmt, a1, a2, a3, null, 3), null);
+    }
+
+    public static void i(String tag, String fmt, Object a1, Object a2, Object a3, Object a4) {
+        if (!isLoggable(Log.INFO)) return;
+        emit(Log.INFO, tag, format(fmt, a1, a2, a3, a4, 4), null);
+    }
+
+    // ---- WARN ----
+
+    public static void w(String tag, String msg) {
+        if (!isLoggable(Log.WARN)) return;
+        emit(Log.WARN, tag, msg, null);
+    }
+
+    public static void w(String tag, String msg, Throwable t) {
+        if (!isLoggable(Log.WARN)) return;
+        emit(Log.WARN, tag, msg, t);
+    }
+
+    public static void w(String tag, String fmt, Object a1) {
+        if (!isLoggable(Log.WARN)) return;
+        emit(Log.WARN, tag, format(fmt, a1, null, null, null, 1), null);
+    }
+
+    public static void w(String tag, String fmt, Object a1, Object a2) {
+        if (!isLoggable(Log.WARN)) return;
+        emit(Log.WARN, tag, format(fmt, a1, a2, null, null, 2), null);
+    }
+
+    public static void w(String tag, String fmt, Object a1, Throwable t) {
+        if (!isLoggable(Log.WARN)) return;
+        emit(Log.WARN, tag, format(fmt, a1, null, null, null, 1), t);
+    }
+
+    // ---- ERROR ----
+
+    public static void e(String tag, String msg) {
+        if (!isLoggable(Log.ERROR)) return;
+        emit(Log.ERROR, tag, msg, null);
+    }
+
+    public static void e(String tag, String msg, Throwable t) {
+        if (!isLoggable(Log.ERROR)) return;
+        emit(Log.ERROR, tag, msg, t);
+    }
+
+    public static void e(String tag, String fmt, Object a1) {
+        if (!isLoggable(Log.ERROR)) return;
+        emit(Log.ERROR, tag, format(fmt, a1, null, null, null, 1), null);
+    }
+
+    public static void e(String tag, String fmt, Object a1, Throwable t) {
+        if (!isLoggable(Log.ERROR)) return;
+        emit(Log.ERROR, tag, format(fmt, a1, null, null, null, 1), t);
+    }
+
+    /**
+     * Most recent log lines, oldest first
+     */
+    public static synchronized String[] dump() {
+        String[] lines = new String[ringCount];
+        int start = (ringHead - ringCount + RING_SIZE) % RING_SIZE;
+        for (int i = 0; i < ringCount; i++) {
+            lines[i] = ring[(start + i) % RING_SIZE];
+        }
+        return lines;
+    }
+
+    private static void emit(int level, String tag, String msg, Throwable t) {
+        if (t != null) {
+            Log.println(level, tag, msg + '\n' + Log.getStackTraceString(t));
+        } else {
+            Log.println(level, tag, msg);
+        }
+        record(level, tag, t != null ? msg + ": " + t : msg);
+    }
+
+    private static synchronized void record(int level, String tag, String msg) {
+        ring[ringHead] = System.currentTimeMillis() + " " + levelChar(level) + "/" + tag + ": " + msg;
+        ringHead = (ringHead + 1) % RING_SIZE;
+        if (ringCount < RING_SIZE) ringCount++;
+    }
+
+    // Replace each "{}" in order with the next argument
+    private static String format(String fmt, Object a1, Object a2, Object a3, Object a4, int argCount) {
+        StringBuilder sb = new StringBuilder(fmt.length() + 32);
+        int argIndex = 0;
+        int start = 0;
+        int idx;
+        while (argIndex < argCount && (idx = fmt.indexOf("{}", start)) >= 0) {
+            sb.append(fmt, start, idx);
+            Object arg = argIndex == 0 ? a1 : argIndex == 1 ? a2 : argIndex == 2 ? a3 : a4;
+            sb.append(arg);
+            argIndex++;
+            start = idx + 2;
+        }
+        sb.append(fmt, start, fmt.length());
+        return sb.toString();
+    }
+
+    // Single primitive argument, appended without boxing
+    private static String format(String fmt, long a1) {
+        int idx = fmt.indexOf("{}");
+        if (idx < 0) return fmt;
+        return new StringBuilder(fmt.length() + 20)
+            .append(fmt, 0, idx)
+            .append(a1)
+            .append(fmt, idx + 2, fmt.length())
+            .toString();
+    }
+
+    private static char levelChar(int level) {
+        switch (level) {
+            case Log.VERBOSE: return 'V';
+            case Log.DEBUG: return 'D';
+            case Log.INFO: return 'I';
+            case Log.WARN: return 'W';
+            default: return 'E';
+        }
+    }
+}
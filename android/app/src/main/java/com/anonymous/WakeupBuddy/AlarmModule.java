@@ -6,82 +6,149 @@ import android.content.Intent;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.Bundle;
 import android.provider.Settings;
 import android.provider.CallLog;
 import android.database.Cursor;
 import android.net.Uri;
 import android.content.pm.PackageManager;
-import android.telephony.PhoneStateListener;
-import android.telephony.TelephonyManager;
-import android.util.Log;
 import androidx.core.content.ContextCompat;
 import androidx.core.app.ActivityCompat;
 import android.Manifest;
+import androidx.annotation.Nullable;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
-import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.Arguments;
-
-public class AlarmModule extends ReactContextBaseJavaModule {
+import com.anonymous.WakeupBuddy.core.AlarmRecord;
+import com.anonymous.WakeupBuddy.core.BuddyDirectory;
+import com.anonymous.WakeupBuddy.core.CallHistoryScan;
+import com.anonymous.WakeupBuddy.core.PhoneNumbers;
+import com.anonymous.WakeupBuddy.specs.NativeAlarmModuleSpec;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TurboModule implementation of specs/NativeAlarmModule.ts. The abstract methods and
+ * the module name come from the codegen-generated NativeAlarmModuleSpec.
+ */
+public class AlarmModule extends NativeAlarmModuleSpec {
+    private static final String TAG = "AlarmModule";
     private final ReactApplicationContext reactContext;
-    private long callStartTime = 0;
-    private String lastCalledNumber = null;
-    private PhoneStateListener phoneStateListener;
-    private TelephonyManager telephonyManager;
     private static final int READ_PHONE_STATE_REQUEST = 2;
-    private Handler mainHandler;
+    // getCallHistory paging: matches per page, and call-log rows read per call at most
+    private static final int CALL_HISTORY_DEFAULT_PAGE = 100;
+    private static final int CALL_HISTORY_MAX_PAGE = 500;
+    private static final int CALL_HISTORY_MAX_SCAN = 2000;
     
     public AlarmModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.reactContext = reactContext;
-        this.mainHandler = new Handler(Looper.getMainLooper());
     }
     
+    // Delivers NativeEventBus events to JS while this React instance is alive
+    private final NativeEventBus.Sink eventSink = (eventName, payload) -> {
+        ReactApplicationContext ctx = getReactApplicationContext();
+        if (!ctx.hasActiveReactInstance()) {
+            return false;
+        }
+        ctx
+            .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+            .emit(eventName, Arguments.fromBundle(payload));
+        return true;
+    };
+
+    // Coming back from a settings screen is when permissions usually change
+    private final LifecycleEventListener lifecycleListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+            EnvironmentMonitor.get(reactContext).refresh("resume");
+        }
+
+        @Override
+        public void onHostPause() {}
+
+        @Override
+        public void onHostDestroy() {}
+    };
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        NativeEventBus.get().attach(eventSink);
+        EnvironmentMonitor.get(reactContext).start();
+        reactContext.addLifecycleEventListener(lifecycleListener);
+    }
+
     @Override
-    public String getName() {
-        return "AlarmModule";
+    public void invalidate() {
+        reactContext.removeLifecycleEventListener(lifecycleListener);
+        EnvironmentMonitor.get(reactContext).stop();
+        NativeEventBus.get().detach(eventSink);
+        super.invalidate();
     }
 
     // Required for NativeEventEmitter
-    @ReactMethod
+    @Override
     public void addListener(String eventName) {
-        // Keep: Required for RN event emitter
+        // Flushes buffered events (or replays the latest state event) for this event name
+        NativeEventBus.get().onListenerAdded(eventName);
     }
 
-    @ReactMethod
-    public void removeListeners(Integer count) {
-        // Keep: Required for RN event emitter
+    @Override
+    public void removeListeners(double count) {
+        NativeEventBus.get().onListenersRemoved((int) count);
     }
 
-    private void sendEvent(String eventName, WritableMap params) {
-        if (reactContext.hasActiveCatalystInstance()) {
-            reactContext
-                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                .emit(eventName, params);
-        }
+    /**
+     * Sent by the AlarmNative.js subscribe helpers next to removeListeners, so the bus
+     * buffers events for a name once its last listener is gone
+     */
+    @Override
+    public void releaseListener(String eventName) {
+        NativeEventBus.get().onListenerReleased(eventName);
     }
 
-    @ReactMethod
-    public void canScheduleExactAlarms(Promise promise) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            AlarmManager am = (AlarmManager) reactContext.getSystemService(Context.ALARM_SERVICE);
-            if (am != null) {
-                promise.resolve(am.canScheduleExactAlarms());
-            } else {
-                promise.resolve(false);
-            }
-        } else {
-            // Pre-Android 12, always allowed
-            promise.resolve(true);
+    /**
+     * Counters for the native event bus (posted, delivered, coalesced, dropped, ...)
+     */
+    @Override
+    public void getEventBusStats(Promise promise) {
+        promise.resolve(Arguments.fromBundle(NativeEventBus.get().getStats()));
+    }
+
+    /**
+     * Recent native log lines from AlarmLog's ring buffer, oldest first
+     */
+    @Override
+    public void dumpLog(Promise promise) {
+        WritableArray lines = Arguments.createArray();
+        for (String line : AlarmLog.dump()) {
+            lines.pushString(line);
         }
+        promise.resolve(lines);
+    }
+
+    @Override
+    public boolean canScheduleExactAlarms() {
+        return EnvironmentMonitor.canScheduleExactAlarms(reactContext);
+    }
+
+    /**
+     * All permission and system-setting checks in one call, from the native cache.
+     * EnvironmentChanged is emitted with a new snapshot whenever one of them changes.
+     */
+    @Override
+    public WritableMap getEnvironmentSnapshot() {
+        return Arguments.fromBundle(EnvironmentMonitor.get(reactContext).snapshot());
     }
 
-    @ReactMethod
+    @Override
     public void openAlarmSettings(Promise promise) {
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
@@ -98,27 +165,12 @@ public class AlarmModule extends ReactContextBaseJavaModule {
         }
     }
 
-    @ReactMethod
-    public void isBatteryOptimizationDisabled(Promise promise) {
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                android.os.PowerManager pm = (android.os.PowerManager) reactContext.getSystemService(Context.POWER_SERVICE);
-                if (pm != null) {
-                    boolean isIgnoring = pm.isIgnoringBatteryOptimizations(reactContext.getPackageName());
-                    promise.resolve(isIgnoring);
-                } else {
-                    promise.resolve(false);
-                }
-            } else {
-                // Pre-Android 6.0, battery optimization doesn't exist
-                promise.resolve(true);
-            }
-        } catch (Exception e) {
-            promise.reject("ERROR", e.getMessage());
-        }
+    @Override
+    public boolean isBatteryOptimizationDisabled() {
+        return EnvironmentMonitor.isBatteryOptimizationDisabled(reactContext);
     }
 
-    @ReactMethod
+    @Override
     public void requestBatteryOptimizationExemption(Promise promise) {
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -135,22 +187,12 @@ public class AlarmModule extends ReactContextBaseJavaModule {
         }
     }
 
-    @ReactMethod
-    public void canDrawOverlays(Promise promise) {
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                boolean canDraw = Settings.canDrawOverlays(reactContext);
-                promise.resolve(canDraw);
-            } else {
-                // Pre-Android 6.0, always allowed
-                promise.resolve(true);
-            }
-        } catch (Exception e) {
-            promise.reject("ERROR", e.getMessage());
-        }
+    @Override
+    public boolean canDrawOverlays() {
+        return EnvironmentMonitor.canDrawOverlays(reactContext);
     }
 
-    @ReactMethod
+    @Override
     public void requestDrawOverlays(Promise promise) {
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -167,27 +209,12 @@ public class AlarmModule extends ReactContextBaseJavaModule {
         }
     }
 
-    @ReactMethod
-    public void canUseFullScreenIntent(Promise promise) {
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) { // API 34+
-                android.app.NotificationManager nm = (android.app.NotificationManager) 
-                    reactContext.getSystemService(Context.NOTIFICATION_SERVICE);
-                if (nm != null) {
-                    promise.resolve(nm.canUseFullScreenIntent());
-                } else {
-                    promise.resolve(false);
-                }
-            } else {
-                // Pre-Android 14, permission is granted by default if declared in manifest
-                promise.resolve(true);
-            }
-        } catch (Exception e) {
-            promise.reject("ERROR", e.getMessage());
-        }
+    @Override
+    public boolean canUseFullScreenIntent() {
+        return EnvironmentMonitor.canUseFullScreenIntent(reactContext);
     }
 
-    @ReactMethod
+    @Override
     public void requestFullScreenIntentPermission(Promise promise) {
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) { // API 34+
@@ -204,8 +231,8 @@ public class AlarmModule extends ReactContextBaseJavaModule {
         }
     }
 
-    @ReactMethod
-    public void scheduleExactAlarm(double timestampMs, String buddyName, String alarmId, int requestCode, Promise promise) {
+    @Override
+    public void scheduleExactAlarm(double timestampMs, @Nullable String buddyName, @Nullable String alarmId, double requestCode, Promise promise) {
         try {
             Context ctx = getReactApplicationContext();
             AlarmManager am = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
@@ -218,100 +245,128 @@ public class AlarmModule extends ReactContextBaseJavaModule {
                 }
             }
             
-            Intent intent = new Intent(ctx, AlarmReceiver.class);
-            long when = (long) timestampMs;
-            
-            // Put extras in the intent so they persist
-            intent.putExtra("alarmTime", when);
-            if (buddyName != null) {
-                intent.putExtra("buddyName", buddyName);
-            }
-            if (alarmId != null) {
-                intent.putExtra("alarmId", alarmId);
-            }
-            
-            PendingIntent pi = PendingIntent.getBroadcast(ctx, requestCode, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-            if (am != null) {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                    AlarmManager.AlarmClockInfo info = new AlarmManager.AlarmClockInfo(when, pi);
-                    am.setAlarmClock(info, pi);
-                } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                    am.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, when, pi);
-                } else {
-                    am.setExact(AlarmManager.RTC_WAKEUP, when, pi);
-                }
-                
-                // Persist alarm to SharedPreferences for recovery after force-stop or reboot
-                saveAlarmToPrefs(ctx, requestCode, when, buddyName, alarmId);
-                
-                promise.resolve(true);
-            } else {
+            if (am == null) {
                 promise.reject("ERROR", "AlarmManager not available");
+                return;
             }
+
+            // Arms AlarmManager and persists the alarm to SharedPreferences (for recovery
+            // after force-stop or reboot) as one step, serialized with cancel and BootReceiver
+            AlarmScheduler.ledger(ctx).schedule(new AlarmRecord((int) requestCode, (long) timestampMs, buddyName, alarmId));
+            promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
     }
-    
-    // Save alarm to SharedPreferences for persistence
-    private void saveAlarmToPrefs(Context ctx, int requestCode, long when, String buddyName, String alarmId) {
-        SharedPreferences prefs = ctx.getSharedPreferences("WakeupBuddyAlarms", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        String key = "alarm_" + requestCode;
-        // Store as JSON-like string: timestamp|buddyName|alarmId
-        String value = when + "|" + (buddyName != null ? buddyName : "") + "|" + (alarmId != null ? alarmId : "");
-        editor.putString(key, value);
-        editor.apply();
-    }
-    
-    // Remove alarm from SharedPreferences
-    private void removeAlarmFromPrefs(Context ctx, int requestCode) {
-        SharedPreferences prefs = ctx.getSharedPreferences("WakeupBuddyAlarms", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.remove("alarm_" + requestCode);
-        editor.apply();
-    }
 
-    @ReactMethod
-    public void cancelAlarm(int requestCode, Promise promise) {
+    /**
+     * Schedule several alarms in one call: each is armed, then all records are persisted
+     * in a single SharedPreferences write. Resolves with the number scheduled.
+     */
+    @Override
+    public void scheduleExactAlarms(ReadableArray alarms, Promise promise) {
         try {
             Context ctx = getReactApplicationContext();
             AlarmManager am = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
-            Intent intent = new Intent(ctx, AlarmReceiver.class);
-            PendingIntent pi = PendingIntent.getBroadcast(ctx, requestCode, intent, PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
-            if (pi != null && am != null) {
-                am.cancel(pi);
-                pi.cancel();
-                // Remove from SharedPreferences
-                removeAlarmFromPrefs(ctx, requestCode);
-                promise.resolve(true);
-            } else {
-                // Still try to remove from prefs
-                removeAlarmFromPrefs(ctx, requestCode);
-                promise.resolve(false);
+            if (am == null) {
+                promise.reject("ERROR", "AlarmManager not available");
+                return;
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !am.canScheduleExactAlarms()) {
+                promise.reject("PERMISSION_REQUIRED", "Exact alarm permission not granted");
+                return;
+            }
+
+            List<AlarmRecord> records = new ArrayList<>(alarms.size());
+            for (int i = 0; i < alarms.size(); i++) {
+                ReadableMap alarm = alarms.getMap(i);
+                records.add(new AlarmRecord(
+                    (int) alarm.getDouble("requestCode"),
+                    (long) alarm.getDouble("timestampMs"),
+                    alarm.hasKey("buddyName") && !alarm.isNull("buddyName") ? alarm.getString("buddyName") : null,
+                    alarm.hasKey("alarmId") && !alarm.isNull("alarmId") ? alarm.getString("alarmId") : null
+                ));
+            }
+            AlarmScheduler.ledger(ctx).schedule(records);
+            promise.resolve(records.size());
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @Override
+    public void cancelAlarm(double requestCode, Promise promise) {
+        try {
+            // Cancels the alarm if armed and always removes it from SharedPreferences
+            boolean wasArmed = AlarmScheduler.ledger(getReactApplicationContext()).cancel((int) requestCode);
+            promise.resolve(wasArmed);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Cancel several alarms with one SharedPreferences write. Resolves with the number
+     * that were still armed.
+     */
+    @Override
+    public void cancelAlarms(ReadableArray requestCodes, Promise promise) {
+        try {
+            int[] codes = new int[requestCodes.size()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = (int) requestCodes.getDouble(i);
             }
+            promise.resolve(AlarmScheduler.ledger(getReactApplicationContext()).cancel(codes));
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
     }
 
-    @ReactMethod
+    /**
+     * Fire a quiet, tagged alarm delayMs from now through the real setAlarmClock,
+     * AlarmReceiver, AlarmService and AlarmActivity path and resolve with when each
+     * stage was reached and which launch surfaced the screen; see AlarmSelfTest.
+     * Resolves after the screen surfaced, or with ok false once it timed out.
+     */
+    @Override
+    public void runAlarmSelfTest(double delayMs, Promise promise) {
+        Context ctx = getReactApplicationContext();
+        AlarmManager am = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && am != null && !am.canScheduleExactAlarms()) {
+            promise.reject("PERMISSION_REQUIRED", "Exact alarm permission not granted");
+            return;
+        }
+
+        reactContext.runOnUiQueueThread(() -> {
+            try {
+                boolean started = AlarmSelfTest.start(ctx, (long) delayMs,
+                    report -> promise.resolve(Arguments.fromBundle(report)));
+                if (!started) {
+                    promise.reject("ERROR", "A self-test is already running");
+                }
+            } catch (Exception e) {
+                AlarmLog.e(TAG, "Failed to start alarm self-test", e);
+                promise.reject("ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @Override
     public void stopAlarmService(Promise promise) {
         try {
             Context ctx = getReactApplicationContext();
             Intent stopIntent = new Intent(ctx, AlarmService.class);
             stopIntent.setAction("STOP");
             ctx.stopService(stopIntent);
-            Log.d("AlarmModule", "AlarmService stop signal sent");
+            AlarmLog.d(TAG, "AlarmService stop signal sent");
             promise.resolve(true);
         } catch (Exception e) {
-            Log.e("AlarmModule", "Failed to stop AlarmService", e);
+            AlarmLog.e(TAG, "Failed to stop AlarmService", e);
             promise.reject("ERROR", e.getMessage());
         }
     }
 
-    @ReactMethod
+    @Override
     public void makePhoneCall(String phoneNumber, Promise promise) {
         try {
             if (phoneNumber == null || phoneNumber.isEmpty()) {
@@ -319,13 +374,13 @@ public class AlarmModule extends ReactContextBaseJavaModule {
                 return;
             }
 
-            Log.d("AlarmModule", "makePhoneCall called with: " + phoneNumber);
+            AlarmLog.d(TAG, "makePhoneCall called with: {}", phoneNumber);
 
             // Check if we have CALL_PHONE permission
             if (ContextCompat.checkSelfPermission(reactContext, Manifest.permission.CALL_PHONE) 
                 != PackageManager.PERMISSION_GRANTED) {
                 
-                Log.d("AlarmModule", "CALL_PHONE permission not granted");
+                AlarmLog.i(TAG, "CALL_PHONE permission not granted");
                 
                 // Try to request permission if activity is available
                 android.app.Activity currentActivity = getCurrentActivity();
@@ -338,7 +393,7 @@ public class AlarmModule extends ReactContextBaseJavaModule {
                 }
                 
                 // Fall back to ACTION_DIAL which doesn't require permission
-                Log.d("AlarmModule", "Falling back to ACTION_DIAL");
+                AlarmLog.d(TAG, "Falling back to ACTION_DIAL");
                 Intent dialIntent = new Intent(Intent.ACTION_DIAL);
                 dialIntent.setData(Uri.parse("tel:" + phoneNumber));
                 dialIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
@@ -347,24 +402,26 @@ public class AlarmModule extends ReactContextBaseJavaModule {
                 return;
             }
 
-            Log.d("AlarmModule", "CALL_PHONE permission granted, making call");
-
-            // Store the phone number for later lookup
-            lastCalledNumber = phoneNumber.replaceAll("[^0-9]", ""); // Store only digits
-            callStartTime = System.currentTimeMillis();
+            AlarmLog.d(TAG, "CALL_PHONE permission granted, making call");
 
-            // Start listening for call state changes
-            startCallStateListener();
+            // Track this call and listen for call state changes if not already
+            if (!CallMonitor.get(reactContext).track(phoneNumber) && getCurrentActivity() != null) {
+                ActivityCompat.requestPermissions(
+                    getCurrentActivity(),
+                    new String[]{Manifest.permission.READ_PHONE_STATE},
+                    READ_PHONE_STATE_REQUEST
+                );
+            }
 
             // Permission granted, make the call
             Intent callIntent = new Intent(Intent.ACTION_CALL);
             callIntent.setData(Uri.parse("tel:" + phoneNumber));
             callIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
             reactContext.startActivity(callIntent);
-            Log.d("AlarmModule", "Call intent started successfully");
+            AlarmLog.d(TAG, "Call intent started successfully");
             promise.resolve(true);
         } catch (Exception e) {
-            Log.e("AlarmModule", "Failed to make call", e);
+            AlarmLog.e(TAG, "Failed to make call", e);
             promise.reject("ERROR", "Failed to make call: " + e.getMessage());
         }
     }
@@ -373,27 +430,19 @@ public class AlarmModule extends ReactContextBaseJavaModule {
      * Get the duration of the last call from Android's call log
      * This is more reliable than tracking call state
      */
-    @ReactMethod
+    @Override
     public void getLastCallDuration(String phoneNumber, Promise promise) {
-        System.out.println("[AlarmModule] getLastCallDuration called with: " + phoneNumber);
+        AlarmLog.d(TAG, "getLastCallDuration called with: {}", phoneNumber);
         try {
             // Check READ_CALL_LOG permission
             if (ContextCompat.checkSelfPermission(reactContext, Manifest.permission.READ_CALL_LOG) 
                 != PackageManager.PERMISSION_GRANTED) {
-                System.out.println("[AlarmModule] READ_CALL_LOG permission not granted");
-                android.util.Log.e("AlarmModule", "READ_CALL_LOG permission not granted");
+                AlarmLog.w(TAG, "READ_CALL_LOG permission not granted");
                 promise.resolve(0);
                 return;
             }
 
-            String normalizedInput = phoneNumber.replaceAll("[^0-9]", "");
-            // Get last 10 digits for matching
-            String last10Digits = normalizedInput.length() > 10 
-                ? normalizedInput.substring(normalizedInput.length() - 10) 
-                : normalizedInput;
-            
-            System.out.println("[AlarmModule] Looking for calls to: " + phoneNumber + " (normalized: " + last10Digits + ")");
-            android.util.Log.e("AlarmModule", "Looking for calls to: " + phoneNumber + " (normalized: " + last10Digits + ")");
+            AlarmLog.d(TAG, "Looking for calls to: {}", phoneNumber);
             
             // Get callInitiatedTime from SharedPreferences to filter only calls after that time
             SharedPreferences prefs = reactContext.getSharedPreferences("WakeupBuddy", Context.MODE_PRIVATE);
@@ -404,7 +453,7 @@ public class AlarmModule extends ReactContextBaseJavaModule {
                 callInitiatedTime = System.currentTimeMillis() - (2 * 60 * 1000);
             }
             
-            System.out.println("[AlarmModule] Looking for calls after: " + callInitiatedTime);
+            AlarmLog.d(TAG, "Looking for calls after: {}", callInitiatedTime);
             
             // Query the call log for recent outgoing calls
             String[] projection = new String[]{
@@ -432,64 +481,152 @@ public class AlarmModule extends ReactContextBaseJavaModule {
             
             int duration = 0;
             if (cursor != null) {
-                System.out.println("[AlarmModule] Found " + cursor.getCount() + " outgoing calls after initiation time");
-                android.util.Log.e("AlarmModule", "Found " + cursor.getCount() + " outgoing calls after initiation time");
+                AlarmLog.d(TAG, "Found {} outgoing calls after initiation time", cursor.getCount());
                 
+                // Resolve columns once and decide on per-row logging once, outside the loop
+                int numberCol = cursor.getColumnIndexOrThrow(CallLog.Calls.NUMBER);
+                int durationCol = cursor.getColumnIndexOrThrow(CallLog.Calls.DURATION);
+                boolean traceRows = AlarmLog.isDebugEnabled();
                 while (cursor.moveToNext()) {
-                    String number = cursor.getString(cursor.getColumnIndexOrThrow(CallLog.Calls.NUMBER));
-                    int callDuration = cursor.getInt(cursor.getColumnIndexOrThrow(CallLog.Calls.DURATION));
-                    long callDate = cursor.getLong(cursor.getColumnIndexOrThrow(CallLog.Calls.DATE));
+                    String number = cursor.getString(numberCol);
+                    int callDuration = cursor.getInt(durationCol);
                     
-                    String normalizedLogNumber = number.replaceAll("[^0-9]", "");
-                    String logLast10 = normalizedLogNumber.length() > 10 
-                        ? normalizedLogNumber.substring(normalizedLogNumber.length() - 10) 
-                        : normalizedLogNumber;
-                    
-                    System.out.println("[AlarmModule] Call log entry: " + number + " (normalized: " + logLast10 + "), duration: " + callDuration + "s");
-                    android.util.Log.e("AlarmModule", "Call log entry: " + number + " (normalized: " + logLast10 + "), duration: " + callDuration + "s");
+                    if (traceRows) {
+                        AlarmLog.d(TAG, "Call log entry: {}, duration: {}s", number, callDuration);
+                    }
                     
                     // Match by last 10 digits
-                    if (logLast10.equals(last10Digits) || 
-                        logLast10.endsWith(last10Digits) || 
-                        last10Digits.endsWith(logLast10)) {
+                    if (PhoneNumbers.suffixMatch(phoneNumber, number)) {
                         duration = callDuration;
-                        System.out.println("[AlarmModule] MATCH FOUND! Duration: " + duration + " seconds");
-                        android.util.Log.e("AlarmModule", "MATCH FOUND! Duration: " + duration + " seconds");
+                        AlarmLog.d(TAG, "Match found, duration: {}s", duration);
                         break;
                     }
                 }
                 cursor.close();
             } else {
-                System.out.println("[AlarmModule] Cursor is null - query failed");
-                android.util.Log.e("AlarmModule", "Cursor is null - query failed");
+                AlarmLog.w(TAG, "Call log query returned no cursor");
             }
             
-            System.out.println("[AlarmModule] Returning duration: " + duration);
-            android.util.Log.e("AlarmModule", "Returning duration: " + duration);
+            AlarmLog.d(TAG, "Returning duration: {}", duration);
             promise.resolve(duration);
         } catch (Exception e) {
-            android.util.Log.e("AlarmModule", "Error getting call duration: " + e.getMessage());
+            AlarmLog.e(TAG, "Error getting call duration", e);
             promise.resolve(0);
         }
     }
 
+    /**
+     * Outgoing calls to any of numbers since sinceMs, newest first, one page per call
+     * from a single call-log cursor. Pages are keyed on (DATE, _ID): pass the returned
+     * nextCursor back as cursor for the next page; it is null after the last one. A
+     * page ends after pageSize matches or CALL_HISTORY_MAX_SCAN rows read, so a page
+     * may hold fewer matches while nextCursor is still set.
+     *
+     * Returns column arrays: id, date, duration (s) and number (index into numbers).
+     */
+    @Override
+    public void getCallHistory(ReadableArray numbers, double sinceMs, double pageSize, @Nullable String cursor, Promise promise) {
+        if (ContextCompat.checkSelfPermission(reactContext, Manifest.permission.READ_CALL_LOG)
+            != PackageManager.PERMISSION_GRANTED) {
+            promise.reject("ERROR", "READ_CALL_LOG permission not granted");
+            return;
+        }
+
+        try {
+            List<String> numberList = new ArrayList<>(numbers.size());
+            for (int i = 0; i < numbers.size(); i++) {
+                numberList.add(numbers.getString(i));
+            }
+            CallHistoryScan scan = new CallHistoryScan(numberList);
+            CallHistoryScan.Key after = CallHistoryScan.Key.decode(cursor);
+            int limit = pageSize > 0 ? (int) Math.min(pageSize, CALL_HISTORY_MAX_PAGE) : CALL_HISTORY_DEFAULT_PAGE;
+
+            WritableArray ids = Arguments.createArray();
+            WritableArray dates = Arguments.createArray();
+            WritableArray durations = Arguments.createArray();
+            WritableArray numberIndexes = Arguments.createArray();
+            int matched = 0;
+            int scanned = 0;
+            String nextCursor = null;
+
+            if (!scan.isEmpty()) {
+                StringBuilder selection = new StringBuilder()
+                    .append(CallLog.Calls.TYPE).append(" = ? AND ").append(CallLog.Calls.DATE).append(" > ?");
+                List<String> args = new ArrayList<>(5);
+                args.add(String.valueOf(CallLog.Calls.OUTGOING_TYPE));
+                args.add(String.valueOf((long) sinceMs));
+                if (after != null) {
+                    // Strictly below the last row of the previous page
+                    selection.append(" AND (").append(CallLog.Calls.DATE).append(" < ? OR (")
+                        .append(CallLog.Calls.DATE).append(" = ? AND ").append(CallLog.Calls._ID).append(" < ?))");
+                    args.add(String.valueOf(after.date));
+                    args.add(String.valueOf(after.date));
+                    args.add(String.valueOf(after.id));
+                }
+
+                try (Cursor rows = reactContext.getContentResolver().query(
+                    CallLog.Calls.CONTENT_URI,
+                    new String[]{CallLog.Calls._ID, CallLog.Calls.NUMBER, CallLog.Calls.DATE, CallLog.Calls.DURATION},
+                    selection.toString(),
+                    args.toArray(new String[0]),
+                    CallLog.Calls.DATE + " DESC, " + CallLog.Calls._ID + " DESC"
+                )) {
+                    if (rows != null) {
+                        int idCol = rows.getColumnIndexOrThrow(CallLog.Calls._ID);
+                        int numberCol = rows.getColumnIndexOrThrow(CallLog.Calls.NUMBER);
+                        int dateCol = rows.getColumnIndexOrThrow(CallLog.Calls.DATE);
+                        int durationCol = rows.getColumnIndexOrThrow(CallLog.Calls.DURATION);
+                        long lastDate = 0;
+                        long lastId = 0;
+                        while (matched < limit && scanned < CALL_HISTORY_MAX_SCAN && rows.moveToNext()) {
+                            scanned++;
+                            lastId = rows.getLong(idCol);
+                            lastDate = rows.getLong(dateCol);
+                            int index = scan.match(rows.getString(numberCol));
+                            if (index < 0) continue;
+                            ids.pushDouble(lastId);
+                            dates.pushDouble(lastDate);
+                            durations.pushInt(rows.getInt(durationCol));
+                            numberIndexes.pushInt(index);
+                            matched++;
+                        }
+                        if (scanned > 0 && rows.moveToNext()) {
+                            nextCursor = new CallHistoryScan.Key(lastDate, lastId).encode();
+                        }
+                    }
+                }
+            }
+
+            WritableMap result = Arguments.createMap();
+            result.putArray("id", ids);
+            result.putArray("date", dates);
+            result.putArray("duration", durations);
+            result.putArray("number", numberIndexes);
+            result.putInt("scanned", scanned);
+            result.putString("nextCursor", nextCursor);
+            AlarmLog.d(TAG, "Call history page: {} matches in {} rows, more: {}", matched, scanned, nextCursor != null);
+            promise.resolve(result);
+        } catch (Exception e) {
+            AlarmLog.e(TAG, "Error reading call history", e);
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
     /**
      * Get the duration of the most recent outgoing call (regardless of number)
      */
-    @ReactMethod
+    @Override
     public void getMostRecentCallDuration(Promise promise) {
-        System.out.println("[AlarmModule] getMostRecentCallDuration called");
+        AlarmLog.d(TAG, "getMostRecentCallDuration called");
         try {
             // Check READ_CALL_LOG permission
             if (ContextCompat.checkSelfPermission(reactContext, Manifest.permission.READ_CALL_LOG) 
                 != PackageManager.PERMISSION_GRANTED) {
-                System.out.println("[AlarmModule] getMostRecentCallDuration: READ_CALL_LOG permission not granted");
+                AlarmLog.w(TAG, "getMostRecentCallDuration: READ_CALL_LOG permission not granted");
                 promise.resolve(0);
                 return;
             }
             
-            System.out.println("[AlarmModule] Permission granted, querying call log...");
-            
             // Get callInitiatedTime from SharedPreferences to filter only calls after that time
             SharedPreferences prefs = reactContext.getSharedPreferences("WakeupBuddy", Context.MODE_PRIVATE);
             long callInitiatedTime = prefs.getLong("callInitiatedTime", 0);
@@ -499,7 +636,7 @@ public class AlarmModule extends ReactContextBaseJavaModule {
                 callInitiatedTime = System.currentTimeMillis() - (2 * 60 * 1000);
             }
             
-            System.out.println("[AlarmModule] Looking for calls after: " + callInitiatedTime);
+            AlarmLog.d(TAG, "Looking for calls after: {}", callInitiatedTime);
             
             // Get the most recent outgoing call made AFTER call was initiated
             String selection = CallLog.Calls.TYPE + " = ? AND " + CallLog.Calls.DATE + " > ?";
@@ -509,8 +646,6 @@ public class AlarmModule extends ReactContextBaseJavaModule {
             };
             String sortOrder = CallLog.Calls.DATE + " DESC";
             
-            System.out.println("[AlarmModule] Executing query...");
-            
             Cursor cursor = reactContext.getContentResolver().query(
                 CallLog.Calls.CONTENT_URI,
                 new String[]{CallLog.Calls.DURATION, CallLog.Calls.NUMBER, CallLog.Calls.DATE},
@@ -519,28 +654,25 @@ public class AlarmModule extends ReactContextBaseJavaModule {
                 sortOrder
             );
             
-            System.out.println("[AlarmModule] Query executed, cursor: " + (cursor != null ? "not null" : "null"));
-            
             int duration = 0;
             if (cursor != null) {
-                System.out.println("[AlarmModule] Cursor count: " + cursor.getCount());
                 if (cursor.moveToFirst()) {
                     duration = cursor.getInt(cursor.getColumnIndexOrThrow(CallLog.Calls.DURATION));
-                    String number = cursor.getString(cursor.getColumnIndexOrThrow(CallLog.Calls.NUMBER));
-                    long date = cursor.getLong(cursor.getColumnIndexOrThrow(CallLog.Calls.DATE));
-                    System.out.println("[AlarmModule] Most recent call after initiation: " + number + ", duration: " + duration + "s, date: " + date);
+                    if (AlarmLog.isDebugEnabled()) {
+                        String number = cursor.getString(cursor.getColumnIndexOrThrow(CallLog.Calls.NUMBER));
+                        long date = cursor.getLong(cursor.getColumnIndexOrThrow(CallLog.Calls.DATE));
+                        AlarmLog.d(TAG, "Most recent call after initiation: {}, duration: {}s, date: {}", number, duration, date);
+                    }
                 } else {
-                    System.out.println("[AlarmModule] No calls found after initiation time");
+                    AlarmLog.d(TAG, "No calls found after initiation time");
                 }
                 cursor.close();
             }
             
-            System.out.println("[AlarmModule] Returning duration: " + duration);
+            AlarmLog.d(TAG, "Returning duration: {}", duration);
             promise.resolve(duration);
         } catch (Exception e) {
-            System.out.println("[AlarmModule] Exception in getMostRecentCallDuration: " + e.getMessage());
-            android.util.Log.e("AlarmModule", "Exception in getMostRecentCallDuration", e);
-            e.printStackTrace();
+            AlarmLog.e(TAG, "Exception in getMostRecentCallDuration", e);
             promise.resolve(0);
         }
     }
@@ -548,20 +680,13 @@ public class AlarmModule extends ReactContextBaseJavaModule {
     /**
      * Save pending call information to SharedPreferences
      */
-    @ReactMethod
+    @Override
     public void savePendingCall(String callId, String phoneNumber, Promise promise) {
         try {
-            SharedPreferences prefs = reactContext.getSharedPreferences("WakeupBuddy", Context.MODE_PRIVATE);
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putString("pendingCallId", callId);
-            editor.putString("pendingPhoneNumber", phoneNumber);
-            editor.putLong("callInitiatedTime", System.currentTimeMillis());
-            editor.apply();
-            
-            System.out.println("[AlarmModule] Saved pending call: " + callId + " to " + phoneNumber);
+            CallMonitor.get(reactContext).savePending(callId, phoneNumber, null, null);
             promise.resolve(true);
         } catch (Exception e) {
-            System.out.println("[AlarmModule] Error saving pending call: " + e.getMessage());
+            AlarmLog.e(TAG, "Error saving pending call", e);
             promise.reject("ERROR", e.getMessage());
         }
     }
@@ -569,18 +694,18 @@ public class AlarmModule extends ReactContextBaseJavaModule {
     /**
      * Check for pending calls and return call info with duration if found
      */
-    @ReactMethod
+    @Override
     public void checkPendingCall(Promise promise) {
         try {
-            SharedPreferences prefs = reactContext.getSharedPreferences("WakeupBuddy", Context.MODE_PRIVATE);
-            String callId = prefs.getString("pendingCallId", null);
-            String phoneNumber = prefs.getString("pendingPhoneNumber", null);
-            long callInitiatedTime = prefs.getLong("callInitiatedTime", 0);
+            SharedPreferences prefs = reactContext.getSharedPreferences(CallMonitor.PREFS_NAME, Context.MODE_PRIVATE);
+            String callId = prefs.getString(CallMonitor.KEY_CALL_ID, null);
+            String phoneNumber = prefs.getString(CallMonitor.KEY_PHONE, null);
+            long callInitiatedTime = prefs.getLong(CallMonitor.KEY_INITIATED, 0);
             
-            System.out.println("[AlarmModule] Checking pending call: callId=" + callId + ", phoneNumber=" + phoneNumber);
+            AlarmLog.d(TAG, "Checking pending call: callId={}, phoneNumber={}", callId, phoneNumber);
             
             if (callId == null || phoneNumber == null) {
-                System.out.println("[AlarmModule] No pending call found");
+                AlarmLog.d(TAG, "No pending call found");
                 promise.resolve(null);
                 return;
             }
@@ -588,7 +713,7 @@ public class AlarmModule extends ReactContextBaseJavaModule {
             // Check if call was initiated within last 15 minutes
             long timeSinceInitiated = System.currentTimeMillis() - callInitiatedTime;
             if (timeSinceInitiated > 15 * 60 * 1000) {
-                System.out.println("[AlarmModule] Pending call too old, clearing");
+                AlarmLog.i(TAG, "Pending call too old, clearing");
                 clearPendingCall();
                 promise.resolve(null);
                 return;
@@ -597,99 +722,31 @@ public class AlarmModule extends ReactContextBaseJavaModule {
             // Don't check call log if call was initiated less than 10 seconds ago
             // (call might still be in progress or call log not updated yet)
             if (timeSinceInitiated < 10 * 1000) {
-                System.out.println("[AlarmModule] Call initiated too recently (" + timeSinceInitiated + "ms ago), skipping check");
+                AlarmLog.d(TAG, "Call initiated too recently ({}ms ago), skipping check", timeSinceInitiated);
                 promise.resolve(null);
                 return;
             }
             
             // Try to get call duration
-            int duration = 0;
-            
-            // Check READ_CALL_LOG permission
-            if (ContextCompat.checkSelfPermission(reactContext, Manifest.permission.READ_CALL_LOG) 
-                == PackageManager.PERMISSION_GRANTED) {
-                
-                // First try by phone number
-                String normalizedInput = phoneNumber.replaceAll("[^0-9]", "");
-                String last10Digits = normalizedInput.length() > 10 
-                    ? normalizedInput.substring(normalizedInput.length() - 10) 
-                    : normalizedInput;
-                
-                // IMPORTANT: Only look for calls that happened AFTER we initiated the call
-                // This prevents picking up old call durations from previous conversations
-                String selection = CallLog.Calls.TYPE + " = ? AND " + CallLog.Calls.DATE + " > ?";
-                String[] selectionArgs = new String[]{
-                    String.valueOf(CallLog.Calls.OUTGOING_TYPE),
-                    String.valueOf(callInitiatedTime) // Use callInitiatedTime, not tenMinutesAgo
-                };
-                String sortOrder = CallLog.Calls.DATE + " DESC";
-                
-                System.out.println("[AlarmModule] Looking for calls after: " + callInitiatedTime + " (initiated " + timeSinceInitiated + "ms ago)");
-                
-                Cursor cursor = reactContext.getContentResolver().query(
-                    CallLog.Calls.CONTENT_URI,
-                    new String[]{CallLog.Calls.NUMBER, CallLog.Calls.DURATION, CallLog.Calls.DATE},
-                    selection,
-                    selectionArgs,
-                    sortOrder
-                );
-                
-                if (cursor != null) {
-                    System.out.println("[AlarmModule] Found " + cursor.getCount() + " calls after initiation time");
-                    while (cursor.moveToNext() && duration == 0) {
-                        String number = cursor.getString(cursor.getColumnIndexOrThrow(CallLog.Calls.NUMBER));
-                        int callDuration = cursor.getInt(cursor.getColumnIndexOrThrow(CallLog.Calls.DURATION));
-                        long callDate = cursor.getLong(cursor.getColumnIndexOrThrow(CallLog.Calls.DATE));
-                        
-                        String normalizedLogNumber = number.replaceAll("[^0-9]", "");
-                        String logLast10 = normalizedLogNumber.length() > 10 
-                            ? normalizedLogNumber.substring(normalizedLogNumber.length() - 10) 
-                            : normalizedLogNumber;
-                        
-                        System.out.println("[AlarmModule] Call in log: " + number + " (last10: " + logLast10 + "), duration: " + callDuration + "s, date: " + callDate);
-                        
-                        if (logLast10.equals(last10Digits)) {
-                            duration = callDuration;
-                            System.out.println("[AlarmModule] ✅ Found matching call duration: " + duration + "s");
-                        }
-                    }
-                    cursor.close();
-                }
-                
-                // If still 0 and we found calls, take the most recent one that was made after initiation
-                if (duration == 0) {
-                    System.out.println("[AlarmModule] No matching number found, trying most recent call after initiation");
-                    cursor = reactContext.getContentResolver().query(
-                        CallLog.Calls.CONTENT_URI,
-                        new String[]{CallLog.Calls.DURATION, CallLog.Calls.DATE, CallLog.Calls.NUMBER},
-                        selection,
-                        selectionArgs,
-                        sortOrder
-                    );
-                    
-                    if (cursor != null && cursor.moveToFirst()) {
-                        duration = cursor.getInt(cursor.getColumnIndexOrThrow(CallLog.Calls.DURATION));
-                        long callDate = cursor.getLong(cursor.getColumnIndexOrThrow(CallLog.Calls.DATE));
-                        String number = cursor.getString(cursor.getColumnIndexOrThrow(CallLog.Calls.NUMBER));
-                        System.out.println("[AlarmModule] Using most recent call after initiation: " + number + ", duration: " + duration + "s, date: " + callDate);
-                        cursor.close();
-                    } else {
-                        System.out.println("[AlarmModule] No calls found after initiation time");
-                    }
-                }
-            }
+            AlarmLog.d(TAG, "Looking for calls after: {} (initiated {}ms ago)", callInitiatedTime, timeSinceInitiated);
+            int duration = CallMonitor.callLogDuration(reactContext, phoneNumber, callInitiatedTime);
             
             WritableMap result = Arguments.createMap();
             result.putString("callId", callId);
             result.putString("phoneNumber", phoneNumber);
             result.putInt("duration", duration);
+            // Placed from the alarm screen: JS creates the call record before settling it
+            if (CallMonitor.isNativeCall(callId)) {
+                result.putBoolean("native", true);
+                result.putString("alarmId", prefs.getString(CallMonitor.KEY_ALARM_ID, null));
+                result.putString("buddyEmail", prefs.getString(CallMonitor.KEY_BUDDY_EMAIL, null));
+            }
             
-            System.out.println("[AlarmModule] Returning pending call with duration: " + duration);
+            AlarmLog.i(TAG, "Returning pending call with duration: {}", duration);
             promise.resolve(result);
             
         } catch (Exception e) {
-            System.out.println("[AlarmModule] Error checking pending call: " + e.getMessage());
-            e.printStackTrace();
+            AlarmLog.e(TAG, "Error checking pending call", e);
             promise.reject("ERROR", e.getMessage());
         }
     }
@@ -697,110 +754,229 @@ public class AlarmModule extends ReactContextBaseJavaModule {
     /**
      * Clear pending call information
      */
-    @ReactMethod
+    @Override
     public void clearPendingCall() {
         try {
-            SharedPreferences prefs = reactContext.getSharedPreferences("WakeupBuddy", Context.MODE_PRIVATE);
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.remove("pendingCallId");
-            editor.remove("pendingPhoneNumber");
-            editor.remove("callInitiatedTime");
-            editor.apply();
-            System.out.println("[AlarmModule] Cleared pending call");
+            CallMonitor.get(reactContext).clearPending();
+        } catch (Exception e) {
+            AlarmLog.e(TAG, "Error clearing pending call", e);
+        }
+    }
+
+    /**
+     * Call length after which CallMonitor posts CallThresholdReached while the call is
+     * still up; 0 turns the event off. Credit always comes from the call log at the end.
+     */
+    @Override
+    public void setCallThreshold(double seconds) {
+        CallMonitor.get(reactContext).setThresholdSeconds((int) seconds);
+    }
+
+    @Override
+    public boolean hasReadPhoneStatePermission() {
+        return EnvironmentMonitor.hasPermission(reactContext, Manifest.permission.READ_PHONE_STATE);
+    }
+
+    /**
+     * Return every alarm dismissal recorded natively by AlarmActivity that JS has not
+     * acknowledged yet, oldest first. Records stay until ackDismissals is called.
+     */
+    @Override
+    public void drainDismissals(Promise promise) {
+        try {
+            WritableArray result = Arguments.createArray();
+            for (DismissalStore.Dismissal d : DismissalStore.pending(reactContext)) {
+                WritableMap item = Arguments.createMap();
+                item.putString("key", d.key);
+                item.putString("alarmId", d.alarmId);
+                item.putString("buddyEmail", d.buddyEmail);
+                item.putDouble("alarmTime", d.alarmTime);
+                item.putDouble("dismissedAt", d.dismissedAt);
+                item.putString("time", d.time);
+                item.putString("ampm", d.ampm);
+                result.pushMap(item);
+            }
+            promise.resolve(result);
         } catch (Exception e) {
-            System.out.println("[AlarmModule] Error clearing pending call: " + e.getMessage());
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Let the native reporter post wake-ups and call results to Convex directly.
+     * Null for either argument (sign-out) turns native reporting off again.
+     */
+    @Override
+    public void configureReporter(@Nullable String deploymentUrl, @Nullable String userEmail) {
+        ConvexReporter.get(reactContext).configure(deploymentUrl, userEmail);
+    }
+
+    /**
+     * Keep buddy profiles on the device so the alarm screen can show the buddy's
+     * name and number at fire time without the network
+     */
+    @Override
+    public void cacheBuddyProfiles(ReadableArray profiles) {
+        long now = System.currentTimeMillis();
+        List<BuddyCache.Update> updates = new ArrayList<>(profiles.size());
+        for (int i = 0; i < profiles.size(); i++) {
+            ReadableMap profile = profiles.getMap(i);
+            updates.add(new BuddyCache.Update(
+                optString(profile, "alarmId"),
+                new BuddyDirectory.Profile(
+                    profile.getString("email"),
+                    optString(profile, "name"),
+                    optString(profile, "phone"),
+                    optString(profile, "profileCode"),
+                    now)));
         }
+        BuddyCache.get(reactContext).update(updates);
+
+        // Render the avatars now so fire time only maps a ready-sized image
+        List<String> seeds = new ArrayList<>(updates.size());
+        for (BuddyCache.Update update : updates) {
+            if (update.profile.profileCode != null) seeds.add(update.profile.profileCode);
+        }
+        AvatarPipeline.get(reactContext).prefetch(seeds);
+    }
+
+    @Nullable
+    private static String optString(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getString(key) : null;
     }
 
-    private void startCallStateListener() {
+    /**
+     * Remove dismissals that JS has finished processing
+     */
+    @Override
+    public void ackDismissals(ReadableArray keys, Promise promise) {
         try {
-            // Check READ_PHONE_STATE permission
-            if (ContextCompat.checkSelfPermission(reactContext, Manifest.permission.READ_PHONE_STATE) 
-                != PackageManager.PERMISSION_GRANTED) {
-                // Request permission if not granted
-                if (getCurrentActivity() != null) {
-                    ActivityCompat.requestPermissions(
-                        getCurrentActivity(),
-                        new String[]{Manifest.permission.READ_PHONE_STATE},
-                        READ_PHONE_STATE_REQUEST
-                    );
-                }
-                return;
+            List<String> keyList = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                keyList.add(keys.getString(i));
             }
+            DismissalStore.acknowledge(reactContext, keyList);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
 
-            telephonyManager = (TelephonyManager) reactContext.getSystemService(Context.TELEPHONY_SERVICE);
-            
-            if (telephonyManager != null) {
-                phoneStateListener = new PhoneStateListener() {
-                    @Override
-                    public void onCallStateChanged(int state, String phoneNumber) {
-                        switch (state) {
-                            case TelephonyManager.CALL_STATE_OFFHOOK:
-                                // Call started (connected)
-                                callStartTime = System.currentTimeMillis();
-                                WritableMap startParams = Arguments.createMap();
-                                startParams.putString("status", "started");
-                                startParams.putDouble("startTime", callStartTime);
-                                sendEvent("CallStateChanged", startParams);
-                                break;
-                            
-                            case TelephonyManager.CALL_STATE_IDLE:
-                                // Call ended
-                                if (callStartTime > 0) {
-                                    long callEndTime = System.currentTimeMillis();
-                                    long duration = (callEndTime - callStartTime) / 1000; // Convert to seconds
-                                    
-                                    WritableMap endParams = Arguments.createMap();
-                                    endParams.putString("status", "ended");
-                                    endParams.putDouble("duration", duration);
-                                    endParams.putDouble("startTime", callStartTime);
-                                    endParams.putDouble("endTime", callEndTime);
-                                    sendEvent("CallStateChanged", endParams);
-                                    
-                                    callStartTime = 0; // Reset
-                                }
-                                // Stop listening after call ends
-                                stopCallStateListener();
-                                break;
-                            
-                            case TelephonyManager.CALL_STATE_RINGING:
-                                // Phone is ringing
-                                break;
-                        }
-                    }
-                };
-                
-                telephonyManager.listen(phoneStateListener, PhoneStateListener.LISTEN_CALL_STATE);
+    /**
+     * Read alarm lifecycle events with seq > sinceSeq from the native journal, oldest
+     * first, as parallel column arrays. Pass the returned lastSeq back as sinceSeq to
+     * fetch the next page; hasMore is true while the page came back full.
+     */
+    @Override
+    public void drainJournal(double sinceSeq, double max, Promise promise) {
+        try {
+            int limit = max > 0 ? (int) max : 500;
+            List<AlarmJournal.Entry> entries = AlarmJournal.get(reactContext).read((long) sinceSeq, limit);
+
+            WritableArray seqs = Arguments.createArray();
+            WritableArray types = Arguments.createArray();
+            WritableArray elapsed = Arguments.createArray();
+            WritableArray wallTimes = Arguments.createArray();
+            WritableArray refIds = Arguments.createArray();
+            WritableArray values = Arguments.createArray();
+            long lastSeq = (long) sinceSeq;
+            for (AlarmJournal.Entry entry : entries) {
+                seqs.pushDouble(entry.seq);
+                types.pushString(AlarmJournal.typeName(entry.type));
+                elapsed.pushDouble(entry.elapsedRealtime);
+                wallTimes.pushDouble(entry.wallTime);
+                refIds.pushString(entry.refId);
+                values.pushInt(entry.value);
+                lastSeq = entry.seq;
             }
+
+            WritableMap result = Arguments.createMap();
+            result.putArray("seq", seqs);
+            result.putArray("type", types);
+            result.putArray("elapsedRealtime", elapsed);
+            result.putArray("wallTime", wallTimes);
+            result.putArray("refId", refIds);
+            result.putArray("value", values);
+            result.putDouble("lastSeq", lastSeq);
+            result.putBoolean("hasMore", entries.size() == limit);
+            promise.resolve(result);
         } catch (Exception e) {
-            // Log error but don't fail the call
-            e.printStackTrace();
+            promise.reject("ERROR", e.getMessage());
         }
     }
 
-    private void stopCallStateListener() {
+    /**
+     * Wake-up stats dismissed on this device for range "week", "month" or "year", as
+     * column arrays shaped like the Convex getChartData result (labels, data = wake-ups,
+     * total) plus per-bucket reaction times and call seconds. Sums a fixed-size per-day
+     * table, so it is cheap whatever the history length and works offline.
+     */
+    @Override
+    public void getLocalStats(String range, Promise promise) {
         try {
-            if (telephonyManager != null && phoneStateListener != null) {
-                telephonyManager.listen(phoneStateListener, PhoneStateListener.LISTEN_NONE);
-                phoneStateListener = null;
+            LocalStats.Result stats = LocalStats.get(reactContext).query(range, System.currentTimeMillis());
+
+            WritableArray labels = Arguments.createArray();
+            WritableArray starts = Arguments.createArray();
+            WritableArray wakeups = Arguments.createArray();
+            WritableArray reactions = Arguments.createArray();
+            WritableArray callSeconds = Arguments.createArray();
+            for (int i = 0; i < stats.labels.length; i++) {
+                labels.pushString(stats.labels[i]);
+                starts.pushString(stats.starts[i]);
+                wakeups.pushInt(stats.wakeups[i]);
+                reactions.pushDouble(stats.avgReactionMs[i]);
+                callSeconds.pushInt(stats.callSeconds[i]);
             }
+
+            WritableMap result = Arguments.createMap();
+            result.putString("range", stats.range);
+            result.putArray("labels", labels);
+            result.putArray("start", starts);
+            result.putArray("data", wakeups);
+            result.putArray("avgReactionMs", reactions);
+            result.putArray("callSeconds", callSeconds);
+            result.putInt("total", stats.total.wakeups);
+            result.putInt("activeDays", stats.total.activeDays);
+            result.putDouble("totalAvgReactionMs", stats.total.avgReactionMs());
+            result.putInt("totalCalls", stats.total.calls);
+            result.putInt("totalCallSeconds", stats.total.callSeconds);
+            promise.resolve(result);
         } catch (Exception e) {
-            e.printStackTrace();
+            promise.reject("ERROR", e.getMessage());
         }
     }
 
-    @ReactMethod
-    public void hasReadPhoneStatePermission(Promise promise) {
+    /**
+     * Aggregated frame metrics for the native alarm screen (time-to-first-frame and
+     * per-frame layout/draw/total durations) across the last recorded alarms
+     */
+    @Override
+    public void getFrameMetricsSummary(Promise promise) {
         try {
-            boolean granted = ContextCompat.checkSelfPermission(reactContext, Manifest.permission.READ_PHONE_STATE) 
-                == PackageManager.PERMISSION_GRANTED;
-            promise.resolve(granted);
+            FrameMetricsRecorder.Summary summary = FrameMetricsRecorder.readSummary(reactContext);
+            WritableMap result = Arguments.createMap();
+            result.putInt("sessions", summary.sessions);
+            result.putInt("frames", summary.frames);
+            result.putInt("jankyFrames", summary.jankyFrames);
+            result.putDouble("ttffAvgMs", summary.ttffAvgMs);
+            result.putDouble("ttffMinMs", summary.ttffMinMs);
+            result.putDouble("ttffMaxMs", summary.ttffMaxMs);
+            result.putDouble("latestTtffMs", summary.latestTtffMs);
+            result.putDouble("latestRecordedAt", summary.latestRecordedAt);
+            result.putDouble("layoutMeasureAvgUs", summary.layoutMeasureAvgUs);
+            result.putDouble("layoutMeasureMaxUs", summary.layoutMeasureMaxUs);
+            result.putDouble("drawAvgUs", summary.drawAvgUs);
+            result.putDouble("drawMaxUs", summary.drawMaxUs);
+            result.putDouble("totalAvgUs", summary.totalAvgUs);
+            result.putDouble("totalMaxUs", summary.totalMaxUs);
+            promise.resolve(result);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
     }
 
-    @ReactMethod
+    @Override
     public void requestReadPhoneStatePermission(Promise promise) {
         try {
             if (ContextCompat.checkSelfPermission(reactContext, Manifest.permission.READ_PHONE_STATE) 
@@ -1,23 +1,41 @@
 package com.anonymous.WakeupBuddy;
 
-import com.facebook.react.ReactPackage;
+import androidx.annotation.Nullable;
+import com.facebook.react.BaseReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.uimanager.ViewManager;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
+import java.util.HashMap;
+import java.util.Map;
 
-public class AlarmPackage implements ReactPackage {
+/**
+ * Registers AlarmModule as a TurboModule. It is created lazily, on the first JS
+ * access, rather than with every other module at startup.
+ */
+public class AlarmPackage extends BaseReactPackage {
+    @Nullable
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        ArrayList<NativeModule> modules = new ArrayList<>();
-        modules.add(new AlarmModule(reactContext));
-        return modules;
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        if (AlarmModule.NAME.equals(name)) {
+            return new AlarmModule(reactContext);
+        }
+        return null;
     }
-    
+
     @Override
-    public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+            moduleInfos.put(AlarmModule.NAME, new ReactModuleInfo(
+                AlarmModule.NAME,
+                AlarmModule.class.getName(),
+                false, // canOverrideExistingModule
+                false, // needsEagerInit
+                false, // isCxxModule
+                true   // isTurboModule
+            ));
+            return moduleInfos;
+        };
     }
 }
@@ -8,23 +8,113 @@ import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.PowerManager;
-import android.util.Log;
 import androidx.core.app.NotificationCompat;
 
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fires an alarm: wakes the device, starts AlarmService and launches AlarmActivity.
+ *
+ * onReceive only does what must happen before it returns: take the wake locks, journal
+ * the fire, start the service and the activity, and goAsync(). The JS event and the
+ * widget refresh run on the "AlarmReceiver" thread, leaving the main thread to
+ * AlarmActivity. The receiver's wake locks are released as soon as AlarmService is in
+ * the foreground (it holds its own from then on, see {@link #foregroundStarted}); the
+ * lock timeout only matters if the service never gets there. The PendingResult is
+ * finished once the bookkeeping is done and the service is foreground, and at the
+ * latest after FINISH_BUDGET_MS.
+ */
 public class AlarmReceiver extends BroadcastReceiver {
     private static final String TAG = "AlarmReceiver";
-    
+    private static final String CPU_LOCK_TAG = "WakeupBuddy:ReceiverCpuLock";
+    private static final String SCREEN_LOCK_TAG = "WakeupBuddy:ReceiverScreenLock";
+    // Safety net for both locks if AlarmService never confirms
+    private static final long LOCK_TIMEOUT_MS = 10_000;
+    // Well inside the broadcast ANR timeout
+    static final long FINISH_BUDGET_MS = 2_000;
+
+    private static Handler worker;
+    // Fires waiting for AlarmService, keyed by their firedAtNanos stamp
+    private static final ConcurrentHashMap<Long, Handoff> handoffs = new ConcurrentHashMap<>();
+
+    /** One fire's wake locks and broadcast, handed over to AlarmService */
+    private static final class Handoff {
+        private final PowerManager.WakeLock cpuLock;
+        private final PowerManager.WakeLock screenLock;
+        private final PendingResult result;
+        private boolean bookkeepingDone;
+        private boolean foreground;
+        private boolean finished;
+
+        Handoff(PowerManager.WakeLock cpuLock, PowerManager.WakeLock screenLock, PendingResult result) {
+            this.cpuLock = cpuLock;
+            this.screenLock = screenLock;
+            this.result = result;
+        }
+
+        synchronized void bookkeepingDone() {
+            bookkeepingDone = true;
+            if (foreground) finish();
+        }
+
+        synchronized void foreground() {
+            foreground = true;
+            releaseLocks();
+            if (bookkeepingDone) finish();
+        }
+
+        synchronized void finish() {
+            if (finished) return;
+            finished = true;
+            // Null when onReceive is called directly rather than by a broadcast
+            if (result != null) result.finish();
+        }
+
+        synchronized void releaseLocks() {
+            if (cpuLock.isHeld()) cpuLock.release();
+            if (screenLock.isHeld()) screenLock.release();
+            AlarmDiagnostics.wakeLockReleased(CPU_LOCK_TAG);
+            AlarmDiagnostics.wakeLockReleased(SCREEN_LOCK_TAG);
+        }
+    }
+
+    /**
+     * Called by AlarmService right after startForeground for the fire stamped
+     * firedAtNanos: the service's own wake lock covers the alarm from here.
+     */
+    static void foregroundStarted(long firedAtNanos) {
+        Handoff handoff = handoffs.remove(firedAtNanos);
+        if (handoff != null) handoff.foreground();
+    }
+
+    private static synchronized Handler worker() {
+        if (worker == null) {
+            HandlerThread thread = new HandlerThread("AlarmReceiver");
+            thread.start();
+            worker = new Handler(thread.getLooper());
+        }
+        return worker;
+    }
+
     @Override
     public void onReceive(Context context, Intent intent) {
-        Log.i(TAG, "=== ALARM RECEIVER FIRED ===");
+        AlarmLog.i(TAG, "Alarm receiver fired");
+        long firedAtNanos = android.os.SystemClock.elapsedRealtimeNanos();
+        long firedAt = System.currentTimeMillis();
+        boolean selfTest = AlarmSelfTest.isTest(intent);
+        AlarmSelfTest.stage(context, intent, AlarmSelfTest.STAGE_FIRED);
         
         // Acquire a FULL WakeLock to turn screen on AND keep CPU running
         PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
         
         // First, acquire a partial wake lock for CPU
-        PowerManager.WakeLock cpuLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "WakeupBuddy:ReceiverCpuLock");
-        cpuLock.acquire(10000); // Hold for 10 seconds
+        PowerManager.WakeLock cpuLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, CPU_LOCK_TAG);
+        cpuLock.acquire(LOCK_TIMEOUT_MS);
+        AlarmDiagnostics.wakeLockAcquired(CPU_LOCK_TAG, LOCK_TIMEOUT_MS);
         
         // Second, acquire FULL wake lock to turn screen ON (deprecated but still works for alarm apps)
         @SuppressWarnings("deprecation")
@@ -32,24 +122,43 @@ public class AlarmReceiver extends BroadcastReceiver {
             PowerManager.FULL_WAKE_LOCK | 
             PowerManager.ACQUIRE_CAUSES_WAKEUP | 
             PowerManager.ON_AFTER_RELEASE, 
-            "WakeupBuddy:ReceiverScreenLock"
+            SCREEN_LOCK_TAG
         );
-        screenLock.acquire(10000); // Hold for 10 seconds to ensure screen stays on
+        screenLock.acquire(LOCK_TIMEOUT_MS);
+        AlarmDiagnostics.wakeLockAcquired(SCREEN_LOCK_TAG, LOCK_TIMEOUT_MS);
+
+        Handoff handoff = new Handoff(cpuLock, screenLock, goAsync());
+        handoffs.put(firedAtNanos, handoff);
+        Handler worker = worker();
+        worker.postDelayed(handoff::finish, FINISH_BUDGET_MS);
+        // Past the lock timeout the locks have expired; forget the fire if the service never confirmed
+        worker.postDelayed(() -> handoffs.remove(firedAtNanos), LOCK_TIMEOUT_MS);
+
+        long alarmTime = intent.getLongExtra("alarmTime", firedAt);
+        long scheduledFor = intent.getLongExtra(AlarmScheduler.EXTRA_SCHEDULED_FOR, alarmTime);
+        String buddyName = intent.getStringExtra("buddyName");
+        String alarmId = intent.getStringExtra("alarmId");
+        int requestCode = intent.getIntExtra("requestCode", -1);
+        // Both only queue in memory; here so FIRED is journalled before the service's RANG
+        if (!selfTest) {
+            AlarmJournal.get(context).append(AlarmJournal.FIRED, alarmId);
+            AlarmDiagnostics.alarmFired(alarmId, alarmTime, firedAt);
+        }
 
         try {
-            long alarmTime = intent.getLongExtra("alarmTime", System.currentTimeMillis());
-            String buddyName = intent.getStringExtra("buddyName");
-            String alarmId = intent.getStringExtra("alarmId");
-            
             // 1. Start Foreground Service FIRST (Plays Sound & Vibrate)
             Intent serviceIntent = new Intent(context, AlarmService.class);
             serviceIntent.putExtra("alarmTime", alarmTime);
+            serviceIntent.putExtra(AlarmScheduler.EXTRA_SCHEDULED_FOR, scheduledFor);
             if (buddyName != null) {
                 serviceIntent.putExtra("buddyName", buddyName);
             }
             if (alarmId != null) {
                 serviceIntent.putExtra("alarmId", alarmId);
             }
+            serviceIntent.putExtra("requestCode", requestCode);
+            serviceIntent.putExtra(FrameMetricsRecorder.EXTRA_FIRED_AT_NANOS, firedAtNanos);
+            AlarmSelfTest.tag(intent, serviceIntent, AlarmSelfTest.SOURCE_RECEIVER, 0);
             
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                 context.startForegroundService(serviceIntent);
@@ -57,14 +166,14 @@ public class AlarmReceiver extends BroadcastReceiver {
                 context.startService(serviceIntent);
             }
             
-            Log.i(TAG, "Foreground service started");
+            AlarmLog.d(TAG, "Foreground service started");
 
             // 2. ALWAYS try to launch AlarmActivity directly
             // Multiple strategies to ensure it shows:
             // Strategy A: Direct launch with all necessary flags
             // Strategy B: Wake screen first, then launch
             
-            Log.i(TAG, "Attempting to launch AlarmActivity...");
+            AlarmLog.d(TAG, "Attempting to launch AlarmActivity");
             
             Intent activityIntent = new Intent(context, AlarmActivity.class);
             activityIntent.setFlags(
@@ -75,26 +184,43 @@ public class AlarmReceiver extends BroadcastReceiver {
                 Intent.FLAG_ACTIVITY_EXCLUDE_FROM_RECENTS
             );
             activityIntent.putExtra("alarmTime", alarmTime);
+            activityIntent.putExtra(AlarmScheduler.EXTRA_SCHEDULED_FOR, scheduledFor);
             if (buddyName != null) activityIntent.putExtra("buddyName", buddyName);
             if (alarmId != null) activityIntent.putExtra("alarmId", alarmId);
+            activityIntent.putExtra("requestCode", requestCode);
+            activityIntent.putExtra(FrameMetricsRecorder.EXTRA_FIRED_AT_NANOS, firedAtNanos);
+            AlarmSelfTest.tag(intent, activityIntent, AlarmSelfTest.SOURCE_RECEIVER, 0);
             
             try {
                 context.startActivity(activityIntent);
-                Log.i(TAG, "✅ AlarmActivity launched successfully");
+                AlarmLog.d(TAG, "AlarmActivity launched");
             } catch (Exception e) {
-                Log.e(TAG, "❌ Failed to launch AlarmActivity: " + e.getMessage());
+                AlarmLog.w(TAG, "Failed to launch AlarmActivity: {}", e.getMessage());
             }
             
-            Log.i(TAG, "AlarmReceiver completed successfully");
-            
         } catch (Exception e) {
-            Log.e(TAG, "Error in AlarmReceiver", e);
-        } finally {
-            // Release locks after a delay to ensure everything starts
-            new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
-                if (cpuLock.isHeld()) cpuLock.release();
-                if (screenLock.isHeld()) screenLock.release();
-            }, 10000); // Hold for 10 seconds
+            AlarmLog.e(TAG, "Error in AlarmReceiver", e);
         }
+
+        Context appContext = context.getApplicationContext();
+        worker.post(() -> {
+            try {
+                // A self-test is not an alarm as far as JS and the widget are concerned
+                if (selfTest) return;
+                Bundle firedEvent = new Bundle();
+                firedEvent.putString("alarmId", alarmId);
+                firedEvent.putDouble("alarmTime", alarmTime);
+                firedEvent.putString("buddyName", buddyName);
+                firedEvent.putDouble("firedAt", firedAt);
+                NativeEventBus.get().post(NativeEventBus.ALARM_FIRED, alarmId, firedEvent);
+                // The widget and tile move on to the alarm after this one
+                NextAlarm.changed(appContext);
+            } catch (RuntimeException e) {
+                AlarmLog.e(TAG, "Alarm bookkeeping failed", e);
+            } finally {
+                handoff.bookkeepingDone();
+            }
+            AlarmLog.d(TAG, "AlarmReceiver completed");
+        });
     }
 }
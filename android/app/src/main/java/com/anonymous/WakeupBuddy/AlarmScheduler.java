@@ -0,0 +1,153 @@
+package com.anonymous.WakeupBuddy;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Bundle;
+
+import com.anonymous.WakeupBuddy.core.AlarmLedger;
+import com.anonymous.WakeupBuddy.core.AlarmRecord;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AlarmManager + "WakeupBuddyAlarms" preferences behind the process-wide AlarmLedger.
+ * AlarmModule and BootReceiver both go through {@link #ledger(Context)} so their
+ * schedule, cancel and restore calls are serialized per process. Every stored change
+ * refreshes the next-alarm widget and tile (NextAlarm.changed).
+ */
+public class AlarmScheduler implements AlarmLedger.Backend {
+    private static final String TAG = "AlarmScheduler";
+    static final String PREFS_NAME = "WakeupBuddyAlarms";
+    // The time the alarm was set for; alarmTime is when this fire is due, later after a snooze
+    static final String EXTRA_SCHEDULED_FOR = "scheduledFor";
+
+    private static AlarmLedger ledger;
+    private static Context ledgerContext;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    private AlarmScheduler(Context context) {
+        this.context = context;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized AlarmLedger ledger(Context context) {
+        Context app = context.getApplicationContext();
+        if (ledger == null || ledgerContext != app) {
+            ledger = new AlarmLedger(new AlarmScheduler(app));
+            ledgerContext = app;
+            AlarmDiagnostics.trackLedger(ledger);
+        }
+        return ledger;
+    }
+
+    @Override
+    public void arm(AlarmRecord record) {
+        arm(context, record, null);
+    }
+
+    /**
+     * Arm record on AlarmManager only, without storing it. extras go on the fire intent
+     * next to the record's; AlarmSelfTest tags its alarm this way.
+     */
+    static void arm(Context context, AlarmRecord record, Bundle extras) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        // Put extras in the intent so they persist
+        intent.putExtra("alarmTime", record.when);
+        intent.putExtra(EXTRA_SCHEDULED_FOR, record.scheduledFor);
+        // Lets a native snooze re-arm this same slot
+        intent.putExtra("requestCode", record.requestCode);
+        if (record.buddyName != null) {
+            intent.putExtra("buddyName", record.buddyName);
+        }
+        if (record.alarmId != null) {
+            intent.putExtra("alarmId", record.alarmId);
+        }
+        if (extras != null) {
+            intent.putExtras(extras);
+        }
+
+        PendingIntent pi = PendingIntent.getBroadcast(
+            context,
+            record.requestCode,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            AlarmManager.AlarmClockInfo info = new AlarmManager.AlarmClockInfo(record.when, pi);
+            alarmManager.setAlarmClock(info, pi);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, record.when, pi);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, record.when, pi);
+        }
+        AlarmLog.d(TAG, "Armed alarm: {} for {}", record.key(), record.when);
+    }
+
+    /**
+     * The time the alarm on a fire, service or activity intent was set for. Fire
+     * intents armed before the extra existed fall back to alarmTime.
+     */
+    static long scheduledFor(Intent intent) {
+        return intent.getLongExtra(EXTRA_SCHEDULED_FOR, intent.getLongExtra("alarmTime", 0));
+    }
+
+    @Override
+    public boolean disarm(int requestCode) {
+        return disarm(context, requestCode);
+    }
+
+    /** Cancel the alarm armed under requestCode, stored or not */
+    static boolean disarm(Context context, int requestCode) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        PendingIntent pi = PendingIntent.getBroadcast(context, requestCode, intent, PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+        if (pi == null) return false;
+        alarmManager.cancel(pi);
+        pi.cancel();
+        return true;
+    }
+
+    @Override
+    public Object read(String key) {
+        // Called once per alarm during a restore, so avoid copying the map with getAll()
+        try {
+            return prefs.getString(key, null);
+        } catch (ClassCastException e) {
+            return prefs.getAll().get(key);
+        }
+    }
+
+    @Override
+    public Map<String, ?> snapshot() {
+        return prefs.getAll();
+    }
+
+    @Override
+    public void write(Map<String, String> entries) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            editor.putString(entry.getKey(), entry.getValue());
+        }
+        editor.apply();
+        NextAlarm.changed(context);
+    }
+
+    @Override
+    public void remove(List<String> keys) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : keys) {
+            editor.remove(key);
+        }
+        editor.apply();
+        NextAlarm.changed(context);
+    }
+}
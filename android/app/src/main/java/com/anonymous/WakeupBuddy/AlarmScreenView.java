@@ -0,0 +1,515 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.TypedValue;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.Button;
+
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+
+import java.util.List;
+
+/**
+ * Single-view alarm screen drawn directly on a Canvas.
+ *
+ * Replaces the inflated alarm_screen.xml (clock, "WAKE UP!", alarm time, buddy line,
+ * subtitle and the "I'm Awake" button, plus outlined call-buddy and snooze buttons)
+ * so the first frame after a Doze wake-up does not pay for XML inflation and a deep
+ * view hierarchy. Paints, strings and positions are computed when the content or size
+ * changes; onDraw only issues draw calls. When everything does not fit (landscape,
+ * large font scale) the buttons stay pinned to the bottom and the text above them
+ * gives way, so the alarm can always be dismissed.
+ * A buddy avatar, when set, replaces the clock icon; it arrives pre-sized and
+ * pre-cropped from AvatarPipeline, so it is drawn without scaling. The buttons are
+ * exposed to TalkBack and switch access as virtual views (ButtonsAccessibility).
+ */
+public class AlarmScreenView extends View {
+    private static final int COLOR_BACKGROUND = 0xFF000000;
+    private static final int COLOR_ACCENT = 0xFFC9E265;
+    private static final int COLOR_ACCENT_PRESSED = 0xFFA8BF4F;
+    private static final int COLOR_TEXT = 0xFFFFFFFF;
+    private static final int COLOR_SUBTITLE = 0xFFAAAAAA;
+    private static final int COLOR_BUTTON_TEXT = 0xFF000000;
+
+    private static final String ICON = "⏰";
+    private static final String TITLE = "WAKE UP!";
+    private static final String SUBTITLE = "Time to start your day";
+    private static final String AWAKE_LABEL = "I'm Awake";
+
+    private final TextPaint iconPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint titlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint timePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint buddyPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint buddyDetailPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint subtitlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint buttonTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint buttonPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint snoozeTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint snoozeOutlinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // Same spacing as the old XML layout (32dp padding, per-line bottom margins)
+    private final float padding;
+    private final float iconMargin;
+    private final float titleMargin;
+    private final float lineMargin;
+    private final float subtitleMargin;
+    private final float buttonPadH;
+    private final float buttonPadV;
+    private final float buttonRadius;
+    private final float snoozeMargin;
+    private final float snoozePadV;
+
+    private String timeText = "Alarm: --:--";
+    private String buddyText = null;
+    private String buddyDetailText = null;
+    private Bitmap avatar = null;
+    private String snoozeText = null;
+    private String callText = null;
+
+    // Precomputed in layoutContent()
+    private String drawnTime = timeText;
+    private String drawnBuddy = null;
+    private String drawnBuddyDetail = null;
+    // Dropped, in this order, when the screen is too short for everything
+    private boolean drawIcon = true;
+    private boolean drawSubtitle = true;
+    private float centerX;
+    private float iconBaseline;
+    private float avatarLeft;
+    private float avatarTop;
+    private float titleBaseline;
+    private float timeBaseline;
+    private float buddyBaseline;
+    private float buddyDetailBaseline;
+    private float subtitleBaseline;
+    private float buttonBaseline;
+    private final RectF buttonRect = new RectF();
+    private float snoozeBaseline;
+    private final RectF snoozeRect = new RectF();
+    private float callBaseline;
+    private final RectF callRect = new RectF();
+
+    // Also the buttons' virtual view ids for accessibility
+    static final int PRESSED_NONE = 0;
+    static final int PRESSED_AWAKE = 1;
+    static final int PRESSED_SNOOZE = 2;
+    static final int PRESSED_CALL = 3;
+    // Button the current gesture started on, and whether the finger is still over it
+    private int touchTarget = PRESSED_NONE;
+    private int pressed = PRESSED_NONE;
+    private OnClickListener awakeClickListener;
+    private OnClickListener snoozeClickListener;
+    private OnClickListener callClickListener;
+    private final ButtonsAccessibility accessibility;
+
+    public AlarmScreenView(Context context) {
+        super(context);
+
+        padding = dp(32);
+        iconMargin = dp(30);
+        titleMargin = dp(10);
+        lineMargin = dp(8);
+        subtitleMargin = dp(60);
+        buttonPadH = dp(50);
+        buttonPadV = dp(18);
+        buttonRadius = dp(4);
+        snoozeMargin = dp(20);
+        snoozePadV = dp(12);
+
+        setupPaint(iconPaint, 100, COLOR_TEXT, false);
+        setupPaint(titlePaint, 48, COLOR_ACCENT, true);
+        setupPaint(timePaint, 24, COLOR_TEXT, true);
+        setupPaint(buddyPaint, 16, COLOR_ACCENT, false);
+        setupPaint(buddyDetailPaint, 14, COLOR_SUBTITLE, false);
+        setupPaint(subtitlePaint, 18, COLOR_SUBTITLE, false);
+        setupPaint(buttonTextPaint, 22, COLOR_BUTTON_TEXT, true);
+        buttonPaint.setColor(COLOR_ACCENT);
+        setupPaint(snoozeTextPaint, 18, COLOR_ACCENT, true);
+        snoozeOutlinePaint.setStyle(Paint.Style.STROKE);
+        snoozeOutlinePaint.setStrokeWidth(dp(2));
+
+        setBackgroundColor(COLOR_BACKGROUND);
+        setFocusable(true);
+        accessibility = new ButtonsAccessibility();
+        ViewCompat.setAccessibilityDelegate(this, accessibility);
+        updateContentDescription();
+    }
+
+    public void setOnAwakeClickListener(OnClickListener listener) {
+        this.awakeClickListener = listener;
+    }
+
+    public void setOnSnoozeClickListener(OnClickListener listener) {
+        this.snoozeClickListener = listener;
+    }
+
+    public void setOnCallClickListener(OnClickListener listener) {
+        this.callClickListener = listener;
+    }
+
+    /** Label of the call-buddy button; null hides it */
+    public void setCallText(String text) {
+        callText = text;
+        layoutContent();
+        accessibility.invalidateRoot();
+        invalidate();
+    }
+
+    /** Label of the snooze button; null hides it */
+    public void setSnoozeText(String text) {
+        snoozeText = text;
+        layoutContent();
+        accessibility.invalidateRoot();
+        invalidate();
+    }
+
+    public void setTimeText(String text) {
+        timeText = text;
+        layoutContent();
+        updateContentDescription();
+        invalidate();
+    }
+
+    /** Pass null or empty to hide the buddy line */
+    public void setBuddyText(String text) {
+        buddyText = text != null && !text.isEmpty() ? text : null;
+        layoutContent();
+        updateContentDescription();
+        invalidate();
+    }
+
+    /** Drawn in place of the clock icon at its own size; null shows the icon again */
+    public void setAvatar(Bitmap bitmap) {
+        avatar = bitmap;
+        layoutContent();
+        invalidate();
+    }
+
+    /** Second buddy line (phone number, email); shown only with the buddy line */
+    public void setBuddyDetailText(String text) {
+        buddyDetailText = text != null && !text.isEmpty() ? text : null;
+        layoutContent();
+        updateContentDescription();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        layoutContent();
+        accessibility.invalidateRoot();
+    }
+
+    // Work out ellipsized strings, baselines and the button rect for the current size
+    private void layoutContent() {
+        int width = getWidth();
+        int height = getHeight();
+        if (width == 0 || height == 0) return;
+
+        float maxTextWidth = Math.max(0, width - 2 * padding);
+        centerX = width / 2f;
+        drawnTime = TextUtils.ellipsize(timeText, timePaint, maxTextWidth, TextUtils.TruncateAt.END).toString();
+        drawnBuddy = buddyText != null
+            ? TextUtils.ellipsize(buddyText, buddyPaint, maxTextWidth, TextUtils.TruncateAt.END).toString()
+            : null;
+        drawnBuddyDetail = drawnBuddy != null && buddyDetailText != null
+            ? TextUtils.ellipsize(buddyDetailText, buddyDetailPaint, maxTextWidth, TextUtils.TruncateAt.END).toString()
+            : null;
+
+        float buttonHeight = lineHeight(buttonTextPaint) + 2 * buttonPadV;
+        // Call and snooze are both outlined buttons of the same height
+        float outlineHeight = lineHeight(snoozeTextPaint) + 2 * snoozePadV;
+        float buttonsHeight = buttonHeight
+            + (callText != null ? snoozeMargin + outlineHeight : 0)
+            + (snoozeText != null ? snoozeMargin + outlineHeight : 0);
+        float iconHeight = avatar != null ? avatar.getHeight() : lineHeight(iconPaint);
+        float textHeight = lineHeight(titlePaint) + titleMargin
+            + lineHeight(timePaint) + lineMargin
+            + (drawnBuddy != null ? lineHeight(buddyPaint) + lineMargin : 0)
+            + (drawnBuddyDetail != null ? lineHeight(buddyDetailPaint) + lineMargin : 0);
+        float iconBlock = iconHeight + iconMargin;
+        float subtitleBlock = lineHeight(subtitlePaint) + subtitleMargin;
+
+        // Centered like the old gravity="center" layout while it fits. Otherwise the
+        // buttons sit on the bottom padding, the gap above them shrinks, and the icon
+        // then the subtitle are dropped; text that still does not fit runs off the top.
+        float available = height - 2 * padding;
+        drawIcon = true;
+        drawSubtitle = true;
+        float gap = 0;
+        float contentHeight = iconBlock + textHeight + subtitleBlock + buttonsHeight;
+        if (contentHeight > available) {
+            subtitleBlock = lineHeight(subtitlePaint) + snoozeMargin;
+            contentHeight = iconBlock + textHeight + subtitleBlock + buttonsHeight;
+        }
+        if (contentHeight > available) {
+            drawIcon = false;
+            contentHeight -= iconBlock;
+        }
+        if (contentHeight > available) {
+            drawSubtitle = false;
+            contentHeight -= subtitleBlock;
+            gap = snoozeMargin;
+            contentHeight += gap;
+        }
+        float y = contentHeight <= available
+            ? padding + (available - contentHeight) / 2f
+            : height - padding - contentHeight;
+        if (drawIcon) {
+            iconBaseline = y - iconPaint.ascent();
+            if (avatar != null) {
+                avatarLeft = centerX - avatar.getWidth() / 2f;
+                avatarTop = y;
+            }
+            y += iconBlock;
+        }
+        titleBaseline = y - titlePaint.ascent();
+        y += lineHeight(titlePaint) + titleMargin;
+        timeBaseline = y - timePaint.ascent();
+        y += lineHeight(timePaint) + lineMargin;
+        if (drawnBuddy != null) {
+            buddyBaseline = y - buddyPaint.ascent();
+            y += lineHeight(buddyPaint) + lineMargin;
+        }
+        if (drawnBuddyDetail != null) {
+            buddyDetailBaseline = y - buddyDetailPaint.ascent();
+            y += lineHeight(buddyDetailPaint) + lineMargin;
+        }
+        if (drawSubtitle) {
+            subtitleBaseline = y - subtitlePaint.ascent();
+            y += subtitleBlock;
+        } else {
+            y += gap;
+        }
+
+        float buttonWidth = buttonTextPaint.measureText(AWAKE_LABEL) + 2 * buttonPadH;
+        buttonRect.set(centerX - buttonWidth / 2f, y, centerX + buttonWidth / 2f, y + buttonHeight);
+        buttonBaseline = y + buttonPadV - buttonTextPaint.ascent();
+        y += buttonHeight + snoozeMargin;
+
+        if (callText != null) {
+            float callWidth = snoozeTextPaint.measureText(callText) + 2 * buttonPadH;
+            callRect.set(centerX - callWidth / 2f, y, centerX + callWidth / 2f, y + outlineHeight);
+            callBaseline = y + snoozePadV - snoozeTextPaint.ascent();
+            y += outlineHeight + snoozeMargin;
+        } else {
+            callRect.setEmpty();
+        }
+
+        if (snoozeText != null) {
+            float snoozeWidth = snoozeTextPaint.measureText(snoozeText) + 2 * buttonPadH;
+            snoozeRect.set(centerX - snoozeWidth / 2f, y, centerX + snoozeWidth / 2f, y + outlineHeight);
+            snoozeBaseline = y + snoozePadV - snoozeTextPaint.ascent();
+        } else {
+            snoozeRect.setEmpty();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (drawIcon && avatar != null) {
+            canvas.drawBitmap(avatar, avatarLeft, avatarTop, null);
+        } else if (drawIcon) {
+            canvas.drawText(ICON, centerX, iconBaseline, iconPaint);
+        }
+        canvas.drawText(TITLE, centerX, titleBaseline, titlePaint);
+        canvas.drawText(drawnTime, centerX, timeBaseline, timePaint);
+        if (drawnBuddy != null) {
+            canvas.drawText(drawnBuddy, centerX, buddyBaseline, buddyPaint);
+        }
+        if (drawnBuddyDetail != null) {
+            canvas.drawText(drawnBuddyDetail, centerX, buddyDetailBaseline, buddyDetailPaint);
+        }
+        if (drawSubtitle) {
+            canvas.drawText(SUBTITLE, centerX, subtitleBaseline, subtitlePaint);
+        }
+
+        buttonPaint.setColor(pressed == PRESSED_AWAKE ? COLOR_ACCENT_PRESSED : COLOR_ACCENT);
+        canvas.drawRoundRect(buttonRect, buttonRadius, buttonRadius, buttonPaint);
+        canvas.drawText(AWAKE_LABEL, centerX, buttonBaseline, buttonTextPaint);
+
+        if (callText != null) {
+            snoozeOutlinePaint.setColor(pressed == PRESSED_CALL ? COLOR_ACCENT_PRESSED : COLOR_ACCENT);
+            canvas.drawRoundRect(callRect, buttonRadius, buttonRadius, snoozeOutlinePaint);
+            canvas.drawText(callText, centerX, callBaseline, snoozeTextPaint);
+        }
+
+        if (snoozeText != null) {
+            snoozeOutlinePaint.setColor(pressed == PRESSED_SNOOZE ? COLOR_ACCENT_PRESSED : COLOR_ACCENT);
+            canvas.drawRoundRect(snoozeRect, buttonRadius, buttonRadius, snoozeOutlinePaint);
+            canvas.drawText(snoozeText, centerX, snoozeBaseline, snoozeTextPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int hit = hitTest(event.getX(), event.getY());
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                if (hit == PRESSED_NONE) return false;
+                touchTarget = hit;
+                setPressedButton(hit);
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                setPressedButton(hit == touchTarget ? hit : PRESSED_NONE);
+                return true;
+            case MotionEvent.ACTION_UP:
+                int target = touchTarget;
+                boolean stillPressed = pressed == target && hit == target;
+                touchTarget = PRESSED_NONE;
+                setPressedButton(PRESSED_NONE);
+                if (stillPressed) click(target);
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                touchTarget = PRESSED_NONE;
+                setPressedButton(PRESSED_NONE);
+                return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        super.performClick();
+        if (awakeClickListener != null) {
+            awakeClickListener.onClick(this);
+        }
+        return true;
+    }
+
+    // Returns false if the button is hidden or has no listener
+    private boolean click(int button) {
+        if (button == PRESSED_AWAKE) {
+            return performClick();
+        } else if (button == PRESSED_SNOOZE && snoozeText != null && snoozeClickListener != null) {
+            snoozeClickListener.onClick(this);
+            return true;
+        } else if (button == PRESSED_CALL && callText != null && callClickListener != null) {
+            callClickListener.onClick(this);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return accessibility.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return accessibility.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        accessibility.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    private int hitTest(float x, float y) {
+        if (buttonRect.contains(x, y)) return PRESSED_AWAKE;
+        if (callText != null && callRect.contains(x, y)) return PRESSED_CALL;
+        if (snoozeText != null && snoozeRect.contains(x, y)) return PRESSED_SNOOZE;
+        return PRESSED_NONE;
+    }
+
+    private void setPressedButton(int button) {
+        if (pressed != button) {
+            pressed = button;
+            invalidate();
+        }
+    }
+
+    // The text read for the screen itself; each button is its own virtual view
+    private void updateContentDescription() {
+        StringBuilder sb = new StringBuilder(TITLE).append(' ').append(timeText);
+        if (buddyText != null) sb.append(". ").append(buddyText);
+        if (buddyText != null && buddyDetailText != null) sb.append(". ").append(buddyDetailText);
+        setContentDescription(sb);
+    }
+
+    /**
+     * "I'm Awake", call and snooze as separate accessibility nodes, in drawing order,
+     * with the same bounds and actions as a tap. Virtual view ids are the PRESSED_ values.
+     */
+    private final class ButtonsAccessibility extends ExploreByTouchHelper {
+        private final Rect bounds = new Rect();
+
+        ButtonsAccessibility() {
+            super(AlarmScreenView.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int hit = hitTest(x, y);
+            return hit != PRESSED_NONE ? hit : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            virtualViewIds.add(PRESSED_AWAKE);
+            if (callText != null) virtualViewIds.add(PRESSED_CALL);
+            if (snoozeText != null) virtualViewIds.add(PRESSED_SNOOZE);
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            RectF rect;
+            String label;
+            if (virtualViewId == PRESSED_CALL) {
+                rect = callRect;
+                label = callText;
+            } else if (virtualViewId == PRESSED_SNOOZE) {
+                rect = snoozeRect;
+                label = snoozeText;
+            } else {
+                rect = buttonRect;
+                label = AWAKE_LABEL;
+            }
+            // Nodes need non-empty bounds, including before the first layout
+            rect.roundOut(bounds);
+            if (bounds.isEmpty()) bounds.set(0, 0, 1, 1);
+            node.setBoundsInParent(bounds);
+            node.setContentDescription(label != null ? label : "");
+            node.setClassName(Button.class.getName());
+            node.setFocusable(true);
+            node.setClickable(true);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            return action == AccessibilityNodeInfoCompat.ACTION_CLICK && click(virtualViewId);
+        }
+    }
+
+    private void setupPaint(TextPaint paint, float sp, int color, boolean bold) {
+        paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, sp, getResources().getDisplayMetrics()));
+        paint.setColor(color);
+        paint.setTextAlign(Paint.Align.CENTER);
+        if (bold) paint.setTypeface(Typeface.DEFAULT_BOLD);
+    }
+
+    private static float lineHeight(Paint paint) {
+        return paint.descent() - paint.ascent();
+    }
+
+    private float dp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics());
+    }
+}
@@ -0,0 +1,209 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import com.anonymous.WakeupBuddy.core.AlarmRecord;
+
+/**
+ * On-device check of the alarm path as a real alarm takes it: setAlarmClock, then
+ * AlarmReceiver, AlarmService and AlarmActivity, on whatever the OEM build does to them.
+ *
+ * {@link #start} arms one tagged alarm a few seconds out, outside the ledger, so it is
+ * never restored on boot and never shows in the widget. Every component on the path
+ * copies the tag onto the intents it sends on (see {@link #tag}) and records its stage
+ * here. The ring is quiet and skips the journal and JS events, and the alarm screen
+ * closes itself once it has surfaced.
+ *
+ * Stages are kept in the "WakeupBuddySelfTest" preferences as elapsedRealtime stamps,
+ * so a receiver started in a fresh process still adds to the run. The activity notes
+ * which launch surfaced it: the receiver's direct start (attempt 0), the full-screen
+ * intent, or one of AlarmService's retries (attempts 1-3). The first to create the
+ * activity wins the race.
+ */
+public final class AlarmSelfTest {
+    private static final String TAG = "AlarmSelfTest";
+    private static final String PREFS_NAME = "WakeupBuddySelfTest";
+    static final String EXTRA_TEST_ID = "selfTestId";
+    static final String EXTRA_LAUNCH_SOURCE = "selfTestLaunch";
+    static final String EXTRA_LAUNCH_ATTEMPT = "selfTestAttempt";
+
+    static final String SOURCE_RECEIVER = "receiver";
+    static final String SOURCE_FULL_SCREEN = "fullScreen";
+    static final String SOURCE_SERVICE = "service";
+
+    static final String STAGE_SCHEDULED = "scheduled";
+    static final String STAGE_FIRED = "fired";
+    static final String STAGE_SERVICE = "serviceStarted";
+    static final String STAGE_FOREGROUND = "foreground";
+    static final String STAGE_SOUND = "soundStarted";
+    static final String STAGE_ACTIVITY = "activityCreated";
+    // In pipeline order; the report names the first one that never happened
+    private static final String[] STAGES = {
+        STAGE_SCHEDULED, STAGE_FIRED, STAGE_SERVICE, STAGE_FOREGROUND, STAGE_SOUND, STAGE_ACTIVITY
+    };
+
+    // Negative, so it can never collide with an alarm JS armed
+    static final int REQUEST_CODE = -0x5E1F;
+    static final long MIN_DELAY_MS = 2_000;
+    static final long MAX_DELAY_MS = 5 * 60_000;
+    // Beyond the delay, how long to wait for the activity before reporting a failure
+    private static final long TIMEOUT_MS = 30_000;
+    // Alarm volume for the test ring, out of 1
+    static final float QUIET_VOLUME = 0.05f;
+    // How long the self-test alarm screen stays up
+    static final long SCREEN_MS = 1_500;
+    // AlarmService stops a test ring on its own after this, even if no screen came up
+    static final long MAX_RING_MS = 15_000;
+
+    public interface Listener {
+        void onFinished(Bundle report);
+    }
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Main thread only
+    private static Listener listener;
+    private static Runnable timeoutRunnable;
+
+    private AlarmSelfTest() {}
+
+    /**
+     * Arm the test alarm delayMs from now; listener gets the report once the activity
+     * has surfaced, or after the timeout with the stages reached so far. Returns false
+     * if a test is already running. Throws SecurityException without exact alarm access.
+     * Main thread only.
+     */
+    static boolean start(Context context, long delayMs, Listener onFinished) {
+        if (listener != null) return false;
+
+        Context app = context.getApplicationContext();
+        long delay = Math.max(MIN_DELAY_MS, Math.min(MAX_DELAY_MS, delayMs));
+        long testId = System.currentTimeMillis();
+        prefs(app).edit()
+            .clear()
+            .putLong(EXTRA_TEST_ID, testId)
+            .putLong("delayMs", delay)
+            .putLong(STAGE_SCHEDULED, SystemClock.elapsedRealtime())
+            .commit();
+
+        Bundle tag = new Bundle();
+        tag.putLong(EXTRA_TEST_ID, testId);
+        tag.putString(EXTRA_LAUNCH_SOURCE, SOURCE_RECEIVER);
+        tag.putInt(EXTRA_LAUNCH_ATTEMPT, 0);
+        AlarmScheduler.arm(app, new AlarmRecord(REQUEST_CODE, testId + delay, null, null), tag);
+
+        listener = onFinished;
+        timeoutRunnable = () -> finish(app);
+        mainHandler.postDelayed(timeoutRunnable, delay + TIMEOUT_MS);
+        AlarmLog.i(TAG, "Self-test {} armed for {}ms", testId, delay);
+        return true;
+    }
+
+    /** True for the intents of a self-test alarm */
+    static boolean isTest(Intent intent) {
+        return intent != null && intent.getLongExtra(EXTRA_TEST_ID, 0) != 0;
+    }
+
+    /**
+     * Copy the test tag from one intent of the path to the next, with the launch that
+     * will deliver it. No-op for real alarms.
+     */
+    static void tag(Intent from, Intent to, String source, int attempt) {
+        if (!isTest(from)) return;
+        to.putExtra(EXTRA_TEST_ID, from.getLongExtra(EXTRA_TEST_ID, 0));
+        to.putExtra(EXTRA_LAUNCH_SOURCE, source);
+        to.putExtra(EXTRA_LAUNCH_ATTEMPT, attempt);
+    }
+
+    /** Stamp stage for the test intent belongs to; only the first stamp of a stage counts */
+    static void stage(Context context, Intent intent, String stage) {
+        if (!isTest(intent)) return;
+        SharedPreferences prefs = prefs(context);
+        if (prefs.getLong(EXTRA_TEST_ID, 0) != intent.getLongExtra(EXTRA_TEST_ID, 0)) return;
+        if (prefs.contains(stage)) return;
+
+        SharedPreferences.Editor editor = prefs.edit().putLong(stage, SystemClock.elapsedRealtime());
+        if (STAGE_FIRED.equals(stage)) {
+            // Decides whether the system uses the full-screen intent or a heads-up
+            PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            editor.putBoolean("interactiveAtFire", pm != null && pm.isInteractive());
+        } else if (STAGE_ACTIVITY.equals(stage)) {
+            editor.putString("launchSource", intent.getStringExtra(EXTRA_LAUNCH_SOURCE));
+            editor.putInt("launchAttempt", intent.getIntExtra(EXTRA_LAUNCH_ATTEMPT, -1));
+        }
+        editor.commit();
+        AlarmLog.d(TAG, "Self-test stage {}", stage);
+
+        if (STAGE_ACTIVITY.equals(stage)) {
+            Context app = context.getApplicationContext();
+            mainHandler.post(() -> finish(app));
+        }
+    }
+
+    private static void finish(Context context) {
+        if (timeoutRunnable != null) {
+            mainHandler.removeCallbacks(timeoutRunnable);
+            timeoutRunnable = null;
+        }
+        Listener done = listener;
+        listener = null;
+
+        Bundle report = report(context);
+        if (!report.getBoolean("ok")) {
+            // Timed out; a ring that did start stops itself after MAX_RING_MS
+            AlarmScheduler.disarm(context, REQUEST_CODE);
+        }
+        AlarmLog.i(TAG, "Self-test finished, ok: {}, failed at: {}", report.getBoolean("ok"), report.getString("failedStage"));
+        if (done != null) done.onFinished(report);
+    }
+
+    /**
+     * The last run as JS gets it: ms from scheduling for each stage reached, how late
+     * the alarm fired, the launch that surfaced the activity, and the first missing stage.
+     */
+    static Bundle report(Context context) {
+        SharedPreferences prefs = prefs(context);
+        long scheduled = prefs.getLong(STAGE_SCHEDULED, 0);
+        long delay = prefs.getLong("delayMs", 0);
+
+        Bundle stages = new Bundle();
+        String failedStage = null;
+        for (String stage : STAGES) {
+            if (prefs.contains(stage)) {
+                stages.putDouble(stage, prefs.getLong(stage, 0) - scheduled);
+            } else if (failedStage == null) {
+                failedStage = stage;
+            }
+        }
+
+        Bundle report = new Bundle();
+        report.putDouble("testId", prefs.getLong(EXTRA_TEST_ID, 0));
+        report.putDouble("delayMs", delay);
+        report.putBoolean("ok", failedStage == null);
+        report.putString("failedStage", failedStage);
+        report.putBundle("stages", stages);
+        if (prefs.contains(STAGE_FIRED)) {
+            report.putDouble("lateMs", prefs.getLong(STAGE_FIRED, 0) - scheduled - delay);
+            report.putBoolean("interactiveAtFire", prefs.getBoolean("interactiveAtFire", false));
+        }
+        if (prefs.contains(STAGE_FIRED) && prefs.contains(STAGE_ACTIVITY)) {
+            report.putDouble("fireToActivityMs", prefs.getLong(STAGE_ACTIVITY, 0) - prefs.getLong(STAGE_FIRED, 0));
+        }
+        report.putString("launchSource", prefs.getString("launchSource", null));
+        report.putInt("launchAttempt", prefs.getInt("launchAttempt", -1));
+        report.putString("device", Build.MANUFACTURER + " " + Build.MODEL);
+        report.putInt("sdk", Build.VERSION.SDK_INT);
+        return report;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
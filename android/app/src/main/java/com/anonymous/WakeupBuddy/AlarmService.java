@@ -7,25 +7,51 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.media.AudioAttributes;
 import android.media.MediaPlayer;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
 import android.os.PowerManager;
 import android.os.Vibrator;
 import android.telephony.PhoneStateListener;
 import android.telephony.TelephonyManager;
-import android.util.Log;
 import androidx.core.app.NotificationCompat;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import com.anonymous.WakeupBuddy.core.AlarmRecord;
+import com.anonymous.WakeupBuddy.core.BuddyDirectory;
 
 public class AlarmService extends Service {
     private static final String TAG = "AlarmService";
-    private static final String CHANNEL_ID = "alarm_service_channel";
+    static final String CHANNEL_ID = "alarm_service_channel";
+    static final String ACTION_SNOOZE = "SNOOZE";
+    // Package-scoped broadcast that closes AlarmActivity after a snooze from the notification
+    static final String ACTION_SNOOZED = "com.anonymous.WakeupBuddy.ALARM_SNOOZED";
+    // Opens AlarmActivity, which places the call; an activity, as notification
+    // trampolines through a service cannot start the dialer
+    static final String ACTION_CALL_BUDDY = "com.anonymous.WakeupBuddy.CALL_BUDDY";
+    // Non-exported activity-alias of AlarmActivity; only a launch through it may dial,
+    // since AlarmActivity itself is exported
+    static final String CALL_BUDDY_ALIAS = "com.anonymous.WakeupBuddy.AlarmCallBuddyActivity";
+    static final int SNOOZE_MINUTES = 5;
+    // Distinct from the full-screen and stop PendingIntents, which use 0
+    private static final int SNOOZE_PENDING_REQUEST = 1;
+    private static final int CALL_BUDDY_PENDING_REQUEST = 2;
+    // launchHandler message for an AlarmActivity launch retry, so dump can tell them apart
+    private static final int MSG_LAUNCH_RETRY = 1;
     private MediaPlayer mediaPlayer;
     private Vibrator vibrator;
     private PowerManager.WakeLock wakeLock;
+    private PowerManager.WakeLock screenWakeLock;
+    // Owns the activity launch retries so onDestroy can cancel them
+    private final Handler launchHandler = new Handler(Looper.getMainLooper());
     private TelephonyManager telephonyManager;
     private PhoneStateListener phoneStateListener;
 
@@ -36,6 +62,7 @@ public class AlarmService extends Service {
         PowerManager pm = (PowerManager) getSystemService(Context.POWER_SERVICE);
         wakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "WakeupBuddy:AlarmServiceLock");
         wakeLock.acquire(10 * 60 * 1000L /* 10 minutes */);
+        AlarmDiagnostics.wakeLockAcquired("WakeupBuddy:AlarmServiceLock", 10 * 60 * 1000L);
         
         // Start listening for phone state changes
         setupPhoneStateListener();
@@ -53,47 +80,113 @@ public class AlarmService extends Service {
             stopSelf();
             return START_NOT_STICKY;
         }
+        if (ACTION_SNOOZE.equals(action)) {
+            if (snooze(this, intent) == null) {
+                // Could not re-arm; keep ringing rather than lose the alarm
+                return START_STICKY;
+            }
+            sendBroadcast(new Intent(ACTION_SNOOZED).setPackage(getPackageName()));
+            // onDestroy stops the sound and vibration and releases the wake locks
+            stopSelf();
+            return START_NOT_STICKY;
+        }
 
         // Get extras
         long alarmTime = intent.getLongExtra("alarmTime", 0);
         String buddyName = intent.getStringExtra("buddyName");
         String alarmId = intent.getStringExtra("alarmId");
+        int requestCode = intent.getIntExtra("requestCode", -1);
+        long firedAtNanos = intent.getLongExtra(FrameMetricsRecorder.EXTRA_FIRED_AT_NANOS, 0);
+        boolean selfTest = AlarmSelfTest.isTest(intent);
+        AlarmSelfTest.stage(this, intent, AlarmSelfTest.STAGE_SERVICE);
 
         // Start Foreground immediately
-        startForeground(1001, buildNotification(alarmTime, buddyName, alarmId));
-
-        // Play Sound
-        playSound();
+        startForeground(1001, buildNotification(intent, alarmTime, buddyName, alarmId, requestCode, firedAtNanos));
+        // Our wake lock covers the alarm now; AlarmReceiver can drop its locks and finish
+        AlarmReceiver.foregroundStarted(firedAtNanos);
+        AlarmSelfTest.stage(this, intent, AlarmSelfTest.STAGE_FOREGROUND);
 
-        // Vibrate
-        vibrate();
+        // Play Sound (barely audible for a self-test, and without vibration)
+        if (playSound(selfTest ? AlarmSelfTest.QUIET_VOLUME : 1f)) {
+            AlarmSelfTest.stage(this, intent, AlarmSelfTest.STAGE_SOUND);
+        }
+        if (!selfTest) {
+            AlarmJournal.get(this).append(AlarmJournal.RANG, alarmId);
+            vibrate();
+        }
         
         // Try to launch AlarmActivity from service as backup
         // This helps on some devices where receiver couldn't launch it
-        tryLaunchAlarmActivity(alarmTime, buddyName, alarmId);
+        tryLaunchAlarmActivity(intent, alarmTime, buddyName, alarmId, requestCode, firedAtNanos);
+        if (selfTest) {
+            // Cleared with the launch retries if a real alarm takes over the service
+            launchHandler.postDelayed(this::stopSelf, AlarmSelfTest.MAX_RING_MS);
+        }
 
         return START_STICKY;
     }
+
+    /**
+     * Re-arm the ringing alarm SNOOZE_MINUTES from now under the same request code and
+     * alarmId, keeping the time it was set for so the eventual dismissal is recorded
+     * against that. It goes through the ledger, so BootReceiver restores a snooze like
+     * any other alarm. Returns null, leaving the alarm ringing, when it could not be armed.
+     */
+    static AlarmRecord snooze(Context context, Intent alarmIntent) {
+        String alarmId = alarmIntent.getStringExtra("alarmId");
+        int requestCode = alarmIntent.getIntExtra("requestCode", -1);
+        if (requestCode < 0) {
+            // Armed before the extra existed: the code JS derived from the alarmId
+            requestCode = AlarmRecord.requestCodeFor(alarmId);
+        }
+
+        long when = System.currentTimeMillis() + SNOOZE_MINUTES * 60 * 1000L;
+        AlarmRecord record = new AlarmRecord(requestCode, when, alarmIntent.getStringExtra("buddyName"), alarmId,
+            AlarmScheduler.scheduledFor(alarmIntent));
+        try {
+            AlarmScheduler.ledger(context).schedule(record);
+        } catch (RuntimeException e) {
+            // SecurityException once exact alarm access is revoked
+            AlarmLog.e(TAG, "Failed to snooze alarm", e);
+            return null;
+        }
+        AlarmJournal.get(context).append(AlarmJournal.SNOOZED, alarmId, SNOOZE_MINUTES);
+
+        Bundle snoozedEvent = new Bundle();
+        snoozedEvent.putString("alarmId", alarmId);
+        snoozedEvent.putDouble("alarmTime", record.scheduledFor);
+        snoozedEvent.putDouble("snoozedUntil", when);
+        snoozedEvent.putInt("requestCode", requestCode);
+        NativeEventBus.get().post(NativeEventBus.ALARM_SNOOZED, alarmId, snoozedEvent);
+
+        AlarmLog.i(TAG, "Snoozed alarm {} until {}", alarmId, when);
+        return record;
+    }
     
-    private void tryLaunchAlarmActivity(long alarmTime, String buddyName, String alarmId) {
+    @SuppressWarnings("deprecation")
+    private void tryLaunchAlarmActivity(Intent source, long alarmTime, String buddyName, String alarmId, int requestCode, long firedAtNanos) {
         try {
+            // A re-delivered start replaces the previous attempts instead of stacking them
+            launchHandler.removeCallbacksAndMessages(null);
+            releaseScreenWakeLock();
+
             // Wake up the screen first
             PowerManager pm = (PowerManager) getSystemService(Context.POWER_SERVICE);
-            @SuppressWarnings("deprecation")
-            PowerManager.WakeLock screenWakeLock = pm.newWakeLock(
+            screenWakeLock = pm.newWakeLock(
                 PowerManager.FULL_WAKE_LOCK | 
                 PowerManager.ACQUIRE_CAUSES_WAKEUP | 
                 PowerManager.ON_AFTER_RELEASE,
                 "WakeupBuddy:ServiceScreenLock"
             );
             screenWakeLock.acquire(10000); // Hold for 10 seconds
+            AlarmDiagnostics.wakeLockAcquired("WakeupBuddy:ServiceScreenLock", 10000);
             
             // Retry launching activity multiple times with delays
             for (int i = 0; i < 3; i++) {
                 final int attempt = i + 1;
                 final long delay = i * 500L; // 0ms, 500ms, 1000ms
                 
-                new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
+                Message retry = Message.obtain(launchHandler, () -> {
                     try {
                         Intent activityIntent = new Intent(this, AlarmActivity.class);
                         activityIntent.setFlags(
@@ -103,27 +196,39 @@ public class AlarmService extends Service {
                             Intent.FLAG_ACTIVITY_EXCLUDE_FROM_RECENTS
                         );
                         activityIntent.putExtra("alarmTime", alarmTime);
+                        activityIntent.putExtra(AlarmScheduler.EXTRA_SCHEDULED_FOR, AlarmScheduler.scheduledFor(source));
                         if (buddyName != null) activityIntent.putExtra("buddyName", buddyName);
                         if (alarmId != null) activityIntent.putExtra("alarmId", alarmId);
+                        activityIntent.putExtra("requestCode", requestCode);
+                        activityIntent.putExtra(FrameMetricsRecorder.EXTRA_FIRED_AT_NANOS, firedAtNanos);
+                        AlarmSelfTest.tag(source, activityIntent, AlarmSelfTest.SOURCE_SERVICE, attempt);
                         
+                        if (!AlarmSelfTest.isTest(source)) {
+                            AlarmJournal.get(this).append(AlarmJournal.LAUNCH_ATTEMPT, alarmId, attempt);
+                        }
                         startActivity(activityIntent);
-                        Log.i(TAG, "✅ AlarmActivity launch attempt " + attempt + " completed");
+                        AlarmLog.d(TAG, "AlarmActivity launch attempt {} completed", attempt);
                     } catch (Exception e) {
-                        Log.w(TAG, "❌ AlarmActivity launch attempt " + attempt + " failed: " + e.getMessage());
+                        AlarmLog.w(TAG, "AlarmActivity launch attempt {} failed: {}", attempt, e.getMessage());
                     }
                     
                     // Release wake lock after last attempt
-                    if (attempt == 3 && screenWakeLock.isHeld()) {
-                        screenWakeLock.release();
+                    if (attempt == 3) {
+                        releaseScreenWakeLock();
                     }
-                }, delay);
+                });
+                retry.what = MSG_LAUNCH_RETRY;
+                launchHandler.sendMessageDelayed(retry, delay);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error trying to launch alarm activity", e);
+            AlarmLog.e(TAG, "Error trying to launch alarm activity", e);
         }
     }
 
-    private void playSound() {
+    // Returns whether the ring started; volume is out of 1
+    private boolean playSound(float volume) {
+        // Never orphan a player that is already ringing
+        releasePlayer();
         try {
             Uri alert = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
             if (alert == null) {
@@ -137,10 +242,13 @@ public class AlarmService extends Service {
                     .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
                     .build());
             mediaPlayer.setLooping(true);
+            mediaPlayer.setVolume(volume, volume);
             mediaPlayer.prepare();
             mediaPlayer.start();
+            return true;
         } catch (Exception e) {
-            Log.e(TAG, "Error playing sound", e);
+            AlarmLog.e(TAG, "Error playing sound", e);
+            return false;
         }
     }
 
@@ -152,18 +260,22 @@ public class AlarmService extends Service {
         }
     }
 
-    private Notification buildNotification(long alarmTime, String buddyName, String alarmId) {
+    private Notification buildNotification(Intent source, long alarmTime, String buddyName, String alarmId, int requestCode, long firedAtNanos) {
         createNotificationChannel();
 
         Intent fullScreenIntent = new Intent(this, AlarmActivity.class);
         fullScreenIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NO_USER_ACTION);
         fullScreenIntent.putExtra("alarmTime", alarmTime);
+        fullScreenIntent.putExtra(AlarmScheduler.EXTRA_SCHEDULED_FOR, AlarmScheduler.scheduledFor(source));
         if (buddyName != null) {
             fullScreenIntent.putExtra("buddyName", buddyName);
         }
         if (alarmId != null) {
             fullScreenIntent.putExtra("alarmId", alarmId);
         }
+        fullScreenIntent.putExtra("requestCode", requestCode);
+        fullScreenIntent.putExtra(FrameMetricsRecorder.EXTRA_FIRED_AT_NANOS, firedAtNanos);
+        AlarmSelfTest.tag(source, fullScreenIntent, AlarmSelfTest.SOURCE_FULL_SCREEN, 0);
         
         PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(
                 this, 0, fullScreenIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
@@ -173,9 +285,26 @@ public class AlarmService extends Service {
         PendingIntent stopPendingIntent = PendingIntent.getService(
                 this, 0, stopIntent, PendingIntent.FLAG_CANCEL_CURRENT | PendingIntent.FLAG_IMMUTABLE);
 
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("Wake Up!")
-                .setContentText("Alarm is ringing" + (buddyName != null ? " with " + buddyName : ""))
+        Intent snoozeIntent = new Intent(this, AlarmService.class);
+        snoozeIntent.setAction(ACTION_SNOOZE);
+        snoozeIntent.putExtra("alarmTime", alarmTime);
+        snoozeIntent.putExtra(AlarmScheduler.EXTRA_SCHEDULED_FOR, AlarmScheduler.scheduledFor(source));
+        if (buddyName != null) snoozeIntent.putExtra("buddyName", buddyName);
+        if (alarmId != null) snoozeIntent.putExtra("alarmId", alarmId);
+        snoozeIntent.putExtra("requestCode", requestCode);
+        PendingIntent snoozePendingIntent = PendingIntent.getService(
+                this, SNOOZE_PENDING_REQUEST, snoozeIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        // buddyName is the buddy's email; show the cached name and number when known
+        BuddyDirectory.Profile buddy = buddyName != null ? BuddyCache.get(this).lookup(alarmId, buddyName) : null;
+        String buddyLabel = buddy != null && buddy.name != null ? buddy.name : buddyName;
+
+        boolean selfTest = AlarmSelfTest.isTest(source);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle(selfTest ? "Alarm self-test" : "Wake Up!")
+                .setContentText("Alarm is ringing" + (buddyLabel != null ? " with " + buddyLabel : ""))
+                .setSubText(buddy != null ? buddy.phone : null)
+                .setLargeIcon(notificationAvatar(buddy))
                 .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
                 .setPriority(NotificationCompat.PRIORITY_MAX)
                 .setCategory(NotificationCompat.CATEGORY_ALARM)
@@ -187,8 +316,29 @@ public class AlarmService extends Service {
                 .setAutoCancel(false)
                 .setDefaults(NotificationCompat.DEFAULT_ALL)
                 .setSound(null)  // We handle sound separately
-                .setVibrate(null)  // We handle vibration separately
-                .build();
+                .setVibrate(null);  // We handle vibration separately
+
+        // A self-test alarm has no slot to re-arm
+        if (!selfTest) {
+            builder.addAction(android.R.drawable.ic_lock_idle_alarm, "Snooze " + SNOOZE_MINUTES + " min", snoozePendingIntent);
+        }
+        // Only with a number cached at schedule time, so the tap never waits on the network
+        if (buddy != null && buddy.phone != null) {
+            Intent callIntent = new Intent(fullScreenIntent);
+            callIntent.setAction(ACTION_CALL_BUDDY);
+            callIntent.setClassName(this, CALL_BUDDY_ALIAS);
+            PendingIntent callPendingIntent = PendingIntent.getActivity(
+                    this, CALL_BUDDY_PENDING_REQUEST, callIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            builder.addAction(android.R.drawable.ic_menu_call, "Call " + buddyLabel, callPendingIntent);
+        }
+        return builder.build();
+    }
+
+    // Not returned to the pool: the notification keeps a reference to it
+    private Bitmap notificationAvatar(BuddyDirectory.Profile buddy) {
+        if (buddy == null) return null;
+        AvatarPipeline avatars = AvatarPipeline.get(this);
+        return avatars.load(buddy.profileCode, avatars.notificationSize());
     }
 
     private void createNotificationChannel() {
@@ -214,26 +364,45 @@ public class AlarmService extends Service {
     public void onDestroy() {
         super.onDestroy();
         
+        // Pending launch retries would otherwise reopen the alarm screen after dismissal
+        launchHandler.removeCallbacksAndMessages(null);
+
         // Stop phone state listener
         if (telephonyManager != null && phoneStateListener != null) {
             telephonyManager.listen(phoneStateListener, PhoneStateListener.LISTEN_NONE);
+            phoneStateListener = null;
+            AlarmDiagnostics.phoneListenerRemoved(TAG);
         }
         
+        releasePlayer();
+        if (vibrator != null) {
+            vibrator.cancel();
+        }
+        releaseScreenWakeLock();
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        AlarmDiagnostics.wakeLockReleased("WakeupBuddy:AlarmServiceLock");
+    }
+
+    private void releasePlayer() {
         if (mediaPlayer != null) {
             try {
                 mediaPlayer.stop();
-                mediaPlayer.release();
             } catch (Exception e) {
-                Log.e(TAG, "Error stopping media player", e);
+                AlarmLog.e(TAG, "Error stopping media player", e);
             }
+            mediaPlayer.release();
             mediaPlayer = null;
         }
-        if (vibrator != null) {
-            vibrator.cancel();
-        }
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
+    }
+
+    private void releaseScreenWakeLock() {
+        if (screenWakeLock != null && screenWakeLock.isHeld()) {
+            screenWakeLock.release();
         }
+        screenWakeLock = null;
+        AlarmDiagnostics.wakeLockReleased("WakeupBuddy:ServiceScreenLock");
     }
     
     private void setupPhoneStateListener() {
@@ -247,19 +416,28 @@ public class AlarmService extends Service {
                         
                         // When phone is ringing (incoming call) or off-hook (outgoing/active call)
                         if (state == TelephonyManager.CALL_STATE_RINGING || state == TelephonyManager.CALL_STATE_OFFHOOK) {
-                            Log.i(TAG, "📞 Call detected - auto-stopping alarm to give priority to call");
+                            AlarmLog.i(TAG, "Call detected - auto-stopping alarm to give priority to call");
                             stopSelf(); // Stop the alarm service to give priority to the call
                         }
                     }
                 };
                 
                 telephonyManager.listen(phoneStateListener, PhoneStateListener.LISTEN_CALL_STATE);
+                AlarmDiagnostics.phoneListenerRegistered(TAG);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error setting up phone state listener", e);
+            AlarmLog.e(TAG, "Error setting up phone state listener", e);
         }
     }
 
+    // adb shell dumpsys activity service com.anonymous.WakeupBuddy/.AlarmService
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("AlarmService: " + (mediaPlayer != null ? "ringing" : "not ringing")
+            + ", activity launch retries pending: " + launchHandler.hasMessages(MSG_LAUNCH_RETRY));
+        AlarmDiagnostics.dump(this, writer, args);
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
         return null;
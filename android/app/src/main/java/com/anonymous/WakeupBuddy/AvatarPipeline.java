@@ -0,0 +1,313 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.TypedValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Buddy avatars for the alarm screen and the alarm notification, prepared ahead of
+ * fire time so the first frame after a wake-up does no decoding.
+ *
+ * When JS caches buddy profiles (i.e. when alarms are scheduled or reconciled) the
+ * avatar is downloaded on the "AvatarPipeline" thread, decoded straight to the
+ * screen and notification sizes (inSampleSize plus density scaling, into a pooled
+ * bitmap), cropped to a circle and written out as raw ARGB_8888 pixels. At fire
+ * time {@link #load} memory-maps that file and copies the pixels into a pooled
+ * bitmap: no network, no PNG decode, no scaling.
+ *
+ * Pixel file layout: magic(int) width(int) height(int) followed by width*height*4
+ * bytes as written by Bitmap.copyPixelsToBuffer.
+ */
+public class AvatarPipeline {
+    private static final String TAG = "AvatarPipeline";
+    private static final String DIR_NAME = "avatars";
+    private static final int MAGIC = 0x57424156; // "WBAV"
+    private static final int HEADER_BYTES = 12;
+    private static final int MAX_FILES = 24;
+    private static final int MAX_DOWNLOAD_BYTES = 2 * 1024 * 1024;
+    private static final long REFRESH_AFTER_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+    // Same images the app shows (components/ProfilePic.jsx)
+    private static final String AVATAR_URL = "https://api.dicebear.com/9.x/adventurer/png?seed=";
+
+    static final int SCREEN_SIZE_DP = 112;
+
+    private static AvatarPipeline instance;
+
+    private final File dir;
+    private final Handler worker;
+    private final BitmapPool pool = new BitmapPool(4);
+    // Target sizes in px: the alarm screen avatar and the notification large icon
+    private final int screenSize;
+    private final int notificationSize;
+
+    public static synchronized AvatarPipeline get(Context context) {
+        if (instance == null) {
+            instance = new AvatarPipeline(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AvatarPipeline(Context context) {
+        dir = new File(context.getFilesDir(), DIR_NAME);
+        screenSize = Math.round(TypedValue.applyDimension(
+            TypedValue.COMPLEX_UNIT_DIP, SCREEN_SIZE_DP, context.getResources().getDisplayMetrics()));
+        notificationSize = context.getResources().getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        HandlerThread thread = new HandlerThread("AvatarPipeline");
+        thread.start();
+        worker = new Handler(thread.getLooper());
+    }
+
+    public int screenSize() {
+        return screenSize;
+    }
+
+    public int notificationSize() {
+        return notificationSize;
+    }
+
+    /**
+     * Render avatars for these seeds (profile codes) in the background, skipping ones
+     * already on disk and less than REFRESH_AFTER_MS old
+     */
+    public void prefetch(Collection<String> seeds) {
+        for (String seed : seeds) {
+            if (seed == null || seed.isEmpty()) continue;
+            worker.post(() -> render(seed));
+        }
+    }
+
+    /**
+     * Pre-rendered avatar for seed at sizePx, or null if it was never rendered. Cheap
+     * enough for the main thread: one mmap and a pixel copy. Hand the bitmap back with
+     * {@link #release} when it is no longer drawn, unless it was given to a Notification.
+     */
+    public Bitmap load(String seed, int sizePx) {
+        if (seed == null || seed.isEmpty()) return null;
+        File file = fileFor(seed, sizePx);
+        if (!file.exists()) return null;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt() != MAGIC) throw new IOException("Bad avatar header");
+            int width = mapped.getInt();
+            int height = mapped.getInt();
+            if ((long) width * height * 4 != channel.size() - HEADER_BYTES) throw new IOException("Truncated avatar");
+
+            Bitmap bitmap = pool.obtain(width, height);
+            bitmap.copyPixelsFromBuffer(mapped);
+            return bitmap;
+        } catch (IOException | RuntimeException e) {
+            AlarmLog.w(TAG, "Dropping unreadable avatar", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    public void release(Bitmap bitmap) {
+        pool.put(bitmap);
+    }
+
+    // Worker thread only
+    private void render(String seed) {
+        File screenFile = fileFor(seed, screenSize);
+        File notificationFile = fileFor(seed, notificationSize);
+        long staleBefore = System.currentTimeMillis() - REFRESH_AFTER_MS;
+        if (screenFile.lastModified() > staleBefore && notificationFile.lastModified() > staleBefore) return;
+
+        byte[] encoded;
+        try {
+            encoded = download(AVATAR_URL + Uri.encode(seed));
+        } catch (IOException e) {
+            AlarmLog.w(TAG, "Avatar download failed", e);
+            return;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) return;
+
+        writeSized(encoded, screenSize, screenFile);
+        if (notificationSize != screenSize) {
+            writeSized(encoded, notificationSize, notificationFile);
+        }
+        trimDisk();
+    }
+
+    private void writeSized(byte[] encoded, int size, File target) {
+        Bitmap decoded = decodeSized(encoded, size);
+        if (decoded == null) return;
+        Bitmap round = pool.obtain(size, size);
+        try {
+            round.eraseColor(0);
+            cropToCircle(decoded, round);
+            writePixels(round, target);
+        } catch (IOException e) {
+            AlarmLog.e(TAG, "Failed to write avatar", e);
+        } finally {
+            pool.put(decoded);
+            pool.put(round);
+        }
+    }
+
+    /**
+     * Decode to exactly size x size (square images, as the avatars are): inSampleSize
+     * drops whole powers of two while decoding, and inDensity/inTargetDensity scales
+     * the rest in the same pass, so the full-size image is never in memory.
+     */
+    private Bitmap decodeSized(byte[] encoded, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(encoded, 0, encoded.length, options);
+        int sourceSize = Math.min(options.outWidth, options.outHeight);
+        if (sourceSize <= 0) return null;
+
+        int sampleSize = 1;
+        while (sourceSize / (sampleSize * 2) >= size) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inScaled = true;
+        options.inDensity = sourceSize;
+        options.inTargetDensity = size * sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        Bitmap reusable = pool.take(size, size);
+        options.inBitmap = reusable;
+        try {
+            return BitmapFactory.decodeByteArray(encoded, 0, encoded.length, options);
+        } catch (IllegalArgumentException e) {
+            // inBitmap did not fit this decode; not worth failing the avatar over
+            if (reusable != null) pool.put(reusable);
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(encoded, 0, encoded.length, options);
+        }
+    }
+
+    private static void cropToCircle(Bitmap source, Bitmap target) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        paint.setShader(new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        float radius = target.getWidth() / 2f;
+        new Canvas(target).drawCircle(radius, radius, radius, paint);
+    }
+
+    private static void writePixels(Bitmap bitmap, File target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bitmap.getByteCount());
+        buffer.putInt(MAGIC).putInt(bitmap.getWidth()).putInt(bitmap.getHeight());
+        bitmap.copyPixelsToBuffer(buffer);
+
+        // Write a sibling and rename, so load() never maps a half-written file
+        File temp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(buffer.array(), 0, buffer.position());
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Rename failed for " + target.getName());
+        }
+    }
+
+    // Keep only the MAX_FILES most recently written avatars
+    private void trimDisk() {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= MAX_FILES) return;
+        Arrays.sort(files, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (int i = MAX_FILES; i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+
+    private File fileFor(String seed, int sizePx) {
+        // Seeds default to emails; hash them rather than put them in file names
+        return new File(dir, Integer.toHexString(seed.hashCode()) + "_" + seed.length() + "_" + sizePx + ".px");
+    }
+
+    private static byte[] download(String url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        try {
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) throw new IOException("HTTP " + code);
+            try (InputStream in = conn.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+                byte[] chunk = new byte[8192];
+                int n;
+                while ((n = in.read(chunk)) != -1) {
+                    out.write(chunk, 0, n);
+                    if (out.size() > MAX_DOWNLOAD_BYTES) throw new IOException("Avatar too large");
+                }
+                return out.toByteArray();
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * A few mutable ARGB_8888 bitmaps kept for reuse, so repeated avatar loads and
+     * renders do not allocate fresh bitmap memory each time
+     */
+    static class BitmapPool {
+        private final int maxSize;
+        private final ArrayDeque<Bitmap> free = new ArrayDeque<>();
+
+        BitmapPool(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /** A pooled bitmap of exactly this size, or null */
+        synchronized Bitmap take(int width, int height) {
+            Iterator<Bitmap> it = free.iterator();
+            while (it.hasNext()) {
+                Bitmap bitmap = it.next();
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    it.remove();
+                    return bitmap;
+                }
+            }
+            return null;
+        }
+
+        Bitmap obtain(int width, int height) {
+            Bitmap bitmap = take(width, height);
+            return bitmap != null ? bitmap : Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+
+        synchronized void put(Bitmap bitmap) {
+            if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+                return;
+            }
+            if (free.size() >= maxSize) {
+                free.pollFirst().recycle();
+            }
+            free.addLast(bitmap);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.AtomicFile;
+
+import com.anonymous.WakeupBuddy.core.BuddyDirectory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * On-disk BuddyDirectory, so the alarm screen and notification can show the buddy's
+ * name and number at fire time with no network and no React Native.
+ *
+ * JS pushes profiles through AlarmModule.cacheBuddyProfiles whenever it schedules or
+ * reconciles alarms. The file is read once per process, on first use; changes are
+ * written back in one AtomicFile write on the "BuddyCache" thread.
+ */
+public class BuddyCache {
+    private static final String TAG = "BuddyCache";
+    static final String FILE_NAME = "buddy_cache.bin";
+    static final int MAX_PROFILES = 32;
+    static final int MAX_ALARMS = 64;
+    private static final long WRITE_DELAY_MS = 250;
+
+    /** One profile from JS; alarmId may be null */
+    public static class Update {
+        public final String alarmId;
+        public final BuddyDirectory.Profile profile;
+
+        public Update(String alarmId, BuddyDirectory.Profile profile) {
+            this.alarmId = alarmId;
+            this.profile = profile;
+        }
+    }
+
+    private static BuddyCache instance;
+
+    private final AtomicFile file;
+    private final BuddyDirectory directory = new BuddyDirectory(MAX_PROFILES, MAX_ALARMS);
+    private final Handler writer;
+    private final Runnable writeRunnable = this::write;
+    private boolean loaded = false;
+
+    public static synchronized BuddyCache get(Context context) {
+        if (instance == null) {
+            instance = new BuddyCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private BuddyCache(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        HandlerThread thread = new HandlerThread("BuddyCache");
+        thread.start();
+        writer = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Profile for a ringing alarm, or null if JS never cached one. Safe to call on the
+     * main thread: the first call reads a file of a few KB, later calls are memory only.
+     */
+    public BuddyDirectory.Profile lookup(String alarmId, String buddyEmail) {
+        ensureLoaded();
+        return directory.lookup(alarmId, buddyEmail);
+    }
+
+    public void update(List<Update> updates) {
+        ensureLoaded();
+        boolean changed = false;
+        for (Update update : updates) {
+            changed |= directory.put(update.alarmId, update.profile);
+        }
+        if (changed) {
+            writer.removeCallbacks(writeRunnable);
+            writer.postDelayed(writeRunnable, WRITE_DELAY_MS);
+        }
+        AlarmLog.d(TAG, "Cached {} buddy profiles, changed: {}", updates.size(), changed);
+    }
+
+    private synchronized void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        try {
+            directory.decode(file.readFully());
+        } catch (FileNotFoundException e) {
+            // Nothing cached yet
+        } catch (IOException e) {
+            AlarmLog.w(TAG, "Discarding unreadable buddy cache", e);
+            file.delete();
+        }
+    }
+
+    private void write() {
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(directory.encode());
+            file.finishWrite(out);
+        } catch (IOException e) {
+            if (out != null) file.failWrite(out);
+            AlarmLog.e(TAG, "Failed to write buddy cache", e);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.anonymous.WakeupBuddy;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.provider.CallLog;
+import android.telephony.PhoneStateListener;
+import android.telephony.TelephonyManager;
+import androidx.core.content.ContextCompat;
+
+import com.anonymous.WakeupBuddy.core.CallTracker;
+import com.anonymous.WakeupBuddy.core.PhoneNumbers;
+
+/**
+ * The buddy call in progress, for the whole process: the pending call saved in the
+ * "WakeupBuddy" preferences, the CallTracker and the call-state listener feeding it.
+ *
+ * Calls are placed either by JS (savePendingCall, then makePhoneCall) or natively by
+ * AlarmActivity's "Call buddy", which does not wait for React Native at all. Either
+ * way the end of the call is journaled, counted in LocalStats, handed to
+ * ConvexReporter when it is configured and posted as CallStateChanged, so JS only
+ * has to settle calls the reporter could not take (checkPendingCall).
+ *
+ * A natively placed call has no Convex call record yet. Its pending id starts with
+ * NATIVE_CALL_PREFIX and carries the alarm and buddy, so whoever reports it creates
+ * the record first.
+ *
+ * Streak credit needs a call of a minimum length, and only the call-log duration read
+ * after the call ends earns it. From OFFHOOK of a pending call one delayed Runnable
+ * waits for that threshold; if the call is still up when it runs, CallThresholdReached
+ * is posted once so JS can tell the user. IDLE removes the Runnable, so a short call
+ * costs nothing and nothing polls.
+ */
+public class CallMonitor {
+    private static final String TAG = "CallMonitor";
+    static final String PREFS_NAME = "WakeupBuddy";
+    static final String KEY_CALL_ID = "pendingCallId";
+    static final String KEY_PHONE = "pendingPhoneNumber";
+    static final String KEY_INITIATED = "callInitiatedTime";
+    static final String KEY_ALARM_ID = "pendingCallAlarmId";
+    static final String KEY_BUDDY_EMAIL = "pendingCallBuddyEmail";
+    static final String NATIVE_CALL_PREFIX = "native:";
+    static final String KEY_THRESHOLD_SECONDS = "callThresholdSeconds";
+    // markAwakeAfterCall only credits calls of at least a minute
+    static final int DEFAULT_THRESHOLD_SECONDS = 60;
+    // The call log row is written shortly after the call goes idle
+    private static final long CALL_LOG_SETTLE_MS = 2000;
+
+    private static CallMonitor instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    // Shared by the threads placing calls and the call-state listener (main looper)
+    private final CallTracker callTracker = new CallTracker();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Call-log reads after a call ends
+    private final Handler worker;
+    private TelephonyManager telephonyManager;
+    // Call the threshold Runnable is waiting on, and its OFFHOOK time; main looper only
+    private CallTracker.Call watchedCall;
+    private long watchStartElapsed;
+    private final Runnable thresholdRunnable = this::onThresholdReached;
+
+    public static synchronized CallMonitor get(Context context) {
+        if (instance == null) {
+            instance = new CallMonitor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private CallMonitor(Context context) {
+        this.context = context;
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        HandlerThread thread = new HandlerThread("CallMonitor");
+        thread.start();
+        worker = new Handler(thread.getLooper());
+        AlarmDiagnostics.trackCalls(callTracker);
+    }
+
+    /**
+     * Remember the call about to be placed so it can be settled later, from the
+     * listener or from checkPendingCall. alarmId and buddyEmail are only kept for
+     * native calls, which have no call record yet.
+     */
+    public void savePending(String callId, String phoneNumber, String alarmId, String buddyEmail) {
+        SharedPreferences.Editor editor = prefs.edit()
+            .putString(KEY_CALL_ID, callId)
+            .putString(KEY_PHONE, phoneNumber)
+            .putLong(KEY_INITIATED, System.currentTimeMillis());
+        if (alarmId != null) editor.putString(KEY_ALARM_ID, alarmId); else editor.remove(KEY_ALARM_ID);
+        if (buddyEmail != null) editor.putString(KEY_BUDDY_EMAIL, buddyEmail); else editor.remove(KEY_BUDDY_EMAIL);
+        editor.apply();
+        AlarmLog.i(TAG, "Saved pending call: {} to {}", callId, phoneNumber);
+    }
+
+    public void clearPending() {
+        prefs.edit()
+            .remove(KEY_CALL_ID)
+            .remove(KEY_PHONE)
+            .remove(KEY_INITIATED)
+            .remove(KEY_ALARM_ID)
+            .remove(KEY_BUDDY_EMAIL)
+            .apply();
+        AlarmLog.d(TAG, "Cleared pending call");
+    }
+
+    /**
+     * Call the buddy of alarmId right away, without React Native. Saves the pending
+     * call, starts tracking it and places it with ACTION_CALL, or opens the dialer
+     * when CALL_PHONE is not granted. Returns false if no call could be started.
+     */
+    public boolean callBuddy(String phoneNumber, String alarmId, String buddyEmail) {
+        String callId = NATIVE_CALL_PREFIX + (alarmId != null ? alarmId : "") + ":" + System.currentTimeMillis();
+        boolean canCall = ContextCompat.checkSelfPermission(context, Manifest.permission.CALL_PHONE)
+            == PackageManager.PERMISSION_GRANTED;
+
+        // Saved first: the listener may see OFFHOOK before startActivity returns
+        savePending(callId, phoneNumber, alarmId, buddyEmail);
+        if (canCall) {
+            track(phoneNumber);
+        }
+
+        Intent intent = new Intent(canCall ? Intent.ACTION_CALL : Intent.ACTION_DIAL, Uri.parse("tel:" + phoneNumber));
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        try {
+            context.startActivity(intent);
+        } catch (RuntimeException e) {
+            AlarmLog.e(TAG, "Failed to place buddy call", e);
+            clearPending();
+            return false;
+        }
+        AlarmJournal.get(context).append(AlarmJournal.CALL_PLACED, callId, canCall ? 1 : 0);
+        AlarmLog.i(TAG, "Buddy call {} {}", callId, canCall ? "placed" : "opened in the dialer");
+        return true;
+    }
+
+    /**
+     * A call to phoneNumber is about to be placed; listen for its call states unless
+     * already listening. Returns false if READ_PHONE_STATE is missing, in which case
+     * only checkPendingCall can settle the call.
+     */
+    public boolean track(String phoneNumber) {
+        if (!callTracker.begin(PhoneNumbers.digitsOnly(phoneNumber))) {
+            return true;
+        }
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_PHONE_STATE)
+            != PackageManager.PERMISSION_GRANTED) {
+            callTracker.listenerDetached();
+            return false;
+        }
+        // PhoneStateListener calls back on the looper it was created on
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            startCallStateListener();
+        } else {
+            mainHandler.post(this::startCallStateListener);
+        }
+        return true;
+    }
+
+    private void startCallStateListener() {
+        try {
+            telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
+            if (telephonyManager == null) {
+                callTracker.listenerDetached();
+                return;
+            }
+
+            PhoneStateListener listener = new PhoneStateListener() {
+                @Override
+                public void onCallStateChanged(int state, String phoneNumber) {
+                    switch (state) {
+                        case TelephonyManager.CALL_STATE_OFFHOOK: {
+                            // Call started (dialing, for an outgoing call). A repeated OFFHOOK (e.g. hold/unhold) is ignored.
+                            CallTracker.Call started = callTracker.onOffhook(System.currentTimeMillis());
+                            if (started == null) break;
+                            AlarmJournal.get(context).append(AlarmJournal.CALL_STARTED, prefs.getString(KEY_CALL_ID, null));
+                            startThresholdWatch(started);
+                            Bundle startParams = new Bundle();
+                            startParams.putString("status", "started");
+                            startParams.putDouble("startTime", started.startedAt);
+                            postCallState("started", started, startParams);
+                            break;
+                        }
+
+                        case TelephonyManager.CALL_STATE_IDLE: {
+                            // Call ended. The IDLE reported right after registering (before
+                            // OFFHOOK) is not an end and is ignored by the tracker.
+                            CallTracker.Call ended = callTracker.onIdle(System.currentTimeMillis());
+                            stopThresholdWatch();
+                            if (ended != null) {
+                                long duration = ended.durationSeconds();
+                                AlarmJournal.get(context).append(AlarmJournal.CALL_ENDED, prefs.getString(KEY_CALL_ID, null), (int) duration);
+                                LocalStats.get(context).recordCall(ended.endedAt, (int) duration);
+                                boolean reported = reportPendingCall(ended.endedAt);
+
+                                Bundle endParams = new Bundle();
+                                endParams.putString("status", "ended");
+                                endParams.putBoolean("reported", reported);
+                                endParams.putDouble("duration", duration);
+                                endParams.putDouble("startTime", ended.startedAt);
+                                endParams.putDouble("endTime", ended.endedAt);
+                                postCallState("ended", ended, endParams);
+                            }
+                            // Stop listening after the call ends, unless another call began meanwhile
+                            if (callTracker.releaseListener()) {
+                                stopCallStateListener(this);
+                            }
+                            break;
+                        }
+
+                        case TelephonyManager.CALL_STATE_RINGING:
+                            // Phone is ringing
+                            break;
+                    }
+                }
+            };
+
+            telephonyManager.listen(listener, PhoneStateListener.LISTEN_CALL_STATE);
+            AlarmDiagnostics.phoneListenerRegistered(TAG);
+        } catch (Exception e) {
+            callTracker.listenerDetached();
+            // Log error but don't fail the call
+            AlarmLog.e(TAG, "Failed to start call state listener", e);
+        }
+    }
+
+    /** Call length in seconds after which CallThresholdReached is posted; 0 turns the watcher off */
+    public void setThresholdSeconds(int seconds) {
+        prefs.edit().putInt(KEY_THRESHOLD_SECONDS, Math.max(0, seconds)).apply();
+    }
+
+    public int thresholdSeconds() {
+        return prefs.getInt(KEY_THRESHOLD_SECONDS, DEFAULT_THRESHOLD_SECONDS);
+    }
+
+    // OFFHOOK is when an outgoing call starts dialing: Android does not tell apps when the
+    // buddy answers, so ringing counts towards this threshold. That is why it earns no
+    // credit itself; the call-log length reported at IDLE does.
+    private void startThresholdWatch(CallTracker.Call started) {
+        mainHandler.removeCallbacks(thresholdRunnable);
+        watchedCall = null;
+        int seconds = thresholdSeconds();
+        // Only our own pending buddy call earns credit
+        if (seconds <= 0 || prefs.getString(KEY_CALL_ID, null) == null) return;
+        watchedCall = started;
+        watchStartElapsed = SystemClock.elapsedRealtime();
+        // The delay runs on uptime, which never gets ahead of elapsedRealtime, so by the
+        // time this runs at least the threshold has passed on the monotonic clock
+        mainHandler.postDelayed(thresholdRunnable, seconds * 1000L);
+    }
+
+    private void stopThresholdWatch() {
+        mainHandler.removeCallbacks(thresholdRunnable);
+        watchedCall = null;
+    }
+
+    private void onThresholdReached() {
+        CallTracker.Call call = watchedCall;
+        watchedCall = null;
+        // Hung up or replaced by another call in the meantime
+        if (call == null || callTracker.state() != CallTracker.ACTIVE || callTracker.sequence() != call.sequence) {
+            return;
+        }
+
+        long elapsedMs = SystemClock.elapsedRealtime() - watchStartElapsed;
+        String callId = prefs.getString(KEY_CALL_ID, null);
+
+        Bundle params = new Bundle();
+        params.putString("callId", callId);
+        params.putInt("thresholdSeconds", thresholdSeconds());
+        params.putDouble("elapsedMs", elapsedMs);
+        params.putDouble("startTime", call.startedAt);
+        NativeEventBus.get().post(NativeEventBus.CALL_THRESHOLD_REACHED, String.valueOf(call.startedAt), params);
+        AlarmLog.i(TAG, "Call {} reached {}s", callId, elapsedMs / 1000);
+    }
+
+    // Unregisters the given listener instance; a newer call may already have registered its own
+    private void stopCallStateListener(PhoneStateListener listener) {
+        try {
+            if (telephonyManager != null) {
+                telephonyManager.listen(listener, PhoneStateListener.LISTEN_NONE);
+                AlarmDiagnostics.phoneListenerRemoved(TAG);
+            }
+        } catch (Exception e) {
+            AlarmLog.e(TAG, "Failed to stop call state listener", e);
+        }
+    }
+
+    // Keyed per call and transition so "started" and "ended" are never coalesced together
+    private void postCallState(String status, CallTracker.Call call, Bundle params) {
+        NativeEventBus.get().post(NativeEventBus.CALL_STATE_CHANGED, status + ":" + call.startedAt, params);
+    }
+
+    /**
+     * Hand the pending buddy call to ConvexReporter, which posts its call-log duration
+     * once the log has it. The pending call is cleared right away so checkPendingCall
+     * cannot report it a second time from JS. Returns false if the reporter is not
+     * configured or no call is pending, leaving the call to JS as before.
+     */
+    private boolean reportPendingCall(long endedAt) {
+        ConvexReporter reporter = ConvexReporter.get(context);
+        if (!reporter.isConfigured()) return false;
+
+        String callId = prefs.getString(KEY_CALL_ID, null);
+        String phoneNumber = prefs.getString(KEY_PHONE, null);
+        long callInitiatedTime = prefs.getLong(KEY_INITIATED, 0);
+        String alarmId = prefs.getString(KEY_ALARM_ID, null);
+        String buddyEmail = prefs.getString(KEY_BUDDY_EMAIL, null);
+        if (callId == null || phoneNumber == null) return false;
+        boolean nativeCall = isNativeCall(callId);
+        if (nativeCall && (alarmId == null || buddyEmail == null)) return false;
+        clearPending();
+
+        worker.postDelayed(() -> {
+            int duration = callLogDuration(context, phoneNumber, callInitiatedTime);
+            AlarmLog.i(TAG, "Reporting call {} natively, duration: {}s", callId, duration);
+            if (nativeCall) {
+                reporter.reportBuddyCall(callId, alarmId, buddyEmail, duration, endedAt);
+            } else {
+                reporter.reportCallResult(callId, duration, endedAt);
+            }
+        }, CALL_LOG_SETTLE_MS);
+        return true;
+    }
+
+    /** True for a call placed by callBuddy, which has no Convex call record yet */
+    static boolean isNativeCall(String callId) {
+        return callId != null && callId.startsWith(NATIVE_CALL_PREFIX);
+    }
+
+    /**
+     * Duration in seconds of the outgoing call to phoneNumber placed after callInitiatedTime,
+     * falling back to the most recent outgoing call since then. 0 if none or no permission.
+     */
+    static int callLogDuration(Context context, String phoneNumber, long callInitiatedTime) {
+        int duration = 0;
+
+        // Check READ_CALL_LOG permission
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_CALL_LOG)
+            == PackageManager.PERMISSION_GRANTED) {
+
+            // First try by phone number
+            // IMPORTANT: Only look for calls that happened AFTER we initiated the call
+            // This prevents picking up old call durations from previous conversations
+            String selection = CallLog.Calls.TYPE + " = ? AND " + CallLog.Calls.DATE + " > ?";
+            String[] selectionArgs = new String[]{
+                String.valueOf(CallLog.Calls.OUTGOING_TYPE),
+                String.valueOf(callInitiatedTime) // Use callInitiatedTime, not tenMinutesAgo
+            };
+            String sortOrder = CallLog.Calls.DATE + " DESC";
+
+            Cursor cursor = context.getContentResolver().query(
+                CallLog.Calls.CONTENT_URI,
+                new String[]{CallLog.Calls.NUMBER, CallLog.Calls.DURATION, CallLog.Calls.DATE},
+                selection,
+                selectionArgs,
+                sortOrder
+            );
+
+            if (cursor != null) {
+                AlarmLog.d(TAG, "Found {} calls after initiation time", cursor.getCount());
+                int numberCol = cursor.getColumnIndexOrThrow(CallLog.Calls.NUMBER);
+                int durationCol = cursor.getColumnIndexOrThrow(CallLog.Calls.DURATION);
+                int dateCol = cursor.getColumnIndexOrThrow(CallLog.Calls.DATE);
+                boolean traceRows = AlarmLog.isDebugEnabled();
+                while (cursor.moveToNext() && duration == 0) {
+                    String number = cursor.getString(numberCol);
+                    int callDuration = cursor.getInt(durationCol);
+
+                    if (traceRows) {
+                        AlarmLog.d(TAG, "Call in log: {}, duration: {}s, date: {}",
+                            number, callDuration, cursor.getLong(dateCol));
+                    }
+
+                    if (PhoneNumbers.sameNumber(phoneNumber, number)) {
+                        duration = callDuration;
+                        AlarmLog.d(TAG, "Found matching call duration: {}s", duration);
+                    }
+                }
+                cursor.close();
+            }
+
+            // If still 0 and we found calls, take the most recent one that was made after initiation
+            if (duration == 0) {
+                AlarmLog.d(TAG, "No matching number found, trying most recent call after initiation");
+                cursor = context.getContentResolver().query(
+                    CallLog.Calls.CONTENT_URI,
+                    new String[]{CallLog.Calls.DURATION, CallLog.Calls.DATE, CallLog.Calls.NUMBER},
+                    selection,
+                    selectionArgs,
+                    sortOrder
+                );
+
+                if (cursor != null && cursor.moveToFirst()) {
+                    duration = cursor.getInt(cursor.getColumnIndexOrThrow(CallLog.Calls.DURATION));
+                    AlarmLog.d(TAG, "Using most recent call after initiation, duration: {}s", duration);
+                } else {
+                    AlarmLog.d(TAG, "No calls found after initiation time");
+                }
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        }
+        return duration;
+    }
+}
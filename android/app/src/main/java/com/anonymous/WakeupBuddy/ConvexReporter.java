@@ -0,0 +1,576 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.AtomicFile;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts wake-ups and buddy call results straight to Convex, without the JS runtime.
+ *
+ * AlarmActivity and the call listener queue a report here; a single worker thread
+ * persists the queue to disk, waits BATCH_DELAY_MS so reports made together go out
+ * together, and sends every due report in one nativeReports:submit mutation over
+ * /api/mutation. HttpURLConnection keeps the connection alive in the process-wide
+ * pool as long as each response is read to the end and the connection is not
+ * disconnected. Failed batches are retried with exponential backoff, from the disk
+ * queue if the process died meanwhile, and immediately when a network comes back.
+ * The server applies each report id at most once, so a retried batch is harmless.
+ *
+ * Nothing is sent until JS calls configure() with the deployment URL and the
+ * signed-in user; until then JS keeps reporting through drainDismissals as before.
+ */
+public class ConvexReporter {
+    private static final String TAG = "ConvexReporter";
+    private static final String PREFS_NAME = "WakeupBuddyReporter";
+    private static final String KEY_URL = "deploymentUrl";
+    private static final String KEY_EMAIL = "userEmail";
+    static final String QUEUE_FILE = "convex_reports.json";
+    static final String SUBMIT_PATH = "nativeReports:submit";
+
+    public static final String WAKEUP = "wakeup";
+    public static final String CALL_RESULT = "callResult";
+    public static final String ALARM_ENABLED = "alarmEnabled";
+    public static final String BUDDY_CALL = "buddyCall";
+
+    static final int BATCH_MAX = 20;
+    static final int MAX_ATTEMPTS = 20;
+    static final long BATCH_DELAY_MS = 500;
+    static final long BASE_BACKOFF_MS = 5_000;
+    static final long MAX_BACKOFF_MS = 30 * 60_000;
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+
+    static class Report {
+        String id;
+        String kind;
+        JSONObject args;
+        long createdAt;
+        int attempts;
+        long nextAttemptAt;
+    }
+
+    private static ConvexReporter instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final AtomicFile file;
+    private final Handler worker;
+    private final Runnable flushRunnable = this::flush;
+
+    // Only touched on the worker thread
+    private List<Report> queue;
+    private ConnectivityManager.NetworkCallback networkCallback;
+    private boolean offline;
+
+    public static synchronized ConvexReporter get(Context context) {
+        if (instance == null) {
+            instance = new ConvexReporter(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Package-private so the tests can start from a fresh instance over the same files
+    ConvexReporter(Context context) {
+        this.context = context;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.file = new AtomicFile(new File(context.getFilesDir(), QUEUE_FILE));
+        HandlerThread thread = new HandlerThread("ConvexReporter");
+        thread.start();
+        worker = new Handler(thread.getLooper());
+        // Pick up anything left over from a previous process
+        worker.post(flushRunnable);
+    }
+
+    /**
+     * Set the Convex deployment URL and the signed-in user. Pass null for either to
+     * stop native reporting (e.g. on sign-out); queued reports stay on disk.
+     */
+    public void configure(String deploymentUrl, String userEmail) {
+        SharedPreferences.Editor editor = prefs.edit();
+        if (deploymentUrl == null || deploymentUrl.isEmpty() || userEmail == null || userEmail.isEmpty()) {
+            editor.remove(KEY_URL).remove(KEY_EMAIL);
+        } else {
+            editor.putString(KEY_URL, deploymentUrl).putString(KEY_EMAIL, userEmail);
+        }
+        editor.apply();
+        flushSoon();
+    }
+
+    public boolean isConfigured() {
+        return prefs.getString(KEY_URL, null) != null && prefs.getString(KEY_EMAIL, null) != null;
+    }
+
+    /**
+     * Queue a dismissal recorded by AlarmActivity. Once the report is on disk the
+     * DismissalStore record is acknowledged, so JS's drainDismissals does not report
+     * it a second time. Returns false (and leaves the record to JS) if not configured.
+     */
+    public boolean reportWakeup(DismissalStore.Dismissal dismissal) {
+        String userEmail = prefs.getString(KEY_EMAIL, null);
+        if (userEmail == null || !isConfigured()) return false;
+
+        try {
+            JSONObject args = new JSONObject();
+            args.put("userEmail", userEmail);
+            args.put("userDate", utcDate(dismissal.dismissedAt));
+            args.put("dismissedAt", dismissal.dismissedAt);
+            // The server finds the alarm by id, or by its time for alarms without one
+            if (dismissal.alarmId != null) {
+                args.put("alarmId", dismissal.alarmId);
+            }
+            if (dismissal.time != null && dismissal.ampm != null) {
+                args.put("alarmTime", dismissal.time);
+                args.put("alarmAmpm", dismissal.ampm);
+            }
+            // The same alarmId rings every day, so the dismissal time is part of the id
+            String id = WAKEUP + ":" + dismissal.key + ":" + dismissal.dismissedAt;
+            enqueue(id, WAKEUP, args, () ->
+                DismissalStore.acknowledge(context, Collections.singletonList(dismissal.key)));
+            return true;
+        } catch (JSONException e) {
+            AlarmLog.e(TAG, "Failed to build wake-up report", e);
+            return false;
+        }
+    }
+
+    /**
+     * Queue the result of a buddy call placed for callId. Returns false if not configured.
+     */
+    public boolean reportCallResult(String callId, int durationSeconds, long endedAt) {
+        String userEmail = prefs.getString(KEY_EMAIL, null);
+        if (userEmail == null || !isConfigured()) return false;
+
+        try {
+            JSONObject args = new JSONObject();
+            args.put("userEmail", userEmail);
+            args.put("callId", callId);
+            args.put("duration", durationSeconds);
+            args.put("date", utcDate(endedAt));
+            enqueue(CALL_RESULT + ":" + callId, CALL_RESULT, args, null);
+            return true;
+        } catch (JSONException e) {
+            AlarmLog.e(TAG, "Failed to build call report", e);
+            return false;
+        }
+    }
+
+    /**
+     * Queue the result of a buddy call placed from the alarm screen, which has no call
+     * record yet; the server creates it for alarmId and buddyEmail once and finds it
+     * again by callKey, the native pending call id, so a retried report settles the
+     * same record. Returns false if not configured.
+     */
+    public boolean reportBuddyCall(String callKey, String alarmId, String buddyEmail, int durationSeconds, long endedAt) {
+        String userEmail = prefs.getString(KEY_EMAIL, null);
+        if (userEmail == null || !isConfigured()) return false;
+
+        try {
+            JSONObject args = new JSONObject();
+            args.put("userEmail", userEmail);
+            args.put("callKey", callKey);
+            args.put("buddyEmail", buddyEmail);
+            args.put("alarmId", alarmId);
+            args.put("duration", durationSeconds);
+            args.put("date", utcDate(endedAt));
+            enqueue(BUDDY_CALL + ":" + callKey, BUDDY_CALL, args, null);
+            return true;
+        } catch (JSONException e) {
+            AlarmLog.e(TAG, "Failed to build buddy call report", e);
+            return false;
+        }
+    }
+
+    /**
+     * Queue an alarm switched on or off without JS (the home-screen widget's Cancel),
+     * so the alarms list matches what is armed. Returns false if not configured.
+     */
+    public boolean reportAlarmEnabled(String alarmId, boolean enabled) {
+        String userEmail = prefs.getString(KEY_EMAIL, null);
+        if (userEmail == null || !isConfigured()) return false;
+
+        try {
+            JSONObject args = new JSONObject();
+            args.put("userEmail", userEmail);
+            args.put("alarmId", alarmId);
+            args.put("enabled", enabled);
+            enqueue(ALARM_ENABLED + ":" + alarmId + ":" + System.currentTimeMillis(), ALARM_ENABLED, args, null);
+            return true;
+        } catch (JSONException e) {
+            AlarmLog.e(TAG, "Failed to build alarm report", e);
+            return false;
+        }
+    }
+
+    /**
+     * Send due reports shortly; reports queued in the meantime join the same request
+     */
+    public void flushSoon() {
+        worker.removeCallbacks(flushRunnable);
+        worker.postDelayed(flushRunnable, BATCH_DELAY_MS);
+    }
+
+    /**
+     * Number of reports not yet delivered. Must not be called on the main thread.
+     */
+    public int pendingCount() {
+        final int[] count = new int[1];
+        runOnWorker(() -> count[0] = load().size());
+        return count[0];
+    }
+
+    /**
+     * Make every queued report due and send now, waiting for the attempt to finish.
+     * Must not be called on the main thread.
+     */
+    void retryNow() {
+        runOnWorker(() -> {
+            for (Report report : load()) report.nextAttemptAt = 0;
+            flush();
+        });
+    }
+
+    private void enqueue(String id, String kind, JSONObject args, Runnable onPersisted) {
+        long now = System.currentTimeMillis();
+        worker.post(() -> {
+            List<Report> reports = load();
+            for (Report existing : reports) {
+                if (existing.id.equals(id)) {
+                    AlarmLog.d(TAG, "Report {} already queued", id);
+                    if (onPersisted != null) onPersisted.run();
+                    return;
+                }
+            }
+            Report report = new Report();
+            report.id = id;
+            report.kind = kind;
+            report.args = args;
+            report.createdAt = now;
+            reports.add(report);
+            if (save() && onPersisted != null) {
+                onPersisted.run();
+            }
+            AlarmLog.i(TAG, "Queued {} ({} pending)", id, reports.size());
+            flushSoon();
+        });
+    }
+
+    // Worker thread
+    private void flush() {
+        worker.removeCallbacks(flushRunnable);
+        List<Report> reports = load();
+        if (reports.isEmpty()) {
+            watchNetwork(false);
+            return;
+        }
+
+        String deploymentUrl = prefs.getString(KEY_URL, null);
+        if (deploymentUrl == null) {
+            // configure() flushes again once JS has signed in
+            AlarmLog.d(TAG, "Not configured; holding {} report(s)", reports.size());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<Report> batch = new ArrayList<>();
+        for (Report report : reports) {
+            if (report.nextAttemptAt <= now) {
+                batch.add(report);
+                if (batch.size() == BATCH_MAX) break;
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                Map<String, JSONObject> results = post(deploymentUrl, batch);
+                for (Report report : batch) {
+                    JSONObject result = results.get(report.id);
+                    if (result == null) {
+                        retryLater(report, now);
+                        continue;
+                    }
+                    reports.remove(report);
+                    delivered(report, result);
+                }
+            } catch (IOException | JSONException e) {
+                AlarmLog.w(TAG, "Report batch failed, will retry", e);
+                for (Report report : batch) {
+                    retryLater(report, now);
+                }
+            }
+            save();
+        }
+
+        scheduleNext(reports, now);
+    }
+
+    private void retryLater(Report report, long now) {
+        report.attempts++;
+        if (report.attempts >= MAX_ATTEMPTS) {
+            AlarmLog.e(TAG, "Dropping report {} after too many attempts", report.id);
+            queue.remove(report);
+            return;
+        }
+        report.nextAttemptAt = now + backoffMs(report.attempts);
+    }
+
+    private void delivered(Report report, JSONObject result) {
+        String status = result.optString("status");
+        if ("error".equals(status)) {
+            // Rejected by the server (unknown user, deleted call); retrying cannot help
+            AlarmLog.w(TAG, "Report {} rejected: {}", report.id, result.optString("message"));
+        } else {
+            AlarmLog.i(TAG, "Delivered {} ({})", report.id, status);
+        }
+
+        Bundle event = new Bundle();
+        event.putString("id", report.id);
+        event.putString("kind", report.kind);
+        event.putString("status", status);
+        JSONObject value = result.optJSONObject("result");
+        if (value != null) {
+            event.putString("result", value.toString());
+        }
+        NativeEventBus.get().post(NativeEventBus.REPORT_DELIVERED, report.id, event);
+    }
+
+    private void scheduleNext(List<Report> reports, long now) {
+        if (reports.isEmpty()) {
+            watchNetwork(false);
+            return;
+        }
+        long next = Long.MAX_VALUE;
+        for (Report report : reports) {
+            next = Math.min(next, report.nextAttemptAt);
+        }
+        worker.postDelayed(flushRunnable, Math.max(0, next - now));
+        // Backed-off reports go out as soon as a network is available again
+        watchNetwork(next > now);
+    }
+
+    /**
+     * Exponential backoff with jitter: half the step is fixed, the other half random
+     */
+    static long backoffMs(int attempts) {
+        long step = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts - 1, 20));
+        return step / 2 + ThreadLocalRandom.current().nextLong(step / 2 + 1);
+    }
+
+    // ---- HTTP ----
+
+    private Map<String, JSONObject> post(String deploymentUrl, List<Report> batch) throws IOException, JSONException {
+        JSONArray items = new JSONArray();
+        for (Report report : batch) {
+            items.put(new JSONObject()
+                .put("id", report.id)
+                .put("kind", report.kind)
+                .put("args", report.args));
+        }
+        JSONObject body = new JSONObject()
+            .put("path", SUBMIT_PATH)
+            .put("args", new JSONObject().put("reports", items))
+            .put("format", "json");
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(endpoint(deploymentUrl)).openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setDoOutput(true);
+        conn.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(bytes);
+        }
+
+        // Read the whole body (error body included) and do not disconnect(), so the
+        // connection goes back to the keep-alive pool for the next batch
+        int code = conn.getResponseCode();
+        String response = readFully(code >= 400 ? conn.getErrorStream() : conn.getInputStream());
+        if (code >= 500 || code == 429) {
+            throw new IOException("HTTP " + code);
+        }
+
+        JSONObject json = new JSONObject(response);
+        if (!"success".equals(json.optString("status"))) {
+            // Includes a backend without nativeReports deployed yet, so keep retrying
+            throw new IOException("HTTP " + code + ": " + json.optString("errorMessage"));
+        }
+
+        Map<String, JSONObject> results = new HashMap<>();
+        JSONArray array = json.getJSONObject("value").getJSONArray("results");
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject result = array.getJSONObject(i);
+            results.put(result.getString("id"), result);
+        }
+        return results;
+    }
+
+    static String endpoint(String deploymentUrl) {
+        String base = deploymentUrl.endsWith("/") ? deploymentUrl.substring(0, deploymentUrl.length() - 1) : deploymentUrl;
+        return base + "/api/mutation";
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        if (in == null) return "";
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toString("UTF-8");
+        }
+    }
+
+    // ---- Network ----
+
+    // Worker thread
+    private void watchNetwork(boolean watch) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) return;
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return;
+
+        if (watch && networkCallback == null) {
+            // onAvailable also fires right away for the current network; only a network
+            // coming back after being lost cuts the backoff short
+            offline = cm.getActiveNetwork() == null;
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    if (!offline) return;
+                    offline = false;
+                    for (Report report : load()) report.nextAttemptAt = 0;
+                    flushSoon();
+                }
+
+                @Override
+                public void onLost(Network network) {
+                    offline = true;
+                }
+            };
+            try {
+                cm.registerDefaultNetworkCallback(networkCallback, worker);
+            } catch (RuntimeException e) {
+                AlarmLog.w(TAG, "Could not watch the network", e);
+                networkCallback = null;
+            }
+        } else if (!watch && networkCallback != null) {
+            try {
+                cm.unregisterNetworkCallback(networkCallback);
+            } catch (RuntimeException e) {
+                AlarmLog.w(TAG, "Network callback was not registered", e);
+            }
+            networkCallback = null;
+        }
+    }
+
+    // ---- Disk queue ----
+
+    // Worker thread
+    private List<Report> load() {
+        if (queue != null) return queue;
+        queue = new ArrayList<>();
+        try {
+            JSONArray array = new JSONArray(new String(file.readFully(), StandardCharsets.UTF_8));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                Report report = new Report();
+                report.id = item.getString("id");
+                report.kind = item.getString("kind");
+                report.args = item.getJSONObject("args");
+                report.createdAt = item.optLong("createdAt");
+                report.attempts = item.optInt("attempts");
+                report.nextAttemptAt = item.optLong("nextAttemptAt");
+                queue.add(report);
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing queued yet
+        } catch (IOException | JSONException e) {
+            AlarmLog.w(TAG, "Discarding unreadable report queue", e);
+        }
+        return queue;
+    }
+
+    // Worker thread; returns whether the queue is on disk
+    private boolean save() {
+        FileOutputStream out = null;
+        try {
+            JSONArray array = new JSONArray();
+            for (Report report : queue) {
+                array.put(new JSONObject()
+                    .put("id", report.id)
+                    .put("kind", report.kind)
+                    .put("args", report.args)
+                    .put("createdAt", report.createdAt)
+                    .put("attempts", report.attempts)
+                    .put("nextAttemptAt", report.nextAttemptAt));
+            }
+            out = file.startWrite();
+            out.write(array.toString().getBytes(StandardCharsets.UTF_8));
+            file.finishWrite(out);
+            return true;
+        } catch (IOException | JSONException e) {
+            if (out != null) file.failWrite(out);
+            AlarmLog.e(TAG, "Failed to persist report queue", e);
+            return false;
+        }
+    }
+
+    private void runOnWorker(Runnable task) {
+        final CountDownLatch done = new CountDownLatch(1);
+        worker.post(() -> {
+            try {
+                task.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        try {
+            done.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The UTC calendar date, as the JS flow's toISOString().split('T')[0], so a wake-up
+    // near midnight lands on the same streak day whichever side reports it
+    private static String utcDate(long epochMs) {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.setTimeInMillis(epochMs);
+        return String.format(Locale.US, "%04d-%02d-%02d",
+            cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+    }
+}
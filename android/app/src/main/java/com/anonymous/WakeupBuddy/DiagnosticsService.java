@@ -0,0 +1,39 @@
+package com.anonymous.WakeupBuddy;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.IBinder;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+/**
+ * dumpsys target for when no alarm is ringing. dumpsys only reaches running
+ * services, so start it first; it does nothing and stays until the process dies.
+ * The temporary allowlist lets the shell start it while the app is in the background:
+ *
+ *   adb shell cmd deviceidle tempwhitelist com.anonymous.WakeupBuddy
+ *   adb shell am start-service com.anonymous.WakeupBuddy/.DiagnosticsService
+ *   adb shell dumpsys activity service com.anonymous.WakeupBuddy/.DiagnosticsService
+ *
+ * Started fresh, the process has little in memory to show; append --full to the
+ * dumpsys command for the persisted alarms and the rest read from disk.
+ *
+ * Exported behind the DUMP permission, which the shell holds and apps cannot get.
+ */
+public class DiagnosticsService extends Service {
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        AlarmDiagnostics.dump(this, writer, args);
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+}
@@ -0,0 +1,121 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.anonymous.WakeupBuddy.core.AlarmTimes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Durable record of alarms dismissed on the native alarm screen.
+ *
+ * AlarmActivity writes here the moment "I'm Awake" is tapped, so the wake-up is
+ * never lost if React Native is not running. JS drains the pending records in one
+ * batch when it next starts and acknowledges them once they reached Convex.
+ * Records are keyed by alarmId and the time the ring was scheduled for, so a
+ * repeated tap or a re-delivered intent cannot produce a second record, while
+ * the next day's ring of the same alarm still gets its own.
+ */
+public class DismissalStore {
+    private static final String TAG = "DismissalStore";
+    private static final String PREFS_NAME = "WakeupBuddyDismissals";
+    private static final String KEY_PREFIX = "dismissal_";
+
+    public static class Dismissal {
+        public String key;
+        public String alarmId;
+        public String buddyEmail;
+        public long alarmTime;
+        public long dismissedAt;
+        public String time;
+        public String ampm;
+    }
+
+    public static String keyFor(String alarmId, long alarmTime) {
+        return alarmId != null && !alarmId.isEmpty() ? alarmId + "_" + alarmTime : "t" + alarmTime;
+    }
+
+    /**
+     * Record a dismissal. Returns false if this ring of the alarm was already recorded.
+     */
+    public static synchronized boolean record(Context ctx, String alarmId, String buddyEmail, long alarmTime) {
+        String key = keyFor(alarmId, alarmTime);
+        SharedPreferences prefs = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.contains(KEY_PREFIX + key)) {
+            AlarmLog.i(TAG, "Dismissal already recorded for {}", key);
+            return false;
+        }
+
+        // Stored as: dismissedAt|alarmTime|alarmId|buddyEmail|time|ampm
+        String time = "";
+        String ampm = "";
+        if (alarmTime > 0) {
+            // Same time format the alarms table uses (e.g. "5:43" and "PM")
+            TimeZone zone = TimeZone.getDefault();
+            time = AlarmTimes.clockTime(alarmTime, zone);
+            ampm = AlarmTimes.amPm(alarmTime, zone);
+        }
+        String value = System.currentTimeMillis() + "|" + alarmTime + "|"
+            + (alarmId != null ? alarmId : "") + "|"
+            + (buddyEmail != null ? buddyEmail : "") + "|"
+            + time + "|" + ampm;
+
+        // apply() is flushed before the activity finishes stopping, so the write
+        // survives the process being killed right after the tap
+        prefs.edit().putString(KEY_PREFIX + key, value).apply();
+        AlarmLog.i(TAG, "Recorded dismissal {}", key);
+        return true;
+    }
+
+    public static synchronized Dismissal get(Context ctx, String key) {
+        SharedPreferences prefs = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return decode(key, prefs.getString(KEY_PREFIX + key, null));
+    }
+
+    /**
+     * All dismissals not yet acknowledged by JS, oldest first
+     */
+    public static synchronized List<Dismissal> pending(Context ctx) {
+        SharedPreferences prefs = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        List<Dismissal> result = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(KEY_PREFIX) || !(entry.getValue() instanceof String)) continue;
+            Dismissal d = decode(entry.getKey().substring(KEY_PREFIX.length()), (String) entry.getValue());
+            if (d != null) result.add(d);
+        }
+        result.sort((a, b) -> Long.compare(a.dismissedAt, b.dismissedAt));
+        return result;
+    }
+
+    public static synchronized void acknowledge(Context ctx, List<String> keys) {
+        SharedPreferences.Editor editor = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit();
+        for (String key : keys) {
+            editor.remove(KEY_PREFIX + key);
+        }
+        editor.apply();
+    }
+
+    private static Dismissal decode(String key, String value) {
+        if (value == null) return null;
+        String[] parts = value.split("\\|", -1);
+        if (parts.length < 6) return null;
+        try {
+            Dismissal d = new Dismissal();
+            d.key = key;
+            d.dismissedAt = Long.parseLong(parts[0]);
+            d.alarmTime = Long.parseLong(parts[1]);
+            d.alarmId = parts[2].isEmpty() ? null : parts[2];
+            d.buddyEmail = parts[3].isEmpty() ? null : parts[3];
+            d.time = parts[4].isEmpty() ? null : parts[4];
+            d.ampm = parts[5].isEmpty() ? null : parts[5];
+            return d;
+        } catch (NumberFormatException e) {
+            AlarmLog.w(TAG, "Dropping unreadable dismissal {}", key);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.anonymous.WakeupBuddy;
+
+import android.Manifest;
+import android.app.AlarmManager;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.usage.UsageStatsManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.PowerManager;
+import android.provider.Settings;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+/**
+ * Cached snapshot of the permissions and system settings the alarm flow depends on.
+ *
+ * The snapshot is computed once and then refreshed only when something can have
+ * changed: the relevant system broadcasts (exact alarm permission, power save, doze,
+ * notification blocking) and the app coming back to the foreground (the user may
+ * have been in a settings screen). A refresh that finds a difference posts
+ * EnvironmentChanged on the NativeEventBus with the new snapshot and the changed keys.
+ */
+public class EnvironmentMonitor {
+    private static final String TAG = "EnvironmentMonitor";
+
+    /** alarmChannelImportance before AlarmService has created its channel */
+    public static final int CHANNEL_NOT_CREATED = -1;
+
+    private static EnvironmentMonitor instance;
+
+    private final Context context;
+    private Bundle snapshot;
+    private BroadcastReceiver receiver;
+    private long refreshes = 0;
+
+    private EnvironmentMonitor(Context context) {
+        this.context = context;
+    }
+
+    public static synchronized EnvironmentMonitor get(Context context) {
+        if (instance == null) {
+            instance = new EnvironmentMonitor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Current snapshot; computed on first use, then served from cache
+     */
+    public Bundle snapshot() {
+        synchronized (this) {
+            if (snapshot != null) return new Bundle(snapshot);
+        }
+        Bundle fresh = compute();
+        synchronized (this) {
+            if (snapshot == null) snapshot = fresh;
+            return new Bundle(snapshot);
+        }
+    }
+
+    /**
+     * Recompute, and post EnvironmentChanged if anything differs from the cached snapshot
+     */
+    public void refresh(String reason) {
+        Bundle fresh = compute();
+        Bundle previous;
+        synchronized (this) {
+            previous = snapshot;
+            snapshot = fresh;
+            refreshes++;
+        }
+        if (previous == null) return;
+
+        ArrayList<String> changed = changedKeys(previous, fresh);
+        if (changed.isEmpty()) return;
+
+        AlarmLog.i(TAG, "Environment changed ({}): {}", reason, changed);
+        Bundle event = new Bundle(fresh);
+        event.putStringArrayList("changed", changed);
+        NativeEventBus.get().post(NativeEventBus.ENVIRONMENT_CHANGED, "environment", event);
+    }
+
+    /**
+     * Start listening for the system broadcasts that can change the snapshot
+     */
+    public synchronized void start() {
+        if (receiver != null) return;
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context ctx, Intent intent) {
+                refresh(intent.getAction());
+            }
+        };
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            filter.addAction(PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            filter.addAction(NotificationManager.ACTION_APP_BLOCK_STATE_CHANGED);
+            filter.addAction(NotificationManager.ACTION_NOTIFICATION_CHANNEL_BLOCK_STATE_CHANGED);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            filter.addAction(AlarmManager.ACTION_SCHEDULE_EXACT_ALARM_PERMISSION_STATE_CHANGED);
+        }
+        // System broadcasts only, so the receiver need not be exported
+        ContextCompat.registerReceiver(context, receiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+    }
+
+    public synchronized void stop() {
+        if (receiver == null) return;
+        try {
+            context.unregisterReceiver(receiver);
+        } catch (IllegalArgumentException e) {
+            AlarmLog.w(TAG, "Environment receiver was not registered", e);
+        }
+        receiver = null;
+    }
+
+    public synchronized long refreshCount() {
+        return refreshes;
+    }
+
+    private Bundle compute() {
+        Bundle b = new Bundle();
+        b.putBoolean("canScheduleExactAlarms", canScheduleExactAlarms(context));
+        b.putBoolean("batteryOptimizationDisabled", isBatteryOptimizationDisabled(context));
+        b.putBoolean("canDrawOverlays", canDrawOverlays(context));
+        b.putBoolean("canUseFullScreenIntent", canUseFullScreenIntent(context));
+        b.putBoolean("hasCallPermission", hasPermission(context, Manifest.permission.CALL_PHONE));
+        b.putBoolean("hasReadPhoneStatePermission", hasPermission(context, Manifest.permission.READ_PHONE_STATE));
+        b.putBoolean("hasReadCallLogPermission", hasPermission(context, Manifest.permission.READ_CALL_LOG));
+
+        NotificationManager nm = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        b.putBoolean("notificationsEnabled", nm == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.N || nm.areNotificationsEnabled());
+        b.putInt("alarmChannelImportance", alarmChannelImportance(nm));
+
+        int bucket = standbyBucket(context);
+        b.putInt("standbyBucket", bucket);
+        b.putString("standbyBucketName", standbyBucketName(bucket));
+
+        PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        b.putBoolean("powerSaveMode", pm != null && pm.isPowerSaveMode());
+        b.putDouble("updatedAt", System.currentTimeMillis());
+        return b;
+    }
+
+    // ---- Individual checks, also used by AlarmModule's synchronous getters ----
+
+    public static boolean canScheduleExactAlarms(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            return am != null && am.canScheduleExactAlarms();
+        }
+        // Pre-Android 12, always allowed
+        return true;
+    }
+
+    public static boolean isBatteryOptimizationDisabled(Context context) {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+                return pm != null && pm.isIgnoringBatteryOptimizations(context.getPackageName());
+            }
+            // Pre-Android 6.0, battery optimization doesn't exist
+            return true;
+        } catch (Exception e) {
+            AlarmLog.w(TAG, "Battery optimization check failed", e);
+            return false;
+        }
+    }
+
+    public static boolean canDrawOverlays(Context context) {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                return Settings.canDrawOverlays(context);
+            }
+            // Pre-Android 6.0, always allowed
+            return true;
+        } catch (Exception e) {
+            AlarmLog.w(TAG, "Overlay permission check failed", e);
+            return false;
+        }
+    }
+
+    public static boolean canUseFullScreenIntent(Context context) {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) { // API 34+
+                NotificationManager nm = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+                return nm != null && nm.canUseFullScreenIntent();
+            }
+            // Pre-Android 14, permission is granted by default if declared in manifest
+            return true;
+        } catch (Exception e) {
+            AlarmLog.w(TAG, "Full screen intent check failed", e);
+            return false;
+        }
+    }
+
+    public static boolean hasPermission(Context context, String permission) {
+        return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private static int alarmChannelImportance(NotificationManager nm) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return NotificationManager.IMPORTANCE_HIGH;
+        }
+        if (nm == null) return CHANNEL_NOT_CREATED;
+        NotificationChannel channel = nm.getNotificationChannel(AlarmService.CHANNEL_ID);
+        return channel != null ? channel.getImportance() : CHANNEL_NOT_CREATED;
+    }
+
+    private static int standbyBucket(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+            return UsageStatsManager.STANDBY_BUCKET_ACTIVE;
+        }
+        UsageStatsManager usm = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        return usm != null ? usm.getAppStandbyBucket() : UsageStatsManager.STANDBY_BUCKET_ACTIVE;
+    }
+
+    private static String standbyBucketName(int bucket) {
+        if (bucket <= UsageStatsManager.STANDBY_BUCKET_ACTIVE) return "active";
+        if (bucket <= UsageStatsManager.STANDBY_BUCKET_WORKING_SET) return "working_set";
+        if (bucket <= UsageStatsManager.STANDBY_BUCKET_FREQUENT) return "frequent";
+        if (bucket <= UsageStatsManager.STANDBY_BUCKET_RARE) return "rare";
+        return "restricted";
+    }
+
+    // updatedAt always differs and is not a change in itself
+    private static ArrayList<String> changedKeys(Bundle previous, Bundle fresh) {
+        ArrayList<String> changed = new ArrayList<>();
+        for (String key : fresh.keySet()) {
+            if (key.equals("updatedAt")) continue;
+            if (!previous.containsKey(key) || !Objects.equals(previous.get(key), fresh.get(key))) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,255 @@
+package com.anonymous.WakeupBuddy;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+/**
+ * Records FrameMetrics for the first frames of AlarmActivity plus the time from
+ * AlarmReceiver.onReceive to the first rendered frame.
+ *
+ * Each alarm session is reduced to a handful of numbers and stored in a small
+ * ring buffer in SharedPreferences, so AlarmModule can report an aggregated
+ * summary to JS long after the alarm process has gone away.
+ */
+public class FrameMetricsRecorder {
+    private static final String TAG = "FrameMetricsRecorder";
+    private static final String PREFS_NAME = "WakeupBuddyFrameMetrics";
+    private static final String KEY_HEAD = "head";
+    private static final String KEY_SESSION_PREFIX = "session_";
+
+    // Intent extra set by AlarmReceiver with SystemClock.elapsedRealtimeNanos()
+    public static final String EXTRA_FIRED_AT_NANOS = "firedAtElapsedNanos";
+
+    static final int FRAMES_PER_SESSION = 10;
+    static final int MAX_SESSIONS = 20;
+    // A frame slower than this missed at least one 60Hz vsync
+    private static final long JANK_THRESHOLD_NS = 16_666_667L;
+
+    private final Activity activity;
+    private final long firedAtNanos;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private Window.OnFrameMetricsAvailableListener listener;
+
+    private int frames = 0;
+    private int jankyFrames = 0;
+    private long ttffNanos = -1;
+    private long layoutMeasureSum = 0;
+    private long layoutMeasureMax = 0;
+    private long drawSum = 0;
+    private long drawMax = 0;
+    private long totalSum = 0;
+    private long totalMax = 0;
+    private boolean finished = false;
+
+    public FrameMetricsRecorder(Activity activity, long firedAtNanos) {
+        this.activity = activity;
+        this.firedAtNanos = firedAtNanos;
+    }
+
+    public void start() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return;
+        }
+        listener = (window, frameMetrics, dropCount) -> onFrame(frameMetrics);
+        activity.getWindow().addOnFrameMetricsAvailableListener(listener, handler);
+    }
+
+    private void onFrame(FrameMetrics metrics) {
+        if (finished) return;
+
+        long layoutMeasure = metrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION);
+        long draw = metrics.getMetric(FrameMetrics.DRAW_DURATION);
+        long total = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+
+        if (frames == 0 && firedAtNanos > 0) {
+            // FrameMetrics timestamps use the System.nanoTime() clock while the receiver
+            // stamped elapsedRealtimeNanos(), so measure how long ago the frame ended and
+            // subtract that from "now" on the receiver's clock.
+            long frameEnd = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? metrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP) + total
+                : System.nanoTime();
+            long sinceFrameEnd = Math.max(0, System.nanoTime() - frameEnd);
+            ttffNanos = SystemClock.elapsedRealtimeNanos() - sinceFrameEnd - firedAtNanos;
+        }
+
+        frames++;
+        layoutMeasureSum += layoutMeasure;
+        layoutMeasureMax = Math.max(layoutMeasureMax, layoutMeasure);
+        drawSum += draw;
+        drawMax = Math.max(drawMax, draw);
+        totalSum += total;
+        totalMax = Math.max(totalMax, total);
+        if (total > JANK_THRESHOLD_NS) jankyFrames++;
+
+        if (frames >= FRAMES_PER_SESSION) {
+            // Removing the listener from inside its own callback is not safe on older releases
+            handler.post(this::finish);
+        }
+    }
+
+    /**
+     * Detach from the window and persist whatever was captured. Safe to call more
+     * than once, e.g. from onDestroy when fewer than FRAMES_PER_SESSION frames ran.
+     */
+    public void finish() {
+        if (finished) return;
+        finished = true;
+
+        if (listener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            try {
+                activity.getWindow().removeOnFrameMetricsAvailableListener(listener);
+            } catch (Exception e) {
+                AlarmLog.w(TAG, "Failed to remove frame metrics listener", e);
+            }
+            listener = null;
+        }
+
+        if (frames == 0) return;
+
+        Session session = new Session();
+        session.recordedAt = System.currentTimeMillis();
+        session.ttffMs = ttffNanos >= 0 ? ttffNanos / 1_000_000L : -1;
+        session.frames = frames;
+        session.jankyFrames = jankyFrames;
+        session.layoutMeasureAvgUs = layoutMeasureSum / frames / 1000;
+        session.layoutMeasureMaxUs = layoutMeasureMax / 1000;
+        session.drawAvgUs = drawSum / frames / 1000;
+        session.drawMaxUs = drawMax / 1000;
+        session.totalAvgUs = totalSum / frames / 1000;
+        session.totalMaxUs = totalMax / 1000;
+        save(activity, session);
+
+        AlarmLog.i(TAG, "Alarm screen: ttff={}ms, frames={}, totalAvg={}us, janky={}",
+            session.ttffMs, frames, session.totalAvgUs, jankyFrames);
+    }
+
+    // Write into the next ring buffer slot, overwriting the oldest session
+    private static synchronized void save(Context ctx, Session session) {
+        SharedPreferences prefs = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int head = prefs.getInt(KEY_HEAD, 0);
+        prefs.edit()
+            .putString(KEY_SESSION_PREFIX + head, session.encode())
+            .putInt(KEY_HEAD, (head + 1) % MAX_SESSIONS)
+            .apply();
+    }
+
+    /**
+     * Aggregate every stored session. Values are -1 when nothing has been recorded.
+     */
+    public static synchronized Summary readSummary(Context ctx) {
+        SharedPreferences prefs = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int head = prefs.getInt(KEY_HEAD, 0);
+        Summary summary = new Summary();
+
+        long ttffSum = 0;
+        int ttffCount = 0;
+        long totalAvgSum = 0;
+        long layoutAvgSum = 0;
+        long drawAvgSum = 0;
+        long latestAt = 0;
+
+        for (int i = 0; i < MAX_SESSIONS; i++) {
+            Session s = Session.decode(prefs.getString(KEY_SESSION_PREFIX + i, null));
+            if (s == null) continue;
+
+            summary.sessions++;
+            summary.frames += s.frames;
+            summary.jankyFrames += s.jankyFrames;
+            totalAvgSum += s.totalAvgUs;
+            layoutAvgSum += s.layoutMeasureAvgUs;
+            drawAvgSum += s.drawAvgUs;
+            summary.totalMaxUs = Math.max(summary.totalMaxUs, s.totalMaxUs);
+            summary.layoutMeasureMaxUs = Math.max(summary.layoutMeasureMaxUs, s.layoutMeasureMaxUs);
+            summary.drawMaxUs = Math.max(summary.drawMaxUs, s.drawMaxUs);
+
+            if (s.ttffMs >= 0) {
+                ttffSum += s.ttffMs;
+                ttffCount++;
+                summary.ttffMaxMs = Math.max(summary.ttffMaxMs, s.ttffMs);
+                summary.ttffMinMs = summary.ttffMinMs < 0 ? s.ttffMs : Math.min(summary.ttffMinMs, s.ttffMs);
+            }
+            if (s.recordedAt > latestAt) {
+                latestAt = s.recordedAt;
+                summary.latestTtffMs = s.ttffMs;
+                summary.latestRecordedAt = s.recordedAt;
+            }
+        }
+
+        if (summary.sessions > 0) {
+            summary.totalAvgUs = totalAvgSum / summary.sessions;
+            summary.layoutMeasureAvgUs = layoutAvgSum / summary.sessions;
+            summary.drawAvgUs = drawAvgSum / summary.sessions;
+        }
+        if (ttffCount > 0) {
+            summary.ttffAvgMs = ttffSum / ttffCount;
+        }
+        return summary;
+    }
+
+    public static class Summary {
+        public int sessions = 0;
+        public int frames = 0;
+        public int jankyFrames = 0;
+        public long ttffAvgMs = -1;
+        public long ttffMinMs = -1;
+        public long ttffMaxMs = -1;
+        public long latestTtffMs = -1;
+        public long latestRecordedAt = 0;
+        public long layoutMeasureAvgUs = -1;
+        public long layoutMeasureMaxUs = -1;
+        public long drawAvgUs = -1;
+        public long drawMaxUs = -1;
+        public long totalAvgUs = -1;
+        public long totalMaxUs = -1;
+    }
+
+    static class Session {
+        long recordedAt;
+        long ttffMs;
+        int frames;
+        int jankyFrames;
+        long layoutMeasureAvgUs;
+        long layoutMeasureMaxUs;
+        long drawAvgUs;
+        long drawMaxUs;
+        long totalAvgUs;
+        long totalMaxUs;
+
+        // Stored as: recordedAt|ttffMs|frames|janky|layoutAvg|layoutMax|drawAvg|drawMax|totalAvg|totalMax
+        String encode() {
+            return recordedAt + "|" + ttffMs + "|" + frames + "|" + jankyFrames + "|"
+                + layoutMeasureAvgUs + "|" + layoutMeasureMaxUs + "|"
+                + drawAvgUs + "|" + drawMaxUs + "|"
+                + totalAvgUs + "|" + totalMaxUs;
+        }
+
+        static Session decode(String value) {
+            if (value == null) return null;
+            String[] parts = value.split("\\|");
+            if (parts.length < 10) return null;
+            try {
+                Session s = new Session();
+                s.recordedAt = Long.parseLong(parts[0]);
+                s.ttffMs = Long.parseLong(parts[1]);
+                s.frames = Integer.parseInt(parts[2]);
+                s.jankyFrames = Integer.parseInt(parts[3]);
+                s.layoutMeasureAvgUs = Long.parseLong(parts[4]);
+                s.layoutMeasureMaxUs = Long.parseLong(parts[5]);
+                s.drawAvgUs = Long.parseLong(parts[6]);
+                s.drawMaxUs = Long.parseLong(parts[7]);
+                s.totalAvgUs = Long.parseLong(parts[8]);
+                s.totalMaxUs = Long.parseLong(parts[9]);
+                return s;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.AtomicFile;
+
+import com.anonymous.WakeupBuddy.core.DailyStatsTable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Wake-up statistics kept on the device, so the profile charts work offline and
+ * never need the full history from Convex.
+ *
+ * Every native dismissal adds one wake-up and its reaction time (alarm fire to
+ * dismissal) to today's slot, and every tracked buddy call adds its length; see
+ * DailyStatsTable. {@link #query} sums the table into the same windows as the Convex
+ * getChartData query: 7 days, 4 weeks or 12 months. Only wake-ups dismissed on this
+ * device since the table was introduced are counted.
+ */
+public class LocalStats {
+    private static final String TAG = "LocalStats";
+    static final String FILE_NAME = "daily_stats.bin";
+    private static final long WRITE_DELAY_MS = 250;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    /** One window as column arrays, one entry per bucket, oldest first */
+    public static class Result {
+        public final String range;
+        public final String[] labels;
+        // First day of each bucket, "YYYY-MM-DD"
+        public final String[] starts;
+        public final int[] wakeups;
+        public final long[] avgReactionMs;
+        public final int[] callSeconds;
+        public final DailyStatsTable.Window total;
+
+        Result(String range, int buckets, DailyStatsTable.Window total) {
+            this.range = range;
+            labels = new String[buckets];
+            starts = new String[buckets];
+            wakeups = new int[buckets];
+            avgReactionMs = new long[buckets];
+            callSeconds = new int[buckets];
+            this.total = total;
+        }
+    }
+
+    private static LocalStats instance;
+
+    private final AtomicFile file;
+    private final DailyStatsTable table = new DailyStatsTable();
+    private final Handler writer;
+    private final Runnable writeRunnable = this::write;
+    private boolean loaded = false;
+
+    public static synchronized LocalStats get(Context context) {
+        if (instance == null) {
+            instance = new LocalStats(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private LocalStats(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        HandlerThread thread = new HandlerThread("LocalStats");
+        thread.start();
+        writer = new Handler(thread.getLooper());
+    }
+
+    /** An alarm dismissed at dismissedAt; reactionMs is how long it rang, or -1 if unknown */
+    public void recordWakeup(long dismissedAt, long reactionMs) {
+        ensureLoaded();
+        table.recordWakeup(epochDay(dismissedAt), reactionMs);
+        scheduleWrite();
+    }
+
+    public void recordCall(long endedAt, int seconds) {
+        ensureLoaded();
+        table.recordCall(epochDay(endedAt), seconds);
+        scheduleWrite();
+    }
+
+    /**
+     * Windows ending today: "week" (or "day") is the last 7 days, "month" the last 4
+     * weeks, "year" the last 12 calendar months. Throws IllegalArgumentException for
+     * any other range.
+     */
+    public Result query(String range, long now) {
+        ensureLoaded();
+        long today = epochDay(now);
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        Result result;
+
+        switch (range) {
+            case "day":
+            case "week": {
+                result = new Result(range, 7, table.sum(today - 6, today));
+                SimpleDateFormat weekday = new SimpleDateFormat("EEE", Locale.US);
+                calendar.add(Calendar.DAY_OF_MONTH, -6);
+                for (int i = 0; i < 7; i++) {
+                    long day = today - 6 + i;
+                    fill(result, i, weekday.format(calendar.getTime()),
+                        dayFormat.format(calendar.getTime()), table.sum(day, day));
+                    calendar.add(Calendar.DAY_OF_MONTH, 1);
+                }
+                break;
+            }
+            case "month": {
+                result = new Result(range, 4, table.sum(today - 27, today));
+                calendar.add(Calendar.DAY_OF_MONTH, -27);
+                for (int i = 0; i < 4; i++) {
+                    long start = today - 27 + i * 7;
+                    fill(result, i, "W" + (i + 1), dayFormat.format(calendar.getTime()),
+                        table.sum(start, start + 6));
+                    calendar.add(Calendar.DAY_OF_MONTH, 7);
+                }
+                break;
+            }
+            case "year": {
+                SimpleDateFormat monthName = new SimpleDateFormat("MMM", Locale.US);
+                calendar.set(Calendar.DAY_OF_MONTH, 1);
+                calendar.add(Calendar.MONTH, -11);
+                result = new Result(range, 12, table.sum(epochDay(calendar.getTimeInMillis()), today));
+                for (int i = 0; i < 12; i++) {
+                    long start = epochDay(calendar.getTimeInMillis());
+                    String label = monthName.format(calendar.getTime());
+                    String startDate = dayFormat.format(calendar.getTime());
+                    calendar.add(Calendar.MONTH, 1);
+                    long end = Math.min(today, epochDay(calendar.getTimeInMillis()) - 1);
+                    fill(result, i, label, startDate, table.sum(start, end));
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown stats range: " + range);
+        }
+        return result;
+    }
+
+    private static void fill(Result result, int i, String label, String start, DailyStatsTable.Window window) {
+        result.labels[i] = label;
+        result.starts[i] = start;
+        result.wakeups[i] = window.wakeups;
+        result.avgReactionMs[i] = window.avgReactionMs();
+        result.callSeconds[i] = window.callSeconds;
+    }
+
+    // Days since 1970-01-01 in the device's current time zone
+    static long epochDay(long epochMs) {
+        return Math.floorDiv(epochMs + TimeZone.getDefault().getOffset(epochMs), DAY_MS);
+    }
+
+    private void scheduleWrite() {
+        writer.removeCallbacks(writeRunnable);
+        writer.postDelayed(writeRunnable, WRITE_DELAY_MS);
+    }
+
+    private synchronized void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        try {
+            table.decode(file.readFully());
+        } catch (FileNotFoundException e) {
+            // No wake-ups recorded yet
+        } catch (IOException e) {
+            AlarmLog.w(TAG, "Discarding unreadable stats", e);
+            file.delete();
+        }
+    }
+
+    private void write() {
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(table.encode());
+            file.finishWrite(out);
+        } catch (IOException e) {
+            if (out != null) file.failWrite(out);
+            AlarmLog.e(TAG, "Failed to write stats", e);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.anonymous.WakeupBuddy;
+
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Process-wide event bus between native alarm/call code and JS listeners.
+ *
+ * Events are delivered straight to JS when AlarmModule is attached and JS has a
+ * listener for that event name, counted per name from addListener and
+ * releaseListener (NativeEventEmitter's removeListeners only passes a count).
+ * Otherwise they wait in a bounded buffer that outlives RN reloads (the bus is a
+ * static singleton, AlarmModule re-attaches on initialize). Buffered events with
+ * the same name and key are coalesced, and re-posting the current state for a key
+ * is dropped as redundant. A new JS listener gets the buffered events for its
+ * name. State events (see {@link #REPLAYED_EVENTS}) are also replayed to a
+ * listener that has nothing buffered; one-shot events such as a dismissal or a
+ * delivered report never are, since a screen re-subscribing would otherwise act
+ * on them again.
+ */
+public class NativeEventBus {
+    private static final String TAG = "NativeEventBus";
+    private static final int MAX_BUFFERED = 64;
+
+    public static final String CALL_STATE_CHANGED = "CallStateChanged";
+    public static final String CALL_THRESHOLD_REACHED = "CallThresholdReached";
+    public static final String ALARM_FIRED = "AlarmFired";
+    public static final String ALARM_DISMISSED = "AlarmDismissed";
+    public static final String ALARM_SNOOZED = "AlarmSnoozed";
+    public static final String ALARM_SKIPPED = "AlarmSkipped";
+    public static final String ALARM_CANCELLED = "AlarmCancelled";
+    public static final String ENVIRONMENT_CHANGED = "EnvironmentChanged";
+    public static final String REPORT_DELIVERED = "ReportDelivered";
+
+    // Events that describe current state rather than something that happened once
+    private static final Set<String> REPLAYED_EVENTS = Collections.singleton(ENVIRONMENT_CHANGED);
+
+    public interface Sink {
+        /** Emit to JS. Return false if JS is not reachable and the event should stay buffered. */
+        boolean deliver(String eventName, Bundle payload);
+    }
+
+    private static final NativeEventBus instance = new NativeEventBus();
+
+    private final List<Event> buffer = new ArrayList<>(MAX_BUFFERED);
+    // Latest state event per name, for replay to new listeners
+    private final Map<String, Event> latestByName = new HashMap<>();
+    // Latest event per name + key, to spot redundant state updates
+    private final Map<String, Event> latestByKey = new HashMap<>();
+    // Live JS listeners per event name
+    private final Map<String, Integer> listenersByName = new HashMap<>();
+    private int listenerCount = 0;
+    private Sink sink;
+
+    private long posted = 0;
+    private long delivered = 0;
+    private long coalesced = 0;
+    private long redundant = 0;
+    private long dropped = 0;
+    private long replayed = 0;
+    private long failed = 0;
+
+    private static class Event {
+        final String name;
+        final String key;
+        final Bundle payload;
+
+        Event(String name, String key, Bundle payload) {
+            this.name = name;
+            this.key = key;
+            this.payload = payload;
+        }
+
+        String slot() {
+            return name + "|" + key;
+        }
+    }
+
+    public static NativeEventBus get() {
+        return instance;
+    }
+
+    /**
+     * Post an event. key identifies the thing whose state changed (e.g. "call" or an
+     * alarmId); a newer event with the same name and key supersedes an undelivered one.
+     */
+    public synchronized void post(String eventName, String key, Bundle payload) {
+        posted++;
+        Event event = new Event(eventName, key != null ? key : "", payload != null ? payload : new Bundle());
+
+        Event previous = latestByKey.get(event.slot());
+        if (previous != null && sameContent(previous.payload, event.payload)) {
+            redundant++;
+            return;
+        }
+        latestByKey.put(event.slot(), event);
+        if (REPLAYED_EVENTS.contains(eventName)) {
+            latestByName.put(eventName, event);
+        }
+
+        if (canDeliver(eventName) && !hasBuffered(eventName) && deliverLocked(event)) {
+            return;
+        }
+        enqueue(event);
+    }
+
+    /**
+     * Called by AlarmModule once the React instance is up
+     */
+    public synchronized void attach(Sink newSink) {
+        sink = newSink;
+        listenersByName.clear();
+        listenerCount = 0;
+    }
+
+    /**
+     * Called by AlarmModule on invalidate (RN reload or teardown). Undelivered events stay buffered.
+     */
+    public synchronized void detach(Sink oldSink) {
+        if (sink == oldSink) {
+            sink = null;
+            listenersByName.clear();
+            listenerCount = 0;
+        }
+    }
+
+    /**
+     * JS added a listener for eventName: flush what was buffered for it, or replay the latest
+     * state event
+     */
+    public synchronized void onListenerAdded(String eventName) {
+        listenerCount++;
+        Integer named = listenersByName.get(eventName);
+        listenersByName.put(eventName, named != null ? named + 1 : 1);
+        if (sink == null) return;
+
+        boolean flushedAny = false;
+        Iterator<Event> it = buffer.iterator();
+        while (it.hasNext()) {
+            Event event = it.next();
+            if (!event.name.equals(eventName)) continue;
+            if (!deliverLocked(event)) return;
+            it.remove();
+            flushedAny = true;
+        }
+
+        Event latest = latestByName.get(eventName);
+        if (!flushedAny && latest != null) {
+            Bundle replay = new Bundle(latest.payload);
+            replay.putBoolean("replayed", true);
+            if (sink.deliver(eventName, replay)) {
+                replayed++;
+            }
+        }
+    }
+
+    public synchronized void onListenersRemoved(int count) {
+        listenerCount = Math.max(0, listenerCount - count);
+        if (listenerCount == 0) {
+            listenersByName.clear();
+        }
+    }
+
+    /**
+     * JS removed one listener for eventName; once none are left its events are buffered again
+     */
+    public synchronized void onListenerReleased(String eventName) {
+        Integer named = listenersByName.get(eventName);
+        if (named == null) return;
+        if (named <= 1) {
+            listenersByName.remove(eventName);
+        } else {
+            listenersByName.put(eventName, named - 1);
+        }
+    }
+
+    public synchronized Bundle getStats() {
+        Bundle stats = new Bundle();
+        stats.putDouble("posted", posted);
+        stats.putDouble("delivered", delivered);
+        stats.putDouble("coalesced", coalesced);
+        stats.putDouble("redundant", redundant);
+        stats.putDouble("dropped", dropped);
+        stats.putDouble("replayed", replayed);
+        stats.putDouble("failed", failed);
+        stats.putInt("buffered", buffer.size());
+        stats.putInt("capacity", MAX_BUFFERED);
+        stats.putBoolean("attached", sink != null);
+        stats.putInt("listeners", listenerCount);
+        return stats;
+    }
+
+    private boolean canDeliver(String eventName) {
+        return sink != null && listenersByName.containsKey(eventName);
+    }
+
+    // Older undelivered events for this name must go first to keep ordering
+    private boolean hasBuffered(String eventName) {
+        for (Event queued : buffer) {
+            if (queued.name.equals(eventName)) return true;
+        }
+        return false;
+    }
+
+    private boolean deliverLocked(Event event) {
+        try {
+            if (sink.deliver(event.name, event.payload)) {
+                delivered++;
+                return true;
+            }
+        } catch (Exception e) {
+            AlarmLog.w(TAG, "Failed to deliver {}", event.name, e);
+        }
+        failed++;
+        return false;
+    }
+
+    private void enqueue(Event event) {
+        // Replace an undelivered event for the same name + key, keeping its place in line
+        for (int i = 0; i < buffer.size(); i++) {
+            Event queued = buffer.get(i);
+            if (queued.name.equals(event.name) && queued.key.equals(event.key)) {
+                buffer.set(i, event);
+                coalesced++;
+                return;
+            }
+        }
+
+        if (buffer.size() >= MAX_BUFFERED) {
+            Event oldest = buffer.remove(0);
+            dropped++;
+            AlarmLog.w(TAG, "Event buffer full, dropped {}", oldest.name);
+        }
+        buffer.add(event);
+    }
+
+    private static boolean sameContent(Bundle a, Bundle b) {
+        if (a.size() != b.size()) return false;
+        for (String k : a.keySet()) {
+            if (!b.containsKey(k) || !Objects.equals(a.get(k), b.get(k))) return false;
+        }
+        return true;
+    }
+}
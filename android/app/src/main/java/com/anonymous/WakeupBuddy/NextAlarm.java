@@ -0,0 +1,154 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.anonymous.WakeupBuddy.core.AlarmRecord;
+import com.anonymous.WakeupBuddy.core.AlarmTimes;
+import com.anonymous.WakeupBuddy.core.BuddyDirectory;
+import com.anonymous.WakeupBuddy.core.ReschedulePlanner;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The next alarm as the home-screen widget and the quick-settings tile show it, read
+ * from the "WakeupBuddyAlarms" preferences that AlarmModule and BootReceiver keep,
+ * plus the skip and cancel actions both offer without starting React Native.
+ *
+ * Nothing polls. AlarmScheduler calls {@link #changed} whenever the ledger writes or
+ * removes an alarm (schedule, cancel, snooze, boot restore, and the actions here) and
+ * AlarmReceiver calls it when an alarm fires; only then is the widget redrawn and the
+ * tile asked to refresh.
+ */
+public final class NextAlarm {
+    private static final String TAG = "NextAlarm";
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static volatile Context appContext;
+    // Coalesces the writes of one batch schedule or restore into a single refresh
+    private static final Runnable refreshRunnable = () -> {
+        Context context = appContext;
+        NextAlarmWidget.updateAll(context);
+        NextAlarmTileService.requestRefresh(context);
+    };
+
+    public final AlarmRecord record;
+    /** Cached buddy profile, or null for solo alarms and buddies JS never cached */
+    public final BuddyDirectory.Profile buddy;
+
+    private NextAlarm(AlarmRecord record, BuddyDirectory.Profile buddy) {
+        this.record = record;
+        this.buddy = buddy;
+    }
+
+    /** The next alarm still to fire, or null. Reads preferences already in memory. */
+    public static NextAlarm find(Context context) {
+        AlarmRecord record = ReschedulePlanner.next(
+            context.getSharedPreferences(AlarmScheduler.PREFS_NAME, Context.MODE_PRIVATE).getAll(),
+            System.currentTimeMillis());
+        if (record == null) return null;
+        BuddyDirectory.Profile buddy = record.buddyName != null
+            ? BuddyCache.get(context).lookup(record.alarmId, record.buddyName)
+            : null;
+        return new NextAlarm(record, buddy);
+    }
+
+    /** "07:30 AM" */
+    public String timeText() {
+        return AlarmTimes.displayTime(record.when, TimeZone.getDefault());
+    }
+
+    /** "Today", "Tomorrow" or the weekday, then the buddy if there is one */
+    public String detailText() {
+        Calendar at = Calendar.getInstance();
+        at.setTimeInMillis(record.when);
+        long days = LocalStats.epochDay(record.when) - LocalStats.epochDay(System.currentTimeMillis());
+        String day = days <= 0 ? "Today"
+            : days == 1 ? "Tomorrow"
+            : at.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.LONG, Locale.getDefault());
+        String with = buddyLabel();
+        return with != null ? day + " · With " + with : day;
+    }
+
+    private String buddyLabel() {
+        if (buddy != null && buddy.name != null) return buddy.name;
+        return record.buddyName;
+    }
+
+    /**
+     * Refresh the widget and the tile. Safe from any thread and inside the ledger
+     * lock: the work is posted to the main thread.
+     */
+    public static void changed(Context context) {
+        appContext = context.getApplicationContext();
+        mainHandler.removeCallbacks(refreshRunnable);
+        mainHandler.post(refreshRunnable);
+    }
+
+    /**
+     * Move the alarm with requestCode to the same time on the next day still ahead,
+     * keeping it enabled; a snoozed alarm moves to the time it was set for. Returns the
+     * re-armed record, or null if it is not scheduled.
+     */
+    static AlarmRecord skip(Context context, int requestCode) {
+        AlarmRecord current = read(context, requestCode);
+        if (current == null) return null;
+
+        Calendar next = Calendar.getInstance();
+        next.setTimeInMillis(current.scheduledFor);
+        long now = System.currentTimeMillis();
+        do {
+            // Calendar keeps the wall-clock time across DST changes
+            next.add(Calendar.DAY_OF_MONTH, 1);
+        } while (next.getTimeInMillis() <= now);
+
+        AlarmRecord skipped = new AlarmRecord(requestCode, next.getTimeInMillis(), current.buddyName, current.alarmId);
+        AlarmScheduler.ledger(context).schedule(skipped);
+        AlarmJournal.get(context).append(AlarmJournal.SKIPPED, current.alarmId);
+
+        Bundle event = new Bundle();
+        event.putString("alarmId", current.alarmId);
+        event.putDouble("alarmTime", current.scheduledFor);
+        event.putDouble("skippedTo", skipped.when);
+        event.putInt("requestCode", requestCode);
+        NativeEventBus.get().post(NativeEventBus.ALARM_SKIPPED, current.alarmId, event);
+
+        AlarmLog.i(TAG, "Skipped alarm {} to {}", current.alarmId, skipped.when);
+        return skipped;
+    }
+
+    /**
+     * Cancel the alarm with requestCode and switch it off in Convex, as turning it off
+     * in the alarms list does. Returns false if it is not scheduled.
+     */
+    static boolean cancel(Context context, int requestCode) {
+        AlarmRecord current = read(context, requestCode);
+        if (current == null) return false;
+
+        AlarmScheduler.ledger(context).cancel(requestCode);
+        AlarmJournal.get(context).append(AlarmJournal.CANCELLED, current.alarmId);
+        // Without a configured reporter JS finds out from the AlarmCancelled event
+        boolean reported = current.alarmId != null
+            && ConvexReporter.get(context).reportAlarmEnabled(current.alarmId, false);
+
+        Bundle event = new Bundle();
+        event.putString("alarmId", current.alarmId);
+        event.putDouble("alarmTime", current.scheduledFor);
+        event.putInt("requestCode", requestCode);
+        event.putBoolean("reported", reported);
+        NativeEventBus.get().post(NativeEventBus.ALARM_CANCELLED, current.alarmId, event);
+
+        AlarmLog.i(TAG, "Cancelled alarm {}, reported: {}", current.alarmId, reported);
+        return true;
+    }
+
+    private static AlarmRecord read(Context context, int requestCode) {
+        String value = context.getSharedPreferences(AlarmScheduler.PREFS_NAME, Context.MODE_PRIVATE)
+            .getString(AlarmRecord.keyFor(requestCode), null);
+        return AlarmRecord.decode(requestCode, value);
+    }
+}
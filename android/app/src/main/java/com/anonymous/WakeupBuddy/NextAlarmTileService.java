@@ -0,0 +1,73 @@
+package com.anonymous.WakeupBuddy;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.service.quicksettings.Tile;
+import android.service.quicksettings.TileService;
+import android.widget.Toast;
+
+/**
+ * Quick-settings tile showing the next alarm; tapping it skips that alarm to the
+ * next day (after unlocking), through NextAlarm.
+ *
+ * Declared as an active tile, so the system only binds it when NextAlarm.changed
+ * asks via requestListeningState or when the shade is opened with the tile in view.
+ */
+public class NextAlarmTileService extends TileService {
+    private static final String TAG = "NextAlarmTile";
+
+    @Override
+    public void onStartListening() {
+        super.onStartListening();
+        render(NextAlarm.find(this));
+    }
+
+    @Override
+    public void onClick() {
+        if (isLocked()) {
+            unlockAndRun(this::skipNext);
+        } else {
+            skipNext();
+        }
+    }
+
+    private void skipNext() {
+        NextAlarm next = NextAlarm.find(this);
+        if (next != null && NextAlarm.skip(this, next.record.requestCode) != null) {
+            Toast.makeText(this, "Alarm skipped", Toast.LENGTH_SHORT).show();
+        }
+        render(NextAlarm.find(this));
+    }
+
+    private void render(NextAlarm next) {
+        Tile tile = getQsTile();
+        if (tile == null) return;
+        if (next == null) {
+            tile.setState(Tile.STATE_INACTIVE);
+            tile.setLabel("No alarm");
+            setSubtitle(tile, null);
+        } else {
+            tile.setState(Tile.STATE_ACTIVE);
+            tile.setLabel(next.timeText());
+            setSubtitle(tile, next.detailText());
+        }
+        tile.updateTile();
+    }
+
+    private static void setSubtitle(Tile tile, String subtitle) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            tile.setSubtitle(subtitle);
+        }
+    }
+
+    /** Ask the system to bind the tile so it re-reads the next alarm */
+    static void requestRefresh(Context context) {
+        try {
+            requestListeningState(context, new ComponentName(context, NextAlarmTileService.class));
+        } catch (RuntimeException e) {
+            // Some builds throw when the tile was never added; nothing to refresh then
+            AlarmLog.w(TAG, "Tile refresh request failed", e);
+        }
+    }
+}
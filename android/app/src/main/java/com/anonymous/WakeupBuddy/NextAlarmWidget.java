@@ -0,0 +1,100 @@
+package com.anonymous.WakeupBuddy;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.view.View;
+import android.widget.RemoteViews;
+import android.widget.Toast;
+
+import com.anonymous.WakeupBuddy.core.AlarmRecord;
+
+/**
+ * Home-screen widget with the next alarm and its buddy, and Skip / Cancel buttons
+ * that act through NextAlarm without starting React Native.
+ *
+ * updatePeriodMillis is 0: the widget is redrawn by NextAlarm.changed on schedule,
+ * cancel and fire, never on a timer.
+ */
+public class NextAlarmWidget extends AppWidgetProvider {
+    private static final String TAG = "NextAlarmWidget";
+    static final String ACTION_SKIP = "com.anonymous.WakeupBuddy.SKIP_NEXT_ALARM";
+    static final String ACTION_CANCEL = "com.anonymous.WakeupBuddy.CANCEL_NEXT_ALARM";
+    private static final String EXTRA_REQUEST_CODE = "requestCode";
+    // PendingIntent request codes, one per button
+    private static final int SKIP_PENDING_REQUEST = 0;
+    private static final int CANCEL_PENDING_REQUEST = 1;
+    private static final int OPEN_PENDING_REQUEST = 2;
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager manager, int[] appWidgetIds) {
+        manager.updateAppWidget(appWidgetIds, render(context, NextAlarm.find(context)));
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        int requestCode = intent.getIntExtra(EXTRA_REQUEST_CODE, -1);
+        if (ACTION_SKIP.equals(action) && requestCode >= 0) {
+            AlarmRecord skipped = NextAlarm.skip(context, requestCode);
+            if (skipped != null) {
+                Toast.makeText(context, "Alarm skipped", Toast.LENGTH_SHORT).show();
+            }
+            return;
+        }
+        if (ACTION_CANCEL.equals(action) && requestCode >= 0) {
+            if (NextAlarm.cancel(context, requestCode)) {
+                Toast.makeText(context, "Alarm turned off", Toast.LENGTH_SHORT).show();
+            }
+            return;
+        }
+        super.onReceive(context, intent);
+    }
+
+    /** Redraw every placed widget; returns at once when there are none */
+    static void updateAll(Context context) {
+        AppWidgetManager manager = AppWidgetManager.getInstance(context);
+        if (manager == null) return;
+        int[] ids = manager.getAppWidgetIds(new ComponentName(context, NextAlarmWidget.class));
+        if (ids == null || ids.length == 0) return;
+        manager.updateAppWidget(ids, render(context, NextAlarm.find(context)));
+        AlarmLog.d(TAG, "Updated {} widgets", ids.length);
+    }
+
+    private static RemoteViews render(Context context, NextAlarm next) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_next_alarm);
+
+        Intent launch = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
+        if (launch != null) {
+            views.setOnClickPendingIntent(R.id.widget_root, PendingIntent.getActivity(
+                context, OPEN_PENDING_REQUEST, launch, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE));
+        }
+
+        if (next == null) {
+            views.setTextViewText(R.id.widget_time, "--:--");
+            views.setTextViewText(R.id.widget_detail, "No alarm set");
+            views.setViewVisibility(R.id.widget_actions, View.GONE);
+            return views;
+        }
+
+        views.setTextViewText(R.id.widget_time, next.timeText());
+        views.setTextViewText(R.id.widget_detail, next.detailText());
+        views.setViewVisibility(R.id.widget_actions, View.VISIBLE);
+        views.setOnClickPendingIntent(R.id.widget_skip,
+            action(context, ACTION_SKIP, SKIP_PENDING_REQUEST, next.record.requestCode));
+        views.setOnClickPendingIntent(R.id.widget_cancel,
+            action(context, ACTION_CANCEL, CANCEL_PENDING_REQUEST, next.record.requestCode));
+        return views;
+    }
+
+    private static PendingIntent action(Context context, String action, int pendingRequest, int requestCode) {
+        Intent intent = new Intent(context, NextAlarmWidget.class);
+        intent.setAction(action);
+        intent.putExtra(EXTRA_REQUEST_CODE, requestCode);
+        return PendingIntent.getBroadcast(context, pendingRequest, intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+}
@@ -0,0 +1,291 @@
+package com.anonymous.WakeupBuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.Manifest;
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.Looper;
+import android.telephony.PhoneStateListener;
+import android.telephony.TelephonyManager;
+import android.view.ViewGroup;
+
+import com.anonymous.WakeupBuddy.core.BuddyDirectory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowApplication;
+import org.robolectric.shadows.ShadowMediaPlayer;
+import org.robolectric.shadows.ShadowTelephonyManager;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Soak test for the fire path: fires, rings and dismisses N synthetic alarms back
+ * to back through AlarmReceiver -> AlarmService -> AlarmActivity, and after every
+ * cycle asserts that nothing from that alarm is left behind: held wake locks,
+ * PhoneStateListener registrations, unreleased MediaPlayers, pending main-looper
+ * callbacks, receiver handoffs never confirmed by the service, or an alarm screen
+ * relaunched after dismissal. Every tenth alarm is re-delivered to the running
+ * service, as AlarmManager and START_STICKY can do, and every tenth is dismissed
+ * with the buddy call from the notification instead of "I'm Awake", through a call
+ * that connects and hangs up.
+ *
+ * The default run is short enough for every testDebugUnitTest and only checks the
+ * per-cycle leaks. Heap growth is asserted from MIN_HEAP_CYCLES measured alarms up,
+ * so leak hunting takes a longer run. Writes build/reports/alarm-soak/soak.json with
+ * heap growth and per-cycle peaks:
+ *
+ *   ./gradlew :app:testDebugUnitTest --tests '*AlarmFirePathSoakTest' -PalarmSoak.cycles=1000
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(sdk = 34, shadows = {TrackingPowerManagerShadow.class})
+public class AlarmFirePathSoakTest {
+    private static final int CYCLES = Integer.getInteger("alarmSoak.cycles", 40);
+    private static final int WARMUP_CYCLES = Math.min(50, CYCLES / 10);
+    // Fewer measured alarms than this are too noisy to judge heap growth by
+    private static final int MIN_HEAP_CYCLES = 200;
+    private static final String BUDDY_PHONE = "+15550100";
+    // Average retained heap per cycle past warm-up that counts as a leak
+    private static final long MAX_HEAP_GROWTH_PER_CYCLE = Long.getLong("alarmSoak.maxBytesPerCycle", 16 * 1024);
+    private static final File REPORT_DIR = new File(System.getProperty("alarmSoak.reportDir", "build/reports/alarm-soak"));
+
+    private Application app;
+    private ShadowApplication shadowApp;
+    private ShadowTelephonyManager shadowTelephony;
+    private final List<MediaPlayer> players = Collections.synchronizedList(new ArrayList<>());
+    private final List<WeakReference<Object>> components = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        app = RuntimeEnvironment.getApplication();
+        shadowApp = shadowOf(app);
+        shadowTelephony = shadowOf((TelephonyManager) app.getSystemService(Context.TELEPHONY_SERVICE));
+        TrackingPowerManagerShadow.created.clear();
+
+        // Every ringtone "plays" for a minute; record each player the service creates
+        ShadowMediaPlayer.setMediaInfoProvider(dataSource -> new ShadowMediaPlayer.MediaInfo(60_000, 0));
+        ShadowMediaPlayer.setCreateListener((player, shadow) -> players.add(player));
+        // Lets the notification's "Call buddy" place and track the call natively
+        shadowApp.grantPermissions(Manifest.permission.CALL_PHONE, Manifest.permission.READ_PHONE_STATE);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowMediaPlayer.resetStaticState();
+    }
+
+    @Test
+    public void fireRingDismissSoak() throws IOException {
+        long heapAfterWarmup = 0;
+        int peakWakeLocks = 0;
+        int peakListeners = 0;
+        int peakPlayers = 0;
+        int redelivered = 0;
+        int buddyCalls = 0;
+        long started = System.nanoTime();
+
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            String alarmId = "soak" + cycle;
+            String buddy = cycle % 2 == 0 ? "buddy" + cycle + "@example.com" : null;
+            boolean callBuddy = cycle % 10 == 4;
+            players.clear();
+            if (callBuddy) {
+                BuddyCache.get(app).update(Collections.singletonList(new BuddyCache.Update(
+                    alarmId, new BuddyDirectory.Profile(buddy, "Buddy " + cycle, BUDDY_PHONE, null, cycle))));
+            }
+
+            // Fire: AlarmManager delivers the broadcast
+            long alarmTime = System.currentTimeMillis();
+            Intent fire = new Intent(app, AlarmReceiver.class);
+            fire.putExtra("alarmTime", alarmTime);
+            fire.putExtra("alarmId", alarmId);
+            if (buddy != null) fire.putExtra("buddyName", buddy);
+            new AlarmReceiver().onReceive(app, fire);
+
+            Intent serviceIntent = shadowApp.getNextStartedService();
+            Intent activityIntent = shadowApp.getNextStartedActivity();
+            assertNotNull("receiver did not start AlarmService", serviceIntent);
+            assertNotNull("receiver did not launch AlarmActivity", activityIntent);
+
+            // Ring: service goes foreground, plays, vibrates, schedules launch retries
+            ServiceController<AlarmService> service = Robolectric.buildService(AlarmService.class, serviceIntent)
+                .create()
+                .startCommand(0, 1);
+            if (cycle % 10 == 9) {
+                service.startCommand(0, 2);
+                redelivered++;
+            }
+            ActivityController<AlarmActivity> activity = Robolectric.buildActivity(AlarmActivity.class, activityIntent).setup();
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(200));
+
+            peakWakeLocks = Math.max(peakWakeLocks, TrackingPowerManagerShadow.heldCount());
+            peakListeners = Math.max(peakListeners, phoneStateRegistrations());
+            peakPlayers = Math.max(peakPlayers, livePlayers());
+
+            if (callBuddy) {
+                // Dismiss: the user taps "Call buddy" on the notification; the call connects, then ends
+                activity.newIntent(new Intent(activityIntent).setAction(AlarmService.ACTION_CALL_BUDDY)
+                    .setClassName(app, AlarmService.CALL_BUDDY_ALIAS));
+                service.destroy();
+                activity.pause().stop().destroy();
+                shadowTelephony.setCallState(TelephonyManager.CALL_STATE_OFFHOOK, BUDDY_PHONE);
+                shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(5));
+                shadowTelephony.setCallState(TelephonyManager.CALL_STATE_IDLE, BUDDY_PHONE);
+                buddyCalls++;
+            } else {
+                // Dismiss: the user taps "I'm Awake" before the later launch retries run
+                ViewGroup content = activity.get().findViewById(android.R.id.content);
+                content.getChildAt(0).performClick();
+                Intent stop = shadowApp.getNextStartedService();
+                if (stop != null && "STOP".equals(stop.getAction())) {
+                    service.withIntent(stop).startCommand(0, 3);
+                }
+                service.destroy();
+                activity.pause().stop().destroy();
+            }
+            DismissalStore.acknowledge(app, Collections.singletonList(DismissalStore.keyFor(alarmId, alarmTime)));
+            components.add(new WeakReference<>(service.get()));
+            components.add(new WeakReference<>(activity.get()));
+
+            // Let every timeout and delayed callback from this alarm come due
+            drainStartedActivities();
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(11));
+            // The receiver's goAsync() handoff finishes on its own thread
+            shadowOf(receiverWorker().getLooper()).idle();
+
+            String where = "after alarm " + cycle;
+            assertEquals(where + ": alarm screen relaunched after dismissal", 0, drainStartedActivities());
+            assertEquals(where + ": wake locks still held: " + TrackingPowerManagerShadow.heldTags(),
+                0, TrackingPowerManagerShadow.heldCount());
+            assertEquals(where + ": PhoneStateListener still registered", 0, phoneStateRegistrations());
+            assertEquals(where + ": MediaPlayer not released", 0, livePlayers());
+            assertEquals(where + ": receiver handoff never released", 0, pendingHandoffs());
+            assertEquals(where + ": main looper still has pending callbacks",
+                Duration.ZERO, shadowOf(Looper.getMainLooper()).getNextScheduledTaskTime());
+            TrackingPowerManagerShadow.created.clear();
+
+            if (cycle == WARMUP_CYCLES - 1) {
+                heapAfterWarmup = usedHeap();
+            }
+        }
+
+        long wallMs = (System.nanoTime() - started) / 1_000_000;
+        long heapAtEnd = usedHeap();
+        int measuredCycles = CYCLES - WARMUP_CYCLES;
+        long growthPerCycle = measuredCycles > 0 ? Math.max(0, heapAtEnd - heapAfterWarmup) / measuredCycles : 0;
+        int retained = retainedComponents();
+
+        String json = "{\"cycles\":" + CYCLES
+            + ",\"redelivered\":" + redelivered
+            + ",\"buddyCalls\":" + buddyCalls
+            + ",\"wallMs\":" + wallMs
+            + ",\"heapAfterWarmupBytes\":" + heapAfterWarmup
+            + ",\"heapAtEndBytes\":" + heapAtEnd
+            + ",\"heapGrowthPerCycleBytes\":" + growthPerCycle
+            + ",\"retainedServicesAndActivities\":" + retained
+            + ",\"peakWakeLocksDuringRing\":" + peakWakeLocks
+            + ",\"peakPhoneStateListenersDuringRing\":" + peakListeners
+            + ",\"peakMediaPlayersDuringRing\":" + peakPlayers
+            + ",\"sdk\":" + android.os.Build.VERSION.SDK_INT
+            + ",\"timestamp\":" + System.currentTimeMillis()
+            + "}";
+        System.out.println("alarm-soak " + json);
+        assertTrue(REPORT_DIR.isDirectory() || REPORT_DIR.mkdirs());
+        try (FileWriter out = new FileWriter(new File(REPORT_DIR, "soak.json"))) {
+            out.write(json);
+            out.write('\n');
+        }
+
+        // While ringing: receiver CPU + screen locks, service CPU + screen locks, activity screen lock
+        assertTrue("too many wake locks while ringing: " + peakWakeLocks, peakWakeLocks <= 5);
+        assertTrue("more than one PhoneStateListener while ringing", peakListeners <= 1);
+        assertTrue("more than one live MediaPlayer while ringing", peakPlayers <= 1);
+        assertTrue("services/activities retained after destroy: " + retained, retained <= 2);
+        if (measuredCycles >= MIN_HEAP_CYCLES) {
+            assertTrue("heap grows " + growthPerCycle + " bytes per alarm", growthPerCycle <= MAX_HEAP_GROWTH_PER_CYCLE);
+        }
+    }
+
+    // Activities started since the last call (launch retries, the buddy deep link)
+    private int drainStartedActivities() {
+        int count = 0;
+        while (shadowApp.getNextStartedActivity() != null) count++;
+        shadowApp.clearStartedServices();
+        return count;
+    }
+
+    private int phoneStateRegistrations() {
+        Map<PhoneStateListener, Integer> registrations = ReflectionHelpers.getField(shadowTelephony, "phoneStateRegistrations");
+        return registrations.size();
+    }
+
+    private static Handler receiverWorker() {
+        return ReflectionHelpers.getStaticField(AlarmReceiver.class, "worker");
+    }
+
+    private static int pendingHandoffs() {
+        Map<Long, ?> handoffs = ReflectionHelpers.getStaticField(AlarmReceiver.class, "handoffs");
+        return handoffs.size();
+    }
+
+    private int livePlayers() {
+        int live = 0;
+        synchronized (players) {
+            for (MediaPlayer player : players) {
+                ShadowMediaPlayer shadow = Shadow.extract(player);
+                if (shadow.getState() != ShadowMediaPlayer.State.END) live++;
+            }
+        }
+        return live;
+    }
+
+    // Robolectric's own bookkeeping may pin the most recent service and activity
+    private int retainedComponents() {
+        forceGc();
+        int retained = 0;
+        for (WeakReference<Object> ref : components) {
+            if (ref.get() != null) retained++;
+        }
+        return retained;
+    }
+
+    private static long usedHeap() {
+        forceGc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void forceGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+    }
+}
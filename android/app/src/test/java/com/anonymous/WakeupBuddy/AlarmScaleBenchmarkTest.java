@@ -0,0 +1,237 @@
+package com.anonymous.WakeupBuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+
+import com.anonymous.WakeupBuddy.core.AlarmRecord;
+import com.facebook.react.bridge.BridgeReactContext;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Scale benchmark for alarm scheduling, cancellation and boot rescheduling.
+ *
+ * Runs each operation against 10 and 100 alarms by default, which keeps it cheap
+ * enough for every testDebugUnitTest, and records wall time, bytes allocated on the
+ * test thread and AlarmManager call counts. Each run writes a JSON report to
+ * build/reports/alarm-scale/<operation>-<size>.json so results can be compared
+ * between releases; compare at release scale with:
+ *
+ *   ./gradlew :app:testDebugUnitTest --tests '*AlarmScaleBenchmarkTest' -PalarmScale.sizes=10,1000,50000
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 34, shadows = {CountingAlarmManagerShadow.class})
+public class AlarmScaleBenchmarkTest {
+    private static final long NOW = System.currentTimeMillis();
+    private static final File REPORT_DIR = new File(System.getProperty("alarmScale.reportDir", "build/reports/alarm-scale"));
+
+    private final int size;
+    private Application app;
+    private AlarmManager alarmManager;
+    private AlarmModule module;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "alarms={0}")
+    public static Collection<Object[]> sizes() {
+        List<Object[]> sizes = new ArrayList<>();
+        for (String s : System.getProperty("alarmScale.sizes", "10,100").split(",")) {
+            sizes.add(new Object[] {Integer.parseInt(s.trim())});
+        }
+        return sizes;
+    }
+
+    public AlarmScaleBenchmarkTest(int size) {
+        this.size = size;
+    }
+
+    @Before
+    public void setUp() {
+        app = RuntimeEnvironment.getApplication();
+        alarmManager = (AlarmManager) app.getSystemService(Context.ALARM_SERVICE);
+        ShadowAlarmManager.setCanScheduleExactAlarms(true);
+        CountingAlarmManagerShadow.resetCounts();
+        alarmPrefs().edit().clear().commit();
+        module = new AlarmModule(new BridgeReactContext(app));
+    }
+
+    @Test
+    public void schedule() throws IOException {
+        Measurement m = Measurement.start("schedule", size);
+        int failures = 0;
+        for (int i = 0; i < size; i++) {
+            RecordingPromise promise = new RecordingPromise();
+            module.scheduleExactAlarm(futureTime(i), buddyName(i), "alarm" + i, i, promise);
+            if (!promise.resolvedWith(true)) failures++;
+        }
+        m.stop();
+
+        assertEquals(0, failures);
+        assertEquals(size, CountingAlarmManagerShadow.setAlarmClockCalls);
+        assertEquals(size, scheduledCount());
+        assertEquals(size, alarmPrefs().getAll().size());
+        m.report();
+    }
+
+    @Test
+    public void cancel() throws IOException {
+        for (int i = 0; i < size; i++) {
+            module.scheduleExactAlarm(futureTime(i), buddyName(i), "alarm" + i, i, new RecordingPromise());
+        }
+        CountingAlarmManagerShadow.resetCounts();
+
+        Measurement m = Measurement.start("cancel", size);
+        int failures = 0;
+        for (int i = 0; i < size; i++) {
+            RecordingPromise promise = new RecordingPromise();
+            module.cancelAlarm(i, promise);
+            if (!promise.resolvedWith(true)) failures++;
+        }
+        m.stop();
+
+        assertEquals(0, failures);
+        assertEquals(size, CountingAlarmManagerShadow.cancelCalls);
+        assertEquals(0, scheduledCount());
+        assertEquals(0, alarmPrefs().getAll().size());
+        m.report();
+    }
+
+    @Test
+    public void reboot() throws IOException {
+        // A quarter already expired, every tenth buddy name contains '|', a few
+        // entries written by the old unescaped format and a few corrupt ones
+        SharedPreferences.Editor editor = alarmPrefs().edit();
+        int expectedFuture = 0;
+        for (int i = 0; i < size; i++) {
+            String key = AlarmRecord.keyFor(i);
+            if (i % 997 == 996) {
+                editor.putString(key, "not-a-timestamp|x|y");
+                continue;
+            }
+            boolean expired = i % 4 == 0;
+            long when = expired ? NOW - 60_000L * (i + 1) : (long) futureTime(i);
+            if (i % 50 == 1) {
+                editor.putString(key, when + "|Legacy " + i + "|alarm" + i);
+            } else {
+                editor.putString(key, new AlarmRecord(i, when, buddyName(i), "alarm" + i).encode());
+            }
+            if (!expired) expectedFuture++;
+        }
+        editor.commit();
+
+        Measurement m = Measurement.start("reboot", size);
+        new BootReceiver().onReceive(app, new Intent(Intent.ACTION_BOOT_COMPLETED));
+        m.stop();
+
+        assertEquals(expectedFuture, CountingAlarmManagerShadow.setAlarmClockCalls);
+        assertEquals(expectedFuture, scheduledCount());
+        assertEquals(expectedFuture, alarmPrefs().getAll().size());
+        m.extra("rescheduled", expectedFuture);
+        m.extra("removed", size - expectedFuture);
+        m.report();
+    }
+
+    private SharedPreferences alarmPrefs() {
+        return app.getSharedPreferences("WakeupBuddyAlarms", Context.MODE_PRIVATE);
+    }
+
+    private int scheduledCount() {
+        return ((ShadowAlarmManager) Shadow.extract(alarmManager)).getScheduledAlarms().size();
+    }
+
+    private static double futureTime(int i) {
+        return NOW + 3_600_000L + (i * 61_000L) % (7L * 24 * 3_600_000L);
+    }
+
+    private static String buddyName(int i) {
+        if (i % 10 == 0) return "Night|Owl " + i;
+        if (i % 3 == 0) return null;
+        return "Buddy " + i;
+    }
+
+    /**
+     * Wall time, allocated bytes and AlarmManager calls for one operation
+     */
+    private static final class Measurement {
+        private final String operation;
+        private final int size;
+        private final StringBuilder extras = new StringBuilder();
+        private long startNanos;
+        private long startBytes;
+        private long wallNanos;
+        private long allocatedBytes;
+
+        private Measurement(String operation, int size) {
+            this.operation = operation;
+            this.size = size;
+        }
+
+        static Measurement start(String operation, int size) {
+            Measurement m = new Measurement(operation, size);
+            System.gc();
+            m.startBytes = threadAllocatedBytes();
+            m.startNanos = System.nanoTime();
+            return m;
+        }
+
+        void stop() {
+            wallNanos = System.nanoTime() - startNanos;
+            allocatedBytes = threadAllocatedBytes() - startBytes;
+        }
+
+        void extra(String name, long value) {
+            extras.append(",\"").append(name).append("\":").append(value);
+        }
+
+        void report() throws IOException {
+            String json = "{\"operation\":\"" + operation + "\""
+                + ",\"alarms\":" + size
+                + ",\"wallMs\":" + String.format(java.util.Locale.US, "%.3f", wallNanos / 1e6)
+                + ",\"nsPerAlarm\":" + (size > 0 ? wallNanos / size : 0)
+                + ",\"allocatedBytes\":" + allocatedBytes
+                + ",\"bytesPerAlarm\":" + (size > 0 ? allocatedBytes / size : 0)
+                + ",\"setAlarmClockCalls\":" + CountingAlarmManagerShadow.setAlarmClockCalls
+                + ",\"setExactCalls\":" + CountingAlarmManagerShadow.setExactCalls
+                + ",\"cancelCalls\":" + CountingAlarmManagerShadow.cancelCalls
+                + extras
+                + ",\"sdk\":" + android.os.Build.VERSION.SDK_INT
+                + ",\"jvm\":\"" + System.getProperty("java.version") + "\""
+                + ",\"timestamp\":" + System.currentTimeMillis()
+                + "}";
+            System.out.println("alarm-scale " + json);
+
+            assertTrue(REPORT_DIR.isDirectory() || REPORT_DIR.mkdirs());
+            try (FileWriter out = new FileWriter(new File(REPORT_DIR, operation + "-" + size + ".json"))) {
+                out.write(json);
+                out.write('\n');
+            }
+        }
+
+        private static long threadAllocatedBytes() {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return -1;
+        }
+    }
+}
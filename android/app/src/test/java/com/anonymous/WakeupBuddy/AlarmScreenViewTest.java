@@ -0,0 +1,94 @@
+package com.anonymous.WakeupBuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The alarm screen's buttons stay on screen and tappable when the content is taller
+ * than the view (landscape, large font scale), so the alarm can always be dismissed.
+ *
+ *   ./gradlew :app:testDebugUnitTest --tests '*AlarmScreenViewTest'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AlarmScreenViewTest {
+    private static final int[] BUTTONS = {
+        AlarmScreenView.PRESSED_AWAKE, AlarmScreenView.PRESSED_CALL, AlarmScreenView.PRESSED_SNOOZE
+    };
+
+    private AlarmScreenView view;
+    private final List<Integer> clicks = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        view = new AlarmScreenView(RuntimeEnvironment.getApplication());
+        view.setTimeText("Alarm: 06:30 AM");
+        view.setBuddyText("With: Sam");
+        view.setBuddyDetailText("+1 555 0100");
+        view.setCallText("Call Sam");
+        view.setSnoozeText("Snooze 5 min");
+        view.setOnAwakeClickListener(v -> clicks.add(AlarmScreenView.PRESSED_AWAKE));
+        view.setOnCallClickListener(v -> clicks.add(AlarmScreenView.PRESSED_CALL));
+        view.setOnSnoozeClickListener(v -> clicks.add(AlarmScreenView.PRESSED_SNOOZE));
+    }
+
+    @Test
+    public void buttonsFitAPortraitScreen() {
+        assertButtonsOnScreenAndTappable(360, 640);
+    }
+
+    @Test
+    public void buttonsStayOnAShortLandscapeScreen() {
+        assertButtonsOnScreenAndTappable(640, 320);
+    }
+
+    @Test
+    public void buttonsStayWhenEvenTheTextCannotFit() {
+        assertButtonsOnScreenAndTappable(640, 240);
+    }
+
+    private void assertButtonsOnScreenAndTappable(int width, int height) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+
+        for (int button : BUTTONS) {
+            AccessibilityNodeInfo node = view.getAccessibilityNodeProvider().createAccessibilityNodeInfo(button);
+            Rect bounds = new Rect();
+            node.getBoundsInParent(bounds);
+            assertTrue("button " + button + " at " + bounds + " is off a " + width + "x" + height + " screen",
+                bounds.top >= 0 && bounds.bottom <= height && bounds.left >= 0 && bounds.right <= width);
+
+            clicks.clear();
+            tap(bounds.exactCenterX(), bounds.exactCenterY());
+            assertEquals(1, clicks.size());
+            assertEquals(button, (int) clicks.get(0));
+        }
+    }
+
+    private void tap(float x, float y) {
+        long now = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, x, y, 0);
+        MotionEvent up = MotionEvent.obtain(now, now + 50, MotionEvent.ACTION_UP, x, y, 0);
+        view.dispatchTouchEvent(down);
+        view.dispatchTouchEvent(up);
+        down.recycle();
+        up.recycle();
+    }
+}
@@ -0,0 +1,215 @@
+package com.anonymous.WakeupBuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConvexReporter against a local stand-in for the Convex HTTP API: one POST per
+ * batch to /api/mutation, retries that resend the same report ids, the disk queue
+ * surviving a new instance, and dismissals handed over from DismissalStore.
+ *
+ *   ./gradlew :app:testDebugUnitTest --tests '*ConvexReporterTest'
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(sdk = 34)
+public class ConvexReporterTest {
+    private static final String USER = "early.bird@example.com";
+
+    private Application app;
+    private HttpServer server;
+    private String deploymentUrl;
+    private final LinkedBlockingQueue<JSONObject> requests = new LinkedBlockingQueue<>();
+    // Status codes for the next responses; 200 once empty
+    private final ConcurrentLinkedQueue<Integer> statuses = new ConcurrentLinkedQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        app = RuntimeEnvironment.getApplication();
+        new File(app.getFilesDir(), ConvexReporter.QUEUE_FILE).delete();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/mutation", exchange -> {
+            try {
+                JSONObject body = new JSONObject(readFully(exchange.getRequestBody()));
+                requests.add(body);
+
+                Integer status = statuses.poll();
+                String response;
+                if (status == null || status == 200) {
+                    status = 200;
+                    JSONArray results = new JSONArray();
+                    JSONArray reports = body.getJSONObject("args").getJSONArray("reports");
+                    for (int i = 0; i < reports.length(); i++) {
+                        results.put(new JSONObject()
+                            .put("id", reports.getJSONObject(i).getString("id"))
+                            .put("status", "ok")
+                            .put("result", new JSONObject().put("status", "success").put("streak", 4)));
+                    }
+                    response = new JSONObject()
+                        .put("status", "success")
+                        .put("value", new JSONObject().put("results", results))
+                        .toString();
+                } else {
+                    response = new JSONObject().put("status", "error").put("errorMessage", "unavailable").toString();
+                }
+
+                byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        deploymentUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void reportsQueuedTogetherGoOutInOneRequest() throws Exception {
+        ConvexReporter reporter = new ConvexReporter(app);
+        reporter.configure(deploymentUrl, USER);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(reporter.reportCallResult("call" + i, 60 + i, System.currentTimeMillis()));
+        }
+
+        JSONObject request = requests.poll(10, TimeUnit.SECONDS);
+        assertNotNull("no request reached the stand-in", request);
+        assertEquals(ConvexReporter.SUBMIT_PATH, request.getString("path"));
+        JSONArray reports = request.getJSONObject("args").getJSONArray("reports");
+        assertEquals(3, reports.length());
+        JSONObject first = reports.getJSONObject(0);
+        assertEquals(ConvexReporter.CALL_RESULT, first.getString("kind"));
+        assertEquals(USER, first.getJSONObject("args").getString("userEmail"));
+        assertEquals(60, first.getJSONObject("args").getInt("duration"));
+
+        assertEquals(0, reporter.pendingCount());
+        assertEquals("batch was split", 0, requests.size());
+    }
+
+    @Test
+    public void failedBatchIsRetriedWithTheSameIds() throws Exception {
+        statuses.add(503);
+        ConvexReporter reporter = new ConvexReporter(app);
+        reporter.configure(deploymentUrl, USER);
+        reporter.reportCallResult("callA", 75, System.currentTimeMillis());
+
+        JSONObject failed = requests.poll(10, TimeUnit.SECONDS);
+        assertNotNull(failed);
+        assertEquals(1, reporter.pendingCount());
+
+        reporter.retryNow();
+        JSONObject retried = requests.poll(10, TimeUnit.SECONDS);
+        assertNotNull(retried);
+        assertEquals(idOf(failed), idOf(retried));
+        assertEquals(0, reporter.pendingCount());
+    }
+
+    @Test
+    public void undeliveredReportsSurviveANewInstance() throws Exception {
+        statuses.add(503);
+        statuses.add(503);
+        ConvexReporter reporter = new ConvexReporter(app);
+        reporter.configure(deploymentUrl, USER);
+        reporter.reportCallResult("callB", 90, System.currentTimeMillis());
+        assertNotNull(requests.poll(10, TimeUnit.SECONDS));
+
+        // As after the process was killed: a fresh instance reads the disk queue
+        ConvexReporter restarted = new ConvexReporter(app);
+        assertEquals(1, restarted.pendingCount());
+        restarted.retryNow();
+        restarted.retryNow();
+        assertEquals(0, restarted.pendingCount());
+    }
+
+    @Test
+    public void wakeupTakesOverTheDismissalRecord() throws Exception {
+        ConvexReporter reporter = new ConvexReporter(app);
+        reporter.configure(deploymentUrl, USER);
+
+        long alarmTime = System.currentTimeMillis() - 60_000;
+        DismissalStore.record(app, "alarm1", null, alarmTime);
+        DismissalStore.Dismissal dismissal = DismissalStore.get(app, DismissalStore.keyFor("alarm1", alarmTime));
+        assertTrue(reporter.reportWakeup(dismissal));
+
+        JSONObject request = requests.poll(10, TimeUnit.SECONDS);
+        assertNotNull(request);
+        JSONObject args = request.getJSONObject("args").getJSONArray("reports").getJSONObject(0).getJSONObject("args");
+        assertEquals(dismissal.time, args.getString("alarmTime"));
+        assertEquals(dismissal.ampm, args.getString("alarmAmpm"));
+        // The UTC date, like the JS flow's toISOString().split('T')[0]
+        assertEquals(Instant.ofEpochMilli(dismissal.dismissedAt).atOffset(ZoneOffset.UTC).toLocalDate().toString(),
+            args.getString("userDate"));
+
+        // JS's drainDismissals must not report it again
+        assertTrue(DismissalStore.pending(app).isEmpty());
+    }
+
+    @Test
+    public void unconfiguredReporterLeavesDismissalsToJs() {
+        ConvexReporter reporter = new ConvexReporter(app);
+        reporter.configure(null, null);
+
+        long alarmTime = System.currentTimeMillis();
+        DismissalStore.record(app, "alarm2", null, alarmTime);
+        DismissalStore.Dismissal dismissal = DismissalStore.get(app, DismissalStore.keyFor("alarm2", alarmTime));
+        assertFalse(reporter.reportWakeup(dismissal));
+        assertEquals(1, DismissalStore.pending(app).size());
+    }
+
+    private static String idOf(JSONObject request) throws Exception {
+        return request.getJSONObject("args").getJSONArray("reports").getJSONObject(0).getString("id");
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,45 @@
+package com.anonymous.WakeupBuddy;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+/**
+ * ShadowAlarmManager that also counts how often the app calls into AlarmManager
+ */
+@Implements(AlarmManager.class)
+public class CountingAlarmManagerShadow extends ShadowAlarmManager {
+    static int setAlarmClockCalls = 0;
+    static int setExactCalls = 0;
+    static int cancelCalls = 0;
+
+    static void resetCounts() {
+        setAlarmClockCalls = 0;
+        setExactCalls = 0;
+        cancelCalls = 0;
+    }
+
+    @Implementation
+    @Override
+    protected void setAlarmClock(AlarmManager.AlarmClockInfo info, PendingIntent operation) {
+        setAlarmClockCalls++;
+        super.setAlarmClock(info, operation);
+    }
+
+    @Implementation
+    @Override
+    protected void setExactAndAllowWhileIdle(int type, long triggerAtTime, PendingIntent operation) {
+        setExactCalls++;
+        super.setExactAndAllowWhileIdle(type, triggerAtTime, operation);
+    }
+
+    @Implementation
+    @Override
+    protected void cancel(PendingIntent operation) {
+        cancelCalls++;
+        super.cancel(operation);
+    }
+}
@@ -0,0 +1,64 @@
+package com.anonymous.WakeupBuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DismissalStore dedupe: one record per ring of an alarm, kept until JS acknowledges it.
+ *
+ *   ./gradlew :app:testDebugUnitTest --tests '*DismissalStoreTest'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DismissalStoreTest {
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private Application app;
+
+    @Before
+    public void setUp() {
+        app = RuntimeEnvironment.getApplication();
+        app.getSharedPreferences("WakeupBuddyDismissals", Context.MODE_PRIVATE).edit().clear().commit();
+    }
+
+    @Test
+    public void repeatedTapOnTheSameRingIsRecordedOnce() {
+        long alarmTime = 1_700_000_000_000L;
+        assertTrue(DismissalStore.record(app, "alarm1", null, alarmTime));
+        assertFalse(DismissalStore.record(app, "alarm1", null, alarmTime));
+        assertEquals(1, DismissalStore.pending(app).size());
+    }
+
+    @Test
+    public void eachDayOfARepeatingAlarmIsRecordedBeforeAnyAck() {
+        long yesterday = 1_700_000_000_000L;
+        long today = yesterday + DAY_MS;
+        assertTrue(DismissalStore.record(app, "alarm1", "buddy@example.com", yesterday));
+        assertTrue(DismissalStore.record(app, "alarm1", "buddy@example.com", today));
+
+        List<DismissalStore.Dismissal> pending = DismissalStore.pending(app);
+        assertEquals(2, pending.size());
+        assertEquals(yesterday, DismissalStore.get(app, DismissalStore.keyFor("alarm1", yesterday)).alarmTime);
+        assertEquals(today, DismissalStore.get(app, DismissalStore.keyFor("alarm1", today)).alarmTime);
+
+        // Acknowledging yesterday's leaves today's for JS to report
+        DismissalStore.acknowledge(app, Collections.singletonList(DismissalStore.keyFor("alarm1", yesterday)));
+        pending = DismissalStore.pending(app);
+        assertEquals(1, pending.size());
+        assertEquals(today, pending.get(0).alarmTime);
+    }
+}
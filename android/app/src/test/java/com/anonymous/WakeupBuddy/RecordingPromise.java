@@ -0,0 +1,76 @@
+package com.anonymous.WakeupBuddy;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Promise that remembers how it was settled, for calling @ReactMethods from JVM tests
+ */
+class RecordingPromise implements Promise {
+    Object value;
+    String errorCode;
+    String errorMessage;
+    boolean settled;
+
+    boolean resolvedWith(Object expected) {
+        return settled && errorCode == null && (expected == null ? value == null : expected.equals(value));
+    }
+
+    @Override
+    public void resolve(Object value) {
+        this.value = value;
+        settled = true;
+    }
+
+    @Override
+    public void reject(String code, String message) {
+        errorCode = code;
+        errorMessage = message;
+        settled = true;
+    }
+
+    @Override
+    public void reject(String code, Throwable throwable) {
+        reject(code, throwable != null ? throwable.getMessage() : null);
+    }
+
+    @Override
+    public void reject(String code, String message, Throwable throwable) {
+        reject(code, message);
+    }
+
+    @Override
+    public void reject(Throwable throwable) {
+        reject("ERROR", throwable);
+    }
+
+    @Override
+    public void reject(Throwable throwable, WritableMap userInfo) {
+        reject("ERROR", throwable);
+    }
+
+    @Override
+    public void reject(String code, WritableMap userInfo) {
+        reject(code, (String) null);
+    }
+
+    @Override
+    public void reject(String code, Throwable throwable, WritableMap userInfo) {
+        reject(code, throwable);
+    }
+
+    @Override
+    public void reject(String code, String message, WritableMap userInfo) {
+        reject(code, message);
+    }
+
+    @Override
+    public void reject(String code, String message, Throwable throwable, WritableMap userInfo) {
+        reject(code, message);
+    }
+
+    @Override
+    public void reject(String message) {
+        reject("ERROR", message);
+    }
+}
@@ -0,0 +1,45 @@
+package com.anonymous.WakeupBuddy;
+
+import android.os.PowerManager;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowPowerManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ShadowPowerManager that keeps every wake lock the app creates, so tests can
+ * count the ones still held
+ */
+@Implements(PowerManager.class)
+public class TrackingPowerManagerShadow extends ShadowPowerManager {
+    static final List<PowerManager.WakeLock> created = new ArrayList<>();
+
+    static int heldCount() {
+        int held = 0;
+        for (PowerManager.WakeLock lock : created) {
+            if (lock.isHeld()) held++;
+        }
+        return held;
+    }
+
+    static String heldTags() {
+        StringBuilder sb = new StringBuilder();
+        for (PowerManager.WakeLock lock : created) {
+            if (!lock.isHeld()) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(((ShadowPowerManager.ShadowWakeLock) org.robolectric.shadow.api.Shadow.extract(lock)).getTag());
+        }
+        return sb.toString();
+    }
+
+    @Implementation
+    @Override
+    protected PowerManager.WakeLock newWakeLock(int flags, String tag) {
+        PowerManager.WakeLock lock = super.newWakeLock(flags, tag);
+        created.add(lock);
+        return lock;
+    }
+}
@@ -0,0 +1,36 @@
+package com.anonymous.WakeupBuddy.baselineprofile
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Until
+
+internal const val PACKAGE_NAME = "com.anonymous.WakeupBuddy"
+
+// AlarmScreenView's content description starts with its title
+private const val ALARM_SCREEN_DESCRIPTION = "WAKE UP!"
+private const val ALARM_SCREEN_TIMEOUT_MS = 10_000L
+
+/**
+ * Fire an alarm the way AlarmManager does (AlarmReceiver is exported) and wait for
+ * the alarm screen, which runs AlarmReceiver, AlarmService and AlarmActivity.
+ *
+ * The app is brought to the foreground first: a broadcast from the shell carries no
+ * alarm-clock exemption, so AlarmService could not start in the foreground otherwise.
+ * The alarm has no buddy, and it is closed with Back rather than "I'm Awake", so no
+ * wake-up is recorded for whoever is signed in on the device.
+ */
+internal fun MacrobenchmarkScope.fireAlarm() {
+    device.executeShellCommand(
+        "am broadcast -n $PACKAGE_NAME/.AlarmReceiver" +
+            " --el alarmTime ${System.currentTimeMillis()}" +
+            " --es alarmId baseline-profile"
+    )
+    check(device.wait(Until.hasObject(By.descStartsWith(ALARM_SCREEN_DESCRIPTION)), ALARM_SCREEN_TIMEOUT_MS)) {
+        "Alarm screen did not appear"
+    }
+}
+
+internal fun MacrobenchmarkScope.closeAlarm() {
+    device.pressBack()
+    device.wait(Until.gone(By.descStartsWith(ALARM_SCREEN_DESCRIPTION)), ALARM_SCREEN_TIMEOUT_MS)
+}
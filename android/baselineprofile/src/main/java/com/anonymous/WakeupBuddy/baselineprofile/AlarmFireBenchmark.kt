@@ -0,0 +1,52 @@
+package com.anonymous.WakeupBuddy.baselineprofile
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.TraceSectionMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Fire path timing without AOT compilation and with the baseline profile.
+ * BaselineProfileMode.Require fails the run if the installed APK carries no profile,
+ * which is the check that the checked-in profile is packaged and installed.
+ *
+ *   ./gradlew :baselineprofile:connectedBenchmarkReleaseAndroidTest
+ */
+@RunWith(AndroidJUnit4::class)
+class AlarmFireBenchmark {
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun fireWithoutCompilation() = fire(CompilationMode.None())
+
+    @Test
+    fun fireWithBaselineProfile() = fire(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    @OptIn(ExperimentalMetricApi::class)
+    private fun fire(compilationMode: CompilationMode) = rule.measureRepeated(
+        packageName = PACKAGE_NAME,
+        metrics = listOf(
+            // Traced by the framework from API 31
+            TraceSectionMetric("performCreate:$PACKAGE_NAME.AlarmActivity"),
+            FrameTimingMetric(),
+        ),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.COLD,
+        iterations = 5,
+        setupBlock = {
+            pressHome()
+            startActivityAndWait()
+        },
+    ) {
+        fireAlarm()
+        closeAlarm()
+    }
+}
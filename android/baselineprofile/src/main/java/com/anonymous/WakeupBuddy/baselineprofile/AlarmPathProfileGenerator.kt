@@ -0,0 +1,34 @@
+package com.anonymous.WakeupBuddy.baselineprofile
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Records the alarm fire path into app/src/main/generated/baselineProfiles
+ * (baseline-prof.txt and startup-prof.txt). Run through
+ *   ./gradlew :app:generateBaselineProfile
+ *
+ * BootReceiver cannot be driven from here (the shell may not send BOOT_COMPLETED),
+ * so check its rules are still in the output before committing it.
+ */
+@RunWith(AndroidJUnit4::class)
+class AlarmPathProfileGenerator {
+    @get:Rule
+    val rule = BaselineProfileRule()
+
+    @Test
+    fun alarmFirePath() = rule.collect(
+        packageName = PACKAGE_NAME,
+        includeInStartupProfile = true,
+    ) {
+        pressHome()
+        startActivityAndWait()
+        fireAlarm()
+        // Let the service ring and the screen draw a few frames
+        Thread.sleep(2_000)
+        closeAlarm()
+    }
+}
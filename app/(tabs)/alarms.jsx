@@ -11,13 +11,13 @@ import { api } from "../../convex/_generated/api";
 import styles from '../../styles/alarms.styles';
 
 import { showInterstitialAd } from '../ads/InterstitialAds';
-import { cancelAlarm, generateRequestCode, scheduleAlarm } from '../native/AlarmNative';
+import { cancelAlarm, cancelAlarms, generateRequestCode, scheduleAlarm } from '../native/AlarmNative';
 
 const NEON = '#C9E265';
 
 export default function AlarmsScreen() {
     const router = useRouter();
-    const { user } = useUser();
+    const { user, skippedAlarms } = useUser();
     const { showPopup } = usePopup();
     const userId = user?._id;
     const alarms = useQuery(api.alarms.getAlarmsByUser, userId ? { user_id: userId } : "skip");
@@ -101,11 +101,9 @@ export default function AlarmsScreen() {
         setShowClearModal(false);
         setClearingAll(true);
         try {
-            // Cancel all native alarms first
-            for (const alarm of alarms) {
-                const requestCode = generateRequestCode(alarm._id.toString());
-                await cancelAlarm(requestCode).catch(e => console.log('Cancel error:', e));
-            }
+            // Cancel all native alarms first, in one native call
+            await cancelAlarms(alarms.map(alarm => generateRequestCode(alarm._id.toString())))
+                .catch(e => console.log('Cancel error:', e));
 
             // Delete all from database
             const result = await deleteAllAlarmsMutation({ user_id: userId });
@@ -162,6 +160,11 @@ export default function AlarmsScreen() {
                     <AppText style={[styles.ampmText, !item.enabled && styles.disabledText]}>{item.ampm}</AppText>
                 </View>
                 <AppText style={styles.alarmLabel}>{item.label} • {formatDays(item.days)}</AppText>
+                {item.enabled && skippedAlarms[item._id] > Date.now() && (
+                    <AppText style={styles.skippedText}>
+                        Skipped · next ring {new Date(skippedAlarms[item._id]).toLocaleDateString(undefined, { weekday: 'short', day: 'numeric', month: 'short' })}
+                    </AppText>
+                )}
 
                 {/* Mode Badge */}
                 <View style={[
@@ -5,7 +5,7 @@ import * as Linking from 'expo-linking';
 import * as Notifications from 'expo-notifications';
 import { useRouter } from 'expo-router';
 import { useEffect, useRef, useState } from 'react';
-import { Alert, ScrollView, StatusBar, TouchableOpacity, View } from 'react-native';
+import { Alert, AppState, ScrollView, StatusBar, TouchableOpacity, View } from 'react-native';
 import { SafeAreaView } from 'react-native-safe-area-context';
 import RNShare from 'react-native-share';
 import ViewShot from 'react-native-view-shot';
@@ -18,7 +18,7 @@ import styles from '../../styles/home.styles';
 import BannerAds from '../ads/BannerAds';
 import { showInterstitialAd } from '../ads/InterstitialAds';
 import AlarmScreen from '../components/AlarmScreen';
-import { checkPendingCall, clearPendingCall, getLastCallDuration, getMostRecentCallDuration, makePhoneCall, requestCallPhonePermission, requestReadCallLogPermission, requestReadPhoneStatePermission, savePendingCall, subscribeToCallState } from '../native/AlarmNative';
+import { ackDismissals, checkPendingCall, clearPendingCall, drainDismissals, getLastCallDuration, getMostRecentCallDuration, makePhoneCall, requestCallPhonePermission, requestReadCallLogPermission, requestReadPhoneStatePermission, savePendingCall, subscribeToCallState, subscribeToCallThreshold, subscribeToReports } from '../native/AlarmNative';
 
 // Initialize Convex HTTP client for imperative queries
 const CONVEX_URL = process.env.EXPO_PUBLIC_CONVEX_URL || "";
@@ -35,6 +35,8 @@ export default function HomeScreen() {
     const callInProgressRef = useRef(false);
     const buddyEmailRef = useRef(null); // Store buddy email for streak updates after call
     const pendingAlarmRef = useRef(null);
+    const deepLinkDismissalsRef = useRef(new Set()); // Native dismissals already handled by a deep link
+    const drainingDismissalsRef = useRef(false);
     const streakCardRef = useRef(null);
     const [showAlarmScreen, setShowAlarmScreen] = useState(false);
 
@@ -99,6 +101,12 @@ export default function HomeScreen() {
                 }
             } else if (event.status === 'ended' && callInProgressRef.current) {
                 callInProgressRef.current = false;
+
+                // The native reporter posts this call's duration and streak update itself
+                if (event.reported) {
+                    console.log('📴 Call ended, reported to Convex natively');
+                    return;
+                }
                 console.log('📴 Call ended, fetching duration from call log...');
 
                 // Wait for call log to update, then fetch duration
@@ -251,6 +259,16 @@ export default function HomeScreen() {
         return () => unsubscribe();
     }, [updateCallDuration, showPopup]);
 
+    // The call passed the streak threshold; the credit itself waits for the call log
+    useEffect(() => {
+        const unsubscribe = subscribeToCallThreshold((event) => {
+            console.log('⏱️ Call reached streak threshold:', event);
+            showPopup(`${event.thresholdSeconds} seconds in; streak credit is counted when the call ends`, '#4CAF50');
+        });
+
+        return () => unsubscribe();
+    }, [showPopup]);
+
     // Debug: Log all alarms
     useEffect(() => {
         if (alarms) {
@@ -290,6 +308,19 @@ export default function HomeScreen() {
                         console.log('Found pending call:', pendingCall);
                         console.log('Duration from call log:', pendingCall.duration);
 
+                        // Called from the alarm screen before any call record existed; created
+                        // once the call log has the duration, so a later retry does not add a second
+                        if (pendingCall.native && pendingCall.duration > 0 && pendingCall.alarmId && pendingCall.buddyEmail && user?.email) {
+                            const callRecord = await createCall({
+                                user1Email: user.email,
+                                user2Email: pendingCall.buddyEmail,
+                                alarmId: pendingCall.alarmId
+                            });
+                            pendingCall.callId = callRecord.callId;
+                            buddyEmailRef.current = pendingCall.buddyEmail;
+                            console.log('📞 Created call record for native buddy call:', callRecord.callId);
+                        }
+
                         if (pendingCall.duration > 0) {
                             await updateCallDuration({
                                 callId: pendingCall.callId,
@@ -473,7 +504,7 @@ export default function HomeScreen() {
 
         const subscription = AppState.addEventListener('change', handleAppStateChange);
         return () => subscription.remove();
-    }, [updateCallDuration, showPopup]);
+    }, [createCall, updateCallDuration, showPopup]);
 
     // Find the alarm that is likely ringing (enabled and has a buddy)
     // Accept both email format (with @) or just a name
@@ -821,8 +852,10 @@ export default function HomeScreen() {
                     return false;
                 };
 
-                // Update streak with retry
-                await updateStreakWithRetry();
+                // Update streak with retry, unless native code already reported this wake-up
+                if (!pendingData.reportedNatively) {
+                    await updateStreakWithRetry();
+                }
 
                 // Handle buddy/stranger call - pass user explicitly to avoid stale closure
                 if (pendingData.alarmTime || pendingData.alarmId) {
@@ -836,6 +869,98 @@ export default function HomeScreen() {
         processPendingAlarm();
     }, [user, recentStreaks, markAwake, showPopup]); // Added all required dependencies
 
+    // Process wake-ups recorded natively by AlarmActivity (e.g. solo alarms, which no longer open the app)
+    useEffect(() => {
+        if (!user?.email) return;
+
+        const processNativeDismissals = async () => {
+            if (drainingDismissalsRef.current) return;
+            drainingDismissalsRef.current = true;
+
+            try {
+                // Let a launch deep link claim its own dismissal first
+                await Linking.getInitialURL();
+                const dismissals = (await drainDismissals()).filter(d => !deepLinkDismissalsRef.current.has(d.key));
+                if (dismissals.length === 0) return;
+
+                console.log(`📥 Processing ${dismissals.length} natively recorded dismissal(s)`);
+                const processed = [];
+                for (const dismissal of dismissals) {
+                    try {
+                        // By id first, which still finds an alarm whose time was edited since;
+                        // the time lookup is for dismissals recorded without an id
+                        let alarmData = null;
+                        if (dismissal.alarmId) {
+                            try {
+                                const alarm = await convexClient.query(api.alarms.getAlarmById, { alarmId: dismissal.alarmId });
+                                if (alarm && alarm.user_id === user._id) alarmData = { alarm };
+                            } catch (error) {
+                                console.log('⚠️ Dismissal alarmId is not a Convex id:', dismissal.alarmId);
+                            }
+                        }
+                        if (!alarmData?.alarm && dismissal.time && dismissal.ampm) {
+                            alarmData = await convexClient.query(api.alarms.getAlarmByTimeAndUser, {
+                                userEmail: user.email,
+                                alarmTime: dismissal.time,
+                                alarmAmpm: dismissal.ampm
+                            });
+                        }
+                        const hasBuddy = alarmData?.alarm?.buddy != null;
+                        const userDate = new Date(dismissal.dismissedAt).toISOString().split('T')[0];
+
+                        if (hasBuddy && alarmData?.alarm?._id) {
+                            await recordDismissal({
+                                alarmId: alarmData.alarm._id,
+                                userEmail: user.email,
+                            });
+                        }
+
+                        // Buddy alarms only count after the call, same as the deep link path
+                        const result = await markAwake({
+                            userEmail: user.email,
+                            userDate,
+                            skipIncrement: hasBuddy
+                        });
+
+                        if (!hasBuddy && (result.status === 'success' || result.status === 'incremented')) {
+                            showPopup(`Streak: ${result.streak} days!`, '#4CAF50');
+                        }
+                        processed.push(dismissal.key);
+                    } catch (error) {
+                        console.error('❌ Failed to process native dismissal:', dismissal.key, error);
+                    }
+                }
+
+                await ackDismissals(processed);
+                console.log(`✅ Processed ${processed.length}/${dismissals.length} native dismissal(s)`);
+            } finally {
+                drainingDismissalsRef.current = false;
+            }
+        };
+
+        processNativeDismissals();
+
+        // Also pick up dismissals made while the app was in the background
+        const subscription = AppState.addEventListener('change', (state) => {
+            if (state === 'active') processNativeDismissals();
+        });
+        return () => subscription.remove();
+    }, [user?.email]);
+
+    // Wake-ups and call results posted by the native reporter; show the same popups
+    // the JS paths show when they report
+    useEffect(() => {
+        return subscribeToReports(({ kind, status, result }) => {
+            if (status !== 'ok' || !result) return;
+
+            if (kind === 'wakeup' && !result.hasBuddy && (result.status === 'success' || result.status === 'incremented')) {
+                showPopup(`Streak: ${result.streak} days!`, '#4CAF50');
+            } else if ((kind === 'callResult' || kind === 'buddyCall') && result.status === 'success') {
+                showPopup(`Streak: ${result.user1.streak} days!`, '#4CAF50');
+            }
+        });
+    }, [showPopup]);
+
     // Configure notifications and request permissions on mount
     useEffect(() => {
         const setupNotifications = async () => {
@@ -902,6 +1027,16 @@ export default function HomeScreen() {
                 const alarmIdMatch = url.match(/[?&]alarmId=([^&]+)/);
                 const timeMatch = url.match(/[?&]time=([^&]+)/);
                 const ampmMatch = url.match(/[?&]ampm=([^&]+)/);
+                const dismissalMatch = url.match(/[?&]dismissal=([^&]+)/);
+                // Wake-up already queued for Convex by the native reporter
+                const reportedNatively = /[?&]reported=native/.test(url);
+
+                // This deep link carries its own natively recorded dismissal - claim it
+                if (dismissalMatch) {
+                    const dismissalKey = decodeURIComponent(dismissalMatch[1]);
+                    deepLinkDismissalsRef.current.add(dismissalKey);
+                    ackDismissals([dismissalKey]);
+                }
 
                 const buddyEmail = buddyMatch ? decodeURIComponent(buddyMatch[1]) : null;
                 const alarmId = alarmIdMatch ? decodeURIComponent(alarmIdMatch[1]) : null;
@@ -913,7 +1048,7 @@ export default function HomeScreen() {
                 console.log('⏰ Time from URL:', alarmTime, alarmAmpm);
 
                 // Check alarm mode before marking awake
-                if (user && user.email && alarmTime && alarmAmpm) {
+                if (!reportedNatively && user && user.email && alarmTime && alarmAmpm) {
                     try {
                         const alarmData = await convexClient.query(api.alarms.getAlarmByTimeAndUser, {
                             userEmail: user.email,
@@ -978,7 +1113,7 @@ export default function HomeScreen() {
                 } else if (!user || !user.email) {
                     // Store for later processing
                     console.log('⏳ User not loaded, storing alarm for later');
-                    pendingAlarmRef.current = { alarmTime, alarmAmpm, alarmId, buddyEmail };
+                    pendingAlarmRef.current = { alarmTime, alarmAmpm, alarmId, buddyEmail, reportedNatively };
                 }
             }
         };
@@ -1005,6 +1140,16 @@ export default function HomeScreen() {
                 const alarmIdMatch = url.match(/[?&]alarmId=([^&]+)/);
                 const timeMatch = url.match(/[?&]time=([^&]+)/);
                 const ampmMatch = url.match(/[?&]ampm=([^&]+)/);
+                const dismissalMatch = url.match(/[?&]dismissal=([^&]+)/);
+                // Wake-up already queued for Convex by the native reporter
+                const reportedNatively = /[?&]reported=native/.test(url);
+
+                // This deep link carries its own natively recorded dismissal - claim it
+                if (dismissalMatch) {
+                    const dismissalKey = decodeURIComponent(dismissalMatch[1]);
+                    deepLinkDismissalsRef.current.add(dismissalKey);
+                    ackDismissals([dismissalKey]);
+                }
 
                 const buddyEmail = buddyMatch ? decodeURIComponent(buddyMatch[1]) : null;
                 const alarmId = alarmIdMatch ? decodeURIComponent(alarmIdMatch[1]) : null;
@@ -1017,7 +1162,7 @@ export default function HomeScreen() {
 
                 // ALWAYS store the alarm data first, then check if we can process immediately
                 // This ensures we don't lose the data if user loads slowly
-                pendingAlarmRef.current = { alarmTime, alarmAmpm, alarmId, buddyEmail };
+                pendingAlarmRef.current = { alarmTime, alarmAmpm, alarmId, buddyEmail, reportedNatively };
                 console.log('💾 Stored alarm data in pendingAlarmRef');
 
                 // If user is already loaded, process immediately
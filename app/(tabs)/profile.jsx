@@ -10,6 +10,7 @@ import ProfilePic from '../../components/ProfilePic';
 import { usePopup } from '../../contexts/PopupContext';
 import { useUser } from '../../contexts/UserContext';
 import { api } from "../../convex/_generated/api";
+import { getLocalStats } from '../native/AlarmNative';
 import styles from '../../styles/profile.styles';
 import BannerAds from '../ads/BannerAds';
 
@@ -50,17 +51,43 @@ export default function Profile() {
   );
 
   // Get weekly stats for bar chart
-  const weeklyStats = useQuery(
+  const remoteWeeklyStats = useQuery(
     api.streaks.getWeeklyStats,
     user?.email ? { userEmail: user.email } : "skip"
   );
 
   // Get monthly stats for chart
-  const monthlyStats = useQuery(
+  const remoteMonthlyStats = useQuery(
     api.streaks.getMonthlyStats,
     user?.email ? { userEmail: user.email } : "skip"
   );
 
+  // Stats kept on the device, shown until Convex answers (e.g. offline)
+  const [localWeeklyStats, setLocalWeeklyStats] = useState(undefined);
+  const [localMonthlyStats, setLocalMonthlyStats] = useState(undefined);
+
+  useEffect(() => {
+    let cancelled = false;
+    Promise.all([getLocalStats('week'), getLocalStats('year')]).then(([week, year]) => {
+      if (cancelled) return;
+      if (week) {
+        setLocalWeeklyStats(week.labels.map((dayName, i) => ({
+          date: week.start[i], dayName, count: week.data[i],
+        })));
+      }
+      if (year) {
+        // Same last-6-months shape as getMonthlyStats
+        setLocalMonthlyStats(year.labels.slice(-6).map((monthName, i) => ({
+          month: year.start[i + 6].slice(0, 7), monthName, wakeups: year.data[i + 6],
+        })));
+      }
+    });
+    return () => { cancelled = true; };
+  }, []);
+
+  const weeklyStats = remoteWeeklyStats ?? localWeeklyStats;
+  const monthlyStats = remoteMonthlyStats ?? localMonthlyStats;
+
   // Get profile stats summary
   const profileStats = useQuery(
     api.streaks.getProfileStats,
@@ -1,12 +1,23 @@
-import { Alert, Linking, NativeEventEmitter, NativeModules, Platform } from 'react-native';
-const { AlarmModule } = NativeModules;
+import { Alert, Linking, NativeEventEmitter, Platform } from 'react-native';
+// TurboModule (specs/NativeAlarmModule.ts); null on platforms without it
+import AlarmModule from '../../specs/NativeAlarmModule';
 
-// Event emitter for call state changes
+// Event emitter for native events (call state changes, alarm fired/dismissed)
 let callStateEmitter = null;
 if (AlarmModule) {
     callStateEmitter = new NativeEventEmitter(AlarmModule);
 }
 
+// Add a listener and, when it is removed, tell the native bus which name it had, so
+// events for a name nobody listens to any more are buffered rather than emitted unheard
+function listen(eventName, handler) {
+    const subscription = callStateEmitter.addListener(eventName, handler);
+    return () => {
+        subscription.remove();
+        AlarmModule.releaseListener(eventName);
+    };
+}
+
 /**
  * Subscribe to call state changes
  * @param {function} callback - Callback with {status: 'started'|'ended', duration?: number}
@@ -18,8 +29,108 @@ export function subscribeToCallState(callback) {
         return () => { };
     }
 
-    const subscription = callStateEmitter.addListener('CallStateChanged', callback);
-    return () => subscription.remove();
+    return listen('CallStateChanged', callback);
+}
+
+/**
+ * Subscribe to the buddy call passing the streak threshold while still in progress.
+ * Fires once per call; buffered natively if JS was not running. The time includes
+ * ringing, so this earns no credit: the call-log length does once the call ends.
+ * @param {function} callback - Callback with {callId, thresholdSeconds, elapsedMs, startTime}
+ * @returns {function} Unsubscribe function
+ */
+export function subscribeToCallThreshold(callback) {
+    if (!callStateEmitter) {
+        console.warn('CallStateEmitter not available');
+        return () => { };
+    }
+
+    return listen('CallThresholdReached', callback);
+}
+
+/**
+ * Subscribe to native alarm lifecycle events. Events raised while JS was not running
+ * are buffered natively and delivered when the listener is added.
+ * @param {function} callback - Callback with {type: 'fired'|'dismissed'|'snoozed'|'skipped'|'cancelled', alarmId, alarmTime, ...}
+ *   Snoozed events also carry snoozedUntil (ms); the alarm is already re-armed natively.
+ *   Skipped (skippedTo, ms) and cancelled come from the home-screen widget or quick-settings tile.
+ * @returns {function} Unsubscribe function
+ */
+export function subscribeToAlarmEvents(callback) {
+    if (!callStateEmitter) {
+        console.warn('AlarmModule event emitter not available');
+        return () => { };
+    }
+
+    const unsubscribers = [
+        listen('AlarmFired', (event) => callback({ ...event, type: 'fired' })),
+        listen('AlarmDismissed', (event) => callback({ ...event, type: 'dismissed' })),
+        listen('AlarmSnoozed', (event) => callback({ ...event, type: 'snoozed' })),
+        listen('AlarmSkipped', (event) => callback({ ...event, type: 'skipped' })),
+        listen('AlarmCancelled', (event) => callback({ ...event, type: 'cancelled' })),
+    ];
+    return () => unsubscribers.forEach((unsubscribe) => unsubscribe());
+}
+
+/**
+ * Subscribe to permission / system setting changes. Fires only when a value in the
+ * environment snapshot actually changed. A new listener first gets the latest snapshot
+ * again, with replayed: true.
+ * @param {function} callback - Callback with the new snapshot plus changed: string[] and replayed?: boolean
+ * @returns {function} Unsubscribe function
+ */
+export function subscribeToEnvironment(callback) {
+    if (!callStateEmitter) {
+        console.warn('AlarmModule event emitter not available');
+        return () => { };
+    }
+
+    return listen('EnvironmentChanged', callback);
+}
+
+/**
+ * All permission and system-setting checks in one synchronous native call (cached natively)
+ * @returns {Promise<object|null>} {canScheduleExactAlarms, batteryOptimizationDisabled, canDrawOverlays,
+ *   canUseFullScreenIntent, hasCallPermission, hasReadPhoneStatePermission, hasReadCallLogPermission,
+ *   notificationsEnabled, alarmChannelImportance, standbyBucket, standbyBucketName, powerSaveMode, updatedAt}
+ */
+export async function getEnvironmentSnapshot() {
+    if (Platform.OS !== 'android' || !AlarmModule) return null;
+
+    try {
+        return AlarmModule.getEnvironmentSnapshot();
+    } catch (error) {
+        console.error('Error getting environment snapshot:', error);
+        return null;
+    }
+}
+
+/**
+ * Get counters for the native event bus (posted, delivered, coalesced, redundant, dropped, buffered, ...)
+ */
+export async function getEventBusStats() {
+    if (Platform.OS !== 'android' || !AlarmModule) return null;
+
+    try {
+        return await AlarmModule.getEventBusStats();
+    } catch (error) {
+        console.error('Error getting event bus stats:', error);
+        return null;
+    }
+}
+
+/**
+ * Get the most recent native alarm log lines (oldest first)
+ */
+export async function dumpNativeLog() {
+    if (Platform.OS !== 'android' || !AlarmModule) return [];
+
+    try {
+        return await AlarmModule.dumpLog();
+    } catch (error) {
+        console.error('Error dumping native log:', error);
+        return [];
+    }
 }
 
 export async function canScheduleExactAlarms() {
@@ -27,7 +138,8 @@ export async function canScheduleExactAlarms() {
     if (!AlarmModule) return false;
 
     try {
-        return await AlarmModule.canScheduleExactAlarms();
+        // Synchronous JSI call
+        return AlarmModule.canScheduleExactAlarms();
     } catch (error) {
         console.error('Error checking alarm permission:', error);
         return false;
@@ -74,7 +186,8 @@ export async function isBatteryOptimizationDisabled() {
     if (!AlarmModule) return false;
 
     try {
-        return await AlarmModule.isBatteryOptimizationDisabled();
+        // Synchronous JSI call
+        return AlarmModule.isBatteryOptimizationDisabled();
     } catch (error) {
         console.error('Error checking battery optimization:', error);
         return false;
@@ -121,7 +234,8 @@ export async function canDrawOverlays() {
     if (!AlarmModule) return false;
 
     try {
-        return await AlarmModule.canDrawOverlays();
+        // Synchronous JSI call
+        return AlarmModule.canDrawOverlays();
     } catch (error) {
         console.error('Error checking overlay permission:', error);
         return false;
@@ -168,7 +282,8 @@ export async function canUseFullScreenIntent() {
     if (!AlarmModule) return false;
 
     try {
-        return await AlarmModule.canUseFullScreenIntent();
+        // Synchronous JSI call
+        return AlarmModule.canUseFullScreenIntent();
     } catch (error) {
         console.error('Error checking full screen intent permission:', error);
         return false;
@@ -260,6 +375,10 @@ export async function hasReadPhoneStatePermission() {
     if (Platform.OS !== 'android') return true;
 
     try {
+        if (AlarmModule) {
+            // Synchronous JSI call
+            return AlarmModule.hasReadPhoneStatePermission();
+        }
         const { PermissionsAndroid } = require('react-native');
         const granted = await PermissionsAndroid.check(
             PermissionsAndroid.PERMISSIONS.READ_PHONE_STATE
@@ -358,6 +477,28 @@ export async function getLastCallDuration(phoneNumber) {
     }
 }
 
+/**
+ * Read outgoing calls to the given buddy numbers from the call log, newest first, a page
+ * at a time. Pass the returned nextCursor back to get the next page; it is null after the
+ * last one. A page can hold fewer than pageSize calls and still have a nextCursor.
+ * @param {string[]} numbers - Buddy phone numbers (matched on their last 10 digits)
+ * @param {number} sinceMs - Only calls placed after this time
+ * @param {number} [pageSize] - Calls per page (default 100, at most 500)
+ * @param {?string} [cursor] - nextCursor of the previous page, or null for the first
+ * @returns {Promise<{id: number[], date: number[], duration: number[], number: number[], scanned: number, nextCursor: ?string}|null>}
+ *   Column arrays, one entry per call; number holds the index into numbers. Null without READ_CALL_LOG.
+ */
+export async function getCallHistory(numbers, sinceMs, pageSize = 100, cursor = null) {
+    if (Platform.OS !== 'android' || !AlarmModule) return null;
+
+    try {
+        return await AlarmModule.getCallHistory(numbers, sinceMs, pageSize, cursor);
+    } catch (error) {
+        console.error('Error getting call history:', error);
+        return null;
+    }
+}
+
 /**
  * Get the duration of the most recent outgoing call (regardless of number)
  * @returns {Promise<number>} Duration in seconds
@@ -375,7 +516,195 @@ export async function getMostRecentCallDuration() {
     }
 }
 
+/**
+ * Get aggregated frame metrics for the native alarm screen
+ * @returns {Promise<object|null>} Time-to-first-frame (ms) and frame durations (us), or null
+ */
+export async function getFrameMetricsSummary() {
+    if (Platform.OS !== 'android' || !AlarmModule) return null;
+
+    try {
+        return await AlarmModule.getFrameMetricsSummary();
+    } catch (error) {
+        console.error('Error getting frame metrics summary:', error);
+        return null;
+    }
+}
+
+/**
+ * Get wake-up stats kept on the device, for charts that must work offline.
+ * Only alarms dismissed on this device are counted.
+ * @param {'week'|'month'|'year'} range - Last 7 days, last 4 weeks or last 12 months
+ * @returns {Promise<{range: string, labels: string[], start: string[], data: number[], avgReactionMs: number[], callSeconds: number[], total: number, activeDays: number, totalAvgReactionMs: number, totalCalls: number, totalCallSeconds: number}|null>}
+ *   One entry per bucket, oldest first; avgReactionMs is -1 where unknown
+ */
+export async function getLocalStats(range) {
+    if (Platform.OS !== 'android' || !AlarmModule) return null;
+
+    try {
+        return await AlarmModule.getLocalStats(range);
+    } catch (error) {
+        console.error('Error getting local stats:', error);
+        return null;
+    }
+}
+
+/**
+ * Check that alarms really fire on this device: arms a quiet, tagged alarm delayMs out
+ * through the real native path and reports how far it got. The alarm screen shows
+ * for a moment and closes itself; nothing is journaled or reported to Convex.
+ * @param {number} delayMs - Delay before the test alarm fires (2 s to 5 min)
+ * @returns {Promise<{ok: boolean, failedStage: ?string, delayMs: number, lateMs?: number, fireToActivityMs?: number, stages: {scheduled: number, fired?: number, serviceStarted?: number, foreground?: number, soundStarted?: number, activityCreated?: number}, launchSource: ?('receiver'|'fullScreen'|'service'), launchAttempt: number, interactiveAtFire?: boolean, device: string, sdk: number}|null>}
+ *   Stage times are ms since scheduling; launchAttempt is 0 for the receiver's direct start
+ *   and 1-3 for AlarmService's retries
+ */
+export async function runAlarmSelfTest(delayMs = 5000) {
+    if (Platform.OS !== 'android' || !AlarmModule) return null;
+
+    try {
+        return await AlarmModule.runAlarmSelfTest(delayMs);
+    } catch (error) {
+        console.error('Error running alarm self-test:', error);
+        return null;
+    }
+}
+
+/**
+ * Get alarm dismissals recorded natively by AlarmActivity that have not been acknowledged
+ * @returns {Promise<Array<{key: string, alarmId: ?string, buddyEmail: ?string, alarmTime: number, dismissedAt: number, time: ?string, ampm: ?string}>>}
+ */
+export async function drainDismissals() {
+    if (Platform.OS !== 'android' || !AlarmModule) return [];
+
+    try {
+        return await AlarmModule.drainDismissals();
+    } catch (error) {
+        console.error('Error draining native dismissals:', error);
+        return [];
+    }
+}
+
+/**
+ * Acknowledge processed dismissals so native storage can drop them
+ * @param {string[]} keys - Keys returned by drainDismissals
+ */
+export async function ackDismissals(keys) {
+    if (Platform.OS !== 'android' || !AlarmModule || !keys || keys.length === 0) return;
+
+    try {
+        await AlarmModule.ackDismissals(keys);
+    } catch (error) {
+        console.error('Error acknowledging native dismissals:', error);
+    }
+}
+
+/**
+ * Hand wake-up and buddy call reporting to the native Convex reporter, which posts
+ * them from the alarm screen and call listener without waiting for JS. Pass nulls
+ * on sign-out to turn it off.
+ * @param {string|null} deploymentUrl - Convex deployment URL
+ * @param {string|null} userEmail - Signed-in user's email
+ */
+export function configureReporter(deploymentUrl, userEmail) {
+    if (Platform.OS !== 'android' || !AlarmModule) return;
+
+    try {
+        AlarmModule.configureReporter(deploymentUrl || null, userEmail || null);
+    } catch (error) {
+        console.error('Error configuring native reporter:', error);
+    }
+}
+
+/**
+ * Cache buddy details on the device so the native alarm screen and notification
+ * show the buddy's name and number at fire time, offline. Native keeps an LRU.
+ * @param {Array<{_id: string, buddy?: string}>} alarms - The user's alarms
+ * @param {Array<{email: string, name?: string, phone?: string, profile_code?: string}>} profiles
+ */
+export function cacheBuddyProfiles(alarms, profiles) {
+    if (Platform.OS !== 'android' || !AlarmModule) return;
+
+    const byEmail = new Map(profiles.map((profile) => [profile.email.toLowerCase(), profile]));
+    const entries = [];
+    for (const alarm of alarms) {
+        const profile = alarm.buddy ? byEmail.get(alarm.buddy.toLowerCase()) : null;
+        if (!profile) continue;
+        entries.push({
+            alarmId: alarm._id.toString(),
+            email: profile.email,
+            name: profile.name ?? null,
+            phone: profile.phone ?? null,
+            profileCode: profile.profile_code ?? null,
+        });
+    }
+    if (entries.length === 0) return;
+
+    try {
+        AlarmModule.cacheBuddyProfiles(entries);
+    } catch (error) {
+        console.error('Error caching buddy profiles:', error);
+    }
+}
+
+/**
+ * Subscribe to reports the native reporter delivered to Convex
+ * @param {function} callback - Callback with {id, kind: 'wakeup'|'callResult'|'buddyCall'|'alarmEnabled', status, result}
+ *   where result is the mutation result, already parsed
+ * @returns {function} Unsubscribe function
+ */
+export function subscribeToReports(callback) {
+    if (!callStateEmitter) {
+        console.warn('AlarmModule event emitter not available');
+        return () => { };
+    }
+
+    return listen('ReportDelivered', (event) => {
+        let result = null;
+        try {
+            result = event.result ? JSON.parse(event.result) : null;
+        } catch (error) {
+            console.error('Unreadable native report result:', error);
+        }
+        callback({ ...event, result });
+    });
+}
+
+/**
+ * Read alarm lifecycle events (fired, rang, launch_attempt, dismissed, snoozed, skipped, cancelled, call_placed, call_started, call_ended)
+ * from the native journal as column arrays
+ * @param {number} sinceSeq - Return events after this sequence number (0 for all)
+ * @param {number} max - Page size
+ * @returns {Promise<object|null>} {seq[], type[], elapsedRealtime[], wallTime[], refId[], value[], lastSeq, hasMore}
+ */
+export async function drainJournal(sinceSeq = 0, max = 500) {
+    if (Platform.OS !== 'android' || !AlarmModule) return null;
+
+    try {
+        return await AlarmModule.drainJournal(sinceSeq, max);
+    } catch (error) {
+        console.error('Error draining alarm journal:', error);
+        return null;
+    }
+}
+
 export async function checkAllPermissions() {
+    const snapshot = await getEnvironmentSnapshot();
+    if (snapshot) {
+        const coreGranted = snapshot.canScheduleExactAlarms && snapshot.batteryOptimizationDisabled &&
+            snapshot.canDrawOverlays && snapshot.canUseFullScreenIntent && snapshot.hasCallPermission;
+        return {
+            canScheduleExactAlarms: snapshot.canScheduleExactAlarms,
+            batteryOptimizationDisabled: snapshot.batteryOptimizationDisabled,
+            canDrawOverlays: snapshot.canDrawOverlays,
+            canUseFullScreenIntent: snapshot.canUseFullScreenIntent,
+            hasCallPermission: snapshot.hasCallPermission,
+            hasReadPhoneStatePermission: snapshot.hasReadPhoneStatePermission,
+            hasReadCallLogPermission: snapshot.hasReadCallLogPermission,
+            coreGranted: coreGranted,
+            allGranted: coreGranted
+        };
+    }
+
     const exactAlarms = await canScheduleExactAlarms();
     const batteryOpt = await isBatteryOptimizationDisabled();
     const overlays = await canDrawOverlays();
@@ -446,6 +775,37 @@ export async function scheduleAlarm(date, buddyName = null, alarmId = null, requ
     }
 }
 
+/**
+ * Schedule several alarms with one native call (one storage write natively)
+ * @param {Array<{date: Date, buddyName?: string, alarmId?: string, requestCode: number}>} alarms
+ * @returns {Promise<number>} Number of alarms scheduled
+ */
+export async function scheduleAlarms(alarms) {
+    if (Platform.OS !== 'android') {
+        throw new Error('Android only');
+    }
+    if (!AlarmModule) {
+        throw new Error('AlarmModule not available');
+    }
+    if (!alarms || alarms.length === 0) return 0;
+
+    if (!(await canScheduleExactAlarms())) {
+        throw new Error('EXACT_ALARM_PERMISSION_REQUIRED');
+    }
+
+    try {
+        return await AlarmModule.scheduleExactAlarms(alarms.map((alarm) => ({
+            timestampMs: alarm.date.getTime(),
+            buddyName: alarm.buddyName ?? null,
+            alarmId: alarm.alarmId ?? null,
+            requestCode: alarm.requestCode,
+        })));
+    } catch (error) {
+        console.error('Error scheduling alarms:', error);
+        throw error;
+    }
+}
+
 export async function cancelAlarm(requestCode = 1001) {
     if (Platform.OS !== 'android') {
         throw new Error('Android only');
@@ -464,6 +824,29 @@ export async function cancelAlarm(requestCode = 1001) {
     }
 }
 
+/**
+ * Cancel several alarms with one native call
+ * @param {number[]} requestCodes
+ * @returns {Promise<number>} Number of alarms that were still armed
+ */
+export async function cancelAlarms(requestCodes) {
+    if (Platform.OS !== 'android') {
+        throw new Error('Android only');
+    }
+    if (!AlarmModule) {
+        throw new Error('AlarmModule not available');
+    }
+    if (!requestCodes || requestCodes.length === 0) return 0;
+
+    try {
+        console.log(`Cancelling ${requestCodes.length} alarms`);
+        return await AlarmModule.cancelAlarms(requestCodes);
+    } catch (error) {
+        console.error('Error cancelling alarms:', error);
+        throw error;
+    }
+}
+
 export async function stopAlarmService() {
     if (Platform.OS !== 'android') {
         throw new Error('Android only');
@@ -545,6 +928,21 @@ export async function clearPendingCall() {
     }
 }
 
+/**
+ * Set the call length (seconds) after which native code reports streak credit
+ * during the call instead of after it; 0 turns the early credit off
+ * @param {number} seconds
+ */
+export function setCallThreshold(seconds) {
+    if (Platform.OS !== 'android' || !AlarmModule) return;
+
+    try {
+        AlarmModule.setCallThreshold(seconds);
+    } catch (error) {
+        console.error('Error setting call threshold:', error);
+    }
+}
+
 /**
  * Generate a unique request code from an alarm ID string
  * This converts the Convex ID to a positive integer for Android PendingIntent
@@ -580,14 +978,33 @@ export default {
     requestReadCallLogPermission,
     getLastCallDuration,
     getMostRecentCallDuration,
+    getCallHistory,
+    getFrameMetricsSummary,
+    getLocalStats,
+    drainDismissals,
+    ackDismissals,
+    drainJournal,
     savePendingCall,
     checkPendingCall,
     clearPendingCall,
+    setCallThreshold,
     checkAllPermissions,
     scheduleAlarm,
+    scheduleAlarms,
     cancelAlarm,
+    cancelAlarms,
     stopAlarmService,
+    runAlarmSelfTest,
     makePhoneCall,
     subscribeToCallState,
+    subscribeToCallThreshold,
+    subscribeToAlarmEvents,
+    getEventBusStats,
+    dumpNativeLog,
+    getEnvironmentSnapshot,
+    subscribeToEnvironment,
+    configureReporter,
+    cacheBuddyProfiles,
+    subscribeToReports,
     generateRequestCode
 };
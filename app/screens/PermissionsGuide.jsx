@@ -6,7 +6,7 @@ import { Animated, ScrollView, TouchableOpacity, View } from 'react-native';
 import { SafeAreaView } from 'react-native-safe-area-context';
 import AppText from '../../components/AppText';
 import styles from "../../styles/permissionsGuide.styles";
-import { checkAllPermissions, requestBatteryOptimization, requestCallPhonePermission, requestDrawOverlays, requestExactAlarmPermission, requestFullScreenIntentPermission } from '../native/AlarmNative';
+import { checkAllPermissions, requestBatteryOptimization, requestCallPhonePermission, requestDrawOverlays, requestExactAlarmPermission, requestFullScreenIntentPermission, subscribeToEnvironment } from '../native/AlarmNative';
 
 const NEON = '#C9E265';
 
@@ -32,8 +32,8 @@ export default function PermissionsGuide() {
 
     useEffect(() => {
         checkPermissions();
-        const interval = setInterval(checkPermissions, 2000);
-        return () => clearInterval(interval);
+        // Native side re-checks on resume and on system broadcasts, and only emits on a change
+        return subscribeToEnvironment(checkPermissions);
     }, []);
 
     const handleExactAlarmPress = async () => {
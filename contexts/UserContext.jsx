@@ -1,13 +1,24 @@
 import AsyncStorage from '@react-native-async-storage/async-storage';
-import { useQuery } from 'convex/react';
-import { createContext, useContext, useEffect, useState } from 'react';
+import { useMutation, useQuery } from 'convex/react';
+import { createContext, useContext, useEffect, useMemo, useState } from 'react';
+import { cacheBuddyProfiles, configureReporter, subscribeToAlarmEvents } from '../app/native/AlarmNative';
 import { api } from '../convex/_generated/api';
 
 const UserContext = createContext();
 
+// alarmId -> ms of the ring a home-screen widget skip moved the alarm to
+const SKIPPED_ALARMS_KEY = 'skippedAlarms';
+
+function pruneSkipped(skipped) {
+    const now = Date.now();
+    return Object.fromEntries(Object.entries(skipped).filter(([, skippedTo]) => skippedTo > now));
+}
+
 export function UserProvider({ children }) {
     const [user, setUser] = useState(null);
     const [loading, setLoading] = useState(true);
+    const [skippedAlarms, setSkippedAlarms] = useState({});
+    const toggleAlarmMutation = useMutation(api.alarms.toggleAlarm);
 
     // Real-time sync with Convex
     const convexUser = useQuery(
@@ -15,10 +26,71 @@ export function UserProvider({ children }) {
         user?.email ? { email: user.email } : "skip"
     );
 
+    // Buddy names and numbers for the native alarm screen, refreshed whenever alarms change
+    const alarms = useQuery(
+        api.alarms.getAlarmsByUser,
+        user?._id ? { user_id: user._id } : "skip"
+    );
+    const buddyEmails = useMemo(() => {
+        const emails = new Set((alarms ?? []).map((alarm) => alarm.buddy).filter((buddy) => buddy?.includes('@')));
+        return [...emails].sort();
+    }, [alarms]);
+    const buddyProfiles = useQuery(
+        api.users.getBuddyProfiles,
+        buddyEmails.length > 0 ? { emails: buddyEmails } : "skip"
+    );
+
     useEffect(() => {
         loadUser();
+        AsyncStorage.getItem(SKIPPED_ALARMS_KEY)
+            .then((stored) => stored && setSkippedAlarms(pruneSkipped(JSON.parse(stored))))
+            .catch((err) => console.error('Failed to load skipped alarms:', err));
     }, []);
 
+    useEffect(() => {
+        if (alarms && buddyProfiles) {
+            cacheBuddyProfiles(alarms, buddyProfiles);
+        }
+    }, [alarms, buddyProfiles]);
+
+    // Let native code report wake-ups for the signed-in user; cleared on logout
+    useEffect(() => {
+        if (loading) return;
+        configureReporter(process.env.EXPO_PUBLIC_CONVEX_URL, user?.email ?? null);
+    }, [loading, user?.email]);
+
+    // Skips and cancels from the home-screen widget or quick-settings tile. Native code
+    // has already re-armed or cancelled the alarm; a cancel it could not report is
+    // switched off in Convex here, so the alarm list does not re-enable it.
+    useEffect(() => {
+        if (!user?._id) return;
+
+        const rememberSkip = (alarmId, skippedTo) => {
+            setSkippedAlarms((current) => {
+                const next = { ...pruneSkipped(current) };
+                if (skippedTo) next[alarmId] = skippedTo; else delete next[alarmId];
+                AsyncStorage.setItem(SKIPPED_ALARMS_KEY, JSON.stringify(next)).catch(err =>
+                    console.error('Failed to save skipped alarms:', err)
+                );
+                return next;
+            });
+        };
+
+        return subscribeToAlarmEvents((event) => {
+            if (!event.alarmId) return;
+            if (event.type === 'skipped') {
+                rememberSkip(event.alarmId, event.skippedTo);
+            } else if (event.type === 'cancelled') {
+                rememberSkip(event.alarmId, null);
+                if (!event.reported) {
+                    toggleAlarmMutation({ id: event.alarmId, enabled: false }).catch(err =>
+                        console.error('Failed to switch off cancelled alarm:', event.alarmId, err)
+                    );
+                }
+            }
+        });
+    }, [user?._id]);
+
     // Sync Convex data with local state when it changes
     useEffect(() => {
         if (convexUser && user) {
@@ -80,7 +152,7 @@ export function UserProvider({ children }) {
     const isBanned = user && (user.reportCount || 0) > 3;
 
     return (
-        <UserContext.Provider value={{ user, loading, login, logout, updateUser, loadUser, isBanned }}>
+        <UserContext.Provider value={{ user, loading, login, logout, updateUser, loadUser, isBanned, skippedAlarms }}>
             {children}
         </UserContext.Provider>
     );
@@ -17,6 +17,7 @@ import type * as crons from "../crons.js";
 import type * as friends from "../friends.js";
 import type * as leaderboard from "../leaderboard.js";
 import type * as matching from "../matching.js";
+import type * as nativeReports from "../nativeReports.js";
 import type * as notifications from "../notifications.js";
 import type * as streaks from "../streaks.js";
 import type * as users from "../users.js";
@@ -37,6 +38,7 @@ declare const fullApi: ApiFromModules<{
   friends: typeof friends;
   leaderboard: typeof leaderboard;
   matching: typeof matching;
+  nativeReports: typeof nativeReports;
   notifications: typeof notifications;
   streaks: typeof streaks;
   users: typeof users;
@@ -5,7 +5,7 @@ import { mutation, query } from "./_generated/server";
  * Record when a user dismisses their alarm
  * This signals to the buddy that they should also stop their alarm
  */
-export const recordDismissal = mutation({
+export const recordDismissalDefinition = {
     args: {
         alarmId: v.id("alarms"),
         userEmail: v.string(),
@@ -43,7 +43,8 @@ export const recordDismissal = mutation({
             buddyEmail: alarm.buddy,
         };
     },
-});
+};
+export const recordDismissal = mutation(recordDismissalDefinition);
 
 /**
  * Check if the current user's buddy has dismissed their alarm
@@ -2,7 +2,7 @@ import { v } from "convex/values";
 import { mutation, query } from "./_generated/server";
 
 // Create a call record when buddy call is initiated
-export const createCall = mutation({
+export const createCallDefinition = {
     args: {
         user1Email: v.string(), // Email of user who pressed "I'm awake"
         user2Email: v.string(), // Email of buddy being called
@@ -38,25 +38,31 @@ export const createCall = mutation({
             timestamp: new Date().toISOString()
         };
     },
-});
+};
+export const createCall = mutation(createCallDefinition);
 
 // Update call duration (can be called when call ends)
-export const updateCallDuration = mutation({
+export const updateCallDurationDefinition = {
     args: {
         callId: v.id('calls'),
         duration: v.number(), // Duration in seconds
     },
     handler: async (ctx, args) => {
+        // The JS flow and the native reporter can both settle a call, in either
+        // order; a call never gets shorter
+        const call = await ctx.db.get(args.callId);
+        const duration = Math.max(call?.call_duration ?? 0, args.duration);
         await ctx.db.patch(args.callId, {
-            call_duration: args.duration
+            call_duration: duration
         });
 
         return {
             status: 'updated',
-            duration: args.duration
+            duration
         };
     },
-});
+};
+export const updateCallDuration = mutation(updateCallDurationDefinition);
 
 /**
  * Get a call by its ID with user emails
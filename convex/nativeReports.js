@@ -0,0 +1,232 @@
+import { v } from "convex/values";
+import { mutation } from "./_generated/server";
+import { recordDismissalDefinition } from "./alarmDismissals";
+import { createCallDefinition, updateCallDurationDefinition } from "./calls";
+import { markAwakeAfterCallDefinition, markAwakeDefinition } from "./streaks";
+
+// markAwakeAfterCall's minimum call length
+const CREDIT_MIN_SECONDS = 60;
+
+/**
+ * Batch endpoint for the Android native reporter (ConvexReporter.java).
+ *
+ * The alarm screen and the call listener queue wake-ups and call results on the
+ * device and POST them here over /api/mutation, without waiting for JS to boot.
+ * Each report carries a client-generated id and is applied at most once, so a
+ * batch retried after a lost response does not count a wake-up twice.
+ *
+ * Report kinds:
+ *  - wakeup:     { userEmail, userDate, alarmId?, alarmTime?, alarmAmpm? }
+ *                Same as the JS dismissal flow: signal the buddy and skip the
+ *                increment for buddy alarms, otherwise count the wake-up now.
+ *                The alarm is found by id, else by the time it was set for.
+ *  - callResult: { userEmail, callId, duration, date, inProgress? }
+ *                Store the call-log duration and run markAwakeAfterCall for both
+ *                users, once per call. Only that final length earns credit: the
+ *                device cannot tell when an outgoing call is answered, so anything
+ *                timed during the call includes ringing. inProgress reports, still
+ *                queued on devices that sent one at the threshold, change nothing.
+ *  - buddyCall:  { userEmail, callKey, buddyEmail, alarmId, duration, date, inProgress? }
+ *                A call placed from the alarm screen before any call record
+ *                existed: create the record (once per callKey), then the same
+ *                as callResult.
+ *  - alarmEnabled: { userEmail, alarmId, enabled }
+ *                An alarm switched off from the home-screen widget; same as toggleAlarm.
+ */
+export const submit = mutation({
+    args: {
+        reports: v.array(v.object({
+            id: v.string(),
+            kind: v.string(),
+            args: v.any(),
+        })),
+    },
+    handler: async (ctx, args) => {
+        const results = [];
+
+        for (const report of args.reports) {
+            const seen = await ctx.db
+                .query("nativeReports")
+                .withIndex("by_report_id", (q) => q.eq("report_id", report.id))
+                .unique();
+
+            if (seen) {
+                results.push({ id: report.id, status: 'duplicate' });
+                continue;
+            }
+
+            // Errors here are permanent (unknown user, deleted call); the device drops the report
+            let result;
+            try {
+                if (report.kind === 'wakeup') {
+                    result = await applyWakeup(ctx, report.args);
+                } else if (report.kind === 'callResult') {
+                    result = await applyCallResult(ctx, report.args);
+                } else if (report.kind === 'buddyCall') {
+                    result = await applyBuddyCall(ctx, report.args);
+                } else if (report.kind === 'alarmEnabled') {
+                    result = await applyAlarmEnabled(ctx, report.args);
+                } else {
+                    throw new Error(`Unknown report kind: ${report.kind}`);
+                }
+            } catch (error) {
+                console.error(`[NativeReports] ${report.kind} ${report.id} failed:`, error.message);
+                results.push({ id: report.id, status: 'error', message: error.message });
+                continue;
+            }
+
+            await ctx.db.insert("nativeReports", {
+                report_id: report.id,
+                kind: report.kind,
+                received_at: Date.now(),
+            });
+            results.push({ id: report.id, status: 'ok', result });
+        }
+
+        return { results };
+    },
+});
+
+async function applyWakeup(ctx, args) {
+    const user = await ctx.db
+        .query("users")
+        .withIndex("by_email", (q) => q.eq("email", args.userEmail))
+        .unique();
+
+    let alarm = null;
+    if (user && args.alarmId) {
+        const alarmId = ctx.db.normalizeId("alarms", args.alarmId);
+        const byId = alarmId ? await ctx.db.get(alarmId) : null;
+        if (byId && byId.user_id === user._id) {
+            alarm = byId;
+        }
+    }
+    // Reports from before alarmId was sent, and alarms deleted since
+    if (user && !alarm && args.alarmTime && args.alarmAmpm) {
+        alarm = await ctx.db
+            .query("alarms")
+            .withIndex("by_user", (q) => q.eq("user_id", user._id))
+            .filter((q) =>
+                q.and(
+                    q.eq(q.field("time"), args.alarmTime),
+                    q.eq(q.field("ampm"), args.alarmAmpm)
+                )
+            )
+            .first();
+    }
+
+    // Buddy alarms only count after the call
+    const hasBuddy = alarm?.buddy != null;
+    if (hasBuddy) {
+        await recordDismissalDefinition.handler(ctx, {
+            alarmId: alarm._id,
+            userEmail: args.userEmail,
+        });
+    }
+
+    const awake = await markAwakeDefinition.handler(ctx, {
+        userEmail: args.userEmail,
+        userDate: args.userDate,
+        skipIncrement: hasBuddy,
+    });
+
+    return { hasBuddy, ...awake };
+}
+
+async function applyCallResult(ctx, args) {
+    const callId = ctx.db.normalizeId("calls", args.callId);
+    if (!callId) {
+        throw new Error(`Not a call id: ${args.callId}`);
+    }
+
+    const call = await ctx.db.get(callId);
+    if (!call) {
+        throw new Error("Call not found");
+    }
+
+    // Timed from OFFHOOK, so it may be mostly ringing; wait for the call log
+    if (args.inProgress) {
+        return { status: 'awaiting_final', duration: call.call_duration };
+    }
+    await updateCallDurationDefinition.handler(ctx, {
+        callId,
+        duration: args.duration,
+    });
+    await ctx.db.patch(callId, { duration_final: true });
+
+    // Already credited by an earlier final report or by the JS flow
+    if (call.credited || call.call_duration >= CREDIT_MIN_SECONDS) {
+        return { status: 'already_credited', duration: args.duration };
+    }
+
+    // The buddy is whichever participant is not the reporting user
+    const participants = await Promise.all(call.users.map((id) => ctx.db.get(id)));
+    const buddy = participants.find((u) => u && u.email !== args.userEmail);
+    if (!buddy) {
+        throw new Error("Buddy not found for call");
+    }
+
+    const result = await markAwakeAfterCallDefinition.handler(ctx, {
+        user1Email: args.userEmail,
+        user2Email: buddy.email,
+        callDuration: args.duration,
+        date: args.date,
+    });
+    if (result.status !== 'call_too_short') {
+        await ctx.db.patch(callId, { credited: true });
+    }
+    return result;
+}
+
+async function applyBuddyCall(ctx, args) {
+    const alarmId = ctx.db.normalizeId("alarms", args.alarmId);
+    if (!alarmId) {
+        throw new Error(`Not an alarm id: ${args.alarmId}`);
+    }
+
+    const existing = args.callKey
+        ? await ctx.db
+            .query("calls")
+            .withIndex("by_client_key", (q) => q.eq("client_key", args.callKey))
+            .unique()
+        : null;
+
+    let callId = existing?._id;
+    if (!callId) {
+        ({ callId } = await createCallDefinition.handler(ctx, {
+            user1Email: args.userEmail,
+            user2Email: args.buddyEmail,
+            alarmId,
+        }));
+        if (args.callKey) {
+            await ctx.db.patch(callId, { client_key: args.callKey });
+        }
+    }
+
+    return await applyCallResult(ctx, {
+        userEmail: args.userEmail,
+        callId,
+        duration: args.duration,
+        date: args.date,
+        inProgress: args.inProgress,
+    });
+}
+
+async function applyAlarmEnabled(ctx, args) {
+    const alarmId = ctx.db.normalizeId("alarms", args.alarmId);
+    if (!alarmId) {
+        throw new Error(`Not an alarm id: ${args.alarmId}`);
+    }
+
+    const alarm = await ctx.db.get(alarmId);
+    const user = await ctx.db
+        .query("users")
+        .withIndex("by_email", (q) => q.eq("email", args.userEmail))
+        .unique();
+    if (!alarm || !user || alarm.user_id !== user._id) {
+        throw new Error("Alarm not found");
+    }
+
+    await ctx.db.patch(alarmId, { enabled: args.enabled });
+    return { enabled: args.enabled };
+}
@@ -74,10 +74,14 @@ export default defineSchema({
         users: v.array(v.id('users')), // [id of person1, id of person2]
         call_duration: v.number(),     // duration in seconds
         call_time: v.string(),         // ISO timestamp of when call occurred
-        alarm_id: v.id('alarms')       // foreign key to alarms table
+        alarm_id: v.id('alarms'),      // foreign key to alarms table
+        client_key: v.optional(v.string()), // device's id for calls placed from the alarm screen
+        duration_final: v.optional(v.boolean()), // call_duration came from the call log after the call
+        credited: v.optional(v.boolean()) // markAwakeAfterCall already ran for this call
     })
         .index('by_user', ['users'])
-        .index('by_alarm', ['alarm_id']),
+        .index('by_alarm', ['alarm_id'])
+        .index('by_client_key', ['client_key']),
 
     friends: defineTable({
         users: v.array(v.id('users')),  // [sender_id, receiver_id]
@@ -146,4 +150,11 @@ export default defineSchema({
         .index('by_alarm', ['alarm_id'])
         .index('by_buddy', ['buddy_email', 'dismissed_at']),
 
+    nativeReports: defineTable({
+        report_id: v.string(),              // Client-generated id from the Android reporter
+        kind: v.string(),                   // 'wakeup' | 'callResult'
+        received_at: v.number(),            // When the report was applied
+    })
+        .index('by_report_id', ['report_id']),
+
 })
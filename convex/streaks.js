@@ -115,7 +115,7 @@ async function updateLeaderboardForUser(ctx, user, userDate = null) {
     return points;
 }
 
-export const markAwake = mutation({
+export const markAwakeDefinition = {
     args: {
         userEmail: v.string(), // User email to identify who is marking awake
         userDate: v.optional(v.string()), // YYYY-MM-DD from client
@@ -306,12 +306,13 @@ export const markAwake = mutation({
             newAchievements: awardedAchievements
         };
     },
-});
+};
+export const markAwake = mutation(markAwakeDefinition);
 
 /**
  * Mark both users as awake after a successful buddy call (≥ 60 seconds)
  */
-export const markAwakeAfterCall = mutation({
+export const markAwakeAfterCallDefinition = {
     args: {
         user1Email: v.string(),
         user2Email: v.string(),
@@ -421,7 +422,8 @@ export const markAwakeAfterCall = mutation({
             user2: user2Result
         };
     }
-});
+};
+export const markAwakeAfterCall = mutation(markAwakeAfterCallDefinition);
 
 export const getStreak = query({
     args: {
@@ -205,6 +205,34 @@ export const getAllUsers = query({
     },
 });
 
+/**
+ * Display details for a list of buddy emails, cached on the device for the native
+ * alarm screen. Unknown emails are left out.
+ */
+export const getBuddyProfiles = query({
+    args: {
+        emails: v.array(v.string()),
+    },
+    handler: async (ctx, args) => {
+        const profiles = [];
+        for (const email of new Set(args.emails)) {
+            const user = await ctx.db
+                .query("users")
+                .withIndex("by_email", (q) => q.eq("email", email))
+                .first();
+            if (!user) continue;
+
+            profiles.push({
+                email: user.email,
+                name: user.name,
+                phone: user.phone,
+                profile_code: user.profile_code || user.email,
+            });
+        }
+        return profiles;
+    },
+});
+
 /**
  * Update user's profile_code (avatar seed)
  */
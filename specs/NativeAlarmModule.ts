@@ -0,0 +1,89 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+import type { UnsafeObject } from 'react-native/Libraries/Types/CodegenTypes';
+
+/**
+ * Codegen spec for the native AlarmModule (android/app/.../AlarmModule.java).
+ *
+ * Cheap state checks are synchronous JSI calls; anything that starts an activity,
+ * touches storage or reads the call log stays promise-based. Batch calls take typed
+ * arrays so a whole list crosses JSI once. Numbers arrive as double on the Java side.
+ */
+
+export type AlarmSpec = {
+    timestampMs: number;
+    buddyName: string | null;
+    alarmId: string | null;
+    requestCode: number;
+};
+
+export type BuddyProfileSpec = {
+    alarmId: string | null;
+    email: string;
+    name: string | null;
+    phone: string | null;
+    profileCode: string | null;
+};
+
+export interface Spec extends TurboModule {
+    // NativeEventEmitter plumbing
+    addListener(eventName: string): void;
+    removeListeners(count: number): void;
+    // Which name the removed listener had; removeListeners only gets a count
+    releaseListener(eventName: string): void;
+
+    getEventBusStats(): Promise<UnsafeObject>;
+    dumpLog(): Promise<Array<string>>;
+
+    // Synchronous state getters
+    canScheduleExactAlarms(): boolean;
+    isBatteryOptimizationDisabled(): boolean;
+    canDrawOverlays(): boolean;
+    canUseFullScreenIntent(): boolean;
+    hasReadPhoneStatePermission(): boolean;
+    // Cached; EnvironmentChanged fires when any value changes
+    getEnvironmentSnapshot(): UnsafeObject;
+
+    // Settings screens
+    openAlarmSettings(): Promise<boolean>;
+    requestBatteryOptimizationExemption(): Promise<boolean>;
+    requestDrawOverlays(): Promise<boolean>;
+    requestFullScreenIntentPermission(): Promise<boolean>;
+    requestReadPhoneStatePermission(): Promise<boolean>;
+
+    // Alarms
+    scheduleExactAlarm(timestampMs: number, buddyName: string | null, alarmId: string | null, requestCode: number): Promise<boolean>;
+    scheduleExactAlarms(alarms: Array<AlarmSpec>): Promise<number>;
+    cancelAlarm(requestCode: number): Promise<boolean>;
+    cancelAlarms(requestCodes: Array<number>): Promise<number>;
+    stopAlarmService(): Promise<boolean>;
+    // Arms a quiet tagged alarm delayMs out and resolves with per-stage timings once it surfaces or times out
+    runAlarmSelfTest(delayMs: number): Promise<UnsafeObject>;
+
+    // Buddy calls
+    makePhoneCall(phoneNumber: string): Promise<boolean>;
+    getLastCallDuration(phoneNumber: string): Promise<number>;
+    getMostRecentCallDuration(): Promise<number>;
+    // Outgoing calls to these numbers, newest first, keyset-paged; cursor null for the first page
+    getCallHistory(numbers: Array<string>, sinceMs: number, pageSize: number, cursor: string | null): Promise<UnsafeObject>;
+    savePendingCall(callId: string, phoneNumber: string): Promise<boolean>;
+    checkPendingCall(): Promise<UnsafeObject | null>;
+    clearPendingCall(): void;
+    // Call length after which CallThresholdReached is posted during the call; 0 turns it off
+    setCallThreshold(seconds: number): void;
+
+    // Native records picked up by JS
+    drainDismissals(): Promise<Array<UnsafeObject>>;
+    ackDismissals(keys: Array<string>): Promise<boolean>;
+    // Native Convex reporter; null for either argument turns it off
+    configureReporter(deploymentUrl: string | null, userEmail: string | null): void;
+    // Buddy details shown on the native alarm screen; kept on the device (LRU)
+    cacheBuddyProfiles(profiles: Array<BuddyProfileSpec>): void;
+    drainJournal(sinceSeq: number, max: number): Promise<UnsafeObject>;
+    getFrameMetricsSummary(): Promise<UnsafeObject | null>;
+    // Per-day wake-up stats kept on the device; range is 'week', 'month' or 'year'
+    getLocalStats(range: string): Promise<UnsafeObject>;
+}
+
+// Android only; null elsewhere
+export default TurboModuleRegistry.get<Spec>('AlarmModule');
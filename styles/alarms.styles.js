@@ -68,6 +68,13 @@ const styles = StyleSheet.create({
         fontFamily: 'Montserrat_500Medium',
         marginBottom: 10,
     },
+    skippedText: {
+        color: NEON,
+        fontSize: 12,
+        fontFamily: 'Montserrat_500Medium',
+        marginTop: -6,
+        marginBottom: 10,
+    },
     actions: {
         flexDirection: 'row',
         alignItems: 'center',